@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.REGULAR;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures cost of building file of {@link #TOTAL} bytes by small (log records), medium and large appends
+ * * allocation rate reported by gc profiler shows per append overhead of file storage
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AppendBenchmark {
+    private static final String PATH = "/log";
+    private static final int TOTAL = 4 * 1024 * 1024;
+
+    @Param({"100", "4096", "1048576"})
+    private int chunk;
+
+    private byte[] payload;
+
+    private FS fs;
+
+    @Setup
+    public void setUp() {
+        fs = FS.init(Long.MAX_VALUE).elseGetRight(
+                () -> {
+                    throw new IllegalStateException("File system initialisation failed");
+                });
+        payload = new byte[chunk];
+    }
+
+    @Benchmark
+    public long append() {
+        fs.create(PATH, REGULAR);
+        for (int written = 0; written < TOTAL; written += chunk) {
+            fs.append(PATH, payload);
+        }
+        final long result = fs.used();
+        fs.delete(PATH);
+        return result;
+    }
+}
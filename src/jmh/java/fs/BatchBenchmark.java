@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+
+import fs.impl.FSConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * compares creation and writing of {@link #files} small files in single directory {@link #DEPTH} levels deep by
+ * separate calls with the same operations applied as single batch
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BatchBenchmark {
+    private static final int DEPTH = 8;
+    private static final byte[] CONTENT = new byte[64];
+
+    @Param({"500"})
+    private int files;
+
+    @Param({"SINGLE_THREADED", "CONCURRENT", "LOCK_FREE_READS"})
+    private FSConfig.Mode mode;
+
+    private String dir;
+    private String[] paths;
+    private Batch batch;
+    private Batch atomicBatch;
+
+    private FS fs;
+
+    @Setup
+    public void setUp() {
+        fs = FSConfig.init(Long.MAX_VALUE, mode);
+        final StringBuilder path = new StringBuilder();
+        for (int i = 0; i < DEPTH; i++) {
+            path.append("/dir").append(i);
+            fs.create(path.toString(), DIRECTORY);
+        }
+        dir = path.append("/files").toString();
+        paths = new String[files];
+        final Batch.Builder builder = Batch.builder();
+        for (int i = 0; i < files; i++) {
+            paths[i] = dir + "/file" + i;
+            builder.create(paths[i], REGULAR).write(paths[i], CONTENT);
+        }
+        batch = builder.build();
+        atomicBatch = builder.atomic().build();
+    }
+
+    @Setup(Level.Invocation)
+    public void clean() {
+        fs.delete(dir);
+        fs.create(dir, DIRECTORY);
+    }
+
+    @Benchmark
+    public long separateCalls() {
+        for (String path : paths) {
+            fs.create(path, REGULAR);
+            fs.write(path, CONTENT);
+        }
+        return fs.used();
+    }
+
+    @Benchmark
+    public long batch() {
+        return fs.apply(batch).size();
+    }
+
+    @Benchmark
+    public long atomicBatch() {
+        return fs.apply(atomicBatch).size();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+
+import data.Unit;
+import data.either.Either;
+import fs.impl.FSConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures copying of large tree: {@link #files} files of {@link #FILE_SIZE} bytes in directories of
+ * {@link #FILES_PER_DIRECTORY} files
+ * * copy is deleted in untimed setup before each invocation
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CopyTreeBenchmark {
+    private static final String SOURCE = "/source";
+    private static final String DESTINATION = "/destination";
+    private static final int FILE_SIZE = 64 * 1024;
+    private static final int FILES_PER_DIRECTORY = 100;
+
+    @Param({"1000", "10000"})
+    private int files;
+
+    @Param({"SINGLE_THREADED", "CONCURRENT", "LOCK_FREE_READS"})
+    private FSConfig.Mode mode;
+
+    private FS fs;
+
+    @Setup
+    public void setUp() {
+        fs = FS.init(Long.MAX_VALUE, mode).elseGetRight(
+                () -> {
+                    throw new IllegalStateException("File system initialisation failed");
+                });
+        fs.create(SOURCE, DIRECTORY);
+        final byte[] content = new byte[FILE_SIZE];
+        for (int i = 0; i < files; i++) {
+            final String directory = SOURCE + "/dir" + i / FILES_PER_DIRECTORY;
+            if (i % FILES_PER_DIRECTORY == 0) {
+                fs.create(directory, DIRECTORY);
+            }
+            final String file = directory + "/file" + i;
+            fs.create(file, REGULAR);
+            fs.write(file, content);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void deleteCopy() {
+        fs.delete(DESTINATION);
+    }
+
+    @Benchmark
+    public Either<FSError, Unit> copy() {
+        return fs.copy(SOURCE, DESTINATION);
+    }
+}
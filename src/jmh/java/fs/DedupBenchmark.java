@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.REGULAR;
+
+import data.Unit;
+import data.either.Either;
+import fs.impl.FSConfig;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures rewriting of {@link #FILES} files of {@link #FILE_SIZE} bytes in turn with and without deduplication
+ * * {@link Dataset#DUPLICATE} writes the same content to all files and {@link Dataset#UNIQUE} writes distinct one
+ * * to each file
+ * * logical and physical sizes of file system are reported as secondary results by {@link Sizes}
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DedupBenchmark {
+    private static final int FILES = 256;
+    private static final int FILE_SIZE = 64 * 1024;
+
+    public enum Dataset {
+        DUPLICATE,
+        UNIQUE
+    }
+
+    @Param({"DUPLICATE", "UNIQUE"})
+    private Dataset dataset;
+
+    @Param({"false", "true"})
+    private boolean deduplication;
+
+    private FS fs;
+    private byte[][] contents;
+    private int next = 0;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Sizes {
+        public long logicalBytes;
+        public long physicalBytes;
+    }
+
+    @Setup
+    public void setUp() {
+        fs = FSConfig.init(Long.MAX_VALUE, FSConfig.Mode.SINGLE_THREADED, FSConfig.DEFAULT_LOOKUP_CACHE_CAPACITY, deduplication);
+        final Random random = new Random(42);
+        contents = new byte[dataset == Dataset.DUPLICATE ? 1 : FILES][FILE_SIZE];
+        for (byte[] content : contents) {
+            random.nextBytes(content);
+        }
+        for (int i = 0; i < FILES; i++) {
+            fs.create(file(i), REGULAR);
+            fs.write(file(i), contents[i % contents.length]);
+        }
+    }
+
+    private static String file(int i) {
+        return "/file" + i;
+    }
+
+    @Benchmark
+    public Either<FSError, Unit> write(Sizes sizes) {
+        final int i = next;
+        next = (next + 1) % FILES;
+        final Either<FSError, Unit> result = fs.write(file(i), contents[i % contents.length]);
+        sizes.logicalBytes = fs.used();
+        sizes.physicalBytes = fs.physicalUsed();
+        return result;
+    }
+}
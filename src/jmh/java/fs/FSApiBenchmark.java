@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+
+import data.ByteArray;
+import data.Unit;
+import data.either.Either;
+import fs.impl.FSConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures each operation of {@link FS} API on trees of different {@link Shape}s with target file of different sizes
+ * * {@link Plain} runs with assertions disabled and {@link Checked} with enabled ones, so the difference between them
+ * * is cost of invariant checks made by {@link check.CheckHelper} on every call
+ * * mutating operations restore tree in untimed setup before each invocation (see {@link Level#Invocation} for it's
+ * * caveats), so every invocation sees the same tree
+ * <p>
+ * whole suite is run by gradle task jmh which writes machine readable results to build/reports/jmh/results.json
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public abstract class FSApiBenchmark {
+    @Fork(value = 1, jvmArgsAppend = {"-da", "-Xmx3g"})
+    public static class Plain extends FSApiBenchmark {
+    }
+
+    @Fork(value = 1, jvmArgsAppend = {"-ea", "-Xmx3g"})
+    public static class Checked extends FSApiBenchmark {
+    }
+
+    /**
+     * shape of tree under {@link Tree#ROOT}: directory of each level contains fanout subdirectories and directories
+     * of the last level contain fanout empty files, so all shapes have about 10 000 nodes except deep narrow one
+     */
+    public enum Shape {
+        WIDE_FLAT(0, 10_000),
+        DEEP_NARROW(100, 1),
+        BALANCED(3, 10);
+
+        private final int depth;
+        private final int fanout;
+
+        Shape(int depth, int fanout) {
+            this.depth = depth;
+            this.fanout = fanout;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Tree {
+        static final String ROOT = "/tree";
+        /**
+         * size of records appended by {@link #append(Tree, Appended)}
+         */
+        static final int RECORD = 4096;
+
+        @Param({"WIDE_FLAT", "DEEP_NARROW", "BALANCED"})
+        Shape shape;
+
+        @Param({"0", "4096", "1048576", "67108864"})
+        int fileSize;
+
+        @Param({"SINGLE_THREADED"})
+        FSConfig.Mode mode;
+
+        FS fs;
+        /**
+         * directory of the last level containing target file
+         */
+        String directory;
+        String file;
+        String created;
+        String copied;
+        String moved;
+        byte[] content;
+        final byte[] record = new byte[RECORD];
+
+        @Setup
+        public void setUp() {
+            fs = FS.init(Long.MAX_VALUE, mode).elseGetRight(
+                    () -> {
+                        throw new IllegalStateException("File system initialisation failed");
+                    });
+            fs.create(ROOT, DIRECTORY);
+            populate(ROOT, shape.depth);
+            final StringBuilder directory = new StringBuilder(ROOT);
+            for (int i = 0; i < shape.depth; i++) {
+                directory.append("/d0");
+            }
+            this.directory = directory.toString();
+            file = this.directory + "/target";
+            created = this.directory + "/created";
+            copied = this.directory + "/copied";
+            moved = this.directory + "/moved";
+            content = new byte[fileSize];
+            fs.create(file, REGULAR);
+            fs.write(file, content);
+        }
+
+        private void populate(String directory, int depth) {
+            for (int i = 0; i < shape.fanout; i++) {
+                if (depth == 0) {
+                    fs.create(directory + "/f" + i, REGULAR);
+                } else {
+                    final String child = directory + "/d" + i;
+                    fs.create(child, DIRECTORY);
+                    populate(child, depth - 1);
+                }
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Created {
+        @Setup(Level.Invocation)
+        public void setUp(Tree tree) {
+            tree.fs.delete(tree.created);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Appended {
+        /**
+         * file is restored when it grows by this size, so memory used by iteration is bounded
+         */
+        private static final int GROWTH_LIMIT = 64 * 1024 * 1024;
+
+        @Setup(Level.Invocation)
+        public void setUp(Tree tree) {
+            if (tree.fs.info(tree.file).elseGetRight(() -> null).size >= tree.fileSize + GROWTH_LIMIT) {
+                tree.fs.write(tree.file, tree.content);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Copied {
+        @Setup(Level.Invocation)
+        public void setUp(Tree tree) {
+            tree.fs.delete(tree.copied);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Moved {
+        @Setup(Level.Invocation)
+        public void setUp(Tree tree) {
+            tree.fs.move(tree.moved, tree.file);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Deleted {
+        @Setup(Level.Invocation)
+        public void setUp(Tree tree) {
+            if (tree.fs.create(tree.file, REGULAR).isRight()) {
+                tree.fs.write(tree.file, tree.content);
+            }
+        }
+    }
+
+    @Benchmark
+    public Either<FSError, Unit> create(Tree tree, Created created) {
+        return tree.fs.create(tree.created, REGULAR);
+    }
+
+    @Benchmark
+    public Either<FSError, FileInfo> info(Tree tree) {
+        return tree.fs.info(tree.file);
+    }
+
+    @Benchmark
+    public Either<FSError, ByteArray> read(Tree tree) {
+        return tree.fs.read(tree.file);
+    }
+
+    @Benchmark
+    public Either<FSError, Unit> write(Tree tree) {
+        return tree.fs.write(tree.file, tree.content);
+    }
+
+    @Benchmark
+    public Either<FSError, Unit> append(Tree tree, Appended appended) {
+        return tree.fs.append(tree.file, tree.record);
+    }
+
+    @Benchmark
+    public Either<FSError, List<FileInfo>> ls(Tree tree) {
+        return tree.fs.ls(tree.directory);
+    }
+
+    @Benchmark
+    public Either<FSError, Unit> copy(Tree tree, Copied copied) {
+        return tree.fs.copy(tree.file, tree.copied);
+    }
+
+    @Benchmark
+    public Either<FSError, Unit> move(Tree tree, Moved moved) {
+        return tree.fs.move(tree.file, tree.moved);
+    }
+
+    @Benchmark
+    public Either<FSError, Unit> delete(Tree tree, Deleted deleted) {
+        return tree.fs.delete(tree.file);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+
+import data.Unit;
+import data.either.Either;
+import fs.impl.FSConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures cost of failed operations used to probe existence of files ("info of missing file" and
+ * "create if absent" patterns)
+ * * errors are returned and never thrown, so their cost is dominated by construction of {@link FSError}
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FailedLookupBenchmark {
+    private static final String DIRECTORY_PATH = "/level1/level2/level3";
+    private static final String EXISTING = DIRECTORY_PATH + "/existing";
+    private static final String MISSING = DIRECTORY_PATH + "/missing";
+
+    @Param({"SINGLE_THREADED", "CONCURRENT", "LOCK_FREE_READS"})
+    private FSConfig.Mode mode;
+
+    private FS fs;
+
+    @Setup
+    public void setUp() {
+        fs = FS.init(Long.MAX_VALUE, mode).elseGetRight(
+                () -> {
+                    throw new IllegalStateException("File system initialisation failed");
+                });
+        fs.create("/level1", DIRECTORY);
+        fs.create("/level1/level2", DIRECTORY);
+        fs.create(DIRECTORY_PATH, DIRECTORY);
+        fs.create(EXISTING, REGULAR);
+    }
+
+    @Benchmark
+    public Either<FSError, FileInfo> infoOfMissingFile() {
+        return fs.info(MISSING);
+    }
+
+    @Benchmark
+    public Either<FSError, Unit> createExistingFile() {
+        return fs.create(EXISTING, REGULAR);
+    }
+}
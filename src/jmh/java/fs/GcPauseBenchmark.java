@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.REGULAR;
+
+import fs.impl.FSConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures pause of full garbage collection while file system holds {@link #contentSize} bytes of content
+ * * files of {@link #FILE_SIZE} bytes are filled by appends of {@link #RECORD} bytes, so heap storage holds content in
+ * * blocks of {@link #RECORD} bytes which are traced by collector, while off heap storage keeps only ids of pages
+ * * heap and direct memory limits are big enough for the largest content, so it should be run on machine with
+ * * enough memory for chosen sizes, eg -p contentSize=1073741824
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx40g", "-XX:MaxDirectMemorySize=40g"})
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+public class GcPauseBenchmark {
+    private static final int FILE_SIZE = 64 * 1024 * 1024;
+    private static final int RECORD = 4096;
+
+    @Param({"1073741824", "8589934592", "34359738368"})
+    private long contentSize;
+
+    @Param({"HEAP", "OFF_HEAP"})
+    private FSConfig.Storage storage;
+
+    private FS fs;
+
+    @Setup
+    public void setUp() {
+        fs = FSConfig.init(Long.MAX_VALUE, FSConfig.Mode.SINGLE_THREADED, FSConfig.DEFAULT_LOOKUP_CACHE_CAPACITY, false, storage);
+        final byte[] record = new byte[RECORD];
+        for (int i = 0; i < contentSize / FILE_SIZE; i++) {
+            final String file = "/file" + i;
+            fs.create(file, REGULAR);
+            for (int j = 0; j < FILE_SIZE / RECORD; j++) {
+                fs.append(file, record);
+            }
+        }
+    }
+
+    @Benchmark
+    public long fullGc() {
+        System.gc();
+        return fs.used();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.REGULAR;
+
+import fs.impl.FSConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * measures throughput of appends of {@link #CHUNK} bytes to journaled file system for each sync policy
+ * * NONE is file system without journal
+ * * file is recreated every {@link #FILE_SIZE} bytes to keep memory bounded
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class JournalBenchmark {
+    private static final String PATH = "/log";
+    private static final int CHUNK = 4096;
+    private static final int FILE_SIZE = 4 * 1024 * 1024;
+
+    @Param({"NONE", "EVERY_OPERATION", "GROUP_COMMIT", "ASYNC"})
+    private String sync;
+
+    private final byte[] payload = new byte[CHUNK];
+
+    private Path directory;
+    private FS fs;
+    private int written;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("fs");
+        fs = ("NONE".equals(sync) ?
+                FS.init(Long.MAX_VALUE, FSConfig.Mode.SINGLE_THREADED) :
+                FS.init(Long.MAX_VALUE, FSConfig.Mode.SINGLE_THREADED, directory.resolve("journal"), FSConfig.Sync.valueOf(sync)))
+                .elseGetRight(
+                        () -> {
+                            throw new IllegalStateException("File system initialisation failed");
+                        });
+        fs.create(PATH, REGULAR);
+        written = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        if (fs instanceof JournaledFS) {
+            ((JournaledFS) fs).close();
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean append() {
+        if (written == FILE_SIZE) {
+            fs.write(PATH, new byte[0]);
+            written = 0;
+        }
+        written += CHUNK;
+        return fs.append(PATH, payload).isRight();
+    }
+}
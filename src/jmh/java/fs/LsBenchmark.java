@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+
+import data.either.Either;
+import fs.impl.FSConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * measures listing of directory with {@link #width} files located {@link #depth} levels deep and info of one of them
+ * * full names of listed files are as long as depth of directory, so their building dominates deep listings
+ * * {@link #page()} lists {@link #PAGE} entries from the middle of directory and {@link #lsStream()} consumes the
+ * * whole directory by pages
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LsBenchmark {
+    private static final int PAGE = 100;
+
+    @Param({"100", "10000"})
+    private int width;
+
+    @Param({"1", "10", "100"})
+    private int depth;
+
+    @Param({"SINGLE_THREADED", "CONCURRENT", "LOCK_FREE_READS"})
+    private FSConfig.Mode mode;
+
+    private FS fs;
+    private String dir;
+    private String file;
+    private String middle;
+
+    @Setup
+    public void setUp() {
+        fs = FSConfig.init(Long.MAX_VALUE, mode);
+        final StringBuilder path = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            path.append("/dir").append(i);
+            fs.create(path.toString(), DIRECTORY);
+        }
+        dir = path.toString();
+        for (int i = 0; i < width; i++) {
+            fs.create(dir + "/file" + i, REGULAR);
+        }
+        file = dir + "/file0";
+        middle = dir + "/file" + width / 2;
+    }
+
+    @Benchmark
+    public Either<FSError, List<FileInfo>> ls() {
+        return fs.ls(dir);
+    }
+
+    @Benchmark
+    public Either<FSError, List<FileInfo>> page() {
+        return fs.ls(dir, middle, PAGE);
+    }
+
+    @Benchmark
+    public long lsStream() {
+        return fs.lsStream(dir).elseGetRight(Stream::empty).count();
+    }
+
+    @Benchmark
+    public Either<FSError, FileInfo> info() {
+        return fs.info(file);
+    }
+}
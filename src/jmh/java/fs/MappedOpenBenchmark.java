@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.REGULAR;
+
+import fs.impl.FSConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * compares opening of image of {@link #files} files of {@link #FILE_SIZE} bytes with repopulating of in memory file
+ * system with the same files through API
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MappedOpenBenchmark {
+    private static final int FILE_SIZE = 1024 * 1024;
+
+    @Param({"1000"})
+    private int files;
+
+    private Path image;
+    private byte[] content;
+
+    @Setup
+    public void setUp() throws IOException {
+        image = Files.createTempDirectory("fs");
+        content = new byte[FILE_SIZE];
+        try (MappedFS fs = open()) {
+            populate(fs);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(image)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private MappedFS open() {
+        return FS.open(image, Long.MAX_VALUE, FSConfig.Mode.SINGLE_THREADED).elseGetRight(
+                () -> {
+                    throw new IllegalStateException("File system opening failed");
+                });
+    }
+
+    private void populate(FS fs) {
+        for (int i = 0; i < files; i++) {
+            fs.create("/file" + i, REGULAR);
+            fs.write("/file" + i, content);
+        }
+    }
+
+    @Benchmark
+    public long reopen() throws IOException {
+        try (MappedFS fs = open()) {
+            return fs.used();
+        }
+    }
+
+    @Benchmark
+    public long repopulate() {
+        final FS fs = FSConfig.init(Long.MAX_VALUE, FSConfig.Mode.SINGLE_THREADED);
+        populate(fs);
+        return fs.used();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+
+import data.Unit;
+import data.either.Either;
+import fs.impl.FSConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures moves in tree {@link #DEPTH} levels deep. Each operation moves node there and back, so tree stays the same
+ * * {@link #rename()} moves file within the deepest directory
+ * * {@link #moveBetweenSiblings()} moves file between two directories under the deepest one
+ * * {@link #moveToRoot()} moves file from the deepest directory to root
+ * * {@link #moveSubtree()} moves directory with {@link #SUBTREE} files between siblings to show that cost doesn't
+ * * depend on size of moved subtree
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MoveBenchmark {
+    private static final int DEPTH = 100;
+    private static final int SUBTREE = 1000;
+
+    @Param({"SINGLE_THREADED", "CONCURRENT", "LOCK_FREE_READS"})
+    private FSConfig.Mode mode;
+
+    private FS fs;
+    private String file;
+    private String renamed;
+    private String left;
+    private String right;
+    private String atRoot;
+    private String subtree;
+    private String movedSubtree;
+
+    @Setup
+    public void setUp() {
+        fs = FSConfig.init(Long.MAX_VALUE, mode);
+        final StringBuilder path = new StringBuilder();
+        for (int i = 0; i < DEPTH; i++) {
+            path.append("/dir").append(i);
+            fs.create(path.toString(), DIRECTORY);
+        }
+        final String deepest = path.toString();
+        file = deepest + "/file";
+        renamed = deepest + "/renamed";
+        fs.create(file, REGULAR);
+        fs.write(file, new byte[16]);
+        fs.create(deepest + "/left", DIRECTORY);
+        fs.create(deepest + "/right", DIRECTORY);
+        left = deepest + "/left/file";
+        right = deepest + "/right/file";
+        fs.create(left, REGULAR);
+        fs.write(left, new byte[16]);
+        atRoot = "/file";
+        subtree = deepest + "/left/subtree";
+        movedSubtree = deepest + "/right/subtree";
+        fs.create(subtree, DIRECTORY);
+        for (int i = 0; i < SUBTREE; i++) {
+            fs.create(subtree + "/file" + i, REGULAR);
+            fs.write(subtree + "/file" + i, new byte[16]);
+        }
+    }
+
+    @Benchmark
+    public Either<FSError, Unit> rename() {
+        fs.move(file, renamed);
+        return fs.move(renamed, file);
+    }
+
+    @Benchmark
+    public Either<FSError, Unit> moveBetweenSiblings() {
+        fs.move(left, right);
+        return fs.move(right, left);
+    }
+
+    @Benchmark
+    public Either<FSError, Unit> moveToRoot() {
+        fs.move(file, atRoot);
+        return fs.move(atRoot, file);
+    }
+
+    @Benchmark
+    public Either<FSError, Unit> moveSubtree() {
+        fs.move(subtree, movedSubtree);
+        return fs.move(movedSubtree, subtree);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+
+import data.either.Either;
+import fs.impl.FSConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * measures queries of {@link #RESULTS} entries from the middle of directory with {@link #width} files
+ * * {@link #lsPrefix()} and {@link #lsRange()} should take the same time for any width, while
+ * * {@link #lsFiltered()} is kept as reference of full listing filtered by client
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RangeLsBenchmark {
+    private static final String DIR = "/dir";
+    private static final int RESULTS = 100;
+
+    @Param({"10000", "1000000"})
+    private int width;
+
+    @Param({"SINGLE_THREADED", "CONCURRENT", "LOCK_FREE_READS"})
+    private FSConfig.Mode mode;
+
+    private FS fs;
+    private String prefix;
+    private String from;
+    private String to;
+
+    @Setup
+    public void setUp() {
+        fs = FSConfig.init(Long.MAX_VALUE, mode);
+        fs.create(DIR, DIRECTORY);
+        for (int i = 0; i < width; i++) {
+            fs.create(DIR + '/' + name(i), REGULAR);
+        }
+        final int middle = width / 2;
+        // names are zero padded, so the last two digits of prefix are free and it has exactly RESULTS names
+        prefix = name(middle).substring(0, name(middle).length() - 2);
+        from = name(middle);
+        to = name(middle + RESULTS);
+    }
+
+    private static String name(int i) {
+        return String.format("%07d", i);
+    }
+
+    @Benchmark
+    public Either<FSError, List<FileInfo>> lsPrefix() {
+        return fs.lsPrefix(DIR, prefix);
+    }
+
+    @Benchmark
+    public Either<FSError, List<FileInfo>> lsRange() {
+        return fs.lsRange(DIR, from, to);
+    }
+
+    @Benchmark
+    public Either<FSError, List<FileInfo>> lsFiltered() {
+        final String start = DIR + '/' + prefix;
+        return fs.ls(DIR).rMap(infos -> infos.stream().filter(info -> info.fullName.startsWith(start)).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.REGULAR;
+
+import data.ByteArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures cost of reading the whole file written by appends
+ * * {@link #readView()} consumes read only views of content which share memory with file
+ * * {@link #readCopy()} copies content into new array once
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ReadBenchmark {
+    private static final String PATH = "/file";
+    private static final int CHUNK = 64 * 1024;
+
+    @Param({"65536", "10485760"})
+    private int size;
+
+    private FS fs;
+
+    @Setup
+    public void setUp() {
+        fs = FS.init(Long.MAX_VALUE).elseGetRight(
+                () -> {
+                    throw new IllegalStateException("File system initialisation failed");
+                });
+        fs.create(PATH, REGULAR);
+        for (int written = 0; written < size; written += CHUNK) {
+            fs.append(PATH, new byte[Math.min(CHUNK, size - written)]);
+        }
+    }
+
+    @Benchmark
+    public long readView() {
+        long result = 0;
+        for (ByteBuffer buffer : fs.read(PATH).elseGetRight(() -> null).asReadOnlyBuffers()) {
+            result += buffer.get(buffer.limit() - 1) + buffer.remaining();
+        }
+        return result;
+    }
+
+    @Benchmark
+    public byte[] readCopy() {
+        final ByteArray content = fs.read(PATH).elseGetRight(() -> null);
+        return content.get();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+
+import fs.impl.FSConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * compares throughput of thread safe file systems under read mostly load (50 reads per write)
+ * * each benchmark method runs the same load using different number of threads
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ReadMostlyBenchmark {
+    private static final int DIRECTORIES = 16;
+    private static final int FILES_PER_DIRECTORY = 64;
+    private static final int READS_PER_WRITE = 50;
+
+    @Param({"CONCURRENT", "LOCK_FREE_READS"})
+    private FSConfig.Mode mode;
+
+    private final byte[] content = new byte[64];
+
+    private FS fs;
+    private String[] directories;
+    private String[] files;
+
+    @Setup
+    public void setUp() {
+        fs = FS.init(Long.MAX_VALUE, mode).elseGetRight(
+                () -> {
+                    throw new IllegalStateException("File system initialisation failed");
+                });
+        directories = new String[DIRECTORIES];
+        files = new String[DIRECTORIES * FILES_PER_DIRECTORY];
+        for (int i = 0; i < DIRECTORIES; i++) {
+            directories[i] = "/dir" + i;
+            fs.create(directories[i], DIRECTORY);
+            for (int j = 0; j < FILES_PER_DIRECTORY; j++) {
+                final String file = directories[i] + "/file" + j;
+                files[i * FILES_PER_DIRECTORY + j] = file;
+                fs.create(file, REGULAR);
+                fs.write(file, content);
+            }
+        }
+    }
+
+    private Object operation() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final Object result;
+        switch (random.nextInt(READS_PER_WRITE + 1)) {
+            case 0:
+                result = fs.write(files[random.nextInt(files.length)], content);
+                break;
+            case 1:
+                result = fs.ls(directories[random.nextInt(directories.length)]);
+                break;
+            default:
+                final String file = files[random.nextInt(files.length)];
+                result = random.nextBoolean() ? fs.info(file) : fs.read(file);
+        }
+        return result;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object threads1() {
+        return operation();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object threads4() {
+        return operation();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object threads16() {
+        return operation();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object threads64() {
+        return operation();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import fs.impl.FSConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures export of snapshot of file system holding {@link #files} files of {@link #FILE_SIZE} bytes to file and
+ * restoring of file system from it. Throughput in MB/s is {@link #files} * 1000 / score
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SnapshotBenchmark {
+    private static final int FILE_SIZE = 1024 * 1024;
+    private static final int FILES_PER_DIRECTORY = 64;
+
+    @Param({"256"})
+    private int files;
+
+    @Param({"SINGLE_THREADED", "CONCURRENT", "LOCK_FREE_READS"})
+    private FSConfig.Mode mode;
+
+    private Path snapshot;
+    private FS fs;
+
+    @Setup
+    public void setUp() throws IOException {
+        snapshot = Files.createTempFile("fs", ".snapshot");
+        fs = FS.init(Long.MAX_VALUE, mode).elseGetRight(
+                () -> {
+                    throw new IllegalStateException("File system initialisation failed");
+                });
+        final byte[] content = new byte[FILE_SIZE];
+        for (int i = 0; i < files; i++) {
+            final String directory = "/dir" + i / FILES_PER_DIRECTORY;
+            fs.create(directory, DIRECTORY);
+            fs.create(directory + "/file" + i, REGULAR);
+            fs.write(directory + "/file" + i, content);
+        }
+        export();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(snapshot);
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        try (FileChannel out = FileChannel.open(snapshot, WRITE, TRUNCATE_EXISTING)) {
+            fs.snapshot(out);
+            return out.size();
+        }
+    }
+
+    @Benchmark
+    public long restore() throws IOException {
+        try (FileChannel in = FileChannel.open(snapshot, READ)) {
+            return FS.restore(in, Long.MAX_VALUE, mode).elseGetRight(
+                    () -> {
+                        throw new IllegalStateException("File system restoring failed");
+                    })
+                    .used();
+        }
+    }
+}
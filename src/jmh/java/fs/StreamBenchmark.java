@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.REGULAR;
+
+import fs.impl.FSConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * compares moving of file of {@link #megabytes} MB through streams by buffers of {@link #BUFFER_SIZE} bytes with
+ * moving it as the whole array. Allocation reported by gc profiler shows memory needed by each way
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StreamBenchmark {
+    private static final String READ_PATH = "/read";
+    private static final String WRITE_PATH = "/write";
+    private static final int BUFFER_SIZE = 8192;
+
+    @Param({"128"})
+    private int megabytes;
+
+    @Param({"SINGLE_THREADED", "CONCURRENT"})
+    private FSConfig.Mode mode;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private FS fs;
+
+    @Setup
+    public void setUp() throws IOException {
+        fs = FS.init(Long.MAX_VALUE, mode).elseGetRight(
+                () -> {
+                    throw new IllegalStateException("File system initialisation failed");
+                });
+        fs.create(READ_PATH, REGULAR);
+        fs.create(WRITE_PATH, REGULAR);
+        fs.write(READ_PATH, new byte[megabytes << 20]);
+    }
+
+    @Benchmark
+    public long readStream() throws IOException {
+        long result = 0;
+        try (InputStream in = fs.openInputStream(READ_PATH).elseGetRight(() -> null)) {
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                result += read;
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public long readArray() {
+        return fs.read(READ_PATH).elseGetRight(() -> null).get().length;
+    }
+
+    @Benchmark
+    public long writeStream() throws IOException {
+        try (OutputStream out = fs.openOutputStream(WRITE_PATH, false).elseGetRight(() -> null)) {
+            for (int i = 0; i < megabytes << 20; i += BUFFER_SIZE) {
+                out.write(buffer);
+            }
+        }
+        return fs.used();
+    }
+
+    @Benchmark
+    public long writeArray() {
+        fs.write(WRITE_PATH, new byte[megabytes << 20]);
+        return fs.used();
+    }
+}
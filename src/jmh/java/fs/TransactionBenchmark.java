@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+
+import data.Unit;
+import data.either.Either;
+import fs.impl.FSConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * compares transfers between two of {@link #ACCOUNTS} files made atomic by transactions with the same transfers
+ * guarded by external read write lock. Readers of single accounts run alongside writers
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TransactionBenchmark {
+    private static final int ACCOUNTS = 64;
+
+    @Param({"CONCURRENT", "LOCK_FREE_READS"})
+    private FSConfig.Mode mode;
+
+    private final ReadWriteLock external = new ReentrantReadWriteLock();
+
+    private FS fs;
+    private String[] accounts;
+
+    @Setup
+    public void setUp() {
+        fs = FS.init(Long.MAX_VALUE, mode).elseGetRight(
+                () -> {
+                    throw new IllegalStateException("File system initialisation failed");
+                });
+        accounts = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            fs.create("/dir" + i, DIRECTORY);
+            accounts[i] = "/dir" + i + "/account";
+            fs.create(accounts[i], REGULAR);
+            fs.write(accounts[i], new byte[Long.BYTES]);
+        }
+    }
+
+    private static Either<FSError, Unit> transfer(FS fs, String from, String to) {
+        return fs.read(from).rFlatMap(
+                source -> fs.read(to).rFlatMap(
+                        destination -> {
+                            fs.write(from, ByteBuffer.allocate(Long.BYTES).putLong(0, ByteBuffer.wrap(source.get()).getLong() - 1).array());
+                            return fs.write(to, ByteBuffer.allocate(Long.BYTES).putLong(0, ByteBuffer.wrap(destination.get()).getLong() + 1).array());
+                        }));
+    }
+
+    private String account() {
+        return accounts[ThreadLocalRandom.current().nextInt(ACCOUNTS)];
+    }
+
+    @Benchmark
+    @Group("transaction")
+    @GroupThreads(2)
+    public Object transactionWriter() {
+        final String from = account();
+        final String to = account();
+        return fs.transaction(tx -> transfer(tx, from, to));
+    }
+
+    @Benchmark
+    @Group("transaction")
+    @GroupThreads(6)
+    public Object transactionReader() {
+        return fs.read(account());
+    }
+
+    @Benchmark
+    @Group("externalLock")
+    @GroupThreads(2)
+    public Object externalLockWriter() {
+        external.writeLock().lock();
+        try {
+            return transfer(fs, account(), account());
+        } finally {
+            external.writeLock().unlock();
+        }
+    }
+
+    @Benchmark
+    @Group("externalLock")
+    @GroupThreads(6)
+    public Object externalLockReader() {
+        external.readLock().lock();
+        try {
+            return fs.read(account());
+        } finally {
+            external.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+
+import data.either.Either;
+import fs.impl.FSConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures listing of root with {@link #DIRECTORIES} directories sharing {@link #files} files
+ * * sizes of listed directories are running totals, so latency should stay flat from 1k to 1M files
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TreeLsBenchmark {
+    private static final int DIRECTORIES = 100;
+
+    @Param({"1000", "1000000"})
+    private int files;
+
+    @Param({"SINGLE_THREADED", "CONCURRENT", "LOCK_FREE_READS"})
+    private FSConfig.Mode mode;
+
+    private final byte[] content = new byte[16];
+
+    private FS fs;
+
+    @Setup
+    public void setUp() {
+        fs = FSConfig.init(Long.MAX_VALUE, mode);
+        for (int i = 0; i < DIRECTORIES; i++) {
+            fs.create("/dir" + i, DIRECTORY);
+        }
+        for (int i = 0; i < files; i++) {
+            final String file = "/dir" + i % DIRECTORIES + "/file" + i;
+            fs.create(file, REGULAR);
+            fs.write(file, content);
+        }
+    }
+
+    @Benchmark
+    public Either<FSError, List<FileInfo>> lsRoot() {
+        return fs.ls("/");
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.REGULAR;
+
+import fs.impl.FSConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * compares writing of content assembled from header, body of {@link #kilobytes} KB and trailer by concatenation into
+ * array with gathering write of the parts, and reading into new array with scattering read into reused buffers
+ * allocation reported by gc profiler shows extra copies made by each way
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class VectoredBenchmark {
+    private static final String PATH = "/file";
+    private static final int HEADER_SIZE = 64;
+    private static final int TRAILER_SIZE = 16;
+
+    @Param({"4", "1024"})
+    private int kilobytes;
+
+    @Param({"HEAP", "OFF_HEAP"})
+    private FSConfig.Storage storage;
+
+    private ByteBuffer header;
+    private ByteBuffer body;
+    private ByteBuffer trailer;
+    /**
+     * pooled buffers of reader
+     */
+    private ByteBuffer[] targets;
+
+    private FS fs;
+
+    @Setup
+    public void setUp() {
+        fs = FSConfig.init(Long.MAX_VALUE, FSConfig.Mode.SINGLE_THREADED, FSConfig.DEFAULT_LOOKUP_CACHE_CAPACITY, false, storage);
+        fs.create(PATH, REGULAR);
+        header = ByteBuffer.allocate(HEADER_SIZE);
+        body = ByteBuffer.allocate(kilobytes << 10);
+        trailer = ByteBuffer.allocate(TRAILER_SIZE);
+        targets = new ByteBuffer[]{ByteBuffer.allocate(HEADER_SIZE), ByteBuffer.allocate(kilobytes << 10), ByteBuffer.allocate(TRAILER_SIZE)};
+        fs.write(PATH, header, body, trailer);
+    }
+
+    @Benchmark
+    public long writeConcatenated() {
+        final byte[] content = new byte[header.remaining() + body.remaining() + trailer.remaining()];
+        header.duplicate().get(content, 0, HEADER_SIZE);
+        body.duplicate().get(content, HEADER_SIZE, body.remaining());
+        trailer.duplicate().get(content, content.length - TRAILER_SIZE, TRAILER_SIZE);
+        fs.write(PATH, content);
+        return fs.used();
+    }
+
+    @Benchmark
+    public long writeGathering() {
+        fs.write(PATH, header, body, trailer);
+        return fs.used();
+    }
+
+    @Benchmark
+    public long readArray() {
+        return fs.read(PATH).elseGetRight(() -> null).get().length;
+    }
+
+    @Benchmark
+    public long readScattering() {
+        for (ByteBuffer target : targets) {
+            target.clear();
+        }
+        return fs.read(PATH, 0, targets).elseGetRight(() -> null);
+    }
+}
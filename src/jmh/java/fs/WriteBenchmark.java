@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+
+import data.Unit;
+import data.either.Either;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures latency of {@link FS#write(String, byte[])} depending on number of files in file system
+ * * latency should stay flat because free space check shouldn't walk the whole tree
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class WriteBenchmark {
+    private static final int FILES_PER_DIRECTORY = 1000;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int files;
+
+    private final byte[] content = new byte[64];
+
+    private FS fs;
+    private String target;
+
+    @Setup
+    public void setUp() {
+        fs = FS.init(Long.MAX_VALUE).elseGetRight(
+                () -> {
+                    throw new IllegalStateException("File system initialisation failed");
+                });
+        for (int i = 0; i < files; i++) {
+            final String directory = "/dir" + i / FILES_PER_DIRECTORY;
+            if (i % FILES_PER_DIRECTORY == 0) {
+                fs.create(directory, DIRECTORY);
+            }
+            target = directory + "/file" + i;
+            fs.create(target, REGULAR);
+            fs.write(target, content);
+        }
+    }
+
+    @Benchmark
+    public Either<FSError, Unit> write() {
+        return fs.write(target, content);
+    }
+}
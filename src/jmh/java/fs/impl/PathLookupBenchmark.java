@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+import static java.util.Arrays.asList;
+
+import data.either.Either;
+import fs.FS;
+import fs.FSError;
+import fs.FileInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * measures latency and allocation of path resolution for file located five levels deep
+ * * gc profiler enabled in build reports allocation per operation as gc.alloc.rate.norm
+ * * {@link #splitWithRegex()} is kept as reference of former regex based splitting
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PathLookupBenchmark {
+    private static final String PATH = "/level1/level2/level3/level4/file5";
+    private static final int LOOKUP_CACHE_CAPACITY = 4096;
+
+    private FSNode root;
+    private FS fs;
+    private FS cachingFs;
+    private Path parsed;
+
+    @Setup
+    public void setUp() {
+        root = FSNode.createRoot();
+        fs = new SimpleFSImpl(Long.MAX_VALUE, root, 0);
+        cachingFs = new SimpleFSImpl(Long.MAX_VALUE, LOOKUP_CACHE_CAPACITY);
+        for (FS target : new FS[]{fs, cachingFs}) {
+            target.create("/level1", DIRECTORY);
+            target.create("/level1/level2", DIRECTORY);
+            target.create("/level1/level2/level3", DIRECTORY);
+            target.create("/level1/level2/level3/level4", DIRECTORY);
+            target.create(PATH, REGULAR);
+        }
+        parsed = Path.parse(PATH);
+    }
+
+    @Benchmark
+    public List<String> splitWithRegex() {
+        return asList(PATH.replaceAll("/+", "/").replaceAll("^/", "").split("/"));
+    }
+
+    @Benchmark
+    public Path parse() {
+        return Path.parse(PATH);
+    }
+
+    @Benchmark
+    public Either<FSError, FSNode> findParsed() {
+        return root.findUnder(parsed);
+    }
+
+    @Benchmark
+    public Either<FSError, FSNode> parseAndFind() {
+        return root.findUnder(Path.parse(PATH));
+    }
+
+    @Benchmark
+    public Either<FSError, FileInfo> info() {
+        return fs.info(PATH);
+    }
+
+    @Benchmark
+    public Either<FSError, FileInfo> infoWithLookupCache() {
+        return cachingFs.info(PATH);
+    }
+}
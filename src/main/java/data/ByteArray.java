@@ -6,7 +6,12 @@ package data;
 import static java.util.Objects.requireNonNull;
 
 import javax.annotation.Nonnull;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * immutable wrapper for byte array
@@ -14,22 +19,112 @@ import java.util.Arrays;
  * abstraction function:
  * *    represents immutable array of bytes
  * <p>
+ * representation:
+ * *    sequence of non empty segments where i-th segment is the part of {@link #segments}[i] starting at
+ * *    {@link #froms}[i] and placed in content starting at {@link #positions}[i]. The last position is length of
+ * *    content, so segment containing any byte is found by binary search
+ * *    segments are never mutated after construction, so they are shared between instances
+ * *    and {@link #concat(List)}, {@link #slice(int, int)} and read only views ({@link #asInputStream()},
+ * *    {@link #asReadOnlyBuffers()}) copy nothing
+ * <p>
  * safety from exposure:
  * *    all fields are private
- * *    {@link #ByteArray(byte[])} and {@link #get()} makes defensive copying of {@link #content} to avoid it's sharing
+ * *    {@link #ByteArray(byte[])} and {@link #get()} makes defensive copying of content to avoid it's sharing
+ * *    views are read only
  *
  * @author Andrey Antipov (gorttar@gmail.com) (2016-12-24)
  */
 public class ByteArray {
+    private static final ByteArray EMPTY = new ByteArray(new byte[0][], new int[0], new int[]{0});
+
     // representation:
     @Nonnull
-    private final byte[] content;
+    private final byte[][] segments;
+    @Nonnull
+    private final int[] froms;
+    @Nonnull
+    private final int[] positions;
+    /**
+     * cached {@link #hashCode()} or zero if it isn't computed yet. Race between threads is benign because content is
+     * immutable
+     */
+    private int hash = 0;
 
     /**
      * @param content to be wrapped
      */
     public ByteArray(@Nonnull byte[] content) {
-        this.content = requireNonNull(content).clone();
+        this(new byte[][]{requireNonNull(content).clone()}, new int[]{0}, new int[]{0, content.length});
+    }
+
+    private ByteArray(@Nonnull byte[][] segments, @Nonnull int[] froms, @Nonnull int[] positions) {
+        this.segments = segments;
+        this.froms = froms;
+        this.positions = positions;
+        checkInvariants();
+    }
+
+    private void checkInvariants() {
+        assert froms.length == segments.length && positions.length == segments.length + 1 && positions[0] == 0;
+    }
+
+    /**
+     * @param length of content
+     * @return content filled with zeros
+     */
+    @Nonnull
+    public static ByteArray zeros(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException(String.format("Length %d is negative", length));
+        }
+        // fresh array is never exposed, so it isn't copied
+        return new ByteArray(new byte[][]{new byte[length]}, new int[]{0}, new int[]{0, length});
+    }
+
+    /**
+     * concatenates parts without copying their content
+     *
+     * @param parts to be concatenated
+     * @return concatenation of parts
+     */
+    @Nonnull
+    public static ByteArray concat(@Nonnull List<ByteArray> parts) {
+        final ByteArray result;
+        if (requireNonNull(parts).size() == 1) {
+            result = requireNonNull(parts.get(0));
+        } else {
+            int count = 0;
+            long length = 0;
+            for (ByteArray part : parts) {
+                count += part.segments.length;
+                length += part.length();
+            }
+            if (length > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(String.format("Concatenation of size %d is too large", length));
+            }
+            final byte[][] segments = new byte[count][];
+            final int[] froms = new int[count];
+            final int[] positions = new int[count + 1];
+            int index = 0;
+            for (ByteArray part : parts) {
+                for (int i = 0; i < part.segments.length; i++) {
+                    // empty segments are dropped to keep positions strictly increasing
+                    if (part.positions[i + 1] > part.positions[i]) {
+                        segments[index] = part.segments[i];
+                        froms[index] = part.froms[i];
+                        positions[index + 1] = positions[index] + part.positions[i + 1] - part.positions[i];
+                        index++;
+                    }
+                }
+            }
+            result = index == count ?
+                    new ByteArray(segments, froms, positions) :
+                    new ByteArray(
+                            Arrays.copyOf(segments, index),
+                            Arrays.copyOf(froms, index),
+                            Arrays.copyOf(positions, index + 1));
+        }
+        return result;
     }
 
     /**
@@ -37,7 +132,107 @@ public class ByteArray {
      */
     @Nonnull
     public byte[] get() {
-        return content.clone();
+        final byte[] result = new byte[length()];
+        for (int i = 0; i < segments.length; i++) {
+            System.arraycopy(segments[i], froms[i], result, positions[i], positions[i + 1] - positions[i]);
+        }
+        return result;
+    }
+
+    /**
+     * copies content starting from offset to target as many bytes as it has remaining and advances it's position
+     * * by their number, so content is copied once to buffer supplied by caller
+     *
+     * @param offset of the first byte to copy
+     * @param target of bytes
+     * @return number of copied bytes
+     * @throws IndexOutOfBoundsException if offset is out of [0, {@link #length()}]
+     */
+    public int get(int offset, @Nonnull ByteBuffer target) {
+        requireNonNull(target);
+        if (offset < 0 || offset > length()) {
+            throw new IndexOutOfBoundsException(String.format("Offset %d is out of [0, %d]", offset, length()));
+        }
+        final int result = Math.min(length() - offset, target.remaining());
+        for (int position = offset, segment = result == 0 ? 0 : segmentAt(offset); position < offset + result; segment++) {
+            final int length = Math.min(positions[segment + 1], offset + result) - position;
+            target.put(segments[segment], froms[segment] + position - positions[segment], length);
+            position += length;
+        }
+        return result;
+    }
+
+    /**
+     * @return byte at index. Segment containing it is found in O(log(number of segments))
+     * @throws IndexOutOfBoundsException if index is out of [0, {@link #length()})
+     */
+    public byte byteAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is out of [0, %d)", index, length()));
+        }
+        final int segment = segmentAt(index);
+        return segments[segment][froms[segment] + index - positions[segment]];
+    }
+
+    /**
+     * @param offset of the first byte of slice
+     * @param length of slice
+     * @return part of content. Nothing is copied
+     * @throws IndexOutOfBoundsException if slice is out of content
+     */
+    @Nonnull
+    public ByteArray slice(int offset, int length) {
+        if (offset < 0 || length < 0 || offset > length() - length) {
+            throw new IndexOutOfBoundsException(String.format("Slice [%d, %d + %d) is out of [0, %d)", offset, offset, length, length()));
+        }
+        final ByteArray result;
+        if (length == length()) {
+            result = this;
+        } else if (length == 0) {
+            result = EMPTY;
+        } else {
+            final int first = segmentAt(offset);
+            final int count = segmentAt(offset + length - 1) - first + 1;
+            final byte[][] segments = Arrays.copyOfRange(this.segments, first, first + count);
+            final int[] froms = Arrays.copyOfRange(this.froms, first, first + count);
+            final int[] positions = new int[count + 1];
+            froms[0] += offset - this.positions[first];
+            for (int i = 1; i < count; i++) {
+                positions[i] = this.positions[first + i] - offset;
+            }
+            positions[count] = length;
+            result = new ByteArray(segments, froms, positions);
+        }
+        return result;
+    }
+
+    /**
+     * @return read only view of content as stream. Nothing is copied
+     */
+    @Nonnull
+    public InputStream asInputStream() {
+        return new SegmentsInputStream();
+    }
+
+    /**
+     * @return read only views of content segments in order. Nothing is copied, so it's suitable for gathering writes
+     */
+    @Nonnull
+    public List<ByteBuffer> asReadOnlyBuffers() {
+        final List<ByteBuffer> result = new ArrayList<>(segments.length);
+        for (int i = 0; i < segments.length; i++) {
+            result.add(ByteBuffer.wrap(segments[i], froms[i], positions[i + 1] - positions[i]).slice().asReadOnlyBuffer());
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * @return read only view of the whole content. Nothing is copied if content consists of single segment
+     * * otherwise segments are copied into new buffer (see {@link #asReadOnlyBuffers()} to avoid it)
+     */
+    @Nonnull
+    public ByteBuffer asReadOnlyBuffer() {
+        return segments.length == 1 ? asReadOnlyBuffers().get(0) : ByteBuffer.wrap(get()).asReadOnlyBuffer();
     }
 
     @Override
@@ -49,22 +244,244 @@ public class ByteArray {
             return false;
         }
         ByteArray byteArray = (ByteArray) o;
-        return Arrays.equals(content, byteArray.content);
+        if (length() != byteArray.length()) {
+            return false;
+        }
+        // both sequences of segments are walked in runs where neither of them switches segment
+        int these = 0;
+        int those = 0;
+        for (int position = 0; position < length(); ) {
+            while (position >= positions[these + 1]) {
+                these++;
+            }
+            while (position >= byteArray.positions[those + 1]) {
+                those++;
+            }
+            final int to = Math.min(positions[these + 1], byteArray.positions[those + 1]);
+            final int theseShift = froms[these] - positions[these];
+            final int thoseShift = byteArray.froms[those] - byteArray.positions[those];
+            for (; position < to; position++) {
+                if (segments[these][theseShift + position] != byteArray.segments[those][thoseShift + position]) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 
     public int length() {
-        return content.length;
+        return positions[segments.length];
     }
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(content);
+        // the same as Arrays.hashCode of content
+        int result = hash;
+        if (result == 0) {
+            result = 1;
+            for (int i = 0; i < segments.length; i++) {
+                final int to = froms[i] + positions[i + 1] - positions[i];
+                for (int j = froms[i]; j < to; j++) {
+                    result = 31 * result + segments[i][j];
+                }
+            }
+            hash = result;
+        }
+        return result;
     }
 
     @Override
     public String toString() {
-        return "ByteArray(" + Arrays.toString(content) + ')';
+        return "ByteArray(" + Arrays.toString(get()) + ')';
+    }
+
+    /**
+     * @return index of segment containing byte at position
+     */
+    private int segmentAt(int position) {
+        final int found = Arrays.binarySearch(positions, 0, segments.length, position);
+        return found >= 0 ? found : -found - 2;
     }
 
+    /**
+     * accumulates bytes in growing buffer and hands it over to {@link ByteArray} without copying
+     * <p>
+     * safety from exposure:
+     * *    buffer is never exposed by builder and it's forgotten by {@link #build()}, so built instance is the only
+     * *    owner of it
+     */
+    public static final class Builder {
+        private static final byte[] EMPTY_BUFFER = new byte[0];
+
+        private final int limit;
+        @Nonnull
+        private byte[] buffer = EMPTY_BUFFER;
+        private int length = 0;
 
-}
\ No newline at end of file
+        /**
+         * @param limit maximal number of bytes to accumulate
+         */
+        public Builder(int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException(String.format("Limit %d is negative", limit));
+            }
+            this.limit = limit;
+        }
+
+        /**
+         * copies as many bytes of source range as fit into limit. Buffer grows twice at least to copy each byte
+         * * O(1) times on average
+         *
+         * @param source of bytes
+         * @param offset of the first byte to copy
+         * @param length of range
+         * @return number of copied bytes
+         */
+        public int append(@Nonnull byte[] source, int offset, int length) {
+            if (offset < 0 || length < 0 || offset > requireNonNull(source).length - length) {
+                throw new IndexOutOfBoundsException(String.format("Range [%d, %d + %d) is out of [0, %d)", offset, offset, length, source.length));
+            }
+            final int result = Math.min(length, limit - this.length);
+            ensureCapacity(this.length + result);
+            System.arraycopy(source, offset, buffer, this.length, result);
+            this.length += result;
+            return result;
+        }
+
+        /**
+         * copies as many remaining bytes of source as fit into limit and advances it's position by their number
+         *
+         * @param source of bytes
+         * @return number of copied bytes
+         */
+        public int append(@Nonnull ByteBuffer source) {
+            final int result = Math.min(requireNonNull(source).remaining(), limit - this.length);
+            ensureCapacity(this.length + result);
+            source.get(buffer, this.length, result);
+            this.length += result;
+            return result;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        /**
+         * copies accumulated bytes starting from offset to target as many as it has remaining and advances it's
+         * * position by their number
+         *
+         * @return number of copied bytes
+         * @throws IndexOutOfBoundsException if offset is out of [0, {@link #length()}]
+         */
+        public int get(int offset, @Nonnull ByteBuffer target) {
+            requireNonNull(target);
+            if (offset < 0 || offset > length) {
+                throw new IndexOutOfBoundsException(String.format("Offset %d is out of [0, %d]", offset, length));
+            }
+            final int result = Math.min(length - offset, target.remaining());
+            target.put(buffer, offset, result);
+            return result;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > buffer.length) {
+                buffer = Arrays.copyOf(buffer, (int) Math.min(limit, Math.max(capacity, 2L * buffer.length)));
+            }
+        }
+
+        public boolean isFull() {
+            return length == limit;
+        }
+
+        /**
+         * @return independent builder with the same limit and copy of accumulated bytes
+         */
+        @Nonnull
+        public Builder copy() {
+            final Builder result = new Builder(limit);
+            result.buffer = Arrays.copyOf(buffer, length);
+            result.length = length;
+            return result;
+        }
+
+        /**
+         * @return copy of accumulated bytes. Builder stays intact
+         */
+        @Nonnull
+        public ByteArray snapshot() {
+            return new ByteArray(new byte[][]{Arrays.copyOf(buffer, length)}, new int[]{0}, new int[]{0, length});
+        }
+
+        /**
+         * @return accumulated bytes. Buffer is handed over without copying and builder becomes empty
+         */
+        @Nonnull
+        public ByteArray build() {
+            final ByteArray result = new ByteArray(new byte[][]{buffer}, new int[]{0}, new int[]{0, length});
+            buffer = EMPTY_BUFFER;
+            length = 0;
+            return result;
+        }
+    }
+
+    /**
+     * stream over segments of content
+     */
+    private final class SegmentsInputStream extends InputStream {
+        private int segment = 0;
+        /**
+         * position in content
+         */
+        private int position = 0;
+
+        @Override
+        public int read() {
+            final int result;
+            if (position == length()) {
+                result = -1;
+            } else {
+                skipExhaustedSegments();
+                result = segments[segment][froms[segment] + position - positions[segment]] & 0xff;
+                position++;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(@Nonnull byte[] b, int off, int len) {
+            if (off < 0 || len < 0 || len > requireNonNull(b).length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+            final int result;
+            if (len == 0) {
+                result = 0;
+            } else if (position == length()) {
+                result = -1;
+            } else {
+                skipExhaustedSegments();
+                result = Math.min(len, positions[segment + 1] - position);
+                System.arraycopy(segments[segment], froms[segment] + position - positions[segment], b, off, result);
+                position += result;
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long n) {
+            final int result = (int) Math.max(0, Math.min(n, available()));
+            position += result;
+            return result;
+        }
+
+        @Override
+        public int available() {
+            return length() - position;
+        }
+
+        private void skipExhaustedSegments() {
+            while (position >= positions[segment + 1]) {
+                segment++;
+            }
+        }
+    }
+}
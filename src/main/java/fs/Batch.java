@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static java.util.Objects.requireNonNull;
+
+import data.Unit;
+import data.either.Either;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * immutable ordered list of mutations applied by single call of {@link FS#apply(Batch)}
+ * * file system resolves parents shared by operations once and checks free space for the whole batch at once
+ * * atomic batch is applied completely or not at all (see {@link Builder#atomic()})
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+public final class Batch {
+    @Nonnull
+    private final List<Operation> operations;
+    private final boolean atomic;
+    /**
+     * upper bound of growth of file system by batch
+     */
+    private final long growth;
+
+    private Batch(@Nonnull List<Operation> operations, boolean atomic) {
+        this.operations = Collections.unmodifiableList(operations);
+        this.atomic = atomic;
+        long growth = 0;
+        for (Operation operation : operations) {
+            growth += operation.length();
+        }
+        this.growth = growth;
+    }
+
+    @Nonnull
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Nonnull
+    public List<Operation> operations() {
+        return operations;
+    }
+
+    /**
+     * @return true if failure of any operation should undo the others
+     */
+    public boolean isAtomic() {
+        return atomic;
+    }
+
+    /**
+     * @return total size of content written and appended by batch. File system can't grow by more than that, so
+     * * batch fits into free space if it's not greater than {@link FS#free()}
+     */
+    public long growth() {
+        return growth;
+    }
+
+    /**
+     * single mutation of batch. Contains no getters for immutable fields
+     */
+    public static final class Operation {
+        @SuppressWarnings("WeakerAccess")
+        @Nonnull
+        public final Type type;
+
+        @SuppressWarnings("WeakerAccess")
+        @Nonnull
+        public final String path;
+
+        /**
+         * type of created file or null for other operations
+         */
+        @SuppressWarnings("WeakerAccess")
+        @Nullable
+        public final FileType fileType;
+
+        /**
+         * views of content which are never exposed, so their positions don't change
+         */
+        @Nonnull
+        private final ByteBuffer[] content;
+        private final long length;
+
+        private Operation(@Nonnull Type type, @Nonnull String path, @Nullable FileType fileType, @Nonnull ByteBuffer[] content) {
+            this.type = type;
+            this.path = requireNonNull(path);
+            this.fileType = fileType;
+            this.content = new ByteBuffer[content.length];
+            long length = 0;
+            for (int i = 0; i < content.length; i++) {
+                this.content[i] = requireNonNull(content[i]).asReadOnlyBuffer();
+                length += content[i].remaining();
+            }
+            this.length = length;
+        }
+
+        /**
+         * @return read only views of written or appended content. They are empty for other operations
+         */
+        @Nonnull
+        public ByteBuffer[] content() {
+            final ByteBuffer[] result = new ByteBuffer[content.length];
+            for (int i = 0; i < content.length; i++) {
+                result[i] = content[i].duplicate();
+            }
+            return result;
+        }
+
+        /**
+         * @return size of written or appended content in bytes
+         */
+        public long length() {
+            return length;
+        }
+
+        /**
+         * applies operation by single call of file system
+         */
+        @Nonnull
+        Either<FSError, Unit> applyTo(@Nonnull FS fs) {
+            final Either<FSError, Unit> result;
+            switch (type) {
+                case CREATE:
+                    result = fs.create(path, requireNonNull(fileType));
+                    break;
+                case WRITE:
+                    result = fs.write(path, content());
+                    break;
+                case APPEND:
+                    result = fs.append(path, content());
+                    break;
+                case DELETE:
+                    result = fs.delete(path);
+                    break;
+                default:
+                    throw new UnsupportedOperationException(type + " is not supported");
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "Operation(" + type + ",\"" + path + "\"" + (fileType == null ? "" : "," + fileType) +
+                    (type == Type.WRITE || type == Type.APPEND ? "," + length : "") + ')';
+        }
+
+        /**
+         * enumeration of mutations which may be batched
+         */
+        public enum Type {
+            /**
+             * see {@link FS#create(String, FileType)}
+             */
+            CREATE,
+            /**
+             * see {@link FS#write(String, ByteBuffer...)}
+             */
+            WRITE,
+            /**
+             * see {@link FS#append(String, ByteBuffer...)}
+             */
+            APPEND,
+            /**
+             * see {@link FS#delete(String)}
+             */
+            DELETE
+        }
+    }
+
+    /**
+     * collects operations in order of their application. Content isn't copied, so it shouldn't be changed until
+     * batch is applied
+     */
+    public static final class Builder {
+        private static final ByteBuffer[] NO_CONTENT = new ByteBuffer[0];
+
+        private final List<Operation> operations = new ArrayList<>();
+        private boolean atomic = false;
+
+        private Builder() {
+        }
+
+        @Nonnull
+        public Builder create(@Nonnull String path, @Nonnull FileType fileType) {
+            operations.add(new Operation(Operation.Type.CREATE, path, requireNonNull(fileType), NO_CONTENT));
+            return this;
+        }
+
+        @Nonnull
+        public Builder write(@Nonnull String path, @Nonnull byte[] content) {
+            return write(path, ByteBuffer.wrap(requireNonNull(content)));
+        }
+
+        /**
+         * @param content bytes between position and limit of buffers
+         */
+        @Nonnull
+        public Builder write(@Nonnull String path, @Nonnull ByteBuffer... content) {
+            operations.add(new Operation(Operation.Type.WRITE, path, null, requireNonNull(content)));
+            return this;
+        }
+
+        @Nonnull
+        public Builder append(@Nonnull String path, @Nonnull byte[] content) {
+            return append(path, ByteBuffer.wrap(requireNonNull(content)));
+        }
+
+        /**
+         * @param content bytes between position and limit of buffers
+         */
+        @Nonnull
+        public Builder append(@Nonnull String path, @Nonnull ByteBuffer... content) {
+            operations.add(new Operation(Operation.Type.APPEND, path, null, requireNonNull(content)));
+            return this;
+        }
+
+        @Nonnull
+        public Builder delete(@Nonnull String path) {
+            operations.add(new Operation(Operation.Type.DELETE, path, null, NO_CONTENT));
+            return this;
+        }
+
+        /**
+         * makes batch atomic: if any operation fails, operations applied before it are undone and the rest aren't
+         * * applied. Result of failed operation is it's error while results of the others are
+         * * {@link FSError.Type#ABORTED}
+         */
+        @Nonnull
+        public Builder atomic() {
+            atomic = true;
+            return this;
+        }
+
+        @Nonnull
+        public Batch build() {
+            return new Batch(new ArrayList<>(operations), atomic);
+        }
+    }
+}
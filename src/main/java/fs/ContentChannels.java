@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static java.util.Objects.requireNonNull;
+
+import data.ByteArray;
+import data.Unit;
+import data.either.Either;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * channels over content of regular file which move it by chunks of at most {@link #CHUNK_SIZE} bytes
+ * (see {@link FS#openRead(String)}, {@link FS#openWrite(String)} and {@link FS#openAppend(String)})
+ * * chunks are moved by {@link Source} and {@link Sink} of file system, so it decides how file is found for each chunk
+ * * errors of file system are thrown as {@link IOException} whose cause is {@link FSError}
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+public final class ContentChannels {
+    /**
+     * maximal number of bytes moved between channel and file system by single operation
+     */
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    private ContentChannels() {
+    }
+
+    /**
+     * reader of chunks of file
+     */
+    @FunctionalInterface
+    public interface Source {
+        /**
+         * copies bytes of file starting from position to remaining part of destination and advances it's position
+         *
+         * @return either number of copied bytes which is zero at the end of file or an instance of {@link FSError}
+         */
+        @Nonnull
+        Either<FSError, Integer> read(long position, @Nonnull ByteBuffer dst);
+    }
+
+    /**
+     * writer of chunks to the end of file
+     */
+    @FunctionalInterface
+    public interface Sink {
+        /**
+         * appends remaining bytes of chunk to the end of file. Position of chunk may stay intact
+         *
+         * @return either {@link Unit#unit()} or an instance of {@link FSError}
+         */
+        @Nonnull
+        Either<FSError, Unit> append(@Nonnull ByteBuffer chunk);
+    }
+
+    /**
+     * @return channel which reads file from the beginning by chunks of source
+     */
+    @Nonnull
+    public static ReadableByteChannel reading(@Nonnull Source source) {
+        return new ReadChannel(source);
+    }
+
+    /**
+     * @return channel which appends content to the end of file by chunks of sink
+     */
+    @Nonnull
+    public static WritableByteChannel appending(@Nonnull Sink sink) {
+        return new AppendChannel(sink);
+    }
+
+    /**
+     * @return total number of remaining bytes of buffers
+     * @throws NullPointerException if array or any of it's buffers is null
+     */
+    public static long remaining(@Nonnull ByteBuffer[] buffers) {
+        long result = 0;
+        for (ByteBuffer buffer : requireNonNull(buffers)) {
+            result += requireNonNull(buffer).remaining();
+        }
+        return result;
+    }
+
+    /**
+     * @return concatenation of remaining bytes of buffers. Buffers stay intact
+     */
+    @Nonnull
+    static byte[] gather(@Nonnull ByteBuffer[] buffers) {
+        final long length = remaining(buffers);
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("%d bytes don't fit into array", length));
+        }
+        final byte[] result = new byte[(int) length];
+        int position = 0;
+        for (ByteBuffer buffer : buffers) {
+            final int remaining = buffer.remaining();
+            buffer.duplicate().get(result, position, remaining);
+            position += remaining;
+        }
+        return result;
+    }
+
+    /**
+     * copies content to buffers in order and advances their positions
+     *
+     * @return number of copied bytes
+     */
+    static int scatter(@Nonnull ByteArray content, @Nonnull ByteBuffer[] dst) {
+        int result = 0;
+        for (ByteBuffer buffer : dst) {
+            result += content.get(result, buffer);
+        }
+        return result;
+    }
+
+    @Nonnull
+    private static IOException failure(@Nonnull FSError error) {
+        return new IOException(error.getMessage(), error);
+    }
+
+    /**
+     * reads file sequentially by {@link Source}, so bytes are copied once from file to destination
+     */
+    private static final class ReadChannel implements ReadableByteChannel {
+        @Nonnull
+        private final Source source;
+        /**
+         * position in file after the last read byte
+         */
+        private long position = 0;
+        private boolean open = true;
+
+        private ReadChannel(@Nonnull Source source) {
+            this.source = requireNonNull(source);
+        }
+
+        @Override
+        public int read(@Nonnull ByteBuffer dst) throws IOException {
+            requireNonNull(dst);
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            int result = 0;
+            if (dst.hasRemaining()) {
+                final ByteBuffer chunk = dst.duplicate();
+                chunk.limit(chunk.position() + Math.min(chunk.remaining(), CHUNK_SIZE));
+                final Either<FSError, Integer> read = source.read(position, chunk);
+                if (read.isLeft()) {
+                    throw failure(read.getLeft(null));
+                }
+                result = read.getRight(null);
+                dst.position(chunk.position());
+                position += result;
+                if (result == 0) {
+                    result = -1;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+
+    /**
+     * appends bytes to the end of file by chunks of source buffer without intermediate copying, so free space is
+     * checked for each chunk and bytes appended before failure stay in file
+     */
+    private static final class AppendChannel implements WritableByteChannel {
+        @Nonnull
+        private final Sink sink;
+        private boolean open = true;
+
+        private AppendChannel(@Nonnull Sink sink) {
+            this.sink = requireNonNull(sink);
+        }
+
+        @Override
+        public int write(@Nonnull ByteBuffer src) throws IOException {
+            requireNonNull(src);
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            final int result = src.remaining();
+            while (src.hasRemaining()) {
+                final ByteBuffer chunk = src.duplicate();
+                chunk.limit(chunk.position() + Math.min(chunk.remaining(), CHUNK_SIZE));
+                final Either<FSError, Unit> appended = sink.append(chunk);
+                if (appended.isLeft()) {
+                    throw failure(appended.getLeft(null));
+                }
+                src.position(chunk.limit());
+            }
+            return result;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+}
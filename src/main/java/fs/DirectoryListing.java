@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import static java.util.Objects.requireNonNull;
+
+import data.either.Either;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * lazy listing of directory by pages of at most {@link #PAGE_SIZE} entries (see {@link FS#lsStream(String)})
+ * * the next page is requested by {@link FS#ls(String, String, int)} after the last entry of current one, so
+ * * only single page is held in memory
+ * * errors of file system are thrown as {@link UncheckedIOException} whose cause's cause is {@link FSError}
+ * * checks of arguments of listing are public, so implementations of {@link FS} validate them the same way
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+public final class DirectoryListing implements Iterator<FileInfo> {
+    /**
+     * maximal number of entries requested by single call of file system
+     */
+    static final int PAGE_SIZE = 1024;
+
+    @Nonnull
+    private final FS fs;
+    @Nonnull
+    private final String path;
+    @Nonnull
+    private List<FileInfo> page;
+    /**
+     * index of the next entry of {@link #page}
+     */
+    private int index = 0;
+
+    /**
+     * @param first page of directory
+     */
+    DirectoryListing(@Nonnull FS fs, @Nonnull String path, @Nonnull List<FileInfo> first) {
+        this.fs = requireNonNull(fs);
+        this.path = requireNonNull(path);
+        this.page = requireNonNull(first);
+    }
+
+    /**
+     * @throws IllegalArgumentException if limit of page isn't positive
+     */
+    public static void checkLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException(String.format("Limit %d isn't positive", limit));
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if range of names [from, to) is invalid
+     */
+    public static void checkRange(@Nullable String from, @Nullable String to) {
+        if (from != null && to != null && from.compareTo(to) > 0) {
+            throw new IllegalArgumentException(String.format("Range [%s, %s) is invalid", from, to));
+        }
+    }
+
+    /**
+     * @return true if name is in range [from, to) where null bounds are unlimited
+     */
+    static boolean inRange(@Nonnull String name, @Nullable String from, @Nullable String to) {
+        return (from == null || name.compareTo(from) >= 0) && (to == null || name.compareTo(to) < 0);
+    }
+
+    /**
+     * @return the least name which follows all names starting with prefix or null if there is no such name
+     * * trailing {@link Character#MAX_VALUE}s can't be incremented, so they are dropped before incrementing the last
+     * * character
+     */
+    @Nullable
+    static String prefixEnd(@Nonnull String prefix) {
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+            end--;
+        }
+        return end == 0 ? null : prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+    }
+
+    @Nonnull
+    Stream<FileInfo> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+                false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        // page shorter than limit is the last one
+        if (index == page.size() && page.size() == PAGE_SIZE) {
+            final Either<FSError, List<FileInfo>> next = fs.ls(path, page.get(index - 1).fullName, PAGE_SIZE);
+            if (next.isLeft()) {
+                final FSError error = next.getLeft(null);
+                throw new UncheckedIOException(new IOException(error.getMessage(), error));
+            }
+            page = next.getRight(null);
+            index = 0;
+        }
+        return index < page.size();
+    }
+
+    @Override
+    public FileInfo next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.get(index++);
+    }
+}
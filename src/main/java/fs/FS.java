@@ -12,7 +12,24 @@ import data.Unit;
 import fs.impl.FSConfig;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * file system API interface
@@ -48,6 +65,9 @@ public interface FS {
     /**
      * @param path full path to file
      * @return either byte array filled with file content or an instance of {@link FSError}
+     * * byte array is immutable snapshot of content which shares memory with file, so use it's read only views
+     * * ({@link ByteArray#asInputStream()}, {@link ByteArray#asReadOnlyBuffers()}) instead of {@link ByteArray#get()}
+     * * to read content without copying
      * <p>
      * possible error types:
      * {@link FSError.Type#PATH_NOT_FOUND} if there is no file at path
@@ -56,6 +76,66 @@ public interface FS {
     @Nonnull
     Either<FSError, ByteArray> read(@Nonnull String path);
 
+    /**
+     * reads part of file. Like POSIX pread result is shorter than length if file ends before offset + length
+     * * and it's empty if offset is at or beyond end of file
+     *
+     * @param path   full path to file
+     * @param offset of the first byte to read
+     * @param length maximal number of bytes to read
+     * @return either byte array filled with part of file content or an instance of {@link FSError}
+     * * byte array shares memory with file the same way as {@link #read(String)} does
+     * <p>
+     * possible error types:
+     * {@link FSError.Type#PATH_NOT_FOUND} if there is no file at path
+     * {@link FSError.Type#FILE_IS_DIRECTORY} if you are trying to read from directory
+     * <p>
+     * This is default implementation based on {@link #read(String)}
+     * it should be overridden in {@link FS} implementations to avoid walking the whole file
+     * @throws IllegalArgumentException if offset or length is negative
+     */
+    @Nonnull
+    default Either<FSError, ByteArray> read(@Nonnull String path, long offset, int length) {
+        requireNonNull(path);
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException(String.format("Range [%d, %d + %d) is invalid", offset, offset, length));
+        }
+        return read(path).rMap(
+                content -> {
+                    final int from = (int) Math.min(offset, content.length());
+                    return content.slice(from, Math.min(length, content.length() - from));
+                });
+    }
+
+    /**
+     * scattering read of part of file into buffers supplied by caller, so they may be reused between reads
+     * * buffers are filled in order from their positions to their limits and their positions are advanced by number
+     * * of bytes copied to them
+     *
+     * @param path   full path to file
+     * @param offset of the first byte to read
+     * @param dst    buffers to fill
+     * @return either number of read bytes or an instance of {@link FSError}. It's less than remaining bytes of
+     * * buffers if file ends before and it's zero if offset is at or beyond end of file
+     * <p>
+     * possible error types:
+     * {@link FSError.Type#PATH_NOT_FOUND} if there is no file at path
+     * {@link FSError.Type#FILE_IS_DIRECTORY} if you are trying to read from directory
+     * <p>
+     * This is default implementation based on {@link #read(String, long, int)}
+     * it should be overridden in {@link FS} implementations to copy bytes from file to buffers directly
+     * @throws IllegalArgumentException if offset is negative
+     */
+    @Nonnull
+    default Either<FSError, Integer> read(@Nonnull String path, long offset, @Nonnull ByteBuffer... dst) {
+        requireNonNull(path);
+        if (offset < 0) {
+            throw new IllegalArgumentException(String.format("Offset %d is negative", offset));
+        }
+        final long remaining = ContentChannels.remaining(dst);
+        return read(path, offset, (int) Math.min(remaining, Integer.MAX_VALUE)).rMap(content -> ContentChannels.scatter(content, dst));
+    }
+
     /**
      * @param path full path to directory
      * @return either array of {@link FileInfo} or an instance of {@link FSError}
@@ -67,6 +147,100 @@ public interface FS {
     @Nonnull
     Either<FSError, List<FileInfo>> ls(@Nonnull String path);
 
+    /**
+     * lists page of directory in ascending order of names (see {@link String#compareTo(String)}), so huge directory
+     * can be listed in bounded memory
+     * * page starts after cursor, so entries created or deleted between pages don't shift the rest of listing
+     * <p>
+     * This is default implementation based on {@link #ls(String)} which lists and sorts the whole directory on each
+     * call. Implementations are encouraged to override it with more efficient one
+     *
+     * @param path   full path to directory
+     * @param cursor full name of the last entry of previous page or null for the first page
+     * @param limit  maximal number of entries of page. Page shorter than limit is the last one
+     * @return either page or an instance of {@link FSError}
+     * @throws IllegalArgumentException if limit isn't positive
+     * <p>
+     * possible error types:
+     * {@link FSError.Type#PATH_NOT_FOUND} if there is no file at path
+     * {@link FSError.Type#FILE_IS_REGULAR} if you are trying to get list of files in regular file
+     */
+    @Nonnull
+    default Either<FSError, List<FileInfo>> ls(@Nonnull String path, @Nullable String cursor, int limit) {
+        DirectoryListing.checkLimit(limit);
+        return ls(path).rMap(
+                infos -> infos
+                        .stream()
+                        .filter(info -> cursor == null || info.fullName.compareTo(cursor) > 0)
+                        .sorted(Comparator.comparing(info -> info.fullName))
+                        .limit(limit)
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * lists directory lazily by pages of {@link #ls(String, String, int)}, so at most one page is held in memory
+     * * stream is weakly consistent: it sees entries created after it's position and skips deleted ones
+     *
+     * @param path full path to directory
+     * @return either stream in ascending order of names or an instance of {@link FSError}. Errors of file system
+     * * after the first page are thrown as {@link java.io.UncheckedIOException} whose cause's cause is {@link FSError}
+     * <p>
+     * possible error types:
+     * {@link FSError.Type#PATH_NOT_FOUND} if there is no file at path
+     * {@link FSError.Type#FILE_IS_REGULAR} if you are trying to get list of files in regular file
+     */
+    @Nonnull
+    default Either<FSError, Stream<FileInfo>> lsStream(@Nonnull String path) {
+        requireNonNull(path);
+        return ls(path, null, DirectoryListing.PAGE_SIZE).rMap(first -> new DirectoryListing(this, path, first).stream());
+    }
+
+    /**
+     * lists entries of directory whose names are in range [from, to) in ascending order of names (see
+     * {@link String#compareTo(String)})
+     * <p>
+     * This is default implementation based on {@link #ls(String)} which lists and filters the whole directory.
+     * Implementations are encouraged to override it with one proportional to number of listed entries
+     *
+     * @param path full path to directory
+     * @param from the least listed name or null to list from the first entry
+     * @param to   name which follows all listed ones or null to list up to the last entry
+     * @return either entries in range or an instance of {@link FSError}
+     * @throws IllegalArgumentException if from follows to
+     * <p>
+     * possible error types:
+     * {@link FSError.Type#PATH_NOT_FOUND} if there is no file at path
+     * {@link FSError.Type#FILE_IS_REGULAR} if you are trying to get list of files in regular file
+     */
+    @Nonnull
+    default Either<FSError, List<FileInfo>> lsRange(@Nonnull String path, @Nullable String from, @Nullable String to) {
+        DirectoryListing.checkRange(from, to);
+        return ls(path).rMap(
+                infos -> infos
+                        .stream()
+                        .filter(info -> DirectoryListing.inRange(info.fullName.substring(info.fullName.lastIndexOf('/') + 1), from, to))
+                        .sorted(Comparator.comparing(info -> info.fullName))
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * lists entries of directory whose names start with prefix in ascending order of names
+     * * it's range listing of names from prefix up to the least name following all names with prefix, so it takes
+     * * the same time as {@link #lsRange(String, String, String)}
+     *
+     * @param path   full path to directory
+     * @param prefix of listed names. Empty prefix lists the whole directory
+     * @return either entries with prefix or an instance of {@link FSError}
+     * <p>
+     * possible error types:
+     * {@link FSError.Type#PATH_NOT_FOUND} if there is no file at path
+     * {@link FSError.Type#FILE_IS_REGULAR} if you are trying to get list of files in regular file
+     */
+    @Nonnull
+    default Either<FSError, List<FileInfo>> lsPrefix(@Nonnull String path, @Nonnull String prefix) {
+        return lsRange(path, requireNonNull(prefix), DirectoryListing.prefixEnd(prefix));
+    }
+
     /**
      * copies file or directory with it's subtree to another location
      *
@@ -98,6 +272,71 @@ public interface FS {
     @Nonnull
     Either<FSError, Unit> write(@Nonnull String path, @Nonnull byte[] content);
 
+    /**
+     * gathering write which rewrites file with content of several buffers, so parts of content don't have to be
+     * * concatenated by caller. Bytes between position and limit of each buffer are written in order and buffers
+     * * stay intact
+     *
+     * @param path    full path to file
+     * @param content parts of new file's content
+     * @return either {@link Unit#unit()} or an instance of {@link FSError}
+     * <p>
+     * possible error types:
+     * {@link FSError.Type#PATH_NOT_FOUND} if there is no file at path
+     * {@link FSError.Type#FILE_IS_DIRECTORY} if you are trying to write directory
+     * {@link FSError.Type#NO_FREE_SPACE} if there is no free space in file system
+     * <p>
+     * This is default implementation based on {@link #write(String, byte[])}
+     * it should be overridden in {@link FS} implementations to copy bytes from buffers to file directly
+     */
+    @Nonnull
+    default Either<FSError, Unit> write(@Nonnull String path, @Nonnull ByteBuffer... content) {
+        requireNonNull(path);
+        return write(path, ContentChannels.gather(content));
+    }
+
+    /**
+     * rewrites part of file starting from offset. File grows if content ends beyond it's end
+     * * and if offset is beyond end of file the gap is filled with zeros
+     * * only growth of file should fit into free space
+     *
+     * @param path    full path to file
+     * @param offset  of the first byte to rewrite
+     * @param content new content of part
+     * @return either {@link Unit#unit()} or an instance of {@link FSError}
+     * <p>
+     * possible error types:
+     * {@link FSError.Type#PATH_NOT_FOUND} if there is no file at path
+     * {@link FSError.Type#FILE_IS_DIRECTORY} if you are trying to write directory
+     * {@link FSError.Type#NO_FREE_SPACE} if there is no free space in file system
+     * <p>
+     * This is default implementation based on {@link #read(String)} and {@link #write(String, byte[])}
+     * it should be overridden in {@link FS} implementations to avoid rewriting the whole file
+     * @throws IllegalArgumentException if offset is negative or file would grow beyond {@link Integer#MAX_VALUE} bytes
+     */
+    @Nonnull
+    default Either<FSError, Unit> write(@Nonnull String path, long offset, @Nonnull byte[] content) {
+        requireNonNull(path);
+        requireNonNull(content);
+        if (offset < 0 || offset + content.length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Range [%d, %d + %d) is invalid", offset, offset, content.length));
+        }
+        return read(path).rFlatMap(
+                old -> {
+                    final int from = (int) Math.min(offset, old.length());
+                    final int to = (int) Math.min(offset + content.length, old.length());
+                    return write(
+                            path,
+                            ByteArray.concat(
+                                    Arrays.asList(
+                                            old.slice(0, from),
+                                            ByteArray.zeros((int) offset - from),
+                                            new ByteArray(content),
+                                            old.slice(to, old.length() - to)))
+                                    .get());
+                });
+    }
+
     /**
      * appends content to the end of file
      *
@@ -113,6 +352,28 @@ public interface FS {
     @Nonnull
     Either<FSError, Unit> append(@Nonnull String path, @Nonnull byte[] content);
 
+    /**
+     * gathering append of content of several buffers in order. Bytes between position and limit of each buffer are
+     * * appended and buffers stay intact
+     *
+     * @param path    full path to file
+     * @param content parts of content to append
+     * @return either {@link Unit#unit()} or an instance of {@link FSError}
+     * <p>
+     * possible error types:
+     * {@link FSError.Type#PATH_NOT_FOUND} if there is no file at path
+     * {@link FSError.Type#FILE_IS_DIRECTORY} if you are trying to write directory
+     * {@link FSError.Type#NO_FREE_SPACE} if there is no free space in file system
+     * <p>
+     * This is default implementation based on {@link #append(String, byte[])}
+     * it should be overridden in {@link FS} implementations to copy bytes from buffers to file directly
+     */
+    @Nonnull
+    default Either<FSError, Unit> append(@Nonnull String path, @Nonnull ByteBuffer... content) {
+        requireNonNull(path);
+        return append(path, ContentChannels.gather(content));
+    }
+
     /**
      * deletes file or directory with it's subtree
      *
@@ -125,6 +386,133 @@ public interface FS {
     @Nonnull
     Either<FSError, Unit> delete(@Nonnull String path);
 
+    /**
+     * applies operations of batch in order. Each operation sees results of previous ones
+     *
+     * @param batch of operations
+     * @return results of operations in the same order. Result of each operation is either {@link Unit#unit()} or
+     * * an instance of {@link FSError} with the same types as corresponding single operation returns. If batch is
+     * * atomic and some operation fails, results of the others are {@link FSError.Type#ABORTED}
+     * <p>
+     * This is default implementation which applies non atomic batch by calls of single operations
+     * it should be overridden in {@link FS} implementations to share resolution of paths and free space check
+     * between operations and to support atomic batches
+     * @throws UnsupportedOperationException if batch is atomic
+     */
+    @Nonnull
+    default List<Either<FSError, Unit>> apply(@Nonnull Batch batch) {
+        if (requireNonNull(batch).isAtomic()) {
+            throw new UnsupportedOperationException("Atomic batch isn't supported by " + getClass().getSimpleName());
+        }
+        final List<Either<FSError, Unit>> result = new ArrayList<>(batch.operations().size());
+        for (Batch.Operation operation : batch.operations()) {
+            result.add(operation.applyTo(this));
+        }
+        return result;
+    }
+
+    /**
+     * runs body as single transaction. Body mutates file system through transactional view passed to it
+     * * mutations made through view are visible to other users of file system only after body succeeds and all of
+     * * them become visible at once
+     * * if body returns an error or throws, all it's mutations are undone
+     * * view sees mutations made by body and shouldn't be used after body returns
+     * * body may be run more than once if it conflicts with concurrent operations, so it shouldn't have side effects
+     * * besides mutations made through view
+     *
+     * @param body of transaction
+     * @return result of body
+     * <p>
+     * This is default implementation which doesn't support transactions
+     * it should be overridden in {@link FS} implementations which can undo mutations
+     * @throws UnsupportedOperationException always
+     */
+    @Nonnull
+    default <T> Either<FSError, T> transaction(@Nonnull Function<? super FS, Either<FSError, T>> body) {
+        requireNonNull(body);
+        throw new UnsupportedOperationException("Transactions aren't supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * opens channel which reads file from the beginning by chunks, so file of any size is read in bounded memory
+     * * channel sees mutations of file made meanwhile. It fails with {@link FSError.Type#PATH_NOT_FOUND} error as soon
+     * * as the file isn't located at path anymore, so bytes of different files are never mixed. Default implementation
+     * * finds file by path for each chunk, so it can't tell that file is replaced by another one
+     *
+     * @param path full path to file
+     * @return either channel or an instance of {@link FSError}. Errors of file system during reading are thrown as
+     * * {@link IOException} whose cause is {@link FSError}
+     * <p>
+     * possible error types:
+     * {@link FSError.Type#PATH_NOT_FOUND} if there is no file at path
+     * {@link FSError.Type#FILE_IS_DIRECTORY} if you are trying to read from directory
+     */
+    @Nonnull
+    default Either<FSError, ReadableByteChannel> openRead(@Nonnull String path) {
+        requireNonNull(path);
+        return read(path, 0, 0).rMap(__ -> ContentChannels.reading((position, dst) -> read(path, position, dst)));
+    }
+
+    /**
+     * opens stream which reads file the same way as channel opened by {@link #openRead(String)} does
+     */
+    @Nonnull
+    default Either<FSError, InputStream> openInputStream(@Nonnull String path) {
+        return openRead(path).rMap(Channels::newInputStream);
+    }
+
+    /**
+     * empties file and opens channel which writes it from the beginning
+     * * it isn't atomic: file is emptied at once and then filled chunk by chunk, so concurrent readers may see it
+     * * empty or partially written, and content written before failure stays in file
+     *
+     * @param path full path to file
+     * @return either channel or an instance of {@link FSError}
+     * * channel appends content the same way as channel opened by {@link #openAppend(String)} does
+     * <p>
+     * possible error types:
+     * {@link FSError.Type#PATH_NOT_FOUND} if there is no file at path
+     * {@link FSError.Type#FILE_IS_DIRECTORY} if you are trying to write directory
+     */
+    @Nonnull
+    default Either<FSError, WritableByteChannel> openWrite(@Nonnull String path) {
+        requireNonNull(path);
+        return write(path, new byte[0]).rFlatMap(__ -> openAppend(path));
+    }
+
+    /**
+     * opens channel which appends content to the end of file by chunks, so file of any size is written in bounded
+     * * memory and free space is checked for each chunk by {@link #append(String, byte[])}
+     * * channel fails with {@link FSError.Type#PATH_NOT_FOUND} error as soon as the file isn't located at path anymore,
+     * * so content is never split between different files. Default implementation finds file by path for each chunk,
+     * * so it can't tell that file is replaced by another one
+     *
+     * @param path full path to file
+     * @return either channel or an instance of {@link FSError}. Errors of file system during writing are thrown as
+     * * {@link IOException} whose cause is {@link FSError}. Chunks appended before error stay in file
+     * <p>
+     * possible error types:
+     * {@link FSError.Type#PATH_NOT_FOUND} if there is no file at path
+     * {@link FSError.Type#FILE_IS_DIRECTORY} if you are trying to write directory
+     */
+    @Nonnull
+    default Either<FSError, WritableByteChannel> openAppend(@Nonnull String path) {
+        requireNonNull(path);
+        return read(path, 0, 0).rMap(__ -> ContentChannels.appending(chunk -> append(path, chunk)));
+    }
+
+    /**
+     * opens stream which writes file the same way as channel opened by {@link #openWrite(String)} or
+     * * {@link #openAppend(String)} does. Small writes are buffered, so they are visible after flush
+     *
+     * @param append true if content should be appended to existing one
+     */
+    @Nonnull
+    default Either<FSError, OutputStream> openOutputStream(@Nonnull String path, boolean append) {
+        return (append ? openAppend(path) : openWrite(path)).rMap(
+                channel -> new BufferedOutputStream(Channels.newOutputStream(channel), ContentChannels.CHUNK_SIZE));
+    }
+
     /**
      * @return total size of file system in bytes
      */
@@ -135,6 +523,15 @@ public interface FS {
      */
     long used();
 
+    /**
+     * @return size in bytes of content actually stored. It's less than {@link #used()} if identical blocks of files
+     * * are stored once (see {@link fs.impl.FSConfig#init(long, fs.impl.FSConfig.Mode, int, boolean)}). File systems
+     * * which don't track physical storage report {@link #used()}
+     */
+    default long physicalUsed() {
+        return used();
+    }
+
     /**
      * @return free space in bytes
      */
@@ -142,6 +539,41 @@ public interface FS {
         return size() - used();
     }
 
+    /**
+     * writes point in time snapshot of the whole tree with content of files (see
+     * {@link #restore(ReadableByteChannel, long, FSConfig.Mode)}). Snapshot is streamed, so it needs bounded memory
+     * * mutations made while snapshot is written either are all in it or aren't in it at all, but whether they wait
+     * * for the end of export depends on implementation
+     * <p>
+     * This is default implementation which traverses tree by {@link #lsStream(String)} and {@link #read(String)}.
+     * It isn't point in time: each file is consistent, but mutations made meanwhile may be partially in snapshot.
+     * Implementations are encouraged to override it
+     *
+     * @param out channel to write snapshot to. It isn't closed
+     */
+    default void snapshot(@Nonnull WritableByteChannel out) throws IOException {
+        FSConfig.snapshot(this, requireNonNull(out));
+    }
+
+    /**
+     * writes snapshot the same way as {@link #snapshot(WritableByteChannel)} does
+     *
+     * @param out stream to write snapshot to. It isn't closed
+     */
+    default void snapshot(@Nonnull OutputStream out) throws IOException {
+        final WritableByteChannel channel = Channels.newChannel(requireNonNull(out));
+        snapshot(channel);
+        out.flush();
+    }
+
+    /**
+     * @return statistics of cache of nodes found by paths or nothing if file system doesn't cache lookups
+     */
+    @Nonnull
+    default Optional<LookupCacheStats> lookupCacheStats() {
+        return Optional.empty();
+    }
+
     /**
      * copies file or directory with it's subtree to another location
      *
@@ -176,4 +608,125 @@ public interface FS {
     static Either<FSError, FS> init(long size) {
         return size >= 0 ? Either.right(FSConfig.init(size)) : Either.left(new FSError(FS_CREATION_FAILED, "Can't create file system with negative size"));
     }
-}
\ No newline at end of file
+
+    /**
+     * initializes instance of file system working in given threading mode
+     *
+     * @param size of file system in bytes
+     * @param mode threading mode of file system
+     * @return either an instance of {@link FS} or an instance of {@link FSError}
+     * <p>
+     * possible error types:
+     * {@link FSError.Type#FS_CREATION_FAILED} if file system creation failed eg negative size is passed
+     */
+    @Nonnull
+    static Either<FSError, FS> init(long size, @Nonnull FSConfig.Mode mode) {
+        requireNonNull(mode);
+        return size >= 0 ? Either.right(FSConfig.init(size, mode)) : Either.left(new FSError(FS_CREATION_FAILED, "Can't create file system with negative size"));
+    }
+
+    /**
+     * restores file system from snapshot written by {@link #snapshot(WritableByteChannel)}. Content is streamed into
+     * files, so it's read once and extra memory doesn't depend on size of files
+     *
+     * @param in   channel to read snapshot from. It isn't closed and bytes after the end of snapshot may be
+     *             consumed by buffering
+     * @param size of file system in bytes
+     * @param mode threading mode of file system
+     * @return either an instance of {@link FS} or an instance of {@link FSError}
+     * <p>
+     * possible error types:
+     * {@link FSError.Type#FS_CREATION_FAILED} if file system creation failed eg negative size is passed, snapshot
+     * can't be read or it's content doesn't fit into size
+     */
+    @Nonnull
+    static Either<FSError, FS> restore(@Nonnull ReadableByteChannel in, long size, @Nonnull FSConfig.Mode mode) {
+        requireNonNull(in);
+        requireNonNull(mode);
+        Either<FSError, FS> result;
+        if (size < 0) {
+            result = Either.left(new FSError(FS_CREATION_FAILED, "Can't create file system with negative size"));
+        } else {
+            try {
+                result = Either.right(FSConfig.restore(in, size, mode));
+            } catch (IOException e) {
+                result = Either.left(new FSError(FS_CREATION_FAILED, () -> "Can't restore snapshot: " + e));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * restores file system from snapshot the same way as {@link #restore(ReadableByteChannel, long, FSConfig.Mode)}
+     *
+     * @param in stream to read snapshot from. It isn't closed
+     */
+    @Nonnull
+    static Either<FSError, FS> restore(@Nonnull InputStream in, long size, @Nonnull FSConfig.Mode mode) {
+        return restore(Channels.newChannel(requireNonNull(in)), size, mode);
+    }
+
+    /**
+     * initializes instance of file system whose successful mutations are recorded in write-ahead journal
+     * * if journal exists it's replayed to rebuild state of file system, so the same journal should be passed to
+     * * restore file system after restart
+     *
+     * @param size    of file system in bytes
+     * @param mode    threading mode of file system
+     * @param journal file of journal
+     * @param sync    policy of forcing journal to disk
+     * @return either an instance of {@link JournaledFS} or an instance of {@link FSError}
+     * <p>
+     * possible error types:
+     * {@link FSError.Type#FS_CREATION_FAILED} if file system creation failed eg negative size is passed, journal
+     * can't be read or it's content doesn't fit into size
+     */
+    @Nonnull
+    static Either<FSError, JournaledFS> init(long size, @Nonnull FSConfig.Mode mode, @Nonnull Path journal, @Nonnull FSConfig.Sync sync) {
+        requireNonNull(mode);
+        requireNonNull(journal);
+        requireNonNull(sync);
+        Either<FSError, JournaledFS> result;
+        if (size < 0) {
+            result = Either.left(new FSError(FS_CREATION_FAILED, "Can't create file system with negative size"));
+        } else {
+            try {
+                result = Either.right(FSConfig.init(size, mode, journal, sync));
+            } catch (IOException e) {
+                result = Either.left(new FSError(FS_CREATION_FAILED, () -> String.format("Can't replay journal %s: %s", journal, e)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * opens file system persisted in image directory or creates empty one if there is no image
+     *
+     * @param directory of image
+     * @param size      of file system in bytes
+     * @param mode      threading mode of file system. {@link FSConfig.Mode#LOCK_FREE_READS} isn't supported
+     * @return either an instance of {@link MappedFS} or an instance of {@link FSError}
+     * <p>
+     * possible error types:
+     * {@link FSError.Type#FS_CREATION_FAILED} if file system creation failed eg negative size is passed, mode isn't
+     * supported, image can't be read or it's content doesn't fit into size
+     */
+    @Nonnull
+    static Either<FSError, MappedFS> open(@Nonnull Path directory, long size, @Nonnull FSConfig.Mode mode) {
+        requireNonNull(directory);
+        requireNonNull(mode);
+        Either<FSError, MappedFS> result;
+        if (size < 0) {
+            result = Either.left(new FSError(FS_CREATION_FAILED, "Can't create file system with negative size"));
+        } else if (mode == FSConfig.Mode.LOCK_FREE_READS) {
+            result = Either.left(new FSError(FS_CREATION_FAILED, () -> mode + " mode isn't supported by mapped file system"));
+        } else {
+            try {
+                result = Either.right(FSConfig.open(directory, size, mode));
+            } catch (IOException | IllegalArgumentException e) {
+                result = Either.left(new FSError(FS_CREATION_FAILED, () -> String.format("Can't open image %s: %s", directory, e)));
+            }
+        }
+        return result;
+    }
+}
@@ -3,35 +3,115 @@
  */
 package fs;
 
+import static java.util.Objects.requireNonNull;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
 /**
  * type to represent FS related exceptions. Contains no getters because it's fields are immutable, their types
  * are also immutable, so there is no need to hide them behind getters
+ * * errors are returned as values and never thrown, so they are cheap to create:
+ * * stack trace isn't captured and message is formatted on demand by {@link #getMessage()}
  *
  * @author Andrey Antipov (gorttar@gmail.com) (2016-12-20)
  */
 public class FSError extends Exception {
+    private static final Map<Type, FSError> SHARED = new EnumMap<>(Type.class);
+
+    static {
+        for (Type type : Type.values()) {
+            SHARED.put(type, new FSError(type, type.description));
+        }
+    }
+
     /**
      * type of error
      */
     public final Type type;
 
     /**
-     * error message
+     * error message if it's passed as string or description of type if it's formatted on demand
+     *
+     * @deprecated use {@link #getMessage()} which formats message of any error
      */
+    @Deprecated
     @SuppressWarnings({"WeakerAccess", "unused"})
     public final String message;
 
+    @Nonnull
+    private final Supplier<String> messageSupplier;
+    /**
+     * message formatted on demand. Race between threads is benign because the same message is formatted
+     */
+    @Nullable
+    private String formatted;
+
     @SuppressWarnings("WeakerAccess")
     public FSError(Type type, String message) {
-        super(message);
+        super(null, null, false, false);
         this.type = type;
         this.message = message;
+        this.messageSupplier = () -> message;
+        this.formatted = message;
+    }
+
+    /**
+     * @param type            of error
+     * @param messageSupplier supplies error message when it's requested for the first time. It should capture
+     *                        * immutable context (eg parsed path or names) only, so message describes the moment
+     *                        * of error and doesn't retain nodes of file system
+     */
+    @SuppressWarnings("WeakerAccess")
+    public FSError(Type type, @Nonnull Supplier<String> messageSupplier) {
+        super(null, null, false, false);
+        this.type = type;
+        this.message = type == null ? null : type.description;
+        this.messageSupplier = requireNonNull(messageSupplier);
+    }
+
+    /**
+     * @return shared error of type with it's description as message. It's used when error has no context
+     */
+    @Nonnull
+    public static FSError of(@Nonnull Type type) {
+        return SHARED.get(requireNonNull(type));
+    }
+
+    @Override
+    public String getMessage() {
+        String result = formatted;
+        if (result == null) {
+            result = messageSupplier.get();
+            formatted = result;
+        }
+        return result;
     }
 
     /**
      * enumeration of available file system errors
      */
     public enum Type {
-        NO_FREE_SPACE, FILE_ALREADY_EXISTS, PATH_NOT_FOUND, FILE_IS_DIRECTORY, FILE_IS_REGULAR, DESTINATION_IS_SOURCE_SUBTREE, FS_CREATION_FAILED
+        NO_FREE_SPACE("There is no free space"),
+        FILE_ALREADY_EXISTS("File already exists"),
+        PATH_NOT_FOUND("Path not found"),
+        FILE_IS_DIRECTORY("File is directory"),
+        FILE_IS_REGULAR("File is regular"),
+        DESTINATION_IS_SOURCE_SUBTREE("Destination is subtree of source"),
+        FS_CREATION_FAILED("File system creation failed"),
+        ABORTED("Operation is undone because another operation of batch failed");
+
+        /**
+         * message of error without context
+         */
+        @Nonnull
+        private final String description;
+
+        Type(@Nonnull String description) {
+            this.description = description;
+        }
     }
-}
\ No newline at end of file
+}
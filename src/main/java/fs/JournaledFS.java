@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * file system whose successful mutations are recorded in write-ahead journal
+ * (see {@link FS#init(long, fs.impl.FSConfig.Mode, java.nio.file.Path, fs.impl.FSConfig.Sync)})
+ * * state is rebuilt by replaying journal when file system is initialized with it again
+ * * durability of each mutation depends on {@link fs.impl.FSConfig.Sync} policy of journal
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+public interface JournaledFS extends FS, Closeable {
+    /**
+     * forces all mutations recorded so far to disk regardless of sync policy
+     */
+    void sync() throws IOException;
+
+    /**
+     * syncs journal and releases it. File system shouldn't be used after that
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import java.util.Objects;
+
+/**
+ * immutable DTO to represent statistics of path lookup cache (see {@link FS#lookupCacheStats()}). Contains no getters
+ * because it's fields are immutable
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+public class LookupCacheStats {
+    /**
+     * number of lookups resolved by cache
+     */
+    @SuppressWarnings("WeakerAccess")
+    public final long hits;
+
+    /**
+     * number of lookups resolved by walking tree from root
+     */
+    @SuppressWarnings("WeakerAccess")
+    public final long misses;
+
+    /**
+     * number of cached paths
+     */
+    @SuppressWarnings("WeakerAccess")
+    public final int size;
+
+    /**
+     * maximal number of cached paths
+     */
+    @SuppressWarnings("WeakerAccess")
+    public final int capacity;
+
+    @SuppressWarnings("WeakerAccess")
+    public LookupCacheStats(long hits, long misses, int size, int capacity) {
+        this.hits = hits;
+        this.misses = misses;
+        this.size = size;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LookupCacheStats)) {
+            return false;
+        }
+        LookupCacheStats stats = (LookupCacheStats) o;
+        return hits == stats.hits &&
+                misses == stats.misses &&
+                size == stats.size &&
+                capacity == stats.capacity;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hits, misses, size, capacity);
+    }
+
+    @Override
+    public String toString() {
+        return "LookupCacheStats(" + hits + ',' + misses + ',' + size + ',' + capacity + ')';
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * file system persisted in image directory (see {@link FS#open(java.nio.file.Path, long, fs.impl.FSConfig.Mode)})
+ * * content of files is kept in memory mapped image and paged in on demand, so opening of image doesn't read it
+ * * directory tree is saved by {@link #flush()} and {@link #close()}. After crash image is reopened with files,
+ * * sizes and pages of content as of the last of them. Bytes of those pages may be changed in place by positional
+ * * writes and appends made after it, while pages freed by deletion or rewriting aren't reused until the next flush
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+public interface MappedFS extends FS, Closeable {
+    /**
+     * writes changed content and directory tree to image. Mutations wait until it's done
+     */
+    void flush() throws IOException;
+
+    /**
+     * flushes file system and releases image. File system shouldn't be used after that
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static fs.FSError.Type.ABORTED;
+import static fs.FSError.Type.NO_FREE_SPACE;
+import static java.util.Objects.requireNonNull;
+
+import data.Unit;
+import data.either.Either;
+import fs.Batch;
+import fs.FSError;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * single application of {@link Batch} to tree of {@link FSNode}s
+ * <p>
+ * path resolution:
+ * *    all paths are parsed before the first operation is applied, so malformed batch changes nothing
+ * *    parents of operations are found once per run and kept in {@link #parents}, so each operation under already
+ * *    resolved directory costs single lookup of child
+ * <p>
+ * free space:
+ * *    if upper bound of growth of the whole batch fits into {@link #budget} it's checked once, otherwise each
+ * *    operation is checked against budget left by previous ones
+ * <p>
+ * atomicity:
+ * *    atomic run records undo action of each applied operation in {@link #undo}. Failure runs them in reverse order
+ * *    deleted nodes are released after the whole run, so they can be linked back by undo
+ * *    run inside transaction records undo actions even if it isn't atomic and passes them to transaction's log
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+final class BatchRun {
+    @Nonnull
+    private final Batch batch;
+    @Nonnull
+    private final Path[] paths;
+    /**
+     * maximal growth of file system by this run
+     */
+    private final long budget;
+    @Nonnull
+    private final Function<Path, Either<FSError, FSNode>> find;
+    @Nonnull
+    private final Consumer<Path> invalidate;
+    @Nonnull
+    private final Map<Path, FSNode> parents = new HashMap<>();
+    @Nonnull
+    private final UndoLog undo;
+    /**
+     * true if undo actions of operations should be recorded
+     */
+    private final boolean logged;
+    /**
+     * net growth of file system by applied operations
+     */
+    private long growth = 0;
+
+    /**
+     * @param budget     maximal growth of file system by batch
+     * @param find       finds node located at path
+     * @param invalidate forgets nodes found under path after it's deleted
+     * @param parent     log of transaction which run is a part of or null if it isn't run in transaction
+     * @throws IllegalArgumentException if any path is malformed or root is created or deleted
+     */
+    BatchRun(@Nonnull Batch batch,
+             long budget,
+             @Nonnull Function<Path, Either<FSError, FSNode>> find,
+             @Nonnull Consumer<Path> invalidate,
+             @Nullable UndoLog parent) {
+        this.batch = requireNonNull(batch);
+        this.budget = budget;
+        this.find = requireNonNull(find);
+        this.invalidate = requireNonNull(invalidate);
+        this.undo = new UndoLog(parent);
+        this.logged = batch.isAtomic() || parent != null;
+        this.paths = parse(batch);
+    }
+
+    /**
+     * @return parsed paths of operations in order
+     * @throws IllegalArgumentException if any path is malformed or root is created or deleted
+     */
+    @Nonnull
+    static Path[] parse(@Nonnull Batch batch) {
+        final List<Batch.Operation> operations = batch.operations();
+        final Path[] result = new Path[operations.size()];
+        for (int i = 0; i < result.length; i++) {
+            final Batch.Operation operation = operations.get(i);
+            result[i] = Path.parse(operation.path);
+            if (result[i].size() == 0 && (operation.type == Batch.Operation.Type.CREATE || operation.type == Batch.Operation.Type.DELETE)) {
+                throw new IllegalArgumentException(String.format("Root can't be target of %s", operation));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return results of operations in order
+     */
+    @Nonnull
+    List<Either<FSError, Unit>> run() {
+        final List<Batch.Operation> operations = batch.operations();
+        final boolean checked = batch.growth() > budget;
+        final List<Either<FSError, Unit>> result = new ArrayList<>(operations.size());
+        int failed = -1;
+        try {
+            for (int i = 0; i < paths.length && failed < 0; i++) {
+                final Either<FSError, Unit> applied = apply(operations.get(i), paths[i], checked);
+                result.add(applied);
+                if (batch.isAtomic() && applied.isLeft()) {
+                    failed = i;
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            rollback();
+            throw e;
+        }
+        if (failed >= 0) {
+            rollback();
+            final Either<FSError, Unit> aborted = Either.left(FSError.of(ABORTED));
+            for (int i = 0; i < paths.length; i++) {
+                if (i < failed) {
+                    result.set(i, aborted);
+                } else if (i > failed) {
+                    result.add(aborted);
+                }
+            }
+        } else {
+            undo.commit();
+        }
+        return result;
+    }
+
+    /**
+     * @return net growth of file system by the last run
+     */
+    long growth() {
+        return growth;
+    }
+
+    @Nonnull
+    private Either<FSError, Unit> apply(@Nonnull Batch.Operation operation, @Nonnull Path path, boolean checked) {
+        final Either<FSError, Unit> result;
+        switch (operation.type) {
+            case CREATE:
+                result = parent(path).rFlatMap(
+                        parent -> {
+                            final String name = path.last();
+                            final Either<FSError, Unit> created = parent.createUnder(name, requireNonNull(operation.fileType));
+                            created.onRight(
+                                    __ -> record(
+                                            () -> {
+                                                parent.deleteUnder(name);
+                                                invalidate.accept(path);
+                                            }));
+                            return created;
+                        });
+                break;
+            case WRITE:
+                result = node(path).rFlatMap(
+                        node -> {
+                            final long delta = operation.length() - node.size();
+                            final Either<FSError, Unit> written;
+                            if (checked && growth + delta > budget) {
+                                written = Either.left(FSError.of(NO_FREE_SPACE));
+                            } else {
+                                final Runnable restore = logged ? UndoLog.restoringContent(node) : null;
+                                written = node.write(operation.content());
+                                written.onRight(
+                                        __ -> {
+                                            growth += delta;
+                                            record(restore);
+                                        });
+                            }
+                            return written;
+                        });
+                break;
+            case APPEND:
+                result = node(path).rFlatMap(
+                        node -> {
+                            final Runnable truncate = logged ? UndoLog.truncating(node) : null;
+                            final Either<FSError, Unit> appended;
+                            if (checked && growth + operation.length() > budget) {
+                                appended = Either.left(FSError.of(NO_FREE_SPACE));
+                            } else {
+                                appended = node.append(operation.content());
+                                appended.onRight(
+                                        __ -> {
+                                            growth += operation.length();
+                                            record(truncate);
+                                        });
+                            }
+                            return appended;
+                        });
+                break;
+            case DELETE:
+                result = parent(path).rFlatMap(
+                        parent -> parent.findUnder(path, path.size() - 1, path.size()).rFlatMap(
+                                node -> {
+                                    final String name = path.last();
+                                    final Either<FSError, Unit> removed = parent.deleteUnder(name);
+                                    removed.onRight(
+                                            __ -> {
+                                                growth -= node.size();
+                                                undo.detached(node);
+                                                invalidate.accept(path);
+                                                parents.keySet().removeIf(resolved -> resolved.equals(path) || path.isAncestorOf(resolved));
+                                                record(() -> node.moveTo(name, parent));
+                                            });
+                                    return removed;
+                                }));
+                break;
+            default:
+                throw new UnsupportedOperationException(operation.type + " is not supported");
+        }
+        return result;
+    }
+
+    /**
+     * @return either parent of node located at path or an error. Parent is found once per run
+     */
+    @Nonnull
+    private Either<FSError, FSNode> parent(@Nonnull Path path) {
+        final Path parentPath = path.prefix(path.size() - 1);
+        final FSNode cached = parents.get(parentPath);
+        final Either<FSError, FSNode> result;
+        if (cached != null) {
+            result = Either.right(cached);
+        } else {
+            result = find.apply(parentPath);
+            result.onRight(parent -> parents.put(parentPath, parent));
+        }
+        return result;
+    }
+
+    @Nonnull
+    private Either<FSError, FSNode> node(@Nonnull Path path) {
+        return path.size() == 0
+                ? find.apply(path)
+                : parent(path).rFlatMap(parent -> parent.findUnder(path, path.size() - 1, path.size()));
+    }
+
+    private void record(Runnable action) {
+        if (logged) {
+            undo.record(requireNonNull(action));
+        }
+    }
+
+    private void rollback() {
+        undo.rollback();
+        growth = 0;
+    }
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import data.ByteArray;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * mutable content of regular file stored in blocks
+ * <p>
+ * abstraction function:
+ * *    represents array of bytes which is concatenation of {@link #blocks} in [0, {@link #count}) followed by
+ * *    bytes accumulated by {@link #tail}
+ * <p>
+ * representation:
+ * *    blocks are immutable, so they are shared with read results and copies of file
+ * *    {@link #ends}[i] is position in content after the last byte of i-th block, so block containing any position
+ * *    is found by binary search in O(log(number of blocks))
+ * *    small appends are coalesced in {@link #tail} which is sealed into block without copying when it reaches
+ * *    {@link #blockSize}, so per block overhead is paid once per block instead of once per append
+ * *    large appends are split into blocks of {@link #blockSize} while they are copied, so positional write
+ * *    rebuilds only blocks it overlaps into blocks of at most {@link #blockSize} regardless of size of file
+ * *    {@link #copy()} shares blocks and index with copy, so index is copied by side which mutates it first
+ * *    (see {@link #shared})
+ * *    if {@link #deduplicator} is present, content is split into blocks of {@link #blockSize} aligned to
+ * *    positions of appends and sealed blocks are interned, so identical blocks of all files are stored once.
+ * *    Each storage holds one reference to each of it's blocks and {@link #clear()} releases them
+ * <p>
+ * safety from exposure:
+ * *    all fields are private
+ * *    content of tail is copied when it's read because tail is mutable
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+final class BlockStorage implements ContentStorage {
+    static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private final int blockSize;
+    @Nonnull
+    private ByteArray[] blocks = new ByteArray[1];
+    @Nonnull
+    private int[] ends = new int[1];
+    private int count = 0;
+    @Nullable
+    private ByteArray.Builder tail = null;
+    /**
+     * true if {@link #blocks} and {@link #ends} may be shared with copy
+     */
+    private boolean shared = false;
+    @Nullable
+    private final Deduplicator deduplicator;
+
+    BlockStorage() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param blockSize maximal size of block coalesced from small appends
+     */
+    BlockStorage(int blockSize) {
+        this(blockSize, null);
+    }
+
+    /**
+     * @param blockSize    maximal size of block coalesced from small appends
+     * @param deduplicator store of blocks shared by files or null if content isn't deduplicated
+     */
+    BlockStorage(int blockSize, @Nullable Deduplicator deduplicator) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException(String.format("Block size %d isn't positive", blockSize));
+        }
+        this.blockSize = blockSize;
+        this.deduplicator = deduplicator;
+        checkInvariants();
+    }
+
+    private void checkInvariants() {
+        // O(1) check of index bounds. Size of content is derived from them, so it can't diverge
+        assert count <= blocks.length && blocks.length == ends.length && (count == 0 || ends[count - 1] >= 0) &&
+                (tail == null || !tail.isFull());
+    }
+
+    @Override
+    public int size() {
+        return sealedSize() + (tail == null ? 0 : tail.length());
+    }
+
+    /**
+     * @return number of blocks including tail
+     */
+    int blockCount() {
+        return count + (tail == null ? 0 : 1);
+    }
+
+    /**
+     * @return sealed block by it's index in [0, number of blocks without tail)
+     */
+    @Nonnull
+    ByteArray block(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is out of [0, %d)", index, count));
+        }
+        return blocks[index];
+    }
+
+    /**
+     * only tail is copied if it's overlapped
+     */
+    @Nonnull
+    @Override
+    public ByteArray content(long offset, int length) {
+        final int from = (int) Math.min(offset, size());
+        final int to = (int) Math.min(from + (long) length, size());
+        final List<ByteArray> parts = new ArrayList<>();
+        for (int i = blockAt(from); i < count && start(i) < to; i++) {
+            final int sliceFrom = Math.max(from, start(i));
+            parts.add(blocks[i].slice(sliceFrom - start(i), Math.min(to, ends[i]) - sliceFrom));
+        }
+        if (tail != null && to > sealedSize()) {
+            final int sliceFrom = Math.max(from, sealedSize());
+            parts.add(tail.snapshot().slice(sliceFrom - sealedSize(), to - sliceFrom));
+        }
+        return ByteArray.concat(parts);
+    }
+
+    /**
+     * bytes are copied from blocks to target directly
+     */
+    @Override
+    public int read(long offset, @Nonnull ByteBuffer target) {
+        requireNonNull(target);
+        final int from = (int) Math.min(offset, size());
+        final int to = (int) Math.min(from + (long) target.remaining(), size());
+        for (int i = blockAt(from); i < count && start(i) < to; i++) {
+            blocks[i].get(Math.max(from, start(i)) - start(i), target);
+        }
+        if (tail != null && to > sealedSize()) {
+            tail.get(Math.max(from, sealedSize()) - sealedSize(), target);
+        }
+        return to - from;
+    }
+
+    /**
+     * @return storage with the same content which shares blocks with this one. Only tail is copied
+     * * so copying takes O(1) time and O({@link #blockSize}) memory regardless of size of content
+     */
+    @Nonnull
+    @Override
+    public BlockStorage copy() {
+        final BlockStorage result = new BlockStorage(blockSize, deduplicator);
+        result.blocks = blocks;
+        result.ends = ends;
+        result.count = count;
+        result.tail = tail == null ? null : tail.copy();
+        result.shared = true;
+        shared = true;
+        if (deduplicator != null) {
+            // copy holds it's own references, so it takes O(number of blocks)
+            for (int i = 0; i < count; i++) {
+                deduplicator.retain(blocks[i]);
+            }
+            deduplicator.adjustPrivate(tail == null ? 0 : tail.length());
+        }
+        result.checkInvariants();
+        checkInvariants();
+        return result;
+    }
+
+    /**
+     * range is copied once into blocks of {@link #blockSize} which are sealed as soon as they are full
+     */
+    @Override
+    public void append(@Nonnull byte[] content, int offset, int length) {
+        requireNonNull(content);
+        int appended = tail == null ? 0 : appendToTail(content, offset, length);
+        while (appended < length) {
+            tail = new ByteArray.Builder(blockSize);
+            appended += appendToTail(content, offset + appended, length - appended);
+        }
+        checkInvariants();
+    }
+
+    /**
+     * remaining bytes are copied once the same way as range of array is
+     */
+    @Override
+    public void append(@Nonnull ByteBuffer content) {
+        requireNonNull(content);
+        if (tail != null) {
+            appendToTail(content);
+        }
+        while (content.hasRemaining()) {
+            tail = new ByteArray.Builder(blockSize);
+            appendToTail(content);
+        }
+        checkInvariants();
+    }
+
+    /**
+     * appends immutable block without copying. It's sliced into blocks of {@link #blockSize}
+     */
+    void append(@Nonnull ByteArray block) {
+        if (deduplicator != null) {
+            // block is split into aligned blocks to be deduplicated
+            final byte[] content = block.get();
+            append(content, 0, content.length);
+        } else if (requireNonNull(block).length() > 0) {
+            sealTail();
+            for (int offset = 0; offset < block.length(); offset += blockSize) {
+                add(block.slice(offset, Math.min(blockSize, block.length() - offset)));
+            }
+        }
+        checkInvariants();
+    }
+
+    /**
+     * blocks overlapping rewritten part are found by binary search and rebuilt into blocks of at most
+     * * {@link #blockSize}, so they are neither fragmented nor merged by repeated writes
+     */
+    @Override
+    public void write(int offset, @Nonnull byte[] content) {
+        requireNonNull(content);
+        if (offset >= size()) {
+            if (offset > size()) {
+                append(ByteArray.zeros(offset - size()));
+            }
+            append(content, 0, content.length);
+        } else if (content.length > 0) {
+            final int end = offset + content.length;
+            if (end > sealedSize()) {
+                sealTail();
+            }
+            final int first = blockAt(offset);
+            final int last = end < sealedSize() ? blockAt(end - 1) : count - 1;
+            final int start = start(first);
+            final byte[] bytes = new byte[Math.max(ends[last], end) - start];
+            read(start, ByteBuffer.wrap(bytes, 0, ends[last] - start));
+            System.arraycopy(content, 0, bytes, offset - start, content.length);
+            final ByteArray[] replacements = new ByteArray[(bytes.length + blockSize - 1) / blockSize];
+            for (int i = 0; i < replacements.length; i++) {
+                final ByteArray.Builder builder = new ByteArray.Builder(blockSize);
+                builder.append(bytes, i * blockSize, Math.min(blockSize, bytes.length - i * blockSize));
+                // rebuilt blocks are deduplicated again
+                replacements[i] = deduplicator == null ? builder.build() : deduplicator.intern(builder.build());
+            }
+            if (deduplicator != null) {
+                for (int i = first; i <= last; i++) {
+                    deduplicator.release(blocks[i]);
+                }
+            }
+            replace(first, last, replacements);
+        }
+        checkInvariants();
+    }
+
+    /**
+     * blocks after size are dropped and block containing it is sliced, so only tail is copied. With deduplication
+     * * part of sliced block becomes tail to keep blocks aligned
+     */
+    @Override
+    public void truncate(int size) {
+        if (size < 0 || size > size()) {
+            throw new IllegalArgumentException(String.format("Size %d is out of [0, %d]", size, size()));
+        }
+        if (size >= sealedSize()) {
+            if (tail != null) {
+                resetTail(tail.snapshot().slice(0, size - sealedSize()));
+            }
+        } else {
+            final int first = blockAt(size);
+            final ByteArray kept = blocks[first].slice(0, size - start(first));
+            if (deduplicator != null) {
+                for (int i = first; i < count; i++) {
+                    deduplicator.release(blocks[i]);
+                }
+            }
+            final boolean sliced = deduplicator == null && kept.length() > 0;
+            replace(first, count - 1, sliced ? new ByteArray[]{kept} : new ByteArray[0]);
+            resetTail(sliced ? ByteArray.zeros(0) : kept);
+        }
+        checkInvariants();
+    }
+
+    @Override
+    public void clear() {
+        if (deduplicator != null) {
+            for (int i = 0; i < count; i++) {
+                deduplicator.release(blocks[i]);
+            }
+            deduplicator.adjustPrivate(tail == null ? 0 : -tail.length());
+        }
+        blocks = new ByteArray[1];
+        ends = new int[1];
+        count = 0;
+        tail = null;
+        shared = false;
+        checkInvariants();
+    }
+
+    private int sealedSize() {
+        return count == 0 ? 0 : ends[count - 1];
+    }
+
+    /**
+     * @return position in content of the first byte of i-th block
+     */
+    private int start(int index) {
+        return index == 0 ? 0 : ends[index - 1];
+    }
+
+    /**
+     * @return index of the first block which ends after position or count if there is no such block
+     */
+    private int blockAt(int position) {
+        final int found = Arrays.binarySearch(ends, 0, count, position);
+        // block ending exactly at position doesn't contain it
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    private void sealTailIfFull() {
+        if (tail != null && tail.isFull()) {
+            sealTail();
+        }
+    }
+
+    private void sealTail() {
+        if (tail != null) {
+            final ByteArray.Builder sealed = tail;
+            tail = null;
+            if (deduplicator != null) {
+                deduplicator.adjustPrivate(-sealed.length());
+            }
+            add(sealed.build());
+        }
+    }
+
+    /**
+     * @return number of bytes appended to tail
+     */
+    private int appendToTail(@Nonnull byte[] content, int offset, int length) {
+        final int result = requireNonNull(tail).append(content, offset, length);
+        if (deduplicator != null) {
+            deduplicator.adjustPrivate(result);
+        }
+        sealTailIfFull();
+        return result;
+    }
+
+    /**
+     * appends remaining bytes of content to tail as many as fit into it
+     */
+    private void appendToTail(@Nonnull ByteBuffer content) {
+        final int appended = requireNonNull(tail).append(content);
+        if (deduplicator != null) {
+            deduplicator.adjustPrivate(appended);
+        }
+        sealTailIfFull();
+    }
+
+    /**
+     * replaces tail with copy of content which is shorter than {@link #blockSize}
+     */
+    private void resetTail(@Nonnull ByteArray content) {
+        if (tail != null && deduplicator != null) {
+            deduplicator.adjustPrivate(-tail.length());
+        }
+        tail = null;
+        if (content.length() > 0) {
+            tail = new ByteArray.Builder(blockSize);
+            appendToTail(content.asReadOnlyBuffer());
+        }
+    }
+
+    /**
+     * replaces blocks in [first, last] with replacements which aren't interned here
+     */
+    private void replace(int first, int last, @Nonnull ByteArray[] replacements) {
+        unshare();
+        final int newCount = count - (last - first + 1) + replacements.length;
+        if (newCount > blocks.length) {
+            blocks = Arrays.copyOf(blocks, Math.max(newCount, 2 * blocks.length));
+            ends = Arrays.copyOf(ends, blocks.length);
+        }
+        final int delta = -(ends[last] - start(first));
+        System.arraycopy(blocks, last + 1, blocks, first + replacements.length, count - last - 1);
+        System.arraycopy(ends, last + 1, ends, first + replacements.length, count - last - 1);
+        int end = start(first);
+        for (int i = 0; i < replacements.length; i++) {
+            blocks[first + i] = replacements[i];
+            end += replacements[i].length();
+            ends[first + i] = end;
+        }
+        final int shift = delta + end - start(first);
+        for (int i = first + replacements.length; i < newCount; i++) {
+            ends[i] += shift;
+        }
+        if (newCount < count) {
+            Arrays.fill(blocks, newCount, count, null);
+        }
+        count = newCount;
+    }
+
+    /**
+     * copies index before it's mutated if it may be shared with copy
+     */
+    private void unshare() {
+        if (shared) {
+            blocks = Arrays.copyOf(blocks, Math.max(1, count));
+            ends = Arrays.copyOf(ends, Math.max(1, count));
+            shared = false;
+        }
+    }
+
+    private void add(@Nonnull ByteArray block) {
+        unshare();
+        if (count == blocks.length) {
+            blocks = Arrays.copyOf(blocks, 2 * count);
+            ends = Arrays.copyOf(ends, 2 * count);
+        }
+        blocks[count] = deduplicator == null ? block : deduplicator.intern(block);
+        ends[count] = sealedSize() + block.length();
+        count++;
+    }
+}
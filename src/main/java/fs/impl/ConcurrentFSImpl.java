@@ -0,0 +1,620 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import check.CheckHelper;
+import data.ByteArray;
+import data.Unit;
+import data.either.Either;
+import fs.Batch;
+import fs.ContentChannels;
+import fs.FS;
+import fs.FSError;
+import fs.FileInfo;
+import fs.FileType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * thread safe {@link FS} implementation which decorates {@link SimpleFSImpl} with hierarchical locking
+ * <p>
+ * locking protocol:
+ * *    each operation locks nodes along it's paths starting from root using {@link PathLocks}
+ * *    nodes whose content or children are changed are locked for writing, their ancestors for reading
+ * *    write lock on directory gives exclusive access to it's whole subtree because any operation inside the subtree
+ * *    holds read lock on the directory, so operations in unrelated subtrees run in parallel
+ * *    move and copy lock both source and destination before mutation so they are atomic
+ * <p>
+ * free space accounting:
+ * *    bytes are reserved in {@link #reserved} before file system grows and released after it shrinks
+ * *    so sum of actual used space and pending reservations never exceeds size under contention
+ * <p>
+ * transactions:
+ * *    operations of transaction keep their locks until it's finished, so it's isolated from other operations which
+ * *    touch the same nodes while operations in unrelated subtrees aren't blocked
+ * *    locks which can't be added without risk of deadlock abort attempt of transaction. Next attempt acquires all
+ * *    locks requested by previous ones in global order before body is run again
+ * *    space freed by transaction is released only after commit, so rollback always fits into reserved space
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+final class ConcurrentFSImpl implements FS {
+    private final FSNode root;
+    private final SimpleFSImpl delegate;
+    /**
+     * used space plus space reserved by operations in progress
+     */
+    private final AtomicLong reserved;
+    /**
+     * transaction which this file system is view of or null for file system itself
+     */
+    @Nullable
+    private final Transaction transaction;
+    /**
+     * log of innermost transaction which this file system is view of or null for file system itself
+     */
+    @Nullable
+    private final UndoLog undo;
+
+    ConcurrentFSImpl(long size) {
+        this(size, false, false);
+    }
+
+    /**
+     * @param size          of file system in bytes
+     * @param deduplication true if identical blocks of files should be stored once
+     * @param offHeap       true if content of files should be held outside of heap
+     */
+    ConcurrentFSImpl(long size, boolean deduplication, boolean offHeap) {
+        this(size, FSNode.createRoot(true, deduplication, offHeap));
+    }
+
+    /**
+     * @param size of file system in bytes
+     * @param root of file system's tree guarded by locks. It may be already populated
+     */
+    ConcurrentFSImpl(long size, @Nonnull FSNode root) {
+        if (!requireNonNull(root).lock().isPresent()) {
+            throw new IllegalArgumentException("Root isn't guarded by lock");
+        }
+        this.root = root;
+        // lookup cache is disabled because it's eviction order is updated by reads running in parallel
+        delegate = new SimpleFSImpl(size, root, 0);
+        reserved = new AtomicLong(root.size());
+        transaction = null;
+        undo = null;
+        checkInvariants();
+    }
+
+    /**
+     * creates view of transaction which shares tree and free space with file system
+     */
+    private ConcurrentFSImpl(@Nonnull ConcurrentFSImpl fs, @Nonnull Transaction transaction, @Nonnull UndoLog undo) {
+        this.root = fs.root;
+        this.delegate = fs.delegate.transactional(undo);
+        this.reserved = fs.reserved;
+        this.transaction = transaction;
+        this.undo = undo;
+    }
+
+    private void checkInvariants() {
+        final long reserved = this.reserved.get();
+        assert 0 <= reserved && reserved <= delegate.size();
+    }
+
+    private <T> T checkedGet(Supplier<? extends T> payload) {
+        return CheckHelper.checkedGet(payload, this::checkInvariants);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> create(@Nonnull String path, @Nonnull FileType fileType) {
+        requireNonNull(fileType);
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(() -> locked(PathLocks.plan().write(parentOf(parsedPath)), () -> delegate.create(path, fileType)));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, FileInfo> info(@Nonnull String path) {
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(() -> locked(PathLocks.plan().read(parsedPath), () -> delegate.info(path)));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, ByteArray> read(@Nonnull String path) {
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(() -> locked(PathLocks.plan().read(parsedPath), () -> delegate.read(path)));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, ByteArray> read(@Nonnull String path, long offset, int length) {
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(() -> locked(PathLocks.plan().read(parsedPath), () -> delegate.read(path, offset, length)));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Integer> read(@Nonnull String path, long offset, @Nonnull ByteBuffer... dst) {
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(() -> locked(PathLocks.plan().read(parsedPath), () -> delegate.read(path, offset, dst)));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, List<FileInfo>> ls(@Nonnull String path) {
+        final Path parsedPath = Path.parse(requireNonNull(path)).orRoot();
+        return checkedGet(() -> locked(PathLocks.plan().read(parsedPath), () -> delegate.ls(path)));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, List<FileInfo>> ls(@Nonnull String path, @Nullable String cursor, int limit) {
+        final Path parsedPath = Path.parse(requireNonNull(path)).orRoot();
+        return checkedGet(() -> locked(PathLocks.plan().read(parsedPath), () -> delegate.ls(path, cursor, limit)));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, List<FileInfo>> lsRange(@Nonnull String path, @Nullable String from, @Nullable String to) {
+        final Path parsedPath = Path.parse(requireNonNull(path)).orRoot();
+        return checkedGet(() -> locked(PathLocks.plan().read(parsedPath), () -> delegate.lsRange(path, from, to)));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> copy(@Nonnull String sourcePath, @Nonnull String destinationPath) {
+        final Path sourceParsedPath = Path.parse(requireNonNull(sourcePath));
+        final Path destinationParsedPath = Path.parse(requireNonNull(destinationPath));
+        return checkedGet(
+                () -> sourceParsedPath.isAncestorOf(destinationParsedPath)
+                        ? delegate.copy(sourcePath, destinationPath)
+                        // source is write locked to keep it's subtree intact during copying
+                        : locked(
+                        PathLocks.plan().write(sourceParsedPath).write(parentOf(destinationParsedPath)),
+                        () -> root
+                                .findUnder(sourceParsedPath)
+                                .rFlatMap(
+                                        src -> root.findUnder(destinationParsedPath).both(__ -> false, dst -> src == dst)
+                                                ? delegate.copy(sourcePath, destinationPath)
+                                                : reserving(src.size(), () -> delegate.copy(sourcePath, destinationPath)))));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> write(@Nonnull String path, @Nonnull byte[] content) {
+        requireNonNull(content);
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(
+                () -> locked(
+                        PathLocks.plan().write(parsedPath),
+                        () -> root
+                                .findUnder(parsedPath)
+                                .rFlatMap(
+                                        node -> {
+                                            final long delta = content.length - node.size();
+                                            return delta > 0
+                                                    ? reserving(delta, () -> delegate.write(path, content))
+                                                    : releasing(-delta, () -> delegate.write(path, content));
+                                        })));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> write(@Nonnull String path, @Nonnull ByteBuffer... content) {
+        final long length = ContentChannels.remaining(content);
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(
+                () -> locked(
+                        PathLocks.plan().write(parsedPath),
+                        () -> root
+                                .findUnder(parsedPath)
+                                .rFlatMap(
+                                        node -> {
+                                            final long delta = length - node.size();
+                                            return delta > 0
+                                                    ? reserving(delta, () -> delegate.write(path, content))
+                                                    : releasing(-delta, () -> delegate.write(path, content));
+                                        })));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> write(@Nonnull String path, long offset, @Nonnull byte[] content) {
+        requireNonNull(content);
+        // invalid range is rejected before space is reserved for it
+        if (offset < 0 || offset + content.length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Range [%d, %d + %d) is invalid", offset, offset, content.length));
+        }
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(
+                () -> locked(
+                        PathLocks.plan().write(parsedPath),
+                        () -> root
+                                .findUnder(parsedPath)
+                                .rFlatMap(
+                                        node -> reserving(
+                                                Math.max(0, offset + content.length - node.size()),
+                                                () -> delegate.write(path, offset, content)))));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> append(@Nonnull String path, @Nonnull byte[] content) {
+        requireNonNull(content);
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(
+                () -> locked(
+                        PathLocks.plan().write(parsedPath),
+                        () -> root
+                                .findUnder(parsedPath)
+                                .rFlatMap(__ -> reserving(content.length, () -> delegate.append(path, content)))));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> append(@Nonnull String path, @Nonnull ByteBuffer... content) {
+        final long length = ContentChannels.remaining(content);
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(
+                () -> locked(
+                        PathLocks.plan().write(parsedPath),
+                        () -> root
+                                .findUnder(parsedPath)
+                                .rFlatMap(__ -> reserving(length, () -> delegate.append(path, content)))));
+    }
+
+    /**
+     * channel holds the file found at path, each chunk is read under the same locks as {@link #read(String, long, int)}
+     */
+    @Nonnull
+    @Override
+    public Either<FSError, ReadableByteChannel> openRead(@Nonnull String path) {
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(() -> locked(PathLocks.plan().read(parsedPath), () -> delegate.file(parsedPath)))
+                .rMap(
+                        file -> ContentChannels.reading(
+                                (position, dst) -> checkedGet(
+                                        () -> locked(PathLocks.plan().read(parsedPath), () -> delegate.read(parsedPath, file, position, dst)))));
+    }
+
+    /**
+     * channel holds the file found at path, each chunk is appended under the same locks as
+     * * {@link #append(String, byte[])}
+     */
+    @Nonnull
+    @Override
+    public Either<FSError, WritableByteChannel> openAppend(@Nonnull String path) {
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(() -> locked(PathLocks.plan().read(parsedPath), () -> delegate.file(parsedPath)))
+                .rMap(
+                        file -> ContentChannels.appending(
+                                chunk -> checkedGet(
+                                        () -> locked(
+                                                PathLocks.plan().write(parsedPath),
+                                                () -> delegate
+                                                        .held(parsedPath, file)
+                                                        .rFlatMap(__ -> reserving(chunk.remaining(), () -> delegate.append(parsedPath, file, chunk)))))));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> delete(@Nonnull String path) {
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(
+                () -> locked(
+                        // write lock on parent gives exclusive access to deleted subtree
+                        PathLocks.plan().write(parentOf(parsedPath)),
+                        () -> root
+                                .findUnder(parsedPath)
+                                .rFlatMap(node -> releasing(node.size(), () -> delegate.delete(path)))));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> move(@Nonnull String sourcePath, @Nonnull String destinationPath) {
+        final Path sourceParsedPath = Path.parse(requireNonNull(sourcePath));
+        final Path destinationParsedPath = Path.parse(requireNonNull(destinationPath));
+        return checkedGet(
+                () -> locked(
+                        PathLocks.plan().write(parentOf(sourceParsedPath)).write(parentOf(destinationParsedPath)),
+                        () -> delegate.move(sourcePath, destinationPath)));
+    }
+
+    /**
+     * the whole batch is applied under single write lock on the deepest common ancestor of it's targets, so it's
+     * * isolated from other operations. Space for upper bound of growth of batch is reserved at once and the rest of
+     * * reservation is released after batch is applied
+     */
+    @Nonnull
+    @Override
+    public List<Either<FSError, Unit>> apply(@Nonnull Batch batch) {
+        Path common = null;
+        for (Batch.Operation operation : requireNonNull(batch).operations()) {
+            final Path parsedPath = Path.parse(operation.path);
+            final boolean structural = operation.type == Batch.Operation.Type.CREATE || operation.type == Batch.Operation.Type.DELETE;
+            final Path target = structural && parsedPath.size() > 0 ? parentOf(parsedPath) : parsedPath;
+            common = common == null ? target : commonAncestor(common, target);
+        }
+        final Path locked = common == null ? Path.parse("/") : common;
+        return checkedGet(
+                () -> locked(
+                        PathLocks.plan().write(locked),
+                        () -> {
+                            // subtree of common ancestor is exclusively locked, so batch's growth is known exactly
+                            final long budget = reserveUpTo(batch.growth());
+                            final BatchRun run = delegate.batchRun(batch, budget);
+                            try {
+                                return run.run();
+                            } finally {
+                                final long growth = run.growth();
+                                reserved.addAndGet(Math.max(0, growth) - budget);
+                                if (growth < 0) {
+                                    release(-growth);
+                                } else if (transaction != null) {
+                                    transaction.grown += growth;
+                                }
+                            }
+                        }));
+    }
+
+    /**
+     * body runs in attempts until it doesn't conflict with concurrent operations. Transaction of view is nested into
+     * * enclosing one
+     */
+    @Nonnull
+    @Override
+    public <T> Either<FSError, T> transaction(@Nonnull Function<? super FS, Either<FSError, T>> body) {
+        requireNonNull(body);
+        return checkedGet(
+                () -> {
+                    Either<FSError, T> result = null;
+                    if (transaction != null) {
+                        result = attempt(transaction, new UndoLog(undo), body);
+                    } else {
+                        PathLocks.Plan learned = PathLocks.plan();
+                        while (result == null) {
+                            final Transaction attempt = new Transaction(learned.lock(root), learned);
+                            try {
+                                result = attempt(attempt, new UndoLog(), body);
+                                // space freed by committed transaction becomes available for others
+                                reserved.addAndGet(-attempt.shrunk);
+                            } catch (Conflict e) {
+                                learned = attempt.requested;
+                            } finally {
+                                attempt.locks.close();
+                            }
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * runs body once and undoes it's mutations and reservations if it fails
+     */
+    @Nonnull
+    private <T> Either<FSError, T> attempt(@Nonnull Transaction transaction,
+                                           @Nonnull UndoLog log,
+                                           @Nonnull Function<? super FS, Either<FSError, T>> body) {
+        final long grown = transaction.grown;
+        final long shrunk = transaction.shrunk;
+        Either<FSError, T> result = null;
+        try {
+            result = log.run(() -> body.apply(new ConcurrentFSImpl(this, transaction, log)));
+        } finally {
+            if (result == null || result.isLeft()) {
+                reserved.addAndGet(grown - transaction.grown);
+                transaction.grown = grown;
+                transaction.shrunk = shrunk;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long size() {
+        return checkedGet(delegate::size);
+    }
+
+    @Override
+    public long used() {
+        return checkedGet(delegate::used);
+    }
+
+    @Override
+    public long physicalUsed() {
+        // deduplicator is thread safe, so no locks are needed
+        return checkedGet(delegate::physicalUsed);
+    }
+
+    /**
+     * write lock on root excludes all operations only while tree is frozen, so mutations continue while frozen tree
+     * * is written. Content held outside of heap is mutated in place, so it's written while operations wait
+     */
+    @Override
+    public void snapshot(@Nonnull WritableByteChannel out) throws IOException {
+        requireNonNull(out);
+        final Lock lock = root.lock().map(ReentrantReadWriteLock::writeLock).orElseThrow(IllegalStateException::new);
+        final PersistentNode.Directory frozen;
+        lock.lock();
+        try {
+            if (root.allocator().isPresent()) {
+                SnapshotImage.write(root, out);
+                frozen = null;
+            } else {
+                frozen = SnapshotImage.freeze(root);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (frozen != null) {
+            SnapshotImage.write(frozen, out);
+        }
+        checkInvariants();
+    }
+
+    @Nonnull
+    private static Path parentOf(@Nonnull Path path) {
+        return path.prefix(path.size() - 1);
+    }
+
+    /**
+     * @return the deepest path which is either equal to or ancestor of both paths
+     */
+    @Nonnull
+    private static Path commonAncestor(@Nonnull Path first, @Nonnull Path second) {
+        return first.commonPrefix(second);
+    }
+
+    /**
+     * runs operation under planned locks. View of transaction adds them to locks of transaction instead, so they are
+     * * held until transaction is finished
+     *
+     * @throws Conflict if locks can't be added to transaction without risk of deadlock
+     */
+    private <T> T locked(@Nonnull PathLocks.Plan plan, @Nonnull Supplier<? extends T> operation) {
+        final T result;
+        if (transaction != null) {
+            transaction.requested.add(plan);
+            if (!transaction.locks.extend(plan, root)) {
+                throw Conflict.INSTANCE;
+            }
+            result = operation.get();
+        } else {
+            final PathLocks locks = plan.lock(root);
+            try {
+                result = operation.get();
+            } finally {
+                locks.close();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * reserves space before growing mutation and releases it if mutation fails or throws
+     *
+     * @param bytes    to reserve
+     * @param mutation which grows file system by bytes on success
+     * @return either result of mutation or {@link FSError.Type#NO_FREE_SPACE} error
+     */
+    @Nonnull
+    private Either<FSError, Unit> reserving(long bytes, @Nonnull Supplier<Either<FSError, Unit>> mutation) {
+        final long size = delegate.size();
+        final Either<FSError, Unit> result;
+        if (reserved.getAndUpdate(current -> current <= size - bytes ? current + bytes : current) > size - bytes) {
+            result = Either.left(FSError.of(FSError.Type.NO_FREE_SPACE));
+        } else {
+            try {
+                result = mutation.get();
+            } catch (RuntimeException | Error e) {
+                reserved.addAndGet(-bytes);
+                throw e;
+            }
+            result.onBoth(
+                    __ -> reserved.addAndGet(-bytes),
+                    __ -> {
+                        if (transaction != null) {
+                            transaction.grown += bytes;
+                        }
+                    });
+        }
+        return result;
+    }
+
+    /**
+     * reserves as much of requested space as is free
+     *
+     * @return number of reserved bytes
+     */
+    private long reserveUpTo(long bytes) {
+        final long size = delegate.size();
+        final long previous = reserved.getAndUpdate(current -> current + Math.max(0, Math.min(bytes, size - current)));
+        return Math.max(0, Math.min(bytes, size - previous));
+    }
+
+    /**
+     * releases space after shrinking mutation succeeds
+     *
+     * @param bytes    to release
+     * @param mutation which shrinks file system by bytes on success
+     * @return result of mutation
+     */
+    @Nonnull
+    private Either<FSError, Unit> releasing(long bytes, @Nonnull Supplier<Either<FSError, Unit>> mutation) {
+        final Either<FSError, Unit> result = mutation.get();
+        result.onRight(__ -> release(bytes));
+        return result;
+    }
+
+    /**
+     * releases space freed by mutation. Space freed by transaction is kept reserved until it's committed
+     */
+    private void release(long bytes) {
+        if (transaction != null) {
+            transaction.shrunk += bytes;
+        } else {
+            reserved.addAndGet(-bytes);
+        }
+    }
+
+    /**
+     * state of single attempt of transaction shared by it's views
+     */
+    private static final class Transaction {
+        @Nonnull
+        private final PathLocks locks;
+        /**
+         * all locks requested by attempt, so the next one acquires them in advance
+         */
+        @Nonnull
+        private final PathLocks.Plan requested;
+        /**
+         * space reserved by mutations of attempt
+         */
+        private long grown = 0;
+        /**
+         * space freed by mutations of attempt
+         */
+        private long shrunk = 0;
+
+        /**
+         * @param locks   acquired in advance
+         * @param learned plan of acquired locks
+         */
+        private Transaction(@Nonnull PathLocks locks, @Nonnull PathLocks.Plan learned) {
+            this.locks = locks;
+            this.requested = PathLocks.plan().add(learned);
+        }
+    }
+
+    /**
+     * thrown by operation of transaction which can't acquire it's locks without risk of deadlock
+     */
+    private static final class Conflict extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private static final Conflict INSTANCE = new Conflict();
+
+        private Conflict() {
+            super("Transaction conflicts with concurrent operation", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import data.ByteArray;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+
+/**
+ * mutable content of regular file
+ * * {@link BlockStorage} keeps it in immutable blocks on heap and {@link OffHeapStorage} in pages of direct memory
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+interface ContentStorage {
+    /**
+     * @return size of content in bytes
+     */
+    int size();
+
+    /**
+     * @return the whole content
+     */
+    @Nonnull
+    default ByteArray content() {
+        return content(0, size());
+    }
+
+    /**
+     * @param offset of the first byte to read
+     * @param length maximal number of bytes to read
+     * @return part of content which is cut at it's end
+     */
+    @Nonnull
+    ByteArray content(long offset, int length);
+
+    /**
+     * copies part of content starting from offset to remaining bytes of target and advances it's position
+     *
+     * @return number of copied bytes. It's less than remaining bytes of target if content ends earlier
+     */
+    int read(long offset, @Nonnull ByteBuffer target);
+
+    /**
+     * @return independent storage with the same content
+     */
+    @Nonnull
+    ContentStorage copy();
+
+    /**
+     * appends range of bytes
+     */
+    void append(@Nonnull byte[] content, int offset, int length);
+
+    /**
+     * appends remaining bytes of content and advances it's position to limit
+     */
+    void append(@Nonnull ByteBuffer content);
+
+    /**
+     * rewrites part of content starting from offset. Gap between the end of content and offset is filled with zeros
+     */
+    void write(int offset, @Nonnull byte[] content);
+
+    /**
+     * cuts content to size which isn't greater than current one and releases memory which isn't needed anymore
+     */
+    void truncate(int size);
+
+    /**
+     * removes content and releases memory held by it
+     */
+    void clear();
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import data.ByteArray;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * content addressed store of immutable blocks shared by all files of file system
+ * * each unique block is stored once and counts references from {@link BlockStorage}s, so it's forgotten when
+ * * the last of them releases it
+ * * it's thread safe because files under different locks of concurrent file system share it
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+final class Deduplicator {
+    /**
+     * blocks are keyed by content, so hash and equality of keys are ones of content
+     */
+    private final Map<ByteArray, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong uniqueBytes = new AtomicLong();
+    /**
+     * bytes which aren't deduplicated yet eg tails of files which are still appended
+     */
+    private final AtomicLong privateBytes = new AtomicLong();
+
+    /**
+     * @param block to be stored
+     * @return stored block with the same content. It's the block itself if there was no such content before
+     */
+    @Nonnull
+    ByteArray intern(@Nonnull ByteArray block) {
+        return entries.compute(
+                requireNonNull(block),
+                (key, existing) -> {
+                    final Entry result = existing == null ? new Entry(key) : existing;
+                    if (result.references++ == 0) {
+                        uniqueBytes.addAndGet(key.length());
+                    }
+                    return result;
+                }).block;
+    }
+
+    /**
+     * adds reference to stored block
+     */
+    void retain(@Nonnull ByteArray block) {
+        entries.computeIfPresent(
+                requireNonNull(block),
+                (key, entry) -> {
+                    entry.references++;
+                    return entry;
+                });
+    }
+
+    /**
+     * removes reference to stored block and forgets it if there is no more references
+     */
+    void release(@Nonnull ByteArray block) {
+        entries.computeIfPresent(
+                requireNonNull(block),
+                (key, entry) -> {
+                    final Entry result;
+                    if (--entry.references == 0) {
+                        uniqueBytes.addAndGet(-key.length());
+                        result = null;
+                    } else {
+                        result = entry;
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * @param delta change of size of bytes stored privately by files
+     */
+    void adjustPrivate(long delta) {
+        privateBytes.addAndGet(delta);
+    }
+
+    /**
+     * @return size in bytes of unique blocks and bytes stored privately by files
+     */
+    long physicalSize() {
+        return uniqueBytes.get() + privateBytes.get();
+    }
+
+    private static final class Entry {
+        @Nonnull
+        private final ByteArray block;
+        private int references = 0;
+
+        private Entry(@Nonnull ByteArray block) {
+            this.block = block;
+        }
+    }
+}
@@ -3,7 +3,16 @@
  */
 package fs.impl;
 
+import static java.util.Objects.requireNonNull;
+
 import fs.FS;
+import fs.JournaledFS;
+import fs.MappedFS;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * {@link FS} config intended to separate interface from actual implementation
@@ -12,10 +21,210 @@ import fs.FS;
  * @author Andrey Antipov (gorttar@gmail.com) (2016-12-29)
  */
 public final class FSConfig {
+    /**
+     * number of paths whose nodes are cached by default in {@link Mode#SINGLE_THREADED} mode. Caching is disabled by
+     * default, capacity is opted in by {@link #init(long, Mode, int)}
+     */
+    public static final int DEFAULT_LOOKUP_CACHE_CAPACITY = 0;
+    /**
+     * interval in milliseconds between forcing of journal to disk by default in {@link Sync#GROUP_COMMIT} policy
+     */
+    public static final long DEFAULT_GROUP_COMMIT_MILLIS = 10;
+
     private FSConfig() {
     }
 
     public static FS init(long size) {
-        return new SimpleFSImpl(size);
+        return init(size, Mode.SINGLE_THREADED);
+    }
+
+    public static FS init(long size, @Nonnull Mode mode) {
+        return init(size, mode, DEFAULT_LOOKUP_CACHE_CAPACITY);
+    }
+
+    /**
+     * @param lookupCacheCapacity maximal number of paths whose nodes are cached. Zero disables caching
+     *                            * it's used in {@link Mode#SINGLE_THREADED} mode only
+     */
+    public static FS init(long size, @Nonnull Mode mode, int lookupCacheCapacity) {
+        return init(size, mode, lookupCacheCapacity, false);
+    }
+
+    /**
+     * @param lookupCacheCapacity maximal number of paths whose nodes are cached. Zero disables caching
+     *                            * it's used in {@link Mode#SINGLE_THREADED} mode only
+     * @param deduplication       true if content of files should be split into blocks and identical blocks should be
+     *                            * stored once (see {@link FS#physicalUsed()}). Free space is still accounted by
+     *                            * logical size of files. It isn't supported in {@link Mode#LOCK_FREE_READS} mode
+     */
+    public static FS init(long size, @Nonnull Mode mode, int lookupCacheCapacity, boolean deduplication) {
+        return init(size, mode, lookupCacheCapacity, deduplication, Storage.HEAP);
+    }
+
+    /**
+     * @param lookupCacheCapacity maximal number of paths whose nodes are cached. Zero disables caching
+     *                            * it's used in {@link Mode#SINGLE_THREADED} mode only
+     * @param deduplication       true if content of files should be split into blocks and identical blocks should be
+     *                            * stored once. It's supported for {@link Storage#HEAP} storage only
+     * @param storage             where content of files is held. {@link Storage#OFF_HEAP} isn't supported in
+     *                            * {@link Mode#LOCK_FREE_READS} mode. It has two limits:
+     *                            * direct memory taken by file system never shrinks because pages are reused by
+     *                            * it's files but slabs they are carved from are never released, so peak usage is
+     *                            * kept until file system is dropped
+     *                            * copy of file copies all it's pages because pages aren't shared between files,
+     *                            * so it takes O(size) time and memory unlike copy of {@link Storage#HEAP} content
+     */
+    public static FS init(long size, @Nonnull Mode mode, int lookupCacheCapacity, boolean deduplication, @Nonnull Storage storage) {
+        final boolean offHeap = requireNonNull(storage) == Storage.OFF_HEAP;
+        if (deduplication && offHeap) {
+            throw new UnsupportedOperationException("Deduplication is not supported for " + storage + " storage");
+        }
+        final FS result;
+        switch (requireNonNull(mode)) {
+            case SINGLE_THREADED:
+                result = new SimpleFSImpl(size, lookupCacheCapacity, deduplication, offHeap);
+                break;
+            case CONCURRENT:
+                result = new ConcurrentFSImpl(size, deduplication, offHeap);
+                break;
+            case LOCK_FREE_READS:
+                if (deduplication || offHeap) {
+                    // persistent versions of content are dropped by garbage collector, so their memory can't be
+                    // released explicitly
+                    throw new UnsupportedOperationException(
+                            (deduplication ? "Deduplication" : storage + " storage") + " is not supported in " + mode + " mode");
+                }
+                result = new SnapshotFSImpl(size);
+                break;
+            default:
+                throw new UnsupportedOperationException(mode + " is not supported");
+        }
+        return result;
+    }
+
+    /**
+     * @param directory of image. It's created with empty file system if it doesn't exist
+     * @param mode      threading mode of file system. {@link Mode#LOCK_FREE_READS} isn't supported
+     *                  * content is held in mapped pages with limits of {@link Storage#OFF_HEAP} storage, so
+     *                  * file of image never shrinks
+     * @throws IllegalArgumentException if content of image doesn't fit into size or image is inconsistent
+     */
+    public static MappedFS open(@Nonnull java.nio.file.Path directory, long size, @Nonnull Mode mode) throws IOException {
+        return new MappedFSImpl(directory, size, mode);
+    }
+
+    /**
+     * writes snapshot of any file system by traversal of it's tree (see {@link FS#snapshot(WritableByteChannel)})
+     *
+     * @param out channel to write snapshot to. It isn't closed
+     */
+    public static void snapshot(@Nonnull FS fs, @Nonnull WritableByteChannel out) throws IOException {
+        SnapshotImage.write(requireNonNull(fs), requireNonNull(out));
+    }
+
+    /**
+     * @param in   snapshot written by {@link FS#snapshot(WritableByteChannel)}. Bytes after it may be consumed
+     * @param mode threading mode of file system
+     * @throws IOException if snapshot can't be read or it's content doesn't fit into size
+     */
+    public static FS restore(@Nonnull ReadableByteChannel in, long size, @Nonnull Mode mode) throws IOException {
+        requireNonNull(in);
+        final FS result;
+        switch (requireNonNull(mode)) {
+            case SINGLE_THREADED: {
+                final FSNode root = FSNode.createRoot(false);
+                SnapshotImage.read(in, root, size);
+                result = new SimpleFSImpl(size, root, DEFAULT_LOOKUP_CACHE_CAPACITY);
+                break;
+            }
+            case CONCURRENT: {
+                final FSNode root = FSNode.createRoot(true);
+                SnapshotImage.read(in, root, size);
+                result = new ConcurrentFSImpl(size, root);
+                break;
+            }
+            case LOCK_FREE_READS:
+                result = new SnapshotFSImpl(size, SnapshotImage.read(in, size));
+                break;
+            default:
+                throw new UnsupportedOperationException(mode + " is not supported");
+        }
+        return result;
+    }
+
+    public static JournaledFS init(long size, @Nonnull Mode mode, @Nonnull java.nio.file.Path journal, @Nonnull Sync sync) throws IOException {
+        return init(size, mode, journal, sync, DEFAULT_GROUP_COMMIT_MILLIS);
+    }
+
+    /**
+     * @param journal           file of write-ahead journal. It's replayed to rebuild state of file system if it exists
+     *                          * and it's created otherwise
+     * @param sync              policy of forcing journal to disk
+     * @param groupCommitMillis interval between writes of journal in {@link Sync#GROUP_COMMIT} and {@link Sync#ASYNC}
+     *                          * policies. It should be positive
+     * @throws IOException if journal can't be read or it's records can't be replayed into file system of given size
+     */
+    public static JournaledFS init(
+            long size,
+            @Nonnull Mode mode,
+            @Nonnull java.nio.file.Path journal,
+            @Nonnull Sync sync,
+            long groupCommitMillis) throws IOException {
+        return new JournaledFSImpl(init(size, mode), journal, sync, groupCommitMillis);
+    }
+
+    /**
+     * enumeration of available file system threading modes
+     */
+    public enum Mode {
+        /**
+         * file system shouldn't be shared between threads without external synchronization
+         */
+        SINGLE_THREADED,
+        /**
+         * thread safe file system where operations in unrelated subtrees run in parallel
+         */
+        CONCURRENT,
+        /**
+         * thread safe file system where reads never block and see immutable snapshots while writes are serialized
+         */
+        LOCK_FREE_READS
+    }
+
+    /**
+     * enumeration of places where content of files is held
+     */
+    public enum Storage {
+        /**
+         * content is held in byte arrays on heap
+         */
+        HEAP,
+        /**
+         * content is held in pages of direct memory, so only tree of nodes stays on heap and garbage collector
+         * doesn't trace content. Pages are returned to file system's allocator when content is deleted or rewritten
+         * but direct memory isn't returned to operating system, and copying of file copies it's pages
+         * (see {@link #init(long, Mode, int, boolean, Storage)})
+         */
+        OFF_HEAP
+    }
+
+    /**
+     * enumeration of policies of forcing write-ahead journal to disk
+     */
+    public enum Sync {
+        /**
+         * mutation returns after it's record is forced to disk. Concurrent mutations share forcing
+         */
+        EVERY_OPERATION,
+        /**
+         * records are forced to disk by background thread every interval, so mutations don't wait for disk and
+         * * crash loses mutations of the last interval at most
+         */
+        GROUP_COMMIT,
+        /**
+         * records are written to operating system by background thread every interval without forcing, so they
+         * * survive crash of process but not of operating system
+         */
+        ASYNC
     }
-}
\ No newline at end of file
+}
@@ -13,8 +13,13 @@ import fs.FileInfo;
 import fs.FileType;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * internal interface of file system node
@@ -25,20 +30,126 @@ interface FSNode {
     @Nonnull
     Optional<FSNode> getParent();
 
+    /**
+     * @return lock guarding this node in concurrent file system or nothing in single threaded one
+     */
     @Nonnull
-    Either<FSError, List<FileInfo>> ls();
+    Optional<ReentrantReadWriteLock> lock();
+
+    /**
+     * @return store of blocks shared by all files of file system or nothing if their content isn't deduplicated
+     */
+    @Nonnull
+    Optional<Deduplicator> deduplicator();
+
+    /**
+     * @return allocator of direct memory holding content of all files of file system or nothing if it's held on heap
+     */
+    @Nonnull
+    Optional<SlabAllocator> allocator();
+
+    @Nonnull
+    default Either<FSError, List<FileInfo>> ls() {
+        return ls(path());
+    }
+
+    /**
+     * @param fullName full path of this node which is already known to caller, so it isn't rebuilt from ancestors
+     * @return infos of children whose full names are built from fullName
+     */
+    @Nonnull
+    Either<FSError, List<FileInfo>> ls(@Nonnull String fullName);
+
+    /**
+     * @param fullName full path of this node which is already known to caller
+     * @param after    name of child after which page starts or null for the first page
+     * @param limit    maximal number of listed children
+     * @return infos of children in ascending order of names
+     */
+    @Nonnull
+    Either<FSError, List<FileInfo>> ls(@Nonnull String fullName, @Nullable String after, int limit);
+
+    /**
+     * @param fullName full path of this node which is already known to caller
+     * @param from     the least listed name or null to list from the first child
+     * @param to       name which follows all listed ones or null to list up to the last child
+     * @return infos of children whose names are in range [from, to) in ascending order of names
+     */
+    @Nonnull
+    Either<FSError, List<FileInfo>> ls(@Nonnull String fullName, @Nullable String from, @Nullable String to);
 
     @Nonnull
     Either<FSError, ByteArray> content();
 
+    /**
+     * @param offset of the first byte to read
+     * @param length maximal number of bytes to read
+     * @return part of content which is cut at the end of file
+     */
+    @Nonnull
+    Either<FSError, ByteArray> content(long offset, int length);
+
+    /**
+     * copies part of content starting from offset to buffers in order, so each buffer is filled before the next one
+     *
+     * @param offset of the first byte to read
+     * @param dst    buffers whose positions are advanced by number of bytes copied to them
+     * @return number of copied bytes. It's less than remaining bytes of buffers if file ends earlier
+     */
+    @Nonnull
+    Either<FSError, Integer> read(long offset, @Nonnull ByteBuffer[] dst);
+
     @Nonnull
     Either<FSError, Unit> write(@Nonnull byte[] content);
 
+    /**
+     * rewrites file with remaining bytes of buffers in order. Buffers stay intact
+     */
+    @Nonnull
+    Either<FSError, Unit> write(@Nonnull ByteBuffer[] content);
+
+    /**
+     * rewrites part of content starting from offset. Gap between the end of file and offset is filled with zeros
+     *
+     * @param offset  of the first byte to rewrite
+     * @param content new content of part
+     */
+    @Nonnull
+    Either<FSError, Unit> write(long offset, @Nonnull byte[] content);
+
     @Nonnull
     Either<FSError, Unit> append(@Nonnull byte[] content);
 
+    /**
+     * appends remaining bytes of buffers in order. Buffers stay intact
+     */
     @Nonnull
-    Either<FSError, FSNode> findUnder(@Nonnull List<String> splitPath);
+    Either<FSError, Unit> append(@Nonnull ByteBuffer[] content);
+
+    /**
+     * cuts regular file to size which isn't greater than it's current size
+     */
+    @Nonnull
+    Either<FSError, Unit> truncate(long size);
+
+    /**
+     * finds node located under this one by names of path
+     *
+     * @param path to node
+     * @param from index of the first name of path to resolve under this node
+     * @param to   index after the last name of path to resolve
+     * @return found node or error
+     */
+    @Nonnull
+    Either<FSError, FSNode> findUnder(@Nonnull Path path, int from, int to);
+
+    /**
+     * @return node located under this one by all names of path
+     */
+    @Nonnull
+    default Either<FSError, FSNode> findUnder(@Nonnull Path path) {
+        return findUnder(path, 0, requireNonNull(path).size());
+    }
 
     @Nonnull
     Either<FSError, Unit> createUnder(@Nonnull String name, @Nonnull FileType fileType);
@@ -46,9 +157,52 @@ interface FSNode {
     @Nonnull
     Either<FSError, Unit> deleteUnder(@Nonnull String name);
 
-    void copyTo(@Nonnull String newName, @Nonnull FSNode newParent);
+    /**
+     * @return unmodifiable view of children of directory in ascending order of names or empty collection for regular
+     * * file
+     */
+    @Nonnull
+    Collection<FSNode> children();
+
+    /**
+     * @return content of regular file or nothing for directory
+     */
+    @Nonnull
+    Optional<ContentStorage> storage();
+
+    /**
+     * @return copy of this node with it's subtree which isn't linked to any parent
+     * * immutable content is shared with copy, so copying takes O(number of nodes)
+     */
+    @Nonnull
+    FSNode copy();
+
+    /**
+     * copies this node with it's subtree and links copy under new parent. Sizes of new parent and it's ancestors
+     * * are adjusted once for the whole copy
+     */
+    default void copyTo(@Nonnull String newName, @Nonnull FSNode newParent) {
+        copy().moveTo(requireNonNull(newName), requireNonNull(newParent));
+    }
+
+    /**
+     * releases content of this node and it's subtree after it's deleted, so deduplicated blocks referenced only by
+     * * them are forgotten
+     */
+    void release();
 
-    void moveTo(@Nonnull String newName, @Nonnull FSNode newParent);
+    default void moveTo(@Nonnull String newName, @Nonnull FSNode newParent) {
+        moveTo(newName, newParent, null);
+    }
+
+    /**
+     * unlinks this node from it's parent and links it under new parent in O(1) regardless of size of it's subtree
+     * * sizes of common ancestor of parents and it's ancestors don't change, so size of this node is propagated
+     * * from both parents only up to it
+     *
+     * @param commonAncestor of old and new parents or null if it's unknown, so size is propagated up to root
+     */
+    void moveTo(@Nonnull String newName, @Nonnull FSNode newParent, @Nullable FSNode commonAncestor);
 
     @Nonnull
     String name();
@@ -58,19 +212,52 @@ interface FSNode {
 
     long size();
 
+    /**
+     * propagates size change of subtree to this node and all it's ancestors
+     * * should be called by node whose size is changed on it's parent
+     *
+     * @param delta size change in bytes
+     */
+    default void adjustSize(long delta) {
+        adjustSize(delta, null);
+    }
+
+    /**
+     * propagates size change of subtree to this node and it's ancestors below stop node
+     *
+     * @param delta size change in bytes
+     * @param stop  ancestor whose size doesn't change or null to propagate change up to root
+     */
+    void adjustSize(long delta, @Nullable FSNode stop);
+
     @Nonnull
     default FileInfo info() {
-        return new FileInfo(path(), type(), size());
+        return info(path());
     }
 
-    default String path() {
-        return path(name());
+    /**
+     * @param fullName full path of this node which is already known to caller, so it isn't rebuilt from ancestors
+     */
+    @Nonnull
+    default FileInfo info(@Nonnull String fullName) {
+        return new FileInfo(requireNonNull(fullName), type(), size());
     }
 
-    default String path(String acc) {
-        return getParent()
-                .map(parentNode -> parentNode.path(parentNode.name() + '/' + acc))
-                .orElse(acc);
+    /**
+     * @return full path of this node. Names of ancestors are collected once and joined by single builder, so it
+     * * takes O(length of path) instead of concatenation on each level
+     */
+    @Nonnull
+    default String path() {
+        final List<String> names = new ArrayList<>();
+        for (Optional<FSNode> node = Optional.of(this); node.isPresent(); node = node.get().getParent()) {
+            names.add(node.get().name());
+        }
+        final StringBuilder result = new StringBuilder(names.get(names.size() - 1));
+        for (int i = names.size() - 2; i >= 0; i--) {
+            result.append('/').append(names.get(i));
+        }
+        return result.toString();
     }
 
     @Nonnull
@@ -94,8 +281,81 @@ interface FSNode {
 
     @Nonnull
     static FSNode createRoot() {
-        return FSNodeConfig.createRoot();
+        return createRoot(false);
+    }
+
+    /**
+     * @param concurrent true if root and all nodes created under it should be guarded by {@link #lock()}
+     * @return new root node
+     */
+    @Nonnull
+    static FSNode createRoot(boolean concurrent) {
+        return createRoot(concurrent, false);
+    }
+
+    /**
+     * @param concurrent    true if root and all nodes created under it should be guarded by {@link #lock()}
+     * @param deduplication true if content of all files created under root should be deduplicated
+     * @return new root node
+     */
+    @Nonnull
+    static FSNode createRoot(boolean concurrent, boolean deduplication) {
+        return createRoot(concurrent, deduplication, false);
+    }
+
+    /**
+     * @param concurrent    true if root and all nodes created under it should be guarded by {@link #lock()}
+     * @param deduplication true if content of all files created under root should be deduplicated
+     * @param offHeap       true if content of all files created under root should be held outside of heap
+     * @return new root node
+     */
+    @Nonnull
+    static FSNode createRoot(boolean concurrent, boolean deduplication, boolean offHeap) {
+        return FSNodeConfig.createRoot(concurrent, deduplication ? new Deduplicator() : null, offHeap ? new SlabAllocator() : null);
     }
 
-    void link(@Nonnull FSNode child);
+    /**
+     * @param name of directory
+     * @param like node of file system whose settings are used by directory
+     * @return directory which isn't linked to any parent
+     */
+    @Nonnull
+    static FSNode createDetachedDir(@Nonnull String name, @Nonnull FSNode like) {
+        return FSNodeConfig.createDetachedDir(requireNonNull(name), requireNonNull(like));
+    }
+
+    /**
+     * @param name    of file
+     * @param like    node of file system whose settings are used by file
+     * @param content of file. It's owned by file after that
+     * @return regular file which isn't linked to any parent
+     */
+    @Nonnull
+    static FSNode createDetachedFile(@Nonnull String name, @Nonnull FSNode like, @Nonnull ContentStorage content) {
+        return FSNodeConfig.createDetachedFile(requireNonNull(name), requireNonNull(like), requireNonNull(content));
+    }
+
+    /**
+     * @param like node of file system whose settings are used by storage
+     * @return empty content of regular file held the same way as content of other files of file system
+     */
+    @Nonnull
+    static ContentStorage createStorage(@Nonnull FSNode like) {
+        return FSNodeConfig.createStorage(requireNonNull(like));
+    }
+
+    default void link(@Nonnull FSNode child) {
+        link(child, null);
+    }
+
+    /**
+     * links child under this directory and propagates it's size to ancestors below stop node
+     */
+    void link(@Nonnull FSNode child, @Nullable FSNode stop);
+
+    /**
+     * unlinks child from this directory if it's still linked and propagates it's size to ancestors below stop node
+     * * child keeps reference to this directory, so it can be linked back
+     */
+    void unlink(@Nonnull FSNode child, @Nullable FSNode stop);
 }
\ No newline at end of file
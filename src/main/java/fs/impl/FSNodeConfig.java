@@ -6,6 +6,7 @@ package fs.impl;
 import static java.util.Objects.requireNonNull;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * @author Andrey Antipov (gorttar@gmail.com) (2016-12-26)
@@ -22,7 +23,30 @@ final class FSNodeConfig {
         return new FSNodeImpl.Directory(requireNonNull(name), requireNonNull(parent));
     }
 
-    static FSNode createRoot() {
-        return new FSNodeImpl.Root();
+    static FSNode createDetachedDir(@Nonnull String name, @Nonnull FSNode like) {
+        return new FSNodeImpl.Directory(
+                requireNonNull(name),
+                null,
+                like.lock().isPresent(),
+                like.deduplicator().orElse(null),
+                like.allocator().orElse(null));
+    }
+
+    static FSNode createDetachedFile(@Nonnull String name, @Nonnull FSNode like, @Nonnull ContentStorage content) {
+        return new FSNodeImpl.File(
+                requireNonNull(name),
+                like.lock().isPresent(),
+                like.deduplicator().orElse(null),
+                like.allocator().orElse(null),
+                requireNonNull(content));
+    }
+
+    static ContentStorage createStorage(@Nonnull FSNode like) {
+        return like.allocator().<ContentStorage>map(OffHeapStorage::new).orElseGet(
+                () -> new BlockStorage(BlockStorage.DEFAULT_BLOCK_SIZE, like.deduplicator().orElse(null)));
+    }
+
+    static FSNode createRoot(boolean concurrent, @Nullable Deduplicator deduplicator, @Nullable SlabAllocator allocator) {
+        return new FSNodeImpl.Root(concurrent, deduplicator, allocator);
     }
 }
\ No newline at end of file
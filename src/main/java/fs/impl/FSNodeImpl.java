@@ -9,24 +9,32 @@ import static fs.FSError.Type.FILE_IS_REGULAR;
 import static fs.FSError.Type.PATH_NOT_FOUND;
 import static fs.FileType.DIRECTORY;
 import static fs.FileType.REGULAR;
-import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
 
 import check.CheckHelper;
 import data.ByteArray;
 import data.Unit;
 import data.either.Either;
+import fs.ContentChannels;
 import fs.FSError;
 import fs.FileInfo;
 import fs.FileType;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -39,10 +47,33 @@ final class FSNodeImpl {
         private String name;
         @Nullable
         private FSNode parent;
-
-        AbstractNode(@Nonnull String name, @Nullable FSNode parent) {
+        @Nullable
+        private final ReentrantReadWriteLock lock;
+        @Nullable
+        private final Deduplicator deduplicator;
+        @Nullable
+        private final SlabAllocator allocator;
+
+        AbstractNode(@Nonnull String name, @Nonnull FSNode parent) {
+            this(
+                    name,
+                    requireNonNull(parent),
+                    parent.lock().isPresent(),
+                    parent.deduplicator().orElse(null),
+                    parent.allocator().orElse(null));
+        }
+
+        AbstractNode(
+                @Nonnull String name,
+                @Nullable FSNode parent,
+                boolean concurrent,
+                @Nullable Deduplicator deduplicator,
+                @Nullable SlabAllocator allocator) {
             this.name = requireNonNull(name);
             this.parent = parent;
+            this.lock = concurrent ? new ReentrantReadWriteLock() : null;
+            this.deduplicator = deduplicator;
+            this.allocator = allocator;
         }
 
         @Nonnull
@@ -51,6 +82,24 @@ final class FSNodeImpl {
             return Optional.ofNullable(this.parent);
         }
 
+        @Nonnull
+        @Override
+        public Optional<ReentrantReadWriteLock> lock() {
+            return Optional.ofNullable(lock);
+        }
+
+        @Nonnull
+        @Override
+        public Optional<Deduplicator> deduplicator() {
+            return Optional.ofNullable(deduplicator);
+        }
+
+        @Nonnull
+        @Override
+        public Optional<SlabAllocator> allocator() {
+            return Optional.ofNullable(allocator);
+        }
+
         @Nonnull
         @Override
         public String name() {
@@ -58,62 +107,179 @@ final class FSNodeImpl {
         }
 
         @Override
-        public void moveTo(@Nonnull String newName, @Nonnull FSNode newParent) {
-            getParent().ifPresent(oldParent -> oldParent.deleteUnder(name()));
-            name = requireNonNull(newName);
-            parent = requireNonNull(newParent);
-            newParent.link(this);
+        public void moveTo(@Nonnull String newName, @Nonnull FSNode newParent, @Nullable FSNode commonAncestor) {
+            requireNonNull(newName);
+            requireNonNull(newParent);
+            // child is unlinked by identity, so error message of missing child isn't built
+            if (parent != null) {
+                parent.unlink(this, commonAncestor);
+            }
+            name = newName;
+            parent = newParent;
+            newParent.link(this, commonAncestor);
         }
 
+        /**
+         * @param format of message whose only argument is path of this node
+         * @return error whose message is formatted on demand from path of this node captured now, so it doesn't
+         * * retain node and isn't changed by later moves
+         */
+        @Nonnull
+        final FSError error(@Nonnull FSError.Type type, @Nonnull String format) {
+            final String path = path();
+            return new FSError(type, () -> String.format(format, path));
+        }
     }
 
     static class Directory extends AbstractNode {
-        private final Map<String, FSNode> children = new HashMap<>();
+        /**
+         * children by names. Hash map resolves names of paths in O(1) by {@link Path.Key}s without substrings
+         */
+        private final Map<Path.Name, FSNode> children = new HashMap<>();
+        /**
+         * the same children sorted by names, so listing keeps stable order and it's page is found in O(log n)
+         */
+        private final NavigableMap<String, FSNode> sorted = new TreeMap<>();
+        /**
+         * running total of children sizes maintained by {@link #adjustSize(long)} to make {@link #size()} O(1)
+         * * it's atomic because in concurrent file system ancestors are adjusted under read locks
+         */
+        private final AtomicLong size = new AtomicLong();
+
+        Directory(@Nonnull String name, @Nonnull FSNode parent) {
+            super(requireNonNull(name), requireNonNull(parent));
+        }
+
+        Directory(
+                @Nonnull String name,
+                @Nullable FSNode parent,
+                boolean concurrent,
+                @Nullable Deduplicator deduplicator,
+                @Nullable SlabAllocator allocator) {
+            super(requireNonNull(name), parent, concurrent, deduplicator, allocator);
+        }
 
-        Directory(@Nonnull String name, @Nullable FSNode parent) {
-            super(requireNonNull(name), parent);
+        @Nonnull
+        @Override
+        public Either<FSError, List<FileInfo>> ls(@Nonnull String fullName) {
+            requireNonNull(fullName);
+            // full name of directory is shared by all children, so their paths aren't rebuilt from ancestors
+            return Either.right(sorted.values().stream().map(child -> child.info(fullName + '/' + child.name())).collect(Collectors.toList()));
         }
 
         @Nonnull
         @Override
-        public Either<FSError, List<FileInfo>> ls() {
-            return Either.right(children.values().stream().map(FSNode::info).collect(Collectors.toList()));
+        public Either<FSError, List<FileInfo>> ls(@Nonnull String fullName, @Nullable String after, int limit) {
+            requireNonNull(fullName);
+            final List<FileInfo> result = new ArrayList<>(Math.min(limit, sorted.size()));
+            for (final Iterator<FSNode> page = (after == null ? sorted : sorted.tailMap(after, false)).values().iterator();
+                 result.size() < limit && page.hasNext(); ) {
+                final FSNode child = page.next();
+                result.add(child.info(fullName + '/' + child.name()));
+            }
+            return Either.right(result);
+        }
+
+        @Nonnull
+        @Override
+        public Either<FSError, List<FileInfo>> ls(@Nonnull String fullName, @Nullable String from, @Nullable String to) {
+            requireNonNull(fullName);
+            // bounds are found in O(log n), so only children in range are visited
+            NavigableMap<String, FSNode> range = sorted;
+            if (from != null) {
+                range = range.tailMap(from, true);
+            }
+            if (to != null) {
+                range = range.headMap(to, false);
+            }
+            return Either.right(range.values().stream().map(child -> child.info(fullName + '/' + child.name())).collect(Collectors.toList()));
         }
 
         @Nonnull
         @Override
         public Either<FSError, ByteArray> content() {
-            return Either.left(new FSError(FSError.Type.FILE_IS_DIRECTORY, String.format("Shouldn't read from directory %s", path())));
+            return Either.left(error(FILE_IS_DIRECTORY, "Shouldn't read from directory %s"));
+        }
+
+        @Nonnull
+        @Override
+        public Either<FSError, ByteArray> content(long offset, int length) {
+            return content();
+        }
+
+        @Nonnull
+        @Override
+        public Either<FSError, Integer> read(long offset, @Nonnull ByteBuffer[] dst) {
+            requireNonNull(dst);
+            return Either.left(error(FILE_IS_DIRECTORY, "Shouldn't read from directory %s"));
         }
 
         @Nonnull
         @Override
         public Either<FSError, Unit> write(@Nonnull byte[] content) {
             requireNonNull(content);
-            return Either.left(new FSError(FILE_IS_DIRECTORY, String.format("Shouldn't write to directory %s", path())));
+            return Either.left(error(FILE_IS_DIRECTORY, "Shouldn't write to directory %s"));
+        }
+
+        @Nonnull
+        @Override
+        public Either<FSError, Unit> write(long offset, @Nonnull byte[] content) {
+            return write(content);
+        }
+
+        @Nonnull
+        @Override
+        public Either<FSError, Unit> write(@Nonnull ByteBuffer[] content) {
+            requireNonNull(content);
+            return write(new byte[0]);
         }
 
         @Nonnull
         @Override
         public Either<FSError, Unit> append(@Nonnull byte[] content) {
             requireNonNull(content);
-            return Either.left(new FSError(FILE_IS_DIRECTORY, String.format("Shouldn't append to directory %s", path())));
+            return Either.left(error(FILE_IS_DIRECTORY, "Shouldn't append to directory %s"));
+        }
+
+        @Nonnull
+        @Override
+        public Either<FSError, Unit> append(@Nonnull ByteBuffer[] content) {
+            requireNonNull(content);
+            return append(new byte[0]);
+        }
+
+        @Nonnull
+        @Override
+        public Either<FSError, Unit> truncate(long size) {
+            return Either.left(error(FILE_IS_DIRECTORY, "Shouldn't truncate directory %s"));
         }
 
         @Nonnull
         @Override
-        public Either<FSError, FSNode> findUnder(@Nonnull List<String> splitPath) {
-            requireNonNull(splitPath);
+        public Either<FSError, FSNode> findUnder(@Nonnull Path path, int from, int to) {
+            requireNonNull(path);
             final Either<FSError, FSNode> result;
-            if (splitPath.isEmpty()) {
+            if (from == to) {
                 result = Either.right(this);
             } else {
-                final String childName = splitPath.get(0);
-
-                result = Optional
-                        .ofNullable(children.get(childName))
-                        .map(child -> child.findUnder(splitPath.subList(1, splitPath.size())))
-                        .orElseGet(() -> Either.left(new FSError(PATH_NOT_FOUND, String.format("Child %s not found under %s", childName, path()))));
+                // walks down through directories with single key moved along path, so neither substrings
+                // nor sub lists are created on the way down
+                final Path.Key key = path.key(from);
+                Directory directory = this;
+                FSNode node = directory.children.get(key);
+                int index = from + 1;
+                while (node instanceof Directory && index < to) {
+                    directory = (Directory) node;
+                    node = directory.children.get(key.at(index++));
+                }
+                if (node == null) {
+                    // path is immutable so it's safe to format message from it later
+                    final int missing = index - 1;
+                    result = Either.left(new FSError(
+                            PATH_NOT_FOUND, () -> String.format("Child %s not found under %s", path.name(missing), path.toString(missing))));
+                } else {
+                    result = index == to ? Either.right(node) : node.findUnder(path, index, to);
+                }
             }
             return result;
         }
@@ -124,8 +290,9 @@ final class FSNodeImpl {
             requireNonNull(fileType);
             requireNonNull(name);
             final Either<FSError, Unit> result;
-            if (children.containsKey(name)) {
-                result = Either.left(new FSError(FILE_ALREADY_EXISTS, String.format("File %s already exists", path() + '/' + name)));
+            if (children.containsKey(Path.Name.of(name))) {
+                final String path = path() + '/' + name;
+                result = Either.left(new FSError(FILE_ALREADY_EXISTS, () -> String.format("File %s already exists", path)));
             } else {
                 link(FSNode.createUnder(name, fileType, this));
                 result = Either.right(Unit.unit());
@@ -138,24 +305,44 @@ final class FSNodeImpl {
         public Either<FSError, Unit> deleteUnder(@Nonnull String name) {
             requireNonNull(name);
             final Either<FSError, Unit> result;
-            if (!children.containsKey(name)) {
-                result = Either.left(new FSError(PATH_NOT_FOUND, String.format("Child %s not found under %s", name, path())));
+            if (!children.containsKey(Path.Name.of(name))) {
+                final String path = path();
+                result = Either.left(new FSError(PATH_NOT_FOUND, () -> String.format("Child %s not found under %s", name, path)));
             } else {
-                children.remove(name);
+                sorted.remove(name);
+                adjustSize(-children.remove(Path.Name.of(name)).size());
                 result = Either.right(Unit.unit());
             }
             return result;
         }
 
+        @Nonnull
+        @Override
+        public Collection<FSNode> children() {
+            return Collections.unmodifiableCollection(sorted.values());
+        }
+
+        @Nonnull
+        @Override
+        public Optional<ContentStorage> storage() {
+            return Optional.empty();
+        }
+
+        @Nonnull
+        @Override
+        public FSNode copy() {
+            // children are linked to detached copy, so their sizes aren't propagated beyond it
+            final FSNode result = FSNode.createDetachedDir(name(), this);
+            children.values().forEach(child -> child.copy().moveTo(child.name(), result));
+            return result;
+        }
+
         @Override
-        public void copyTo(@Nonnull String newName, @Nonnull FSNode newParent) {
-            requireNonNull(newParent).createUnder(requireNonNull(newName), DIRECTORY);
-            final FSNode copy = newParent.findUnder(singletonList(newName))
-                    .elseGetRight(
-                            () -> {
-                                throw new IllegalStateException(String.format("Can't find file %s/%s", newParent.path(), newName));
-                            });
-            children.values().forEach(child -> child.copyTo(child.name(), copy));
+        public void release() {
+            // content on heap is released by garbage collector unless it's deduplicated, so deletion stays O(1)
+            if (deduplicator().isPresent() || allocator().isPresent()) {
+                children.values().forEach(FSNode::release);
+            }
         }
 
         @Nonnull
@@ -166,26 +353,49 @@ final class FSNodeImpl {
 
         @Override
         public long size() {
-            return children
-                    .values()
-                    .stream()
-                    .map(FSNode::size)
-                    .reduce(0L, (x, y) -> x + y);
+            return size.get();
         }
 
         @Override
-        public void link(@Nonnull FSNode child) {
-            children.put(requireNonNull(child).name(), child);
+        public void adjustSize(long delta, @Nullable FSNode stop) {
+            if (this != stop) {
+                size.addAndGet(delta);
+                checkInvariants();
+                getParent().ifPresent(parent -> parent.adjustSize(delta, stop));
+            }
+        }
+
+        @Override
+        public void link(@Nonnull FSNode child, @Nullable FSNode stop) {
+            final FSNode replaced = children.put(Path.Name.of(requireNonNull(child).name()), child);
+            sorted.put(child.name(), child);
+            adjustSize(replaced == null ? child.size() : child.size() - replaced.size(), stop);
+        }
+
+        @Override
+        public void unlink(@Nonnull FSNode child, @Nullable FSNode stop) {
+            if (children.remove(Path.Name.of(requireNonNull(child).name()), child)) {
+                sorted.remove(child.name());
+                adjustSize(-child.size(), stop);
+            }
+        }
+
+        private void checkInvariants() {
+            // subtree of directory is stable only if it's write locked by current thread
+            // total is maintained by deltas of children, so it's checked in O(1) instead of summing all children on
+            // each adjustment
+            assert !lock().map(ReentrantReadWriteLock::isWriteLockedByCurrentThread).orElse(true) ||
+                    size.get() >= 0 && (size.get() == 0 || !children.isEmpty()) && sorted.size() == children.size();
         }
     }
 
     static final class Root extends Directory {
-        Root() {
-            super("", null);
+        Root(boolean concurrent, @Nullable Deduplicator deduplicator, @Nullable SlabAllocator allocator) {
+            super("", null, concurrent, deduplicator, allocator);
         }
 
         @Override
-        public void moveTo(@Nonnull String newName, @Nonnull FSNode newParent) {
+        public void moveTo(@Nonnull String newName, @Nonnull FSNode newParent, @Nullable FSNode commonAncestor) {
             requireNonNull(newName);
             requireNonNull(newParent);
             throw new UnsupportedOperationException("Root shouldn't be moved");
@@ -193,35 +403,61 @@ final class FSNodeImpl {
     }
 
     static final class File extends AbstractNode {
-        private final List<ByteArray> chunks = new LinkedList<>();
-        private int size = 0;
+        /**
+         * content coalesced into blocks, so {@link #checkInvariants()} compares sizes in O(1)
+         */
+        private final ContentStorage blocks;
+        /**
+         * volatile because in concurrent file system size can be read by parent's ls without lock on this file
+         */
+        private volatile int size;
 
         File(@Nonnull String name, @Nonnull FSNode parent) {
             super(requireNonNull(name), requireNonNull(parent));
+            this.blocks = FSNode.createStorage(parent);
+            this.size = 0;
+            checkInvariants();
+        }
+
+        /**
+         * creates detached file with given content
+         */
+        File(
+                @Nonnull String name,
+                boolean concurrent,
+                @Nullable Deduplicator deduplicator,
+                @Nullable SlabAllocator allocator,
+                @Nonnull ContentStorage blocks) {
+            super(requireNonNull(name), null, concurrent, deduplicator, allocator);
+            this.blocks = requireNonNull(blocks);
+            this.size = blocks.size();
             checkInvariants();
         }
 
         @Nonnull
         @Override
-        public Either<FSError, List<FileInfo>> ls() {
-            return checkedGet(() -> Either.left(new FSError(FILE_IS_REGULAR, String.format("Shouldn't list regular file %s", path()))));
+        public Either<FSError, List<FileInfo>> ls(@Nonnull String fullName) {
+            requireNonNull(fullName);
+            return checkedGet(() -> Either.left(new FSError(FILE_IS_REGULAR, () -> String.format("Shouldn't list regular file %s", fullName))));
         }
 
         @Nonnull
         @Override
-        public Either<FSError, ByteArray> content() {
-            return checkedGet(() -> {
-                final byte[] result = new byte[size];
+        public Either<FSError, List<FileInfo>> ls(@Nonnull String fullName, @Nullable String after, int limit) {
+            return ls(fullName);
+        }
 
-                int offset = 0;
-                for (ByteArray chunk : chunks) {
-                    final byte[] bytes = chunk.get();
-                    System.arraycopy(bytes, 0, result, offset, bytes.length);
-                    offset += bytes.length;
-                }
+        @Nonnull
+        @Override
+        public Either<FSError, List<FileInfo>> ls(@Nonnull String fullName, @Nullable String from, @Nullable String to) {
+            return ls(fullName);
+        }
 
-                return Either.right(new ByteArray(result));
-            });
+        @Nonnull
+        @Override
+        public Either<FSError, ByteArray> content() {
+            // blocks are immutable, so they are shared with result instead of copying
+            return checkedGet(() -> Either.right(blocks.content()));
         }
 
         @Nonnull
@@ -229,29 +465,109 @@ final class FSNodeImpl {
         public Either<FSError, Unit> write(@Nonnull byte[] content) {
             return checkedGet(() -> {
                 requireNonNull(content);
-                chunks.clear();
-                size = 0;
-                return append(content);
+                blocks.clear();
+                blocks.append(content, 0, content.length);
+                resize(content.length);
+                return Either.right(Unit.unit());
+            });
+        }
+
+        @Nonnull
+        @Override
+        public Either<FSError, ByteArray> content(long offset, int length) {
+            // only blocks overlapping the range are found and sliced, the rest of file isn't touched
+            return checkedGet(() -> Either.right(blocks.content(offset, length)));
+        }
+
+        @Nonnull
+        @Override
+        public Either<FSError, Integer> read(long offset, @Nonnull ByteBuffer[] dst) {
+            // bytes are copied from storage to buffers once without intermediate array
+            return checkedGet(
+                    () -> {
+                        requireNonNull(dst);
+                        if (offset < 0) {
+                            throw new IllegalArgumentException(String.format("Offset %d is negative", offset));
+                        }
+                        int result = 0;
+                        for (ByteBuffer buffer : dst) {
+                            result += blocks.read(offset + result, requireNonNull(buffer));
+                        }
+                        return Either.right(result);
+                    });
+        }
+
+        @Nonnull
+        @Override
+        public Either<FSError, Unit> write(@Nonnull ByteBuffer[] content) {
+            return checkedGet(() -> {
+                ContentChannels.remaining(content);
+                blocks.clear();
+                appendAll(content);
+                resize(blocks.size());
+                return Either.right(Unit.unit());
             });
         }
 
+        @Nonnull
+        @Override
+        public Either<FSError, Unit> write(long offset, @Nonnull byte[] content) {
+            return checkedGet(
+                    () -> {
+                        requireNonNull(content);
+                        if (offset < 0 || offset + content.length > Integer.MAX_VALUE) {
+                            throw new IllegalArgumentException(String.format("Range [%d, %d + %d) is invalid", offset, offset, content.length));
+                        }
+                        blocks.write((int) offset, content);
+                        resize(blocks.size());
+                        return Either.right(Unit.unit());
+                    });
+        }
+
         @Nonnull
         @Override
         public Either<FSError, Unit> append(@Nonnull byte[] content) {
             return checkedGet(() -> {
-                chunks.add(new ByteArray(requireNonNull(content)));
-                size += content.length;
+                blocks.append(requireNonNull(content), 0, content.length);
+                resize(size + content.length);
                 return Either.right(Unit.unit());
             });
         }
 
         @Nonnull
         @Override
-        public Either<FSError, FSNode> findUnder(@Nonnull List<String> splitPath) {
+        public Either<FSError, Unit> append(@Nonnull ByteBuffer[] content) {
+            return checkedGet(() -> {
+                ContentChannels.remaining(content);
+                appendAll(content);
+                resize(blocks.size());
+                return Either.right(Unit.unit());
+            });
+        }
+
+        @Nonnull
+        @Override
+        public Either<FSError, Unit> truncate(long size) {
+            return checkedGet(() -> {
+                if (size < 0 || size > this.size) {
+                    throw new IllegalArgumentException(String.format("Size %d is out of [0, %d]", size, this.size));
+                }
+                blocks.truncate((int) size);
+                resize(blocks.size());
+                return Either.right(Unit.unit());
+            });
+        }
+
+        @Nonnull
+        @Override
+        public Either<FSError, FSNode> findUnder(@Nonnull Path path, int from, int to) {
             return checkedGet(
-                    () -> requireNonNull(splitPath).isEmpty()
-                            ? Either.right(this)
-                            : Either.left(new FSError(FILE_IS_REGULAR, String.format("Shouldn't find under regular file %s", path()))));
+                    () -> {
+                        requireNonNull(path);
+                        return from == to
+                                ? Either.right(this)
+                                : Either.left(new FSError(FILE_IS_REGULAR, () -> String.format("Shouldn't find under regular file %s", path.toString(from))));
+                    });
         }
 
         @Nonnull
@@ -261,7 +577,7 @@ final class FSNodeImpl {
                     () -> {
                         requireNonNull(name);
                         requireNonNull(fileType);
-                        return Either.left(new FSError(FILE_IS_REGULAR, String.format("Shouldn't create under regular file %s", path())));
+                        return Either.left(error(FILE_IS_REGULAR, "Shouldn't create under regular file %s"));
                     });
         }
 
@@ -270,21 +586,36 @@ final class FSNodeImpl {
         public Either<FSError, Unit> deleteUnder(@Nonnull String name) {
             return checkedGet(() -> {
                 requireNonNull(name);
-                return Either.left(new FSError(FILE_IS_REGULAR, String.format("Shouldn't delete under regular file %s", path())));
+                return Either.left(error(FILE_IS_REGULAR, "Shouldn't delete under regular file %s"));
             });
         }
 
+        @Nonnull
+        @Override
+        public Collection<FSNode> children() {
+            return Collections.emptyList();
+        }
+
+        @Nonnull
+        @Override
+        public Optional<ContentStorage> storage() {
+            return Optional.of(blocks);
+        }
+
+        @Nonnull
         @Override
-        public void copyTo(@Nonnull String newName, @Nonnull FSNode newParent) {
+        public FSNode copy() {
+            // blocks are shared with copy until one of them is mutated
+            return checkedGet(() -> FSNode.createDetachedFile(name(), this, blocks.copy()));
+        }
+
+        @Override
+        public void release() {
             checkedGet(
                     () -> {
-                        requireNonNull(newParent).createUnder(requireNonNull(newName), REGULAR);
-                        final FSNode copy = newParent.findUnder(singletonList(newName))
-                                .elseGetRight(
-                                        () -> {
-                                            throw new IllegalStateException(String.format("Can't find file %s/%s", newParent.path(), newName));
-                                        });
-                        content().onRight(byteArray -> copy.write(byteArray.get()));
+                        // deleted file is unlinked from it's parent, so size change isn't propagated
+                        blocks.clear();
+                        size = 0;
                         return null;
                     });
         }
@@ -301,7 +632,7 @@ final class FSNodeImpl {
         }
 
         @Override
-        public void link(@Nonnull FSNode child) {
+        public void link(@Nonnull FSNode child, @Nullable FSNode stop) {
             checkedGet(
                     () -> {
                         requireNonNull(child);
@@ -309,8 +640,47 @@ final class FSNodeImpl {
                     });
         }
 
+        @Override
+        public void unlink(@Nonnull FSNode child, @Nullable FSNode stop) {
+            checkedGet(
+                    () -> {
+                        requireNonNull(child);
+                        throw new UnsupportedOperationException(String.format("Shouldn't unlink child from regular file %s", path()));
+                    });
+        }
+
+        @Override
+        public void adjustSize(long delta, @Nullable FSNode stop) {
+            checkedGet(
+                    () -> {
+                        throw new UnsupportedOperationException(String.format("Shouldn't adjust size of regular file %s", path()));
+                    });
+        }
+
+        /**
+         * copies remaining bytes of buffers to storage. Duplicates are consumed, so buffers stay intact
+         */
+        private void appendAll(@Nonnull ByteBuffer[] content) {
+            for (ByteBuffer buffer : content) {
+                blocks.append(buffer.duplicate());
+            }
+        }
+
+        /**
+         * sets new size of this file and propagates it's change to ancestors
+         *
+         * @param newSize new size in bytes
+         */
+        private void resize(int newSize) {
+            final long delta = newSize - size;
+            size = newSize;
+            getParent().ifPresent(parent -> parent.adjustSize(delta));
+        }
+
         private void checkInvariants() {
-            assert size == chunks.stream().map(ByteArray::length).reduce(0, (x, y) -> x + y);
+            // content of file is stable only if it's locked by current thread
+            assert !lock().map(lock -> lock.isWriteLockedByCurrentThread() || lock.getReadHoldCount() > 0).orElse(true) ||
+                    size == blocks.size();
         }
 
         private <T> T checkedGet(Supplier<? extends T> payload) {
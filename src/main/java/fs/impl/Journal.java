@@ -0,0 +1,590 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import data.Unit;
+import data.either.Either;
+import fs.Batch;
+import fs.ContentChannels;
+import fs.FS;
+import fs.FSError;
+import fs.FileType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * append only log of mutations of file system
+ * <p>
+ * format:
+ * *    sequence of records where each record is length of payload, CRC32 of payload and payload itself
+ * *    payload is type of mutation ({@link #CREATE}, {@link #WRITE} etc) followed by it's arguments
+ * *    {@link #BATCH} payload is number of operations followed by type and arguments of each one, so batch is recorded
+ * *    and replayed as a whole
+ * *    records of transaction are framed by {@link #BEGIN} and {@link #COMMIT} records. Transaction without commit
+ * *    record is dropped by replay as a part of torn tail
+ * *    torn or corrupted tail left by crash is detected by length and checksum and dropped by {@link #replay(FileChannel, FS)}
+ * <p>
+ * group commit:
+ * *    records are encoded into {@link #pending} buffer under monitor of journal, so appending is cheap and
+ * *    doesn't wait for disk
+ * *    buffer is swapped with {@link #spare} and written by single flusher at a time under {@link #io} lock, so all
+ * *    records appended meanwhile are written and forced together
+ * *    {@link FSConfig.Sync#EVERY_OPERATION} flushes in mutating thread until it's record is durable. Threads waiting
+ * *    for the same flush share it
+ * *    {@link FSConfig.Sync#GROUP_COMMIT} and {@link FSConfig.Sync#ASYNC} flush in background thread every interval
+ * *    with and without forcing respectively
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+final class Journal implements Closeable {
+    private static final byte CREATE = 1;
+    private static final byte WRITE = 2;
+    private static final byte WRITE_AT = 3;
+    private static final byte APPEND = 4;
+    private static final byte COPY = 5;
+    private static final byte MOVE = 6;
+    private static final byte DELETE = 7;
+    private static final byte BATCH = 8;
+    private static final byte BEGIN = 9;
+    private static final byte COMMIT = 10;
+    private static final int HEADER_SIZE = 8;
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    @Nonnull
+    private final FileChannel channel;
+    @Nonnull
+    private final FSConfig.Sync sync;
+    @Nullable
+    private final ScheduledExecutorService flusher;
+    @Nonnull
+    private final Object io = new Object();
+
+    // guarded by this
+    @Nonnull
+    private Buffer pending = new Buffer();
+    @Nonnull
+    private DataOutputStream out = new DataOutputStream(pending);
+    /**
+     * number of bytes appended to journal since it's opened
+     */
+    private long appended = 0;
+
+    // guarded by io
+    @Nonnull
+    private Buffer spare = new Buffer();
+    /**
+     * number of bytes forced to disk since journal is opened. Volatile to skip flushing without lock
+     */
+    private volatile long durable = 0;
+    /**
+     * the first failure of flushing or null if there is no one. Records of failed batch may be written partially
+     * * while their mutations are already applied, so journal accepts and writes nothing after it
+     */
+    @Nullable
+    private volatile IOException failure = null;
+
+    /**
+     * @param channel            positioned at the end of valid records
+     * @param sync               policy of forcing records to disk
+     * @param flushIntervalMillis interval of background flushing. It's ignored by {@link FSConfig.Sync#EVERY_OPERATION}
+     */
+    Journal(@Nonnull FileChannel channel, @Nonnull FSConfig.Sync sync, long flushIntervalMillis) {
+        this.channel = requireNonNull(channel);
+        this.sync = requireNonNull(sync);
+        if (sync == FSConfig.Sync.EVERY_OPERATION) {
+            flusher = null;
+        } else {
+            if (flushIntervalMillis <= 0) {
+                throw new IllegalArgumentException(String.format("Flush interval %d isn't positive", flushIntervalMillis));
+            }
+            flusher = Executors.newSingleThreadScheduledExecutor(
+                    runnable -> {
+                        final Thread result = new Thread(runnable, "journal-flusher");
+                        result.setDaemon(true);
+                        return result;
+                    });
+            final boolean force = sync == FSConfig.Sync.GROUP_COMMIT;
+            flusher.scheduleWithFixedDelay(
+                    () -> {
+                        try {
+                            flush(force);
+                        } catch (IOException e) {
+                            // failure is kept by flush and reported to the next writer
+                        }
+                    },
+                    flushIntervalMillis,
+                    flushIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Nonnull
+    static Record create(@Nonnull String path, @Nonnull FileType fileType) {
+        return out -> {
+            out.writeByte(CREATE);
+            out.writeUTF(path);
+            out.writeByte(fileType.ordinal());
+        };
+    }
+
+    @Nonnull
+    static Record write(@Nonnull String path, @Nonnull byte[] content) {
+        return out -> {
+            out.writeByte(WRITE);
+            out.writeUTF(path);
+            writeBytes(out, content);
+        };
+    }
+
+    /**
+     * buffers are recorded the same way as their concatenation, so record is replayed by {@link FS#write(String, byte[])}
+     */
+    @Nonnull
+    static Record write(@Nonnull String path, @Nonnull ByteBuffer[] content) {
+        return out -> {
+            out.writeByte(WRITE);
+            out.writeUTF(path);
+            writeBytes(out, content);
+        };
+    }
+
+    @Nonnull
+    static Record write(@Nonnull String path, long offset, @Nonnull byte[] content) {
+        return out -> {
+            out.writeByte(WRITE_AT);
+            out.writeUTF(path);
+            out.writeLong(offset);
+            writeBytes(out, content);
+        };
+    }
+
+    @Nonnull
+    static Record append(@Nonnull String path, @Nonnull byte[] content) {
+        return out -> {
+            out.writeByte(APPEND);
+            out.writeUTF(path);
+            writeBytes(out, content);
+        };
+    }
+
+    @Nonnull
+    static Record append(@Nonnull String path, @Nonnull ByteBuffer[] content) {
+        return out -> {
+            out.writeByte(APPEND);
+            out.writeUTF(path);
+            writeBytes(out, content);
+        };
+    }
+
+    @Nonnull
+    static Record copy(@Nonnull String sourcePath, @Nonnull String destinationPath) {
+        return out -> {
+            out.writeByte(COPY);
+            out.writeUTF(sourcePath);
+            out.writeUTF(destinationPath);
+        };
+    }
+
+    @Nonnull
+    static Record move(@Nonnull String sourcePath, @Nonnull String destinationPath) {
+        return out -> {
+            out.writeByte(MOVE);
+            out.writeUTF(sourcePath);
+            out.writeUTF(destinationPath);
+        };
+    }
+
+    @Nonnull
+    static Record delete(@Nonnull String path) {
+        return out -> {
+            out.writeByte(DELETE);
+            out.writeUTF(path);
+        };
+    }
+
+    /**
+     * records successful operations of applied batch as single record. Failed operations changed nothing, so they
+     * * aren't recorded
+     *
+     * @param results of operations in order
+     */
+    @Nonnull
+    static Record batch(@Nonnull Batch batch, @Nonnull List<Either<FSError, Unit>> results) {
+        final List<Batch.Operation> operations = batch.operations();
+        return out -> {
+            out.writeByte(BATCH);
+            out.writeInt((int) results.stream().filter(Either::isRight).count());
+            for (int i = 0; i < operations.size(); i++) {
+                if (results.get(i).isRight()) {
+                    final Batch.Operation operation = operations.get(i);
+                    out.writeByte(operation.type.ordinal());
+                    out.writeUTF(operation.path);
+                    switch (operation.type) {
+                        case CREATE:
+                            out.writeByte(requireNonNull(operation.fileType).ordinal());
+                            break;
+                        case WRITE:
+                        case APPEND:
+                            writeBytes(out, operation.content());
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * encodes record with it's header in memory, so record of transaction's mutation doesn't refer to arguments which
+     * * can be changed by caller before the transaction is committed
+     *
+     * @return framed record to be appended by {@link #transaction(List)}
+     */
+    @Nonnull
+    static byte[] encode(@Nonnull Record record) {
+        final Buffer buffer = new Buffer();
+        final DataOutputStream out = new DataOutputStream(buffer);
+        try {
+            out.writeLong(0);
+            record.writeTo(out);
+            out.flush();
+        } catch (IOException e) {
+            // buffer in memory doesn't fail
+            throw new UncheckedIOException(e);
+        }
+        buffer.seal(0);
+        return buffer.toByteArray();
+    }
+
+    /**
+     * appends records of committed transaction between {@link #BEGIN} and {@link #COMMIT} records under monitor of
+     * * journal, so they aren't interleaved with other records
+     *
+     * @param records of transaction's mutations in order encoded by {@link #encode(Record)}
+     * @return position in journal after commit record
+     */
+    synchronized long transaction(@Nonnull List<byte[]> records) {
+        append(out -> out.writeByte(BEGIN));
+        for (byte[] record : records) {
+            pending.write(record, 0, record.length);
+            appended += record.length;
+        }
+        return append(out -> out.writeByte(COMMIT));
+    }
+
+    /**
+     * makes record durable according to sync policy. Only {@link FSConfig.Sync#EVERY_OPERATION} waits for disk
+     *
+     * @param position returned by appending of record
+     */
+    void commit(long position) {
+        if (sync == FSConfig.Sync.EVERY_OPERATION && durable < position) {
+            try {
+                flush(true);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * forces all appended records to disk
+     */
+    void sync() throws IOException {
+        flush(true);
+    }
+
+    /**
+     * stops background flushing and forces all appended records to disk
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (flusher != null) {
+                flusher.shutdown();
+                flusher.awaitTermination(1, TimeUnit.MINUTES);
+            }
+            flush(true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while journal is closed", e);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * applies valid records of journal to file system. Invalid tail is truncated
+     *
+     * @param channel positioned at the start of journal. It's positioned at the end of valid records after replay
+     * @param target  file system to apply records to
+     * @throws IOException if valid record can't be applied, eg file system is too small for content of journal
+     */
+    static void replay(@Nonnull FileChannel channel, @Nonnull FS target) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        final CRC32 crc = new CRC32();
+        // end of read records and end of applied ones. They differ while transaction's commit record isn't read yet
+        long position = 0;
+        long valid = 0;
+        List<byte[]> transaction = null;
+        byte[] payload = new byte[0];
+        while (true) {
+            final int length;
+            final int checksum;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+                if (length <= 0 || length > channel.size() - position - HEADER_SIZE) {
+                    break;
+                }
+                if (payload.length < length) {
+                    payload = new byte[length];
+                }
+                in.readFully(payload, 0, length);
+            } catch (EOFException e) {
+                break;
+            }
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            position += HEADER_SIZE + length;
+            if (payload[0] == BEGIN) {
+                transaction = new ArrayList<>();
+            } else if (payload[0] == COMMIT) {
+                if (transaction == null) {
+                    throw new IOException("Commit record without transaction");
+                }
+                for (byte[] record : transaction) {
+                    apply(new DataInputStream(new ByteArrayInputStream(record)), target);
+                }
+                transaction = null;
+                valid = position;
+            } else if (transaction != null) {
+                transaction.add(Arrays.copyOf(payload, length));
+            } else {
+                apply(new DataInputStream(new ByteArrayInputStream(payload, 0, length)), target);
+                valid = position;
+            }
+        }
+        channel.truncate(valid);
+        channel.position(valid);
+    }
+
+    private static void apply(@Nonnull DataInputStream record, @Nonnull FS target) throws IOException {
+        final byte type = record.readByte();
+        final Either<FSError, Unit> result;
+        switch (type) {
+            case CREATE:
+                result = target.create(record.readUTF(), FileType.values()[record.readByte()]);
+                break;
+            case WRITE:
+                result = target.write(record.readUTF(), readBytes(record));
+                break;
+            case WRITE_AT:
+                result = target.write(record.readUTF(), record.readLong(), readBytes(record));
+                break;
+            case APPEND:
+                result = target.append(record.readUTF(), readBytes(record));
+                break;
+            case COPY:
+                result = target.copy(record.readUTF(), record.readUTF());
+                break;
+            case MOVE:
+                result = target.move(record.readUTF(), record.readUTF());
+                break;
+            case DELETE:
+                result = target.delete(record.readUTF());
+                break;
+            case BATCH:
+                result = target.apply(readBatch(record))
+                        .stream()
+                        .filter(Either::isLeft)
+                        .findFirst()
+                        .orElseGet(() -> Either.right(Unit.unit()));
+                break;
+            default:
+                throw new IOException(String.format("Unknown type %d of journal record", type));
+        }
+        if (result.isLeft()) {
+            throw new IOException("Journal record can't be replayed", result.getLeft(null));
+        }
+    }
+
+    @Nonnull
+    private static Batch readBatch(@Nonnull DataInputStream record) throws IOException {
+        final Batch.Builder builder = Batch.builder();
+        for (int count = record.readInt(); count > 0; count--) {
+            final Batch.Operation.Type type = Batch.Operation.Type.values()[record.readByte()];
+            final String path = record.readUTF();
+            switch (type) {
+                case CREATE:
+                    builder.create(path, FileType.values()[record.readByte()]);
+                    break;
+                case WRITE:
+                    builder.write(path, readBytes(record));
+                    break;
+                case APPEND:
+                    builder.append(path, readBytes(record));
+                    break;
+                case DELETE:
+                    builder.delete(path);
+                    break;
+                default:
+                    throw new IOException(String.format("Unknown type %s of batched operation", type));
+            }
+        }
+        return builder.build();
+    }
+
+    private static void writeBytes(@Nonnull DataOutput out, @Nonnull byte[] content) throws IOException {
+        out.writeInt(content.length);
+        out.write(content);
+    }
+
+    /**
+     * bytes of buffers without backing array are copied through chunk of {@link #CHUNK_SIZE} bytes. Buffers stay intact
+     */
+    private static void writeBytes(@Nonnull DataOutput out, @Nonnull ByteBuffer[] content) throws IOException {
+        out.writeInt((int) ContentChannels.remaining(content));
+        byte[] chunk = null;
+        for (ByteBuffer buffer : content) {
+            if (buffer.hasArray()) {
+                out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            } else {
+                final ByteBuffer source = buffer.duplicate();
+                if (chunk == null) {
+                    chunk = new byte[CHUNK_SIZE];
+                }
+                while (source.hasRemaining()) {
+                    final int length = Math.min(source.remaining(), CHUNK_SIZE);
+                    source.get(chunk, 0, length);
+                    out.write(chunk, 0, length);
+                }
+            }
+        }
+    }
+
+    @Nonnull
+    private static byte[] readBytes(@Nonnull DataInputStream in) throws IOException {
+        final byte[] result = new byte[in.readInt()];
+        in.readFully(result);
+        return result;
+    }
+
+    /**
+     * encodes record into journal's buffer. It's made durable by {@link #commit(long)} or by background flushing
+     *
+     * @return position in journal after record
+     */
+    synchronized long append(@Nonnull Record record) {
+        final IOException failure = this.failure;
+        if (failure != null) {
+            throw new UncheckedIOException("Journal isn't writable", failure);
+        }
+        final int start = pending.size();
+        try {
+            out.writeLong(0);
+            record.writeTo(out);
+            out.flush();
+        } catch (IOException e) {
+            // buffer in memory doesn't fail
+            throw new UncheckedIOException(e);
+        }
+        pending.seal(start);
+        appended += pending.size() - start;
+        return appended;
+    }
+
+    /**
+     * writes pending records and forces them to disk if requested. The first failure stops journal and it's batch
+     * * isn't reset, so records which aren't durable are neither dropped silently nor followed by later ones
+     */
+    private void flush(boolean force) throws IOException {
+        synchronized (io) {
+            final IOException failure = this.failure;
+            if (failure != null) {
+                throw new IOException("Journal isn't writable", failure);
+            }
+            final Buffer batch;
+            final long position;
+            synchronized (this) {
+                batch = pending;
+                position = appended;
+                pending = spare;
+                out = new DataOutputStream(pending);
+            }
+            try {
+                batch.writeTo(channel);
+                if (force) {
+                    channel.force(false);
+                    durable = position;
+                }
+                batch.reset();
+            } catch (IOException e) {
+                this.failure = e;
+                throw e;
+            } catch (RuntimeException | Error e) {
+                this.failure = new IOException(e);
+                throw e;
+            } finally {
+                spare = batch;
+            }
+        }
+    }
+
+    /**
+     * encoder of record's payload
+     */
+    @FunctionalInterface
+    interface Record {
+        void writeTo(@Nonnull DataOutput out) throws IOException;
+    }
+
+    /**
+     * byte buffer which frames records in place and is written to channel without copying
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+        /**
+         * fills header of record starting at start with length and checksum of it's payload
+         */
+        void seal(int start) {
+            final CRC32 crc = new CRC32();
+            crc.update(buf, start + HEADER_SIZE, count - start - HEADER_SIZE);
+            ByteBuffer.wrap(buf, start, HEADER_SIZE).putInt(count - start - HEADER_SIZE).putInt((int) crc.getValue());
+        }
+
+        void writeTo(@Nonnull FileChannel channel) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.wrap(buf, 0, count);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+import data.ByteArray;
+import data.Unit;
+import data.either.Either;
+import fs.Batch;
+import fs.ContentChannels;
+import fs.FS;
+import fs.FSError;
+import fs.FileInfo;
+import fs.FileType;
+import fs.JournaledFS;
+import fs.LookupCacheStats;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * decorator which records successful mutations of delegate in {@link Journal}
+ * <p>
+ * mutation and appending of it's record are done under {@link #mutation} lock, so records are ordered the same way
+ * as mutations take effect and replay rebuilds the same state. It serializes mutations of concurrent delegate while
+ * reads aren't affected. Waiting for disk is done after lock is released, so concurrent mutations share forcing
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+final class JournaledFSImpl implements JournaledFS {
+    @Nonnull
+    private final FS delegate;
+    @Nonnull
+    private final Journal journal;
+    @Nonnull
+    private final Object mutation = new Object();
+    /**
+     * records of mutations made through view of transaction which are appended after it's committed or null for file
+     * system itself. Records are encoded when mutations are made, so they keep arguments of that moment
+     */
+    @Nullable
+    private final List<byte[]> pending;
+
+    /**
+     * @param delegate empty file system to rebuild state in
+     * @param journal  file of journal. It's created if it doesn't exist
+     */
+    JournaledFSImpl(
+            @Nonnull FS delegate,
+            @Nonnull java.nio.file.Path journal,
+            @Nonnull FSConfig.Sync sync,
+            long groupCommitMillis) throws IOException {
+        this.delegate = requireNonNull(delegate);
+        this.pending = null;
+        requireNonNull(sync);
+        final FileChannel channel = FileChannel.open(requireNonNull(journal), READ, WRITE, CREATE);
+        try {
+            Journal.replay(channel, delegate);
+            this.journal = new Journal(channel, sync, groupCommitMillis);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * creates view of transaction which collects records of it's mutations
+     *
+     * @param delegate view of delegate's transaction
+     */
+    private JournaledFSImpl(@Nonnull FS delegate, @Nonnull Journal journal, @Nonnull List<byte[]> pending) {
+        this.delegate = delegate;
+        this.journal = journal;
+        this.pending = pending;
+    }
+
+    @Override
+    public void sync() throws IOException {
+        journal.sync();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (pending != null) {
+            throw new IllegalStateException("View of transaction can't be closed");
+        }
+        journal.close();
+    }
+
+    /**
+     * appends record to journal or collects it if this is view of transaction
+     *
+     * @return position in journal after record or -1 if it isn't appended yet
+     */
+    private long record(@Nonnull Journal.Record record) {
+        final long result;
+        if (pending != null) {
+            pending.add(Journal.encode(record));
+            result = -1;
+        } else {
+            result = journal.append(record);
+        }
+        return result;
+    }
+
+    /**
+     * applies mutation to delegate and records it in journal if it's successful
+     */
+    @Nonnull
+    private Either<FSError, Unit> mutate(@Nonnull Supplier<Either<FSError, Unit>> mutation, @Nonnull Journal.Record record) {
+        final Either<FSError, Unit> result;
+        final long position;
+        synchronized (this.mutation) {
+            result = mutation.get();
+            position = result.isRight() ? record(record) : -1;
+        }
+        if (position >= 0) {
+            journal.commit(position);
+        }
+        return result;
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> create(@Nonnull String path, @Nonnull FileType fileType) {
+        return mutate(() -> delegate.create(path, fileType), Journal.create(path, fileType));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, FileInfo> info(@Nonnull String path) {
+        return delegate.info(path);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, ByteArray> read(@Nonnull String path) {
+        return delegate.read(path);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, ByteArray> read(@Nonnull String path, long offset, int length) {
+        return delegate.read(path, offset, length);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Integer> read(@Nonnull String path, long offset, @Nonnull ByteBuffer... dst) {
+        return delegate.read(path, offset, dst);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, List<FileInfo>> ls(@Nonnull String path) {
+        return delegate.ls(path);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, List<FileInfo>> ls(@Nonnull String path, @Nullable String cursor, int limit) {
+        return delegate.ls(path, cursor, limit);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, List<FileInfo>> lsRange(@Nonnull String path, @Nullable String from, @Nullable String to) {
+        return delegate.lsRange(path, from, to);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> copy(@Nonnull String sourcePath, @Nonnull String destinationPath) {
+        return mutate(() -> delegate.copy(sourcePath, destinationPath), Journal.copy(sourcePath, destinationPath));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> write(@Nonnull String path, @Nonnull byte[] content) {
+        return mutate(() -> delegate.write(path, content), Journal.write(path, content));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> write(@Nonnull String path, @Nonnull ByteBuffer... content) {
+        return mutate(() -> delegate.write(path, content), Journal.write(path, content));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> write(@Nonnull String path, long offset, @Nonnull byte[] content) {
+        return mutate(() -> delegate.write(path, offset, content), Journal.write(path, offset, content));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> append(@Nonnull String path, @Nonnull byte[] content) {
+        return mutate(() -> delegate.append(path, content), Journal.append(path, content));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> append(@Nonnull String path, @Nonnull ByteBuffer... content) {
+        return mutate(() -> delegate.append(path, content), Journal.append(path, content));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, ReadableByteChannel> openRead(@Nonnull String path) {
+        return delegate.openRead(path);
+    }
+
+    /**
+     * each chunk is appended by channel of delegate and recorded the same way as {@link #append(String, ByteBuffer...)}
+     * * is, so file which channel holds is the one located at recorded path
+     */
+    @Nonnull
+    @Override
+    public Either<FSError, WritableByteChannel> openAppend(@Nonnull String path) {
+        return delegate.openAppend(path).rMap(
+                channel -> ContentChannels.appending(
+                        chunk -> {
+                            final ByteBuffer content = chunk.duplicate();
+                            return mutate(() -> appendTo(channel, chunk), Journal.append(path, new ByteBuffer[]{content}));
+                        }));
+    }
+
+    /**
+     * @return either {@link Unit#unit()} or error of file system which channel of delegate fails with
+     */
+    @Nonnull
+    private static Either<FSError, Unit> appendTo(@Nonnull WritableByteChannel channel, @Nonnull ByteBuffer chunk) {
+        Either<FSError, Unit> result;
+        try {
+            channel.write(chunk);
+            result = Either.right(Unit.unit());
+        } catch (IOException e) {
+            if (!(e.getCause() instanceof FSError)) {
+                throw new UncheckedIOException(e);
+            }
+            result = Either.left((FSError) e.getCause());
+        }
+        return result;
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> delete(@Nonnull String path) {
+        return mutate(() -> delegate.delete(path), Journal.delete(path));
+    }
+
+    /**
+     * batch is recorded as single record, so it's replayed as a whole
+     */
+    @Nonnull
+    @Override
+    public List<Either<FSError, Unit>> apply(@Nonnull Batch batch) {
+        final List<Either<FSError, Unit>> result;
+        final long position;
+        synchronized (mutation) {
+            result = delegate.apply(batch);
+            position = result.stream().anyMatch(Either::isRight) ? record(Journal.batch(batch, result)) : -1;
+        }
+        if (position >= 0) {
+            journal.commit(position);
+        }
+        return result;
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> move(@Nonnull String sourcePath, @Nonnull String destinationPath) {
+        return mutate(() -> delegate.move(sourcePath, destinationPath), Journal.move(sourcePath, destinationPath));
+    }
+
+    /**
+     * records of transaction are appended as a group after delegate commits it, so replay applies either all or none
+     * * of them. Records of nested transaction are added to enclosing one
+     */
+    @Nonnull
+    @Override
+    public <T> Either<FSError, T> transaction(@Nonnull Function<? super FS, Either<FSError, T>> body) {
+        requireNonNull(body);
+        final List<byte[]> records = new ArrayList<>();
+        final Either<FSError, T> result;
+        final long position;
+        synchronized (mutation) {
+            result = delegate.transaction(
+                    view -> {
+                        // records of failed attempt are dropped together with it's mutations
+                        records.clear();
+                        return body.apply(new JournaledFSImpl(view, journal, records));
+                    });
+            if (result.isLeft() || records.isEmpty()) {
+                position = -1;
+            } else if (pending != null) {
+                pending.addAll(records);
+                position = -1;
+            } else {
+                position = journal.transaction(records);
+            }
+        }
+        if (position >= 0) {
+            journal.commit(position);
+        }
+        return result;
+    }
+
+    @Override
+    public long size() {
+        return delegate.size();
+    }
+
+    @Override
+    public long used() {
+        return delegate.used();
+    }
+
+    @Override
+    public void snapshot(@Nonnull WritableByteChannel out) throws IOException {
+        delegate.snapshot(out);
+    }
+
+    @Override
+    public long physicalUsed() {
+        return delegate.physicalUsed();
+    }
+
+    @Nonnull
+    @Override
+    public Optional<LookupCacheStats> lookupCacheStats() {
+        return delegate.lookupCacheStats();
+    }
+}
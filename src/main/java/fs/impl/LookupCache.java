@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import fs.LookupCacheStats;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * bounded cache of nodes found by paths with least recently used eviction
+ * * only found nodes are cached, so creation of files (including copying) can't make cached entries stale
+ * * deletion and moving of file should be followed by {@link #invalidate(Path)} of it's path
+ * <p>
+ * representation:
+ * *    nodes are kept in access ordered map to evict least recently used path
+ * *    the same paths are kept sorted, so subtree of path is a contiguous range of sorted paths and it's
+ * *    invalidated in O(log n + k) where k is number of cached paths in subtree
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+final class LookupCache {
+    private final int capacity;
+    @Nonnull
+    private final Map<Path, FSNode> nodes;
+    @Nonnull
+    private final NavigableSet<Path> paths = new TreeSet<>();
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity maximal number of cached paths. Cache with zero capacity is disabled and counts nothing
+     */
+    LookupCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Can't create cache with negative capacity");
+        }
+        this.capacity = capacity;
+        this.nodes = new LinkedHashMap<Path, FSNode>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, FSNode> eldest) {
+                final boolean result = size() > LookupCache.this.capacity;
+                if (result) {
+                    paths.remove(eldest.getKey());
+                }
+                return result;
+            }
+        };
+        checkInvariants();
+    }
+
+    private void checkInvariants() {
+        assert nodes.size() == paths.size() && nodes.size() <= capacity;
+    }
+
+    /**
+     * @return cached node located at path or null if there is no such one
+     */
+    @Nullable
+    FSNode get(@Nonnull Path path) {
+        requireNonNull(path);
+        final FSNode result;
+        if (capacity == 0) {
+            result = null;
+        } else {
+            result = nodes.get(path);
+            if (result == null) {
+                misses++;
+            } else {
+                hits++;
+            }
+        }
+        return result;
+    }
+
+    void put(@Nonnull Path path, @Nonnull FSNode node) {
+        requireNonNull(path);
+        requireNonNull(node);
+        if (capacity > 0 && nodes.put(path, node) == null) {
+            paths.add(path);
+        }
+        checkInvariants();
+    }
+
+    /**
+     * removes path and all paths located under it from cache
+     */
+    void invalidate(@Nonnull Path path) {
+        requireNonNull(path);
+        for (final Iterator<Path> cached = paths.tailSet(path, true).iterator(); cached.hasNext(); ) {
+            final Path next = cached.next();
+            if (!next.equals(path) && !path.isAncestorOf(next)) {
+                break;
+            }
+            cached.remove();
+            nodes.remove(next);
+        }
+        checkInvariants();
+    }
+
+    @Nonnull
+    LookupCacheStats stats() {
+        return new LookupCacheStats(hits, misses, nodes.size(), capacity);
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+import data.ByteArray;
+import data.Unit;
+import data.either.Either;
+import fs.Batch;
+import fs.FS;
+import fs.FSError;
+import fs.FileInfo;
+import fs.FileType;
+import fs.LookupCacheStats;
+import fs.MappedFS;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * file system whose content is held in pages of memory mapped file and whose tree is saved to image on flush
+ * <p>
+ * image directory:
+ * *    {@link #CONTENT} is file of slabs mapped by {@link SlabAllocator}, so it's never read on opening and pages of
+ * *    content are loaded by operating system when they are accessed
+ * *    {@link #TREE} is {@link TreeImage} of directory tree which refers pages of content. It's replaced atomically
+ * *    after content is forced to disk, so it always refers content written before it
+ * *    pages freed after tree is saved aren't reused until the next one replaces it (see
+ * *    {@link SlabAllocator#checkpoint()}), so saved tree never refers pages of other files. Pages it refers can
+ * *    still be changed in place by positional writes and appends made after it's saved
+ * <p>
+ * all operations are delegated to {@link SimpleFSImpl} or {@link ConcurrentFSImpl} over tree restored from image, so
+ * semantics and capacity limits are the same as theirs
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+final class MappedFSImpl implements MappedFS {
+    static final String CONTENT = "content";
+    static final String TREE = "tree";
+    private static final String TREE_UPDATE = "tree.update";
+
+    @Nonnull
+    private final java.nio.file.Path directory;
+    @Nonnull
+    private final FileChannel channel;
+    @Nonnull
+    private final SlabAllocator allocator;
+    @Nonnull
+    private final FSNode root;
+    @Nonnull
+    private final FS delegate;
+
+    /**
+     * @param directory of image. It's created if it doesn't exist
+     * @param size      of file system in bytes
+     * @param mode      threading mode of file system. {@link FSConfig.Mode#LOCK_FREE_READS} isn't supported
+     * @throws IllegalArgumentException if content of image doesn't fit into size or refers pages out of content
+     */
+    MappedFSImpl(@Nonnull java.nio.file.Path directory, long size, @Nonnull FSConfig.Mode mode) throws IOException {
+        if (size < 0) {
+            throw new IllegalStateException("Can't create file system with negative size");
+        }
+        this.directory = Files.createDirectories(requireNonNull(directory));
+        this.channel = FileChannel.open(directory.resolve(CONTENT), READ, WRITE, CREATE);
+        try {
+            allocator = new SlabAllocator(channel);
+            root = FSNodeConfig.createRoot(requireNonNull(mode) == FSConfig.Mode.CONCURRENT, null, allocator);
+            final java.nio.file.Path tree = directory.resolve(TREE);
+            if (Files.exists(tree)) {
+                try (InputStream in = Files.newInputStream(tree)) {
+                    TreeImage.read(new DataInputStream(new BufferedInputStream(in)), root, allocator);
+                }
+            } else {
+                allocator.restore(new BitSet());
+            }
+            if (root.size() > size) {
+                throw new IllegalArgumentException(String.format("Content of %d bytes doesn't fit into %d bytes", root.size(), size));
+            }
+            switch (mode) {
+                case SINGLE_THREADED:
+                    delegate = new SimpleFSImpl(size, root, FSConfig.DEFAULT_LOOKUP_CACHE_CAPACITY);
+                    break;
+                case CONCURRENT:
+                    delegate = new ConcurrentFSImpl(size, root);
+                    break;
+                default:
+                    throw new UnsupportedOperationException(mode + " is not supported");
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // write lock on root excludes all operations of concurrent file system because they read lock it
+        final Lock lock = root.lock().map(ReentrantReadWriteLock::writeLock).orElse(null);
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            allocator.force();
+            final java.nio.file.Path update = directory.resolve(TREE_UPDATE);
+            try (FileChannel out = FileChannel.open(update, WRITE, CREATE, TRUNCATE_EXISTING)) {
+                final DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(out)));
+                TreeImage.write(root, stream);
+                stream.flush();
+                out.force(true);
+            }
+            Files.move(update, directory.resolve(TREE), ATOMIC_MOVE, REPLACE_EXISTING);
+            // pages freed before are referred by no saved tree now
+            allocator.checkpoint();
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> create(@Nonnull String path, @Nonnull FileType fileType) {
+        return delegate.create(path, fileType);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, FileInfo> info(@Nonnull String path) {
+        return delegate.info(path);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, ByteArray> read(@Nonnull String path) {
+        return delegate.read(path);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, ByteArray> read(@Nonnull String path, long offset, int length) {
+        return delegate.read(path, offset, length);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Integer> read(@Nonnull String path, long offset, @Nonnull ByteBuffer... dst) {
+        return delegate.read(path, offset, dst);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, List<FileInfo>> ls(@Nonnull String path) {
+        return delegate.ls(path);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, List<FileInfo>> ls(@Nonnull String path, @Nullable String cursor, int limit) {
+        return delegate.ls(path, cursor, limit);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, List<FileInfo>> lsRange(@Nonnull String path, @Nullable String from, @Nullable String to) {
+        return delegate.lsRange(path, from, to);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> copy(@Nonnull String sourcePath, @Nonnull String destinationPath) {
+        return delegate.copy(sourcePath, destinationPath);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> write(@Nonnull String path, @Nonnull byte[] content) {
+        return delegate.write(path, content);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> write(@Nonnull String path, @Nonnull ByteBuffer... content) {
+        return delegate.write(path, content);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> write(@Nonnull String path, long offset, @Nonnull byte[] content) {
+        return delegate.write(path, offset, content);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> append(@Nonnull String path, @Nonnull byte[] content) {
+        return delegate.append(path, content);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> append(@Nonnull String path, @Nonnull ByteBuffer... content) {
+        return delegate.append(path, content);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, ReadableByteChannel> openRead(@Nonnull String path) {
+        return delegate.openRead(path);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, WritableByteChannel> openAppend(@Nonnull String path) {
+        return delegate.openAppend(path);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> delete(@Nonnull String path) {
+        return delegate.delete(path);
+    }
+
+    @Nonnull
+    @Override
+    public List<Either<FSError, Unit>> apply(@Nonnull Batch batch) {
+        return delegate.apply(batch);
+    }
+
+    @Nonnull
+    @Override
+    public <T> Either<FSError, T> transaction(@Nonnull Function<? super FS, Either<FSError, T>> body) {
+        return delegate.transaction(body);
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> move(@Nonnull String sourcePath, @Nonnull String destinationPath) {
+        return delegate.move(sourcePath, destinationPath);
+    }
+
+    @Override
+    public long size() {
+        return delegate.size();
+    }
+
+    @Override
+    public long used() {
+        return delegate.used();
+    }
+
+    @Override
+    public void snapshot(@Nonnull WritableByteChannel out) throws IOException {
+        delegate.snapshot(out);
+    }
+
+    @Nonnull
+    @Override
+    public Optional<LookupCacheStats> lookupCacheStats() {
+        return delegate.lookupCacheStats();
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static fs.impl.SlabAllocator.PAGE_SIZE;
+import static java.util.Objects.requireNonNull;
+
+import data.ByteArray;
+
+import javax.annotation.Nonnull;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * content of regular file stored in pages of direct memory outside of heap
+ * <p>
+ * abstraction function:
+ * *    represents array of {@link #size} bytes which is concatenation of pages {@link #pages} in [0, {@link #count})
+ * *    cut at {@link #size}
+ * <p>
+ * representation:
+ * *    byte at position p is at p % {@link SlabAllocator#PAGE_SIZE} in page p / {@link SlabAllocator#PAGE_SIZE}, so
+ * *    content is rewritten in place and heap holds only ids of pages
+ * *    bytes of the last page after {@link #size} are undefined, so they are filled with zeros before gap is exposed
+ * *    pages are returned to {@link #allocator} as soon as content doesn't need them
+ * <p>
+ * safety from exposure:
+ * *    all fields are private
+ * *    content is copied to heap when it's read
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+final class OffHeapStorage implements ContentStorage {
+    private static final byte[] ZEROS = new byte[PAGE_SIZE];
+
+    @Nonnull
+    private final SlabAllocator allocator;
+    @Nonnull
+    private int[] pages = new int[0];
+    private int count = 0;
+    private int size = 0;
+
+    OffHeapStorage(@Nonnull SlabAllocator allocator) {
+        this.allocator = requireNonNull(allocator);
+        checkInvariants();
+    }
+
+    /**
+     * restores storage from pages which are already filled with content
+     *
+     * @param pages ids of pages in order of content. They are owned by storage after that
+     * @param size  of content in bytes
+     */
+    OffHeapStorage(@Nonnull SlabAllocator allocator, @Nonnull int[] pages, int size) {
+        this.allocator = requireNonNull(allocator);
+        this.pages = requireNonNull(pages);
+        this.count = pages.length;
+        this.size = size;
+        if (count != (size + (long) PAGE_SIZE - 1) / PAGE_SIZE) {
+            throw new IllegalArgumentException(String.format("%d pages can't hold %d bytes", count, size));
+        }
+        checkInvariants();
+    }
+
+    private void checkInvariants() {
+        assert count <= pages.length && count == (size + PAGE_SIZE - 1) / PAGE_SIZE;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return ids of pages in order of content
+     */
+    @Nonnull
+    int[] pages() {
+        return Arrays.copyOf(pages, count);
+    }
+
+    @Nonnull
+    @Override
+    public ByteArray content(long offset, int length) {
+        final int from = (int) Math.min(offset, size);
+        final int to = (int) Math.min(from + (long) length, size);
+        final ByteArray.Builder builder = new ByteArray.Builder(to - from);
+        for (int position = from; position < to; ) {
+            final ByteBuffer view = view(position, to);
+            position += builder.append(view);
+        }
+        return builder.build();
+    }
+
+    /**
+     * bytes are copied from pages to target directly
+     */
+    @Override
+    public int read(long offset, @Nonnull ByteBuffer target) {
+        requireNonNull(target);
+        final int from = (int) Math.min(offset, size);
+        final int to = (int) Math.min(from + (long) target.remaining(), size);
+        for (int position = from; position < to; ) {
+            final ByteBuffer view = view(position, to);
+            position += view.remaining();
+            target.put(view);
+        }
+        return to - from;
+    }
+
+    /**
+     * pages are copied because they are mutated in place and aren't reference counted, so copying takes O(size)
+     * * time and pages
+     */
+    @Nonnull
+    @Override
+    public OffHeapStorage copy() {
+        final OffHeapStorage result = new OffHeapStorage(allocator);
+        result.ensurePages(count);
+        for (int i = 0; i < count; i++) {
+            allocator.view(result.pages[i]).put(allocator.view(pages[i]));
+        }
+        result.size = size;
+        result.checkInvariants();
+        return result;
+    }
+
+    @Override
+    public void append(@Nonnull byte[] content, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > requireNonNull(content).length - length) {
+            throw new IndexOutOfBoundsException(String.format("Range [%d, %d + %d) is out of [0, %d)", offset, offset, length, content.length));
+        }
+        put(size, content, offset, length);
+        checkInvariants();
+    }
+
+    @Override
+    public void append(@Nonnull ByteBuffer content) {
+        final int length = requireNonNull(content).remaining();
+        ensurePages((int) ((size + (long) length + PAGE_SIZE - 1) / PAGE_SIZE));
+        for (int end = size + length; size < end; ) {
+            final ByteBuffer view = view(size, end);
+            final int chunk = view.remaining();
+            final ByteBuffer part = content.duplicate();
+            part.limit(part.position() + chunk);
+            view.put(part);
+            content.position(part.position());
+            size += chunk;
+        }
+        checkInvariants();
+    }
+
+    @Override
+    public void write(int offset, @Nonnull byte[] content) {
+        requireNonNull(content);
+        if (offset < 0) {
+            throw new IllegalArgumentException(String.format("Offset %d is negative", offset));
+        }
+        while (size < offset) {
+            put(size, ZEROS, 0, Math.min(ZEROS.length, offset - size));
+        }
+        put(offset, content, 0, content.length);
+        checkInvariants();
+    }
+
+    /**
+     * pages after size are returned to allocator. Bytes of the last page after size become undefined
+     */
+    @Override
+    public void truncate(int size) {
+        if (size < 0 || size > this.size) {
+            throw new IllegalArgumentException(String.format("Size %d is out of [0, %d]", size, this.size));
+        }
+        final int required = (size + PAGE_SIZE - 1) / PAGE_SIZE;
+        for (int i = required; i < count; i++) {
+            allocator.free(pages[i]);
+        }
+        count = required;
+        this.size = size;
+        checkInvariants();
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            allocator.free(pages[i]);
+        }
+        pages = new int[0];
+        count = 0;
+        size = 0;
+        checkInvariants();
+    }
+
+    /**
+     * copies range of bytes to content starting from position which isn't after it's end
+     */
+    private void put(int position, @Nonnull byte[] content, int offset, int length) {
+        ensurePages((int) ((position + (long) length + PAGE_SIZE - 1) / PAGE_SIZE));
+        for (int put = 0; put < length; ) {
+            final ByteBuffer view = view(position + put, position + length);
+            final int chunk = view.remaining();
+            view.put(content, offset + put, chunk);
+            put += chunk;
+        }
+        size = Math.max(size, position + length);
+    }
+
+    /**
+     * @return view of part of page containing position which ends at page's end or at limit
+     */
+    @Nonnull
+    private ByteBuffer view(int position, int limit) {
+        final ByteBuffer result = allocator.view(pages[position / PAGE_SIZE]);
+        result.limit(Math.min(PAGE_SIZE, limit - position / PAGE_SIZE * PAGE_SIZE));
+        result.position(position % PAGE_SIZE);
+        return result;
+    }
+
+    private void ensurePages(int required) {
+        if (required > pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(required, 2 * pages.length));
+        }
+        for (; count < required; count++) {
+            pages[count] = allocator.allocate();
+        }
+    }
+}
@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import javax.annotation.Nonnull;
+
+/**
+ * immutable parsed absolute path of file system
+ * <p>
+ * abstraction function:
+ * *    represents sequence of names from root to file. Repeated and trailing '/' are ignored,
+ * *    path without names (eg "/") is parsed as single empty name. Prefix of size 0 represents root itself
+ * <p>
+ * representation:
+ * *    source string and begin, end and hash of each name in it, so names are compared and hashed in place
+ * *    and substrings are created only on demand by {@link #name(int)}
+ * *    prefixes share representation with path they are taken from
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+final class Path implements Comparable<Path> {
+    private static final int BEGIN = 0;
+    private static final int END = 1;
+    private static final int HASH = 2;
+    private static final int STRIDE = 3;
+
+    @Nonnull
+    private final String source;
+    /**
+     * begin, end and {@link String#hashCode()} of each name in source
+     */
+    @Nonnull
+    private final int[] names;
+    /**
+     * number of names in this path. It may be less than number of names in {@link #names} for prefixes
+     */
+    private final int size;
+    /**
+     * cached {@link #hashCode()} or 0 if it isn't computed yet
+     */
+    private int hash;
+
+    private Path(@Nonnull String source, @Nonnull int[] names, int size) {
+        this.source = source;
+        this.names = names;
+        this.size = size;
+        checkInvariants();
+    }
+
+    private void checkInvariants() {
+        assert size >= 0 && size * STRIDE <= names.length;
+    }
+
+    /**
+     * parses path without regular expressions and intermediate strings
+     *
+     * @param path full path starting from '/'
+     * @return parsed path
+     * @throws IllegalArgumentException if path doesn't start from '/'
+     */
+    @Nonnull
+    static Path parse(@Nonnull String path) {
+        if (!requireNonNull(path).startsWith("/")) {
+            throw new IllegalArgumentException(String.format("Path %s is malformed (not starting from '/')", path));
+        }
+        final int length = path.length();
+        int count = 0;
+        for (int i = 1; i < length; i++) {
+            if (path.charAt(i) != '/' && path.charAt(i - 1) == '/') {
+                count++;
+            }
+        }
+        final int[] names = new int[Math.max(count, 1) * STRIDE];
+        int index = 0;
+        int begin = -1;
+        int hash = 0;
+        for (int i = 1; i <= length; i++) {
+            final char c = i < length ? path.charAt(i) : '/';
+            if (c != '/') {
+                if (begin < 0) {
+                    begin = i;
+                    hash = 0;
+                }
+                hash = 31 * hash + c;
+            } else if (begin >= 0) {
+                names[index + BEGIN] = begin;
+                names[index + END] = i;
+                names[index + HASH] = hash;
+                index += STRIDE;
+                begin = -1;
+            }
+        }
+        if (count == 0) {
+            // path without names is represented by single empty name
+            names[BEGIN] = 1;
+            names[END] = 1;
+        }
+        return new Path(path, names, Math.max(count, 1));
+    }
+
+    /**
+     * @param name of file
+     * @return path consisting of single name
+     */
+    @Nonnull
+    static Path of(@Nonnull String name) {
+        return new Path(requireNonNull(name), new int[]{0, name.length(), name.hashCode()}, 1);
+    }
+
+    /**
+     * @return number of names in this path
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return copy of name at index
+     */
+    @Nonnull
+    String name(int index) {
+        checkIndex(index);
+        return source.substring(names[index * STRIDE + BEGIN], names[index * STRIDE + END]);
+    }
+
+    /**
+     * @return copy of the last name
+     */
+    @Nonnull
+    String last() {
+        return name(size - 1);
+    }
+
+    /**
+     * @param index of name
+     * @return key which is equal to {@link Name} with the same characters as name at index and has the same hash code
+     * * so it can be used to get values from maps keyed by names without creating substring
+     */
+    @Nonnull
+    Key key(int index) {
+        return new Key().at(index);
+    }
+
+    /**
+     * @return path consisting of first size names of this path
+     */
+    @Nonnull
+    Path prefix(int size) {
+        if (size < 0 || size > this.size) {
+            throw new IndexOutOfBoundsException(String.format("Prefix size %d is out of [0, %d]", size, this.size));
+        }
+        return size == this.size ? this : new Path(source, names, size);
+    }
+
+    /**
+     * @return root prefix if this path has no names (eg "/") or this path otherwise
+     * * such path is parsed as single empty name, so it should be converted to be listed as root
+     */
+    @Nonnull
+    Path orRoot() {
+        return size == 1 && names[BEGIN] == names[END] ? prefix(0) : this;
+    }
+
+    /**
+     * @return true if other path is located under this
+     */
+    boolean isAncestorOf(@Nonnull Path other) {
+        return requireNonNull(other).size > size && samePrefix(other, size);
+    }
+
+    /**
+     * @return the longest path which is either equal to or ancestor of both this and other path
+     */
+    @Nonnull
+    Path commonPrefix(@Nonnull Path other) {
+        final int common = Math.min(size, requireNonNull(other).size);
+        int result = names == other.names ? common : 0;
+        while (result < common && sameName(result, other, result)) {
+            result++;
+        }
+        return prefix(result);
+    }
+
+    /**
+     * @return full path built from names in the same format as {@link FSNode#path()}
+     */
+    @Nonnull
+    @Override
+    public String toString() {
+        return toString(size);
+    }
+
+    /**
+     * @return full path built from first size names
+     */
+    @Nonnull
+    String toString(int size) {
+        final StringBuilder result = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            result.append('/').append(source, names[i * STRIDE + BEGIN], names[i * STRIDE + END]);
+        }
+        return result.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Path)) {
+            return false;
+        }
+        final Path path = (Path) o;
+        return size == path.size && samePrefix(path, size);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hash;
+        if (result == 0) {
+            result = size;
+            for (int i = 0; i < size; i++) {
+                result = 31 * result + names[i * STRIDE + HASH];
+            }
+            hash = result;
+        }
+        return result;
+    }
+
+    /**
+     * lexicographic order of names where each path follows it's ancestors
+     */
+    @Override
+    public int compareTo(@Nonnull Path other) {
+        final int common = Math.min(size, requireNonNull(other).size);
+        for (int i = names == other.names ? common : 0; i < common; i++) {
+            // paths compared by sorted sets mostly share long prefixes, so equal names are checked at first
+            final int result = sameName(i, other, i) ? 0 : compareNames(i, other, i);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(size, other.size);
+    }
+
+    private boolean samePrefix(@Nonnull Path other, int size) {
+        // prefixes of the same path share names, so they are compared in O(1)
+        for (int i = names == other.names ? size : 0; i < size; i++) {
+            if (!sameName(i, other, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if names are equal. Hashes are compared at first and characters are compared by single region
+     * * match unless both names are taken from the same place of the same string
+     */
+    private boolean sameName(int index, @Nonnull Path other, int otherIndex) {
+        final int begin = names[index * STRIDE + BEGIN];
+        final int length = names[index * STRIDE + END] - begin;
+        final int otherBegin = other.names[otherIndex * STRIDE + BEGIN];
+        return names[index * STRIDE + HASH] == other.names[otherIndex * STRIDE + HASH] &&
+                length == other.names[otherIndex * STRIDE + END] - otherBegin &&
+                (source == other.source && begin == otherBegin || source.regionMatches(begin, other.source, otherBegin, length));
+    }
+
+    /**
+     * compares names in the same way as {@link String#compareTo(String)}
+     */
+    private int compareNames(int index, @Nonnull Path other, int otherIndex) {
+        final int begin = names[index * STRIDE + BEGIN];
+        final int length = names[index * STRIDE + END] - begin;
+        final int otherBegin = other.names[otherIndex * STRIDE + BEGIN];
+        final int otherLength = other.names[otherIndex * STRIDE + END] - otherBegin;
+        final int common = Math.min(length, otherLength);
+        for (int i = 0; i < common; i++) {
+            final int result = source.charAt(begin + i) - other.source.charAt(otherBegin + i);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return length - otherLength;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("Name index %d is out of [0, %d)", index, size));
+        }
+    }
+
+    /**
+     * name of file which is equal to any other name with the same characters, so names of paths are used as keys of
+     * * maps whose entries are put by names held as strings (see {@link #of(String)}) without creating substrings
+     */
+    abstract static class Name {
+        /**
+         * @return name held as string
+         */
+        @Nonnull
+        static Name of(@Nonnull String name) {
+            return new StringName(name);
+        }
+
+        @Nonnull
+        abstract String source();
+
+        /**
+         * @return position of the first character of name in {@link #source()}
+         */
+        abstract int begin();
+
+        /**
+         * @return position after the last character of name in {@link #source()}
+         */
+        abstract int end();
+
+        @Override
+        public final boolean equals(Object o) {
+            if (!(o instanceof Name)) {
+                return false;
+            }
+            final Name other = (Name) o;
+            final int length = end() - begin();
+            return other.end() - other.begin() == length && source().regionMatches(begin(), other.source(), other.begin(), length);
+        }
+
+        /**
+         * @return {@link String#hashCode()} of characters of name
+         */
+        @Override
+        public abstract int hashCode();
+
+        @Override
+        public String toString() {
+            return source().substring(begin(), end());
+        }
+    }
+
+    private static final class StringName extends Name {
+        @Nonnull
+        private final String name;
+
+        private StringName(@Nonnull String name) {
+            this.name = requireNonNull(name);
+        }
+
+        @Nonnull
+        @Override
+        String source() {
+            return name;
+        }
+
+        @Override
+        int begin() {
+            return 0;
+        }
+
+        @Override
+        int end() {
+            return name.length();
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * map key view of name at index. It's mutable and can be moved along path by {@link #at(int)}, so the whole path
+     * * is looked up with single key. It shouldn't be stored in maps
+     */
+    final class Key extends Name {
+        private int index;
+
+        private Key() {
+        }
+
+        /**
+         * moves this key to name at index
+         *
+         * @return this
+         */
+        @Nonnull
+        Key at(int index) {
+            checkIndex(index);
+            this.index = index;
+            return this;
+        }
+
+        @Nonnull
+        @Override
+        String source() {
+            return source;
+        }
+
+        @Override
+        int begin() {
+            return names[index * STRIDE + BEGIN];
+        }
+
+        @Override
+        int end() {
+            return names[index * STRIDE + END];
+        }
+
+        @Override
+        public int hashCode() {
+            return names[index * STRIDE + HASH];
+        }
+
+        @Override
+        public String toString() {
+            return name(index);
+        }
+    }
+}
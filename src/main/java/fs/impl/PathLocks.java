@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * set of {@link FSNode#lock()}s held along paths of concurrent file system operation
+ * <p>
+ * deadlock freedom:
+ * *    locks are acquired in the global order of paths (see {@link Path#compareTo(Path)}) where each path follows
+ * *    it's ancestors
+ * *    node can't change it's path while lock on it's parent is held so all threads observe the same order of nodes
+ * *    each node is locked once in the strongest mode requested for it's path so there are no lock upgrades
+ * *    locks added by {@link #extend(Plan, FSNode)} are waited for only if they follow all held ones in that order
+ * *    and are just tried otherwise
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+final class PathLocks implements AutoCloseable {
+    private final Deque<Lock> acquired = new ArrayDeque<>();
+    /**
+     * modes of held locks by paths of nodes at the moment of acquisition. True for write lock and false for read lock
+     */
+    private final SortedMap<Path, Boolean> held = new TreeMap<>();
+    private final Map<Path, FSNode> nodes = new HashMap<>();
+
+    private PathLocks() {
+    }
+
+    @Nonnull
+    static Plan plan() {
+        return new Plan();
+    }
+
+    /**
+     * releases all acquired locks in reverse order
+     */
+    @Override
+    public void close() {
+        while (!acquired.isEmpty()) {
+            acquired.pop().unlock();
+        }
+    }
+
+    /**
+     * acquires planned locks which aren't held yet, so operations of transaction keep all locks until it's finished
+     * * if write lock on path or it's ancestor is held, the path is skipped because it's subtree is already
+     * * accessed exclusively. It also covers nodes which changed their paths after their locks are acquired
+     *
+     * @param plan of locking
+     * @param root of file system
+     * @return false if some lock can't be acquired without risk of deadlock. It happens if held read lock should be
+     * * upgraded or if lock which doesn't follow held ones is held by another thread. Locks acquired before that are
+     * * kept
+     */
+    boolean extend(@Nonnull Plan plan, @Nonnull FSNode root) {
+        requireNonNull(root);
+        boolean result = true;
+        for (Iterator<Map.Entry<Path, Boolean>> entries = requireNonNull(plan).modes.entrySet().iterator(); result && entries.hasNext(); ) {
+            final Map.Entry<Path, Boolean> entry = entries.next();
+            final Path path = entry.getKey();
+            final boolean write = entry.getValue();
+            final Boolean mode = held.get(path);
+            if (!exclusive(path)) {
+                if (mode != null) {
+                    result = mode || !write;
+                } else {
+                    final Optional<FSNode> node = Plan.resolve(root, path, nodes);
+                    if (node.isPresent()) {
+                        final boolean ordered = held.isEmpty() || path.compareTo(held.lastKey()) > 0;
+                        result = acquire(path, node.get(), write, ordered);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if write lock on path or any of it's ancestors is held
+     */
+    private boolean exclusive(@Nonnull Path path) {
+        boolean result = false;
+        for (int i = 0; i <= path.size() && !result; i++) {
+            result = Boolean.TRUE.equals(held.get(path.prefix(i)));
+        }
+        return result;
+    }
+
+    /**
+     * @param wait true if lock should be waited for or false if it should be only tried
+     * @return true if lock is acquired
+     */
+    private boolean acquire(@Nonnull Path path, @Nonnull FSNode node, boolean write, boolean wait) {
+        final ReentrantReadWriteLock lock = requireNonNull(node)
+                .lock()
+                .orElseThrow(() -> new IllegalStateException(String.format("Node %s isn't guarded by lock", node.path())));
+        final Lock mode = write ? lock.writeLock() : lock.readLock();
+        final boolean result;
+        if (wait) {
+            mode.lock();
+            result = true;
+        } else {
+            result = mode.tryLock();
+        }
+        if (result) {
+            acquired.push(mode);
+            held.put(path, write);
+            nodes.put(path, node);
+        }
+        return result;
+    }
+
+    /**
+     * plan of locking which collects paths with their lock modes before acquisition
+     */
+    static final class Plan {
+        /**
+         * true for write lock and false for read lock
+         */
+        private final SortedMap<Path, Boolean> modes = new TreeMap<>();
+        /**
+         * the last path added with it's ancestors or null for empty plan
+         */
+        @Nullable
+        private Path last;
+
+        private Plan() {
+        }
+
+        /**
+         * requests read locks on the node located at path and all it's ancestors
+         *
+         * @param path to node
+         * @return this
+         */
+        @Nonnull
+        Plan read(@Nonnull Path path) {
+            return add(requireNonNull(path), false);
+        }
+
+        /**
+         * requests write lock on the node located at path and read locks on all it's ancestors
+         *
+         * @param path to node
+         * @return this
+         */
+        @Nonnull
+        Plan write(@Nonnull Path path) {
+            return add(requireNonNull(path), true);
+        }
+
+        /**
+         * requests all locks of another plan
+         *
+         * @param other plan
+         * @return this
+         */
+        @Nonnull
+        Plan add(@Nonnull Plan other) {
+            requireNonNull(other).modes.forEach((path, write) -> modes.merge(path, write, Boolean::logicalOr));
+            return this;
+        }
+
+        @Nonnull
+        private Plan add(@Nonnull Path path, boolean write) {
+            // ancestors shared with the last path are already planned, so only the rest of them is added
+            for (int i = last == null ? 0 : path.commonPrefix(last).size(); i < path.size(); i++) {
+                modes.putIfAbsent(path.prefix(i), false);
+            }
+            last = path;
+            modes.merge(path, write, Boolean::logicalOr);
+            return this;
+        }
+
+        /**
+         * acquires planned locks on existing nodes. Non existing nodes are skipped because operation on them
+         * should fail anyway
+         *
+         * @param root of file system
+         * @return acquired locks which should be closed after operation
+         */
+        @Nonnull
+        PathLocks lock(@Nonnull FSNode root) {
+            requireNonNull(root);
+            final PathLocks result = new PathLocks();
+            try {
+                modes.forEach((path, write) -> resolve(root, path, result.nodes).ifPresent(node -> result.acquire(path, node, write, true)));
+            } catch (RuntimeException | Error e) {
+                result.close();
+                throw e;
+            }
+            return result;
+        }
+
+        @Nonnull
+        private static Optional<FSNode> resolve(@Nonnull FSNode root,
+                                                @Nonnull Path path,
+                                                @Nonnull Map<Path, FSNode> resolved) {
+            // parent is already locked because it precedes it's children in order of paths
+            return path.size() == 0
+                    ? Optional.of(root)
+                    : Optional
+                    .ofNullable(resolved.get(path.prefix(path.size() - 1)))
+                    .flatMap(
+                            parent -> parent
+                                    .findUnder(path, path.size() - 1, path.size())
+                                    .both(__ -> Optional.empty(), Optional::of));
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+import static java.util.Objects.requireNonNull;
+
+import data.ByteArray;
+import fs.FileType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * immutable node of persistent file system tree used by {@link SnapshotFSImpl}
+ * * nodes know neither their names nor parents, so unchanged subtrees are shared between versions of tree
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+abstract class PersistentNode {
+    private PersistentNode() {
+    }
+
+    @Nonnull
+    abstract FileType type();
+
+    abstract long size();
+
+    @Nonnull
+    static PersistentNode create(@Nonnull FileType fileType) {
+        final PersistentNode result;
+        switch (requireNonNull(fileType)) {
+            case DIRECTORY:
+                result = Directory.EMPTY;
+                break;
+            case REGULAR:
+                result = File.EMPTY;
+                break;
+            default:
+                throw new UnsupportedOperationException(fileType + " is not supported");
+        }
+        return result;
+    }
+
+    static final class Directory extends PersistentNode {
+        static final Directory EMPTY = new Directory(PersistentSortedMap.empty(), 0);
+
+        @Nonnull
+        private final PersistentSortedMap<String, PersistentNode> children;
+        /**
+         * total size of children
+         */
+        private final long size;
+
+        private Directory(@Nonnull PersistentSortedMap<String, PersistentNode> children, long size) {
+            this.children = children;
+            this.size = size;
+        }
+
+        @Nonnull
+        @Override
+        FileType type() {
+            return DIRECTORY;
+        }
+
+        @Override
+        long size() {
+            return size;
+        }
+
+        @Nonnull
+        Optional<PersistentNode> child(@Nonnull String name) {
+            return children.get(requireNonNull(name));
+        }
+
+        /**
+         * @return new version of this directory where child is linked under name
+         */
+        @Nonnull
+        Directory with(@Nonnull String name, @Nonnull PersistentNode child) {
+            requireNonNull(child);
+            final long replacedSize = child(requireNonNull(name)).map(PersistentNode::size).orElse(0L);
+            return new Directory(children.put(name, child), size - replacedSize + child.size());
+        }
+
+        /**
+         * @return new version of this directory without child with given name
+         */
+        @Nonnull
+        Directory without(@Nonnull String name) {
+            return child(requireNonNull(name))
+                    .map(child -> new Directory(children.remove(name), size - child.size()))
+                    .orElse(this);
+        }
+
+        /**
+         * passes all children with their names to consumer in ascending order of names
+         */
+        void forEach(@Nonnull BiConsumer<? super String, ? super PersistentNode> consumer) {
+            children.forEach(requireNonNull(consumer));
+        }
+
+        /**
+         * passes at most limit children whose names follow after to consumer in ascending order of names
+         *
+         * @param after name after which children are passed or null to pass them from the first one
+         */
+        void forEach(@Nullable String after, int limit, @Nonnull BiConsumer<? super String, ? super PersistentNode> consumer) {
+            children.forEach(after, limit, requireNonNull(consumer));
+        }
+
+        /**
+         * passes children whose names are in range [from, to) to consumer in ascending order of names
+         *
+         * @param from the least passed name or null to pass children from the first one
+         * @param to   name which follows all passed ones or null to pass children up to the last one
+         */
+        void forEach(@Nullable String from, @Nullable String to, @Nonnull BiConsumer<? super String, ? super PersistentNode> consumer) {
+            children.forEach(from, to, requireNonNull(consumer));
+        }
+    }
+
+    static final class File extends PersistentNode {
+        static final File EMPTY = new File(PersistentSortedMap.empty(), 0);
+
+        /**
+         * non empty chunks of content keyed by their positions in file, so chunks overlapping any range are found in
+         * * O(log(number of chunks)) expected time. Chunks are immutable and shared between versions of file
+         */
+        @Nonnull
+        private final PersistentSortedMap<Long, ByteArray> chunks;
+        private final long size;
+
+        private File(@Nonnull PersistentSortedMap<Long, ByteArray> chunks, long size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        @Nonnull
+        @Override
+        FileType type() {
+            return REGULAR;
+        }
+
+        @Override
+        long size() {
+            return size;
+        }
+
+        /**
+         * @return new version of this file with content appended
+         */
+        @Nonnull
+        File append(@Nonnull byte[] content) {
+            return append(new ByteArray(requireNonNull(content)));
+        }
+
+        /**
+         * @return new version of this file with immutable content appended without copying
+         */
+        @Nonnull
+        File append(@Nonnull ByteArray content) {
+            return requireNonNull(content).length() == 0 ? this : new File(chunks.put(size, content), size + content.length());
+        }
+
+        /**
+         * @return new version of this file with part of content starting from offset rewritten
+         * * gap between the end of file and offset is filled with zeros
+         * * only chunks overlapping rewritten part are replaced, their untouched parts are shared as slices
+         */
+        @Nonnull
+        File write(long offset, @Nonnull byte[] content) {
+            requireNonNull(content);
+            final File result;
+            if (offset >= size || content.length == 0) {
+                result = (offset > size ? append(ByteArray.zeros((int) (offset - size))) : this).append(content);
+            } else {
+                final long end = offset + content.length;
+                final List<Long> overlapped = new ArrayList<>();
+                chunks.forEach(chunks.floorKey(offset).orElse(0L), end, (position, chunk) -> overlapped.add(position));
+                PersistentSortedMap<Long, ByteArray> updated = chunks;
+                for (Long position : overlapped) {
+                    updated = updated.remove(position);
+                }
+                final long first = overlapped.get(0);
+                if (first < offset) {
+                    updated = updated.put(first, chunk(first).slice(0, (int) (offset - first)));
+                }
+                updated = updated.put(offset, new ByteArray(content));
+                final long last = overlapped.get(overlapped.size() - 1);
+                final ByteArray lastChunk = chunk(last);
+                if (end < last + lastChunk.length()) {
+                    updated = updated.put(end, lastChunk.slice((int) (end - last), (int) (last + lastChunk.length() - end)));
+                }
+                result = new File(updated, Math.max(size, end));
+            }
+            return result;
+        }
+
+        @Nonnull
+        private ByteArray chunk(long position) {
+            return chunks.get(position).orElseThrow(() -> new IllegalStateException("No chunk at " + position));
+        }
+
+        /**
+         * chunks overlapping range are found by seek, so it takes O(log(number of chunks) + number of read chunks)
+         *
+         * @return part of content which is cut at the end of file
+         */
+        @Nonnull
+        ByteArray content(long offset, int length) {
+            final long from = Math.min(offset, size);
+            final long to = Math.min(from + length, size);
+            final List<ByteArray> parts = new ArrayList<>();
+            if (from < to) {
+                chunks.forEach(
+                        chunks.floorKey(from).orElse(0L),
+                        to,
+                        (position, chunk) -> {
+                            final long sliceFrom = Math.max(from, position);
+                            parts.add(chunk.slice((int) (sliceFrom - position), (int) (Math.min(to, position + chunk.length()) - sliceFrom)));
+                        });
+            }
+            return ByteArray.concat(parts);
+        }
+
+        @Nonnull
+        ByteArray content() {
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException(String.format("File of size %d can't be read into byte array", size));
+            }
+            final List<ByteArray> parts = new ArrayList<>();
+            chunks.forEach((position, chunk) -> parts.add(chunk));
+            return ByteArray.concat(parts);
+        }
+    }
+}
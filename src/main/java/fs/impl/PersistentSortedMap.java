@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * immutable map from keys to values sorted by keys
+ * <p>
+ * representation:
+ * *    treap with priorities derived from hashes of keys, so shape of tree doesn't depend on order of updates
+ * *    each update copies path from root to updated node in O(log n) expected time and shares the rest of tree
+ * *    with previous version
+ * <p>
+ * safety from exposure:
+ * *    all fields are private and final, nodes are never mutated after construction
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+final class PersistentSortedMap<K extends Comparable<? super K>, V> {
+    private static final PersistentSortedMap<?, ?> EMPTY = new PersistentSortedMap<>(null);
+
+    @Nullable
+    private final Node<K, V> root;
+
+    private PersistentSortedMap(@Nullable Node<K, V> root) {
+        this.root = root;
+    }
+
+    @Nonnull
+    static <K extends Comparable<? super K>, V> PersistentSortedMap<K, V> empty() {
+        @SuppressWarnings("unchecked")
+        final PersistentSortedMap<K, V> result = (PersistentSortedMap<K, V>) EMPTY;
+        return result;
+    }
+
+    @Nonnull
+    Optional<V> get(@Nonnull K key) {
+        requireNonNull(key);
+        Node<K, V> node = root;
+        while (node != null) {
+            final int cmp = key.compareTo(node.key);
+            if (cmp == 0) {
+                return Optional.of(node.value);
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return the greatest key which is less than or equal to given one if there is such key
+     */
+    @Nonnull
+    Optional<K> floorKey(@Nonnull K key) {
+        requireNonNull(key);
+        K result = null;
+        Node<K, V> node = root;
+        while (node != null) {
+            final int cmp = key.compareTo(node.key);
+            if (cmp == 0) {
+                return Optional.of(node.key);
+            } else if (cmp < 0) {
+                node = node.left;
+            } else {
+                result = node.key;
+                node = node.right;
+            }
+        }
+        return Optional.ofNullable(result);
+    }
+
+    /**
+     * @return new version of map where key is mapped to value
+     */
+    @Nonnull
+    PersistentSortedMap<K, V> put(@Nonnull K key, @Nonnull V value) {
+        return new PersistentSortedMap<>(put(root, requireNonNull(key), requireNonNull(value), priority(key)));
+    }
+
+    /**
+     * @return new version of map without key
+     */
+    @Nonnull
+    PersistentSortedMap<K, V> remove(@Nonnull K key) {
+        return new PersistentSortedMap<>(remove(root, requireNonNull(key)));
+    }
+
+    /**
+     * passes all entries to consumer in ascending order of keys
+     */
+    void forEach(@Nonnull BiConsumer<? super K, ? super V> consumer) {
+        forEach(root, requireNonNull(consumer));
+    }
+
+    /**
+     * passes at most limit entries whose keys follow after to consumer in ascending order of keys. Subtrees which
+     * * don't follow after are skipped, so it takes O(log n + limit) expected time
+     *
+     * @param after key after which entries are passed or null to pass them from the first one
+     */
+    void forEach(@Nullable K after, int limit, @Nonnull BiConsumer<? super K, ? super V> consumer) {
+        forEach(root, after, limit, requireNonNull(consumer));
+    }
+
+    /**
+     * passes entries whose keys are in range [from, to) to consumer in ascending order of keys. Subtrees out of range
+     * * are skipped, so it takes O(log n + number of passed entries) expected time
+     *
+     * @param from the least passed key or null to pass entries from the first one
+     * @param to   key which follows all passed ones or null to pass entries up to the last one
+     */
+    void forEach(@Nullable K from, @Nullable K to, @Nonnull BiConsumer<? super K, ? super V> consumer) {
+        forEach(root, from, to, requireNonNull(consumer));
+    }
+
+    private static int priority(@Nonnull Object key) {
+        // murmur3 finalizer spreads similar keys over all priorities
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    @Nonnull
+    private static <K extends Comparable<? super K>, V> Node<K, V> put(@Nullable Node<K, V> node, @Nonnull K key, @Nonnull V value, int priority) {
+        final Node<K, V> result;
+        if (node == null) {
+            result = new Node<>(key, value, priority, null, null);
+        } else {
+            final int cmp = key.compareTo(node.key);
+            if (cmp == 0) {
+                result = new Node<>(key, value, node.priority, node.left, node.right);
+            } else if (cmp < 0) {
+                final Node<K, V> left = put(node.left, key, value, priority);
+                result = left.priority > node.priority
+                        ? new Node<>(left.key, left.value, left.priority, left.left, node.withLeft(left.right))
+                        : node.withLeft(left);
+            } else {
+                final Node<K, V> right = put(node.right, key, value, priority);
+                result = right.priority > node.priority
+                        ? new Node<>(right.key, right.value, right.priority, node.withRight(right.left), right.right)
+                        : node.withRight(right);
+            }
+        }
+        return result;
+    }
+
+    @Nullable
+    private static <K extends Comparable<? super K>, V> Node<K, V> remove(@Nullable Node<K, V> node, @Nonnull K key) {
+        final Node<K, V> result;
+        if (node == null) {
+            result = null;
+        } else {
+            final int cmp = key.compareTo(node.key);
+            if (cmp == 0) {
+                result = merge(node.left, node.right);
+            } else if (cmp < 0) {
+                result = node.withLeft(remove(node.left, key));
+            } else {
+                result = node.withRight(remove(node.right, key));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * merges two treaps where all keys of left are less than keys of right
+     */
+    @Nullable
+    private static <K extends Comparable<? super K>, V> Node<K, V> merge(@Nullable Node<K, V> left, @Nullable Node<K, V> right) {
+        final Node<K, V> result;
+        if (left == null) {
+            result = right;
+        } else if (right == null) {
+            result = left;
+        } else if (left.priority > right.priority) {
+            result = left.withRight(merge(left.right, right));
+        } else {
+            result = right.withLeft(merge(left, right.left));
+        }
+        return result;
+    }
+
+    private static <K extends Comparable<? super K>, V> void forEach(@Nullable Node<K, V> node, @Nonnull BiConsumer<? super K, ? super V> consumer) {
+        if (node != null) {
+            forEach(node.left, consumer);
+            consumer.accept(node.key, node.value);
+            forEach(node.right, consumer);
+        }
+    }
+
+    /**
+     * @return number of passed entries
+     */
+    private static <K extends Comparable<? super K>, V> int forEach(@Nullable Node<K, V> node,
+                                                                    @Nullable K after,
+                                                                    int limit,
+                                                                    @Nonnull BiConsumer<? super K, ? super V> consumer) {
+        int result = 0;
+        if (node != null && limit > 0) {
+            if (after == null || node.key.compareTo(after) > 0) {
+                result = forEach(node.left, after, limit, consumer);
+                if (result < limit) {
+                    consumer.accept(node.key, node.value);
+                    result++;
+                    // all keys of right subtree follow the key of node
+                    result += forEach(node.right, null, limit - result, consumer);
+                }
+            } else {
+                result = forEach(node.right, after, limit, consumer);
+            }
+        }
+        return result;
+    }
+
+    private static <K extends Comparable<? super K>, V> void forEach(@Nullable Node<K, V> node,
+                                                                     @Nullable K from,
+                                                                     @Nullable K to,
+                                                                     @Nonnull BiConsumer<? super K, ? super V> consumer) {
+        if (node != null) {
+            final boolean afterFrom = from == null || node.key.compareTo(from) >= 0;
+            final boolean beforeTo = to == null || node.key.compareTo(to) < 0;
+            // bound satisfied by key of node is satisfied by the whole subtree on the inner side of it
+            if (afterFrom) {
+                forEach(node.left, from, beforeTo ? null : to, consumer);
+            }
+            if (afterFrom && beforeTo) {
+                consumer.accept(node.key, node.value);
+            }
+            if (beforeTo) {
+                forEach(node.right, afterFrom ? null : from, to, consumer);
+            }
+        }
+    }
+
+    private static final class Node<K, V> {
+        @Nonnull
+        private final K key;
+        @Nonnull
+        private final V value;
+        private final int priority;
+        @Nullable
+        private final Node<K, V> left;
+        @Nullable
+        private final Node<K, V> right;
+
+        private Node(@Nonnull K key, @Nonnull V value, int priority, @Nullable Node<K, V> left, @Nullable Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Nonnull
+        private Node<K, V> withLeft(@Nullable Node<K, V> left) {
+            return new Node<>(key, value, priority, left, right);
+        }
+
+        @Nonnull
+        private Node<K, V> withRight(@Nullable Node<K, V> right) {
+            return new Node<>(key, value, priority, left, right);
+        }
+    }
+}
@@ -5,20 +5,31 @@ package fs.impl;
 
 import static fs.FSError.Type.FILE_IS_REGULAR;
 import static fs.FileType.DIRECTORY;
-import static java.util.Arrays.asList;
+import static fs.FileType.REGULAR;
 import static java.util.Objects.requireNonNull;
 
 import check.CheckHelper;
 import data.ByteArray;
 import data.either.Either;
 import data.Unit;
+import fs.Batch;
+import fs.ContentChannels;
+import fs.DirectoryListing;
 import fs.FS;
 import fs.FSError;
 import fs.FileInfo;
 import fs.FileType;
+import fs.LookupCacheStats;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
@@ -27,13 +38,61 @@ import java.util.function.Supplier;
 final class SimpleFSImpl implements FS {
     private final long size;
 
-    private final FSNode root = FSNode.createRoot();
+    private final FSNode root;
+
+    private final LookupCache cache;
+
+    /**
+     * log of transaction which this file system is view of or null for file system itself
+     */
+    @Nullable
+    private final UndoLog undo;
 
     SimpleFSImpl(long size) {
+        this(size, FSConfig.DEFAULT_LOOKUP_CACHE_CAPACITY);
+    }
+
+    /**
+     * @param size                of file system in bytes
+     * @param lookupCacheCapacity maximal number of paths whose nodes are cached. Zero disables caching
+     */
+    SimpleFSImpl(long size, int lookupCacheCapacity) {
+        this(size, lookupCacheCapacity, false, false);
+    }
+
+    /**
+     * @param size                of file system in bytes
+     * @param lookupCacheCapacity maximal number of paths whose nodes are cached. Zero disables caching
+     * @param deduplication       true if identical blocks of files should be stored once
+     * @param offHeap             true if content of files should be held outside of heap
+     */
+    SimpleFSImpl(long size, int lookupCacheCapacity, boolean deduplication, boolean offHeap) {
+        this(size, FSNode.createRoot(false, deduplication, offHeap), lookupCacheCapacity);
+    }
+
+    /**
+     * @param size                of file system in bytes
+     * @param root                of file system's tree. It's shared with decorators (see {@link ConcurrentFSImpl})
+     * @param lookupCacheCapacity maximal number of paths whose nodes are cached. Zero disables caching
+     *                            * it should be zero if file system is accessed by multiple threads because reads
+     *                            * update order of eviction
+     */
+    SimpleFSImpl(long size, @Nonnull FSNode root, int lookupCacheCapacity) {
+        this(size, root, new LookupCache(lookupCacheCapacity), null);
+    }
+
+    /**
+     * @param cache shared with views of transactions, so they don't leave stale paths in it
+     * @param undo  log of transaction which records mutations or null if they shouldn't be undone
+     */
+    private SimpleFSImpl(long size, @Nonnull FSNode root, @Nonnull LookupCache cache, @Nullable UndoLog undo) {
         if (size < 0) {
             throw new IllegalStateException("Can't create file system with negative size");
         }
         this.size = size;
+        this.root = requireNonNull(root);
+        this.cache = requireNonNull(cache);
+        this.undo = undo;
         checkInvariants();
     }
 
@@ -51,40 +110,120 @@ final class SimpleFSImpl implements FS {
         return checkedGet(
                 () -> {
                     requireNonNull(fileType);
-                    final List<String> splitPath = splitPath(requireNonNull(path));
-                    return findParentNode(splitPath).rFlatMap(parent -> parent.createUnder(splitPath.get(splitPath.size() - 1), fileType));
+                    final Path parsedPath = Path.parse(requireNonNull(path));
+                    return undoable(
+                            () -> () -> remove(parsedPath, null),
+                            () -> findParentNode(parsedPath).rFlatMap(parent -> parent.createUnder(parsedPath.last(), fileType)));
                 });
     }
 
     @Nonnull
-    private Either<FSError, FSNode> findParentNode(@Nonnull List<String> splitPath) {
-        return checkedGet(() -> root.findUnder(requireNonNull(splitPath).subList(0, splitPath.size() - 1)));
+    private Either<FSError, FSNode> findParentNode(@Nonnull Path path) {
+        return find(requireNonNull(path).prefix(path.size() - 1));
     }
 
+    /**
+     * @return either node located at path or an error. Found nodes are cached
+     */
     @Nonnull
-    private static List<String> splitPath(@Nonnull String path) {
-        if (!requireNonNull(path).startsWith("/")) {
-            throw new IllegalArgumentException(String.format("Path %s is malformed (not starting from '/')", path));
-        }
-        return asList(path.replaceAll("/+", "/").replaceAll("^/", "").split("/"));
+    private Either<FSError, FSNode> find(@Nonnull Path path) {
+        return checkedGet(
+                () -> {
+                    final FSNode cached = cache.get(requireNonNull(path));
+                    final Either<FSError, FSNode> result;
+                    if (cached != null) {
+                        result = Either.right(cached);
+                    } else {
+                        result = root.findUnder(path);
+                        result.onRight(node -> cache.put(path, node));
+                    }
+                    return result;
+                });
     }
 
     @Nonnull
     @Override
     public Either<FSError, FileInfo> info(@Nonnull String path) {
-        return checkedGet(() -> root.findUnder(splitPath(requireNonNull(path))).rMap(FSNode::info));
+        return checkedGet(
+                () -> {
+                    final Path parsedPath = Path.parse(requireNonNull(path));
+                    // node is found by path, so it's full name is built from names of path instead of ancestors
+                    return find(parsedPath).rMap(node -> node.info(parsedPath.toString()));
+                });
     }
 
     @Nonnull
     @Override
     public Either<FSError, ByteArray> read(@Nonnull String path) {
-        return checkedGet(() -> root.findUnder(splitPath(requireNonNull(path))).rFlatMap(FSNode::content));
+        return checkedGet(() -> find(Path.parse(requireNonNull(path))).rFlatMap(FSNode::content));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, ByteArray> read(@Nonnull String path, long offset, int length) {
+        return checkedGet(
+                () -> {
+                    if (offset < 0 || length < 0) {
+                        throw new IllegalArgumentException(String.format("Range [%d, %d + %d) is invalid", offset, offset, length));
+                    }
+                    return find(Path.parse(requireNonNull(path))).rFlatMap(node -> node.content(offset, length));
+                });
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Integer> read(@Nonnull String path, long offset, @Nonnull ByteBuffer... dst) {
+        return checkedGet(
+                () -> {
+                    requireNonNull(dst);
+                    if (offset < 0) {
+                        throw new IllegalArgumentException(String.format("Offset %d is negative", offset));
+                    }
+                    return find(Path.parse(requireNonNull(path))).rFlatMap(node -> node.read(offset, dst));
+                });
     }
 
     @Nonnull
     @Override
     public Either<FSError, List<FileInfo>> ls(@Nonnull String path) {
-        return checkedGet(() -> root.findUnder(splitPath(requireNonNull(path))).rFlatMap(FSNode::ls));
+        return checkedGet(
+                () -> {
+                    final Path parsedPath = Path.parse(requireNonNull(path)).orRoot();
+                    return find(parsedPath).rFlatMap(node -> node.ls(parsedPath.toString()));
+                });
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, List<FileInfo>> ls(@Nonnull String path, @Nullable String cursor, int limit) {
+        return checkedGet(
+                () -> {
+                    final Path parsedPath = Path.parse(requireNonNull(path)).orRoot();
+                    final String after = after(cursor, limit);
+                    return find(parsedPath).rFlatMap(node -> node.ls(parsedPath.toString(), after, limit));
+                });
+    }
+
+    /**
+     * @param cursor full name of the last entry of previous page or null for the first page
+     * @return name after which page starts or null for the first page
+     * @throws IllegalArgumentException if limit isn't positive
+     */
+    @Nullable
+    static String after(@Nullable String cursor, int limit) {
+        DirectoryListing.checkLimit(limit);
+        return cursor == null ? null : Path.parse(cursor).last();
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, List<FileInfo>> lsRange(@Nonnull String path, @Nullable String from, @Nullable String to) {
+        return checkedGet(
+                () -> {
+                    final Path parsedPath = Path.parse(requireNonNull(path)).orRoot();
+                    DirectoryListing.checkRange(from, to);
+                    return find(parsedPath).rFlatMap(node -> node.ls(parsedPath.toString(), from, to));
+                });
     }
 
     @Nonnull
@@ -92,49 +231,44 @@ final class SimpleFSImpl implements FS {
     public Either<FSError, Unit> copy(@Nonnull String sourcePath, @Nonnull String destinationPath) {
         return checkedGet(
                 () -> {
-                    final List<String> sourceSplitPath = splitPath(requireNonNull(sourcePath));
-                    final List<String> destinationSplitPath = splitPath(requireNonNull(destinationPath));
-                    return isDestinationSubtree(sourceSplitPath, destinationSplitPath)
+                    final Path sourceParsedPath = Path.parse(requireNonNull(sourcePath));
+                    final Path destinationParsedPath = Path.parse(requireNonNull(destinationPath));
+                    return sourceParsedPath.isAncestorOf(destinationParsedPath)
                             ? Either.left(
-                            new FSError(FSError.Type.DESTINATION_IS_SOURCE_SUBTREE, String.format("%s is subtree of %s", destinationPath, sourcePath)))
+                            new FSError(FSError.Type.DESTINATION_IS_SOURCE_SUBTREE, () -> String.format("%s is subtree of %s", destinationPath, sourcePath)))
                             : (
-                            root
-                                    .findUnder(sourceSplitPath)
+                            find(sourceParsedPath)
                                     .rFlatMap(
                                             src -> src.size() <= free()
-                                                    ? doCopy(src, destinationPath, destinationSplitPath)
-                                                    : Either.left(new FSError(FSError.Type.NO_FREE_SPACE, "There is no free space"))));
+                                                    ? doCopy(src, destinationPath, destinationParsedPath)
+                                                    : Either.left(FSError.of(FSError.Type.NO_FREE_SPACE))));
                 });
     }
 
-    private static boolean isDestinationSubtree(List<String> sourceSplitPath, List<String> destinationSplitPath) {
-        return destinationSplitPath.size() > sourceSplitPath.size() &&
-                destinationSplitPath.subList(0, sourceSplitPath.size()).equals(sourceSplitPath);
-    }
-
-    private Either<FSError, Unit> doCopy(@Nonnull FSNode src, @Nonnull String destinationPath, List<String> destinationSplitPath) {
+    private Either<FSError, Unit> doCopy(@Nonnull FSNode src, @Nonnull String destinationPath, Path destinationParsedPath) {
         return checkedGet(
                 () -> {
                     requireNonNull(src);
-                    return root
-                            .findUnder(requireNonNull(destinationSplitPath))
+                    return find(requireNonNull(destinationParsedPath))
                             .flatMap(
-                                    __ -> findParentNode(destinationSplitPath)
+                                    __ -> findParentNode(destinationParsedPath)
                                             .rFlatMap(
                                                     parent -> {
                                                         final Either<FSError, Unit> result;
                                                         if (parent.type() != DIRECTORY) {
+                                                            final Path parentPath = destinationParsedPath.prefix(destinationParsedPath.size() - 1);
                                                             result = Either.left(new FSError(
-                                                                    FILE_IS_REGULAR, String.format("Shouldn't copy under regular file %s", parent.path())));
+                                                                    FILE_IS_REGULAR, () -> String.format("Shouldn't copy under regular file %s", parentPath)));
                                                         } else {
-                                                            src.copyTo(destinationSplitPath.get(destinationSplitPath.size() - 1), parent);
+                                                            src.copyTo(destinationParsedPath.last(), parent);
+                                                            record(() -> remove(destinationParsedPath, null));
                                                             result = Either.right(Unit.unit());
                                                         }
                                                         return result;
                                                     }),
                                     dst -> src == dst
                                             ? Either.right(Unit.unit())
-                                            : Either.left(new FSError(FSError.Type.FILE_ALREADY_EXISTS, String.format("File %s already exists", destinationPath))));
+                                            : Either.left(new FSError(FSError.Type.FILE_ALREADY_EXISTS, () -> String.format("File %s already exists", destinationPath))));
                 });
     }
 
@@ -144,12 +278,43 @@ final class SimpleFSImpl implements FS {
         return checkedGet(
                 () -> {
                     requireNonNull(content);
-                    return root
-                            .findUnder(splitPath(requireNonNull(path)))
+                    return find(Path.parse(requireNonNull(path)))
                             .rFlatMap(
                                     node -> content.length <= free() + node.size()
-                                            ? node.write(content)
-                                            : Either.left(new FSError(FSError.Type.NO_FREE_SPACE, "There is no free space")));
+                                            ? undoable(() -> UndoLog.restoringContent(node), () -> node.write(content))
+                                            : Either.left(FSError.of(FSError.Type.NO_FREE_SPACE)));
+                });
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> write(@Nonnull String path, @Nonnull ByteBuffer... content) {
+        return checkedGet(
+                () -> {
+                    final long length = ContentChannels.remaining(content);
+                    return find(Path.parse(requireNonNull(path)))
+                            .rFlatMap(
+                                    node -> length <= free() + node.size()
+                                            ? undoable(() -> UndoLog.restoringContent(node), () -> node.write(content))
+                                            : Either.left(FSError.of(FSError.Type.NO_FREE_SPACE)));
+                });
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> write(@Nonnull String path, long offset, @Nonnull byte[] content) {
+        return checkedGet(
+                () -> {
+                    requireNonNull(content);
+                    if (offset < 0 || offset + content.length > Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException(String.format("Range [%d, %d + %d) is invalid", offset, offset, content.length));
+                    }
+                    // only growth of file should fit into free space
+                    return find(Path.parse(requireNonNull(path)))
+                            .rFlatMap(
+                                    node -> offset + content.length - node.size() <= free()
+                                            ? undoable(() -> UndoLog.restoringRange(node, offset, content.length), () -> node.write(offset, content))
+                                            : Either.left(FSError.of(FSError.Type.NO_FREE_SPACE)));
                 });
     }
 
@@ -160,25 +325,192 @@ final class SimpleFSImpl implements FS {
                 () -> {
                     requireNonNull(path);
                     requireNonNull(content);
-                    return root
-                            .findUnder(splitPath(path))
+                    return find(Path.parse(path))
                             .rFlatMap(
                                     node -> content.length <= free()
-                                            ? node.append(content)
-                                            : Either.left(new FSError(FSError.Type.NO_FREE_SPACE, "There is no free space")));
+                                            ? undoable(() -> UndoLog.truncating(node), () -> node.append(content))
+                                            : Either.left(FSError.of(FSError.Type.NO_FREE_SPACE)));
                 });
     }
 
     @Nonnull
     @Override
-    public Either<FSError, Unit> delete(@Nonnull String path) {
+    public Either<FSError, Unit> append(@Nonnull String path, @Nonnull ByteBuffer... content) {
+        return checkedGet(
+                () -> {
+                    requireNonNull(path);
+                    final long length = ContentChannels.remaining(content);
+                    return find(Path.parse(path))
+                            .rFlatMap(
+                                    node -> length <= free()
+                                            ? undoable(() -> UndoLog.truncating(node), () -> node.append(content))
+                                            : Either.left(FSError.of(FSError.Type.NO_FREE_SPACE)));
+                });
+    }
+
+    /**
+     * channel holds the file found at path and fails as soon as another node is located there
+     */
+    @Nonnull
+    @Override
+    public Either<FSError, ReadableByteChannel> openRead(@Nonnull String path) {
         return checkedGet(
                 () -> {
-                    final List<String> splitPath = splitPath(requireNonNull(path));
-                    return findParentNode(splitPath).rFlatMap(parent -> parent.deleteUnder(splitPath.get(splitPath.size() - 1)));
+                    final Path parsedPath = Path.parse(requireNonNull(path));
+                    return file(parsedPath).rMap(file -> ContentChannels.reading((position, dst) -> read(parsedPath, file, position, dst)));
                 });
     }
 
+    /**
+     * channel holds the file found at path and fails as soon as another node is located there
+     */
+    @Nonnull
+    @Override
+    public Either<FSError, WritableByteChannel> openAppend(@Nonnull String path) {
+        return checkedGet(
+                () -> {
+                    final Path parsedPath = Path.parse(requireNonNull(path));
+                    return file(parsedPath).rMap(file -> ContentChannels.appending(chunk -> append(parsedPath, file, chunk)));
+                });
+    }
+
+    /**
+     * @return either regular file located at path or an error
+     */
+    @Nonnull
+    Either<FSError, FSNode> file(@Nonnull Path parsedPath) {
+        return find(parsedPath).rFlatMap(
+                node -> node.type() == REGULAR
+                        ? Either.right(node)
+                        : Either.left(new FSError(FSError.Type.FILE_IS_DIRECTORY, () -> String.format("Shouldn't open directory %s", parsedPath))));
+    }
+
+    /**
+     * @return either file if it's still located at path or {@link FSError.Type#PATH_NOT_FOUND} error
+     */
+    @Nonnull
+    Either<FSError, FSNode> held(@Nonnull Path parsedPath, @Nonnull FSNode file) {
+        return find(parsedPath).rFlatMap(
+                node -> node == file
+                        ? Either.right(node)
+                        : Either.left(new FSError(FSError.Type.PATH_NOT_FOUND, () -> String.format("File %s is replaced", parsedPath))));
+    }
+
+    /**
+     * reads chunk of file found by {@link #file(Path)} if it's still located at path
+     */
+    @Nonnull
+    Either<FSError, Integer> read(@Nonnull Path parsedPath, @Nonnull FSNode file, long offset, @Nonnull ByteBuffer dst) {
+        return checkedGet(() -> held(parsedPath, file).rFlatMap(node -> node.read(offset, new ByteBuffer[]{dst})));
+    }
+
+    /**
+     * appends chunk to file found by {@link #file(Path)} if it's still located at path
+     */
+    @Nonnull
+    Either<FSError, Unit> append(@Nonnull Path parsedPath, @Nonnull FSNode file, @Nonnull ByteBuffer chunk) {
+        return checkedGet(
+                () -> held(parsedPath, file).rFlatMap(
+                        node -> chunk.remaining() <= free()
+                                ? undoable(() -> UndoLog.truncating(node), () -> node.append(new ByteBuffer[]{chunk}))
+                                : Either.left(FSError.of(FSError.Type.NO_FREE_SPACE))));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, Unit> delete(@Nonnull String path) {
+        return checkedGet(() -> remove(Path.parse(requireNonNull(path)), undo));
+    }
+
+    /**
+     * unlinks node located at path from it's parent
+     *
+     * @param log which node is passed to, so it's released on commit, or null if it should be released at once
+     */
+    @Nonnull
+    private Either<FSError, Unit> remove(@Nonnull Path parsedPath, @Nullable UndoLog log) {
+        final String name = parsedPath.last();
+        final Either<FSError, Unit> result = findParentNode(parsedPath).rFlatMap(
+                parent -> parent.findUnder(parsedPath, parsedPath.size() - 1, parsedPath.size()).rFlatMap(
+                        node -> {
+                            final Either<FSError, Unit> deleted = parent.deleteUnder(name);
+                            deleted.onRight(
+                                    __ -> {
+                                        if (log == null) {
+                                            node.release();
+                                        } else {
+                                            log.detached(node);
+                                            log.record(() -> node.moveTo(name, parent));
+                                        }
+                                    });
+                            return deleted;
+                        }));
+        result.onRight(__ -> cache.invalidate(parsedPath));
+        return result;
+    }
+
+    /**
+     * mutations made through view are recorded in {@link UndoLog} and undone if body fails. Transaction of view is
+     * * merged into enclosing one
+     */
+    @Nonnull
+    @Override
+    public <T> Either<FSError, T> transaction(@Nonnull Function<? super FS, Either<FSError, T>> body) {
+        requireNonNull(body);
+        final UndoLog log = new UndoLog(undo);
+        return checkedGet(() -> log.run(() -> body.apply(transactional(log))));
+    }
+
+    /**
+     * @return view of this file system which records undo actions of it's mutations in log
+     */
+    @Nonnull
+    SimpleFSImpl transactional(@Nonnull UndoLog log) {
+        return new SimpleFSImpl(size, root, cache, requireNonNull(log));
+    }
+
+    /**
+     * applies mutation and records action which undoes it if this is view of transaction and mutation succeeds
+     *
+     * @param undoAction supplies action before mutation, so it can capture state to restore
+     */
+    @Nonnull
+    private Either<FSError, Unit> undoable(@Nonnull Supplier<Runnable> undoAction, @Nonnull Supplier<Either<FSError, Unit>> mutation) {
+        final Either<FSError, Unit> result;
+        if (undo == null) {
+            result = mutation.get();
+        } else {
+            final Runnable action = undoAction.get();
+            result = mutation.get();
+            result.onRight(__ -> undo.record(action));
+        }
+        return result;
+    }
+
+    private void record(@Nonnull Runnable action) {
+        if (undo != null) {
+            undo.record(action);
+        }
+    }
+
+    /**
+     * free space is checked once for the whole batch if it fits
+     */
+    @Nonnull
+    @Override
+    public List<Either<FSError, Unit>> apply(@Nonnull Batch batch) {
+        return checkedGet(() -> batchRun(batch, free()).run());
+    }
+
+    /**
+     * @param budget maximal growth of file system by batch
+     * @return run of batch which finds nodes through lookup cache
+     */
+    @Nonnull
+    BatchRun batchRun(@Nonnull Batch batch, long budget) {
+        return new BatchRun(requireNonNull(batch), budget, this::find, cache::invalidate, undo);
+    }
+
     @Override
     public long size() {
         return checkedGet(() -> size);
@@ -189,38 +521,85 @@ final class SimpleFSImpl implements FS {
         return checkedGet(root::size);
     }
 
+    @Override
+    public long physicalUsed() {
+        return checkedGet(() -> root.deduplicator().map(Deduplicator::physicalSize).orElseGet(this::used));
+    }
+
+    /**
+     * tree is written as is because single threaded file system isn't mutated until export is done
+     */
+    @Override
+    public void snapshot(@Nonnull WritableByteChannel out) throws IOException {
+        SnapshotImage.write(root, requireNonNull(out));
+        checkInvariants();
+    }
+
+    @Nonnull
+    @Override
+    public Optional<LookupCacheStats> lookupCacheStats() {
+        return checkedGet(() -> Optional.of(cache.stats()));
+    }
+
+    /**
+     * both paths are resolved by single traversal: their common part once through {@link #find(Path)} and the rest
+     * * of each of them under it. Moved subtree is relinked in O(1) and it's size is propagated only up to common
+     * * ancestor of parents
+     */
     @Nonnull
     @Override
     public Either<FSError, Unit> move(@Nonnull String sourcePath, @Nonnull String destinationPath) {
         return checkedGet(() -> {
-            final List<String> sourceSplitPath = splitPath(requireNonNull(sourcePath));
-            final List<String> destinationSplitPath = splitPath(requireNonNull(destinationPath));
-            return isDestinationSubtree(sourceSplitPath, destinationSplitPath)
-                    ? Either.left(new FSError(FSError.Type.DESTINATION_IS_SOURCE_SUBTREE, String.format("%s is subtree of %s", destinationPath, sourcePath)))
-                    : root.findUnder(sourceSplitPath).rFlatMap((src) -> doMove(src, destinationPath, destinationSplitPath));
+            final Path sourceParsedPath = Path.parse(requireNonNull(sourcePath));
+            final Path destinationParsedPath = Path.parse(requireNonNull(destinationPath));
+            final Either<FSError, Unit> result;
+            if (sourceParsedPath.isAncestorOf(destinationParsedPath)) {
+                result = Either.left(new FSError(FSError.Type.DESTINATION_IS_SOURCE_SUBTREE, () -> String.format("%s is subtree of %s", destinationPath, sourcePath)));
+            } else {
+                final Path common = sourceParsedPath.prefix(sourceParsedPath.size() - 1).commonPrefix(destinationParsedPath.prefix(destinationParsedPath.size() - 1));
+                result = find(common).rFlatMap(
+                        ancestor -> ancestor.findUnder(sourceParsedPath, common.size(), sourceParsedPath.size()).rFlatMap(
+                                src -> ancestor.findUnder(destinationParsedPath, common.size(), destinationParsedPath.size() - 1).rFlatMap(
+                                        parent -> doMove(src, parent, ancestor, destinationPath, destinationParsedPath))));
+            }
+            // moved subtree isn't located under source path anymore
+            result.onRight(__ -> cache.invalidate(sourceParsedPath));
+            return result;
         });
     }
 
-    private Either<FSError, Unit> doMove(FSNode src, String destinationPath, List<String> destinationSplitPath) {
-        return checkedGet(
-                () -> root
-                        .findUnder(destinationSplitPath)
-                        .flatMap(
-                                __ -> findParentNode(destinationSplitPath)
-                                        .rFlatMap(
-                                                parent -> {
-                                                    final Either<FSError, Unit> result;
-                                                    if (parent.type() != DIRECTORY) {
-                                                        result = Either.left(new FSError(
-                                                                FILE_IS_REGULAR, String.format("Shouldn't move under regular file %s", parent.path())));
-                                                    } else {
-                                                        src.moveTo(destinationSplitPath.get(destinationSplitPath.size() - 1), parent);
-                                                        result = Either.right(Unit.unit());
-                                                    }
-                                                    return result;
-                                                }),
-                                dst -> src == dst
-                                        ? Either.right(Unit.unit())
-                                        : Either.left(new FSError(FSError.Type.FILE_ALREADY_EXISTS, String.format("File %s already exists", destinationPath)))));
-    }
-}
\ No newline at end of file
+    /**
+     * @param ancestor common ancestor of old and new parents of source
+     */
+    private Either<FSError, Unit> doMove(FSNode src, FSNode parent, FSNode ancestor, String destinationPath, Path destinationParsedPath) {
+        return checkedGet(
+                () -> {
+                    final Either<FSError, Unit> result;
+                    if (parent.type() != DIRECTORY) {
+                        final Path parentPath = destinationParsedPath.prefix(destinationParsedPath.size() - 1);
+                        result = Either.left(new FSError(FILE_IS_REGULAR, () -> String.format("Shouldn't move under regular file %s", parentPath)));
+                    } else {
+                        final int last = destinationParsedPath.size() - 1;
+                        result = parent.findUnder(destinationParsedPath, last, last + 1).flatMap(
+                                __ -> {
+                                    final FSNode oldParent = requireNonNull(src.getParent().orElse(null));
+                                    final String oldName = src.name();
+                                    src.moveTo(destinationParsedPath.last(), parent, ancestor);
+                                    record(
+                                            () -> {
+                                                src.moveTo(oldName, oldParent, ancestor);
+                                                cache.invalidate(destinationParsedPath);
+                                            });
+                                    return Either.right(Unit.unit());
+                                },
+                                dst -> src == dst ? Either.right(Unit.unit()) : alreadyExists(destinationPath));
+                    }
+                    return result;
+                });
+    }
+
+    @Nonnull
+    private static Either<FSError, Unit> alreadyExists(@Nonnull String path) {
+        return Either.left(new FSError(FSError.Type.FILE_ALREADY_EXISTS, () -> String.format("File %s already exists", path)));
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * allocator of fixed size pages of direct memory shared by all files of file system
+ * <p>
+ * representation:
+ * *    pages are carved from slabs of {@link #SLAB_SIZE} bytes allocated by {@link ByteBuffer#allocateDirect(int)}
+ * *    or mapped from consecutive regions of {@link #channel}, and identified by int ids, so heap holds one buffer
+ * *    per slab instead of one object per page and id of page is it's position in file divided by {@link #PAGE_SIZE}
+ * *    freed pages are pushed to {@link #free} and reused before new slab is allocated. Slabs are never returned to
+ * *    operating system because direct buffers can't be freed explicitly
+ * *    pages of mapped slabs freed since the last {@link #checkpoint()} are kept in {@link #retired} because the
+ * *    last saved tree may still refer them. Reusing them would make files of that tree show content of other files
+ * *    after crash
+ * <p>
+ * thread safety:
+ * *    allocation and freeing are synchronized because files under different locks of concurrent file system
+ * *    share allocator
+ * *    each access to page goes through it's own view because positions of shared slab can't be used concurrently
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+final class SlabAllocator {
+    static final int PAGE_SIZE = 4096;
+    static final int SLAB_SIZE = 16 * 1024 * 1024;
+    private static final int PAGES_PER_SLAB = SLAB_SIZE / PAGE_SIZE;
+
+    /**
+     * volatile because views are taken without synchronization. Array is replaced when it grows
+     */
+    private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+    /**
+     * number of pages carved from slabs
+     */
+    private int carved = 0;
+    private int[] free = new int[0];
+    private int freeCount = 0;
+    /**
+     * pages of mapped slabs freed since the last {@link #checkpoint()}
+     */
+    private int[] retired = new int[0];
+    private int retiredCount = 0;
+    /**
+     * file backing slabs or null if they are allocated in memory
+     */
+    @Nullable
+    private final FileChannel channel;
+
+    SlabAllocator() {
+        this.channel = null;
+    }
+
+    /**
+     * creates allocator which maps all slabs of channel. Content of pages is loaded by operating system on demand
+     * * all pages are in use until {@link #restore(BitSet)} is called
+     *
+     * @param channel opened for reading and writing
+     */
+    SlabAllocator(@Nonnull FileChannel channel) throws IOException {
+        this.channel = channel;
+        final ByteBuffer[] slabs = new ByteBuffer[(int) (channel.size() / SLAB_SIZE)];
+        for (int i = 0; i < slabs.length; i++) {
+            slabs[i] = map(i);
+        }
+        this.slabs = slabs;
+        this.carved = slabs.length * PAGES_PER_SLAB;
+    }
+
+    /**
+     * frees pages of mapped slabs which aren't used
+     *
+     * @param used ids of pages referenced by content
+     */
+    synchronized void restore(@Nonnull BitSet used) {
+        if (used.length() > carved) {
+            throw new IllegalArgumentException(String.format("Page %d is out of %d mapped pages", used.length() - 1, carved));
+        }
+        for (int page = carved - 1; page >= 0; page--) {
+            if (!used.get(page)) {
+                free = push(free, freeCount++, page);
+            }
+        }
+    }
+
+    /**
+     * writes changed pages of mapped slabs to file
+     */
+    void force() {
+        for (ByteBuffer slab : slabs) {
+            if (slab instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) slab).force();
+            }
+        }
+    }
+
+    /**
+     * @return id of page with undefined content
+     */
+    synchronized int allocate() {
+        final int result;
+        if (freeCount > 0) {
+            result = free[--freeCount];
+        } else {
+            if (carved == slabs.length * PAGES_PER_SLAB) {
+                final ByteBuffer[] grown = Arrays.copyOf(slabs, slabs.length + 1);
+                grown[slabs.length] = channel == null ? ByteBuffer.allocateDirect(SLAB_SIZE) : map(slabs.length);
+                slabs = grown;
+            }
+            result = carved++;
+        }
+        return result;
+    }
+
+    /**
+     * returns page to allocator. It shouldn't be accessed after that
+     * * page of mapped slab is reused only after {@link #checkpoint()}
+     */
+    synchronized void free(int page) {
+        assert 0 <= page && page < carved;
+        if (channel == null) {
+            free = push(free, freeCount++, page);
+        } else {
+            retired = push(retired, retiredCount++, page);
+        }
+    }
+
+    /**
+     * makes pages freed before saving of tree reusable. It should be called after saved tree replaces the previous
+     * * one, so no saved tree refers them
+     */
+    synchronized void checkpoint() {
+        for (int i = 0; i < retiredCount; i++) {
+            free = push(free, freeCount++, retired[i]);
+        }
+        retiredCount = 0;
+    }
+
+    /**
+     * @return stack with page at index. It's grown if it's full
+     */
+    @Nonnull
+    private static int[] push(@Nonnull int[] stack, int index, int page) {
+        final int[] result = index == stack.length ? Arrays.copyOf(stack, Math.max(16, 2 * index)) : stack;
+        result[index] = page;
+        return result;
+    }
+
+    /**
+     * @return view of page with position zero and limit {@link #PAGE_SIZE}
+     */
+    ByteBuffer view(int page) {
+        final ByteBuffer result = slabs[page / PAGES_PER_SLAB].duplicate();
+        final int offset = page % PAGES_PER_SLAB * PAGE_SIZE;
+        result.limit(offset + PAGE_SIZE);
+        result.position(offset);
+        return result.slice();
+    }
+
+    @Nonnull
+    private ByteBuffer map(int slab) {
+        try {
+            // mapping beyond the end of file grows it
+            return requireNonNull(channel).map(FileChannel.MapMode.READ_WRITE, (long) slab * SLAB_SIZE, SLAB_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return size in bytes of pages in use. Pages waiting for {@link #checkpoint()} are in use because they can't be
+     * * reused yet
+     */
+    synchronized long allocatedBytes() {
+        return (long) (carved - freeCount) * PAGE_SIZE;
+    }
+}
@@ -0,0 +1,693 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static fs.FSError.Type.ABORTED;
+import static fs.FSError.Type.DESTINATION_IS_SOURCE_SUBTREE;
+import static fs.FSError.Type.FILE_ALREADY_EXISTS;
+import static fs.FSError.Type.FILE_IS_DIRECTORY;
+import static fs.FSError.Type.FILE_IS_REGULAR;
+import static fs.FSError.Type.NO_FREE_SPACE;
+import static fs.FSError.Type.PATH_NOT_FOUND;
+import static java.util.Objects.requireNonNull;
+
+import check.CheckHelper;
+import data.ByteArray;
+import data.Unit;
+import data.either.Either;
+import fs.Batch;
+import fs.ContentChannels;
+import fs.DirectoryListing;
+import fs.FS;
+import fs.FSError;
+import fs.FileInfo;
+import fs.FileType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * thread safe {@link FS} implementation with lock free read path based on persistent tree of {@link PersistentNode}s
+ * <p>
+ * concurrency:
+ * *    each version of tree is immutable and published through volatile {@link #root}
+ * *    {@link #info(String)}, {@link #read(String)} and {@link #ls(String)} never take locks and see point in time
+ * *    view of version which was published when they started
+ * *    mutations are serialized by monitor of this. They build new version by copying path from root to mutated node
+ * *    and publish it at once, so move is atomic and free space check sees consistent version
+ * *    transaction builds version in shadow file system and publishes it at once, so it's isolated from readers
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+final class SnapshotFSImpl implements FS {
+    private final long size;
+
+    @Nonnull
+    private volatile PersistentNode.Directory root = PersistentNode.Directory.EMPTY;
+
+    SnapshotFSImpl(long size) {
+        this(size, PersistentNode.Directory.EMPTY);
+    }
+
+    /**
+     * @param size of file system in bytes
+     * @param root of initial version of tree
+     */
+    SnapshotFSImpl(long size, @Nonnull PersistentNode.Directory root) {
+        if (size < 0) {
+            throw new IllegalStateException("Can't create file system with negative size");
+        }
+        this.size = size;
+        this.root = requireNonNull(root);
+        checkInvariants();
+    }
+
+    private void checkInvariants() {
+        assert root.size() <= size;
+    }
+
+    private <T> T checkedGet(Supplier<? extends T> payload) {
+        return CheckHelper.checkedGet(payload, this::checkInvariants);
+    }
+
+    @Nonnull
+    @Override
+    public synchronized Either<FSError, Unit> create(@Nonnull String path, @Nonnull FileType fileType) {
+        requireNonNull(fileType);
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(() -> publish(create(root, parsedPath, fileType)));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, FileInfo> info(@Nonnull String path) {
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(() -> find(root, parsedPath).rMap(node -> new FileInfo(parsedPath.toString(), node.type(), node.size())));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, ByteArray> read(@Nonnull String path) {
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(
+                () -> find(root, parsedPath).rFlatMap(
+                        node -> node instanceof PersistentNode.File
+                                ? Either.right(((PersistentNode.File) node).content())
+                                : Either.left(new FSError(FILE_IS_DIRECTORY, () -> String.format("Shouldn't read from directory %s", parsedPath)))));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, ByteArray> read(@Nonnull String path, long offset, int length) {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException(String.format("Range [%d, %d + %d) is invalid", offset, offset, length));
+        }
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(
+                () -> find(root, parsedPath).rFlatMap(
+                        node -> node instanceof PersistentNode.File
+                                ? Either.right(((PersistentNode.File) node).content(offset, length))
+                                : Either.left(new FSError(FILE_IS_DIRECTORY, () -> String.format("Shouldn't read from directory %s", parsedPath)))));
+    }
+
+    /**
+     * part of immutable content is sliced without copying and copied to buffers once
+     */
+    @Nonnull
+    @Override
+    public Either<FSError, Integer> read(@Nonnull String path, long offset, @Nonnull ByteBuffer... dst) {
+        if (offset < 0) {
+            throw new IllegalArgumentException(String.format("Offset %d is negative", offset));
+        }
+        final int length = (int) Math.min(ContentChannels.remaining(dst), Integer.MAX_VALUE);
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(
+                () -> find(root, parsedPath).rFlatMap(
+                        node -> {
+                            final Either<FSError, Integer> result;
+                            if (node instanceof PersistentNode.File) {
+                                final ByteArray content = ((PersistentNode.File) node).content(offset, length);
+                                int read = 0;
+                                for (ByteBuffer buffer : dst) {
+                                    read += content.get(read, buffer);
+                                }
+                                result = Either.right(read);
+                            } else {
+                                result = Either.left(new FSError(FILE_IS_DIRECTORY, () -> String.format("Shouldn't read from directory %s", parsedPath)));
+                            }
+                            return result;
+                        }));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, List<FileInfo>> ls(@Nonnull String path) {
+        final Path parsedPath = Path.parse(requireNonNull(path)).orRoot();
+        final String fullName = parsedPath.toString();
+        return checkedGet(
+                () -> find(root, parsedPath).rFlatMap(
+                        node -> {
+                            final Either<FSError, List<FileInfo>> result;
+                            if (node instanceof PersistentNode.Directory) {
+                                final List<FileInfo> infos = new ArrayList<>();
+                                ((PersistentNode.Directory) node).forEach(
+                                        (name, child) -> infos.add(new FileInfo(fullName + '/' + name, child.type(), child.size())));
+                                result = Either.right(infos);
+                            } else {
+                                result = Either.left(new FSError(FILE_IS_REGULAR, () -> String.format("Shouldn't list regular file %s", fullName)));
+                            }
+                            return result;
+                        }));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, List<FileInfo>> ls(@Nonnull String path, @Nullable String cursor, int limit) {
+        final Path parsedPath = Path.parse(requireNonNull(path)).orRoot();
+        final String fullName = parsedPath.toString();
+        final String after = SimpleFSImpl.after(cursor, limit);
+        return checkedGet(
+                () -> find(root, parsedPath).rFlatMap(
+                        node -> {
+                            final Either<FSError, List<FileInfo>> result;
+                            if (node instanceof PersistentNode.Directory) {
+                                final List<FileInfo> infos = new ArrayList<>();
+                                ((PersistentNode.Directory) node).forEach(
+                                        after, limit, (name, child) -> infos.add(new FileInfo(fullName + '/' + name, child.type(), child.size())));
+                                result = Either.right(infos);
+                            } else {
+                                result = Either.left(new FSError(FILE_IS_REGULAR, () -> String.format("Shouldn't list regular file %s", fullName)));
+                            }
+                            return result;
+                        }));
+    }
+
+    @Nonnull
+    @Override
+    public Either<FSError, List<FileInfo>> lsRange(@Nonnull String path, @Nullable String from, @Nullable String to) {
+        final Path parsedPath = Path.parse(requireNonNull(path)).orRoot();
+        final String fullName = parsedPath.toString();
+        DirectoryListing.checkRange(from, to);
+        return checkedGet(
+                () -> find(root, parsedPath).rFlatMap(
+                        node -> {
+                            final Either<FSError, List<FileInfo>> result;
+                            if (node instanceof PersistentNode.Directory) {
+                                final List<FileInfo> infos = new ArrayList<>();
+                                ((PersistentNode.Directory) node).forEach(
+                                        from, to, (name, child) -> infos.add(new FileInfo(fullName + '/' + name, child.type(), child.size())));
+                                result = Either.right(infos);
+                            } else {
+                                result = Either.left(new FSError(FILE_IS_REGULAR, () -> String.format("Shouldn't list regular file %s", fullName)));
+                            }
+                            return result;
+                        }));
+    }
+
+    @Nonnull
+    @Override
+    public synchronized Either<FSError, Unit> copy(@Nonnull String sourcePath, @Nonnull String destinationPath) {
+        final Path sourceParsedPath = Path.parse(requireNonNull(sourcePath));
+        final Path destinationParsedPath = Path.parse(requireNonNull(destinationPath));
+        return checkedGet(
+                () -> sourceParsedPath.isAncestorOf(destinationParsedPath)
+                        ? Either.left(new FSError(DESTINATION_IS_SOURCE_SUBTREE, () -> String.format("%s is subtree of %s", destinationPath, sourcePath)))
+                        : find(root, sourceParsedPath).rFlatMap(
+                        // copy shares immutable subtree of source with it's destination
+                        src -> src.size() <= free()
+                                ? publish(relink(root, src, sourceParsedPath, destinationParsedPath))
+                                : Either.left(FSError.of(NO_FREE_SPACE))));
+    }
+
+    @Nonnull
+    @Override
+    public synchronized Either<FSError, Unit> write(@Nonnull String path, @Nonnull byte[] content) {
+        requireNonNull(content);
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(
+                () -> updateFile(
+                        "write to",
+                        parsedPath,
+                        file -> content.length <= free() + file.size(),
+                        file -> PersistentNode.File.EMPTY.append(content)));
+    }
+
+    @Nonnull
+    @Override
+    public synchronized Either<FSError, Unit> write(@Nonnull String path, @Nonnull ByteBuffer... content) {
+        final long length = ContentChannels.remaining(content);
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(
+                () -> updateFile(
+                        "write to",
+                        parsedPath,
+                        file -> length <= free() + file.size(),
+                        file -> PersistentNode.File.EMPTY.append(gather(content))));
+    }
+
+    @Nonnull
+    @Override
+    public synchronized Either<FSError, Unit> write(@Nonnull String path, long offset, @Nonnull byte[] content) {
+        requireNonNull(content);
+        if (offset < 0 || offset + content.length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Range [%d, %d + %d) is invalid", offset, offset, content.length));
+        }
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(
+                () -> updateFile(
+                        "write to",
+                        parsedPath,
+                        // only growth of file should fit into free space
+                        file -> offset + content.length - file.size() <= free(),
+                        file -> file.write(offset, content)));
+    }
+
+    @Nonnull
+    @Override
+    public synchronized Either<FSError, Unit> append(@Nonnull String path, @Nonnull byte[] content) {
+        requireNonNull(content);
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(() -> updateFile("append to", parsedPath, file -> content.length <= free(), file -> file.append(content)));
+    }
+
+    @Nonnull
+    @Override
+    public synchronized Either<FSError, Unit> append(@Nonnull String path, @Nonnull ByteBuffer... content) {
+        final long length = ContentChannels.remaining(content);
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(() -> updateFile("append to", parsedPath, file -> length <= free(), file -> file.append(gather(content))));
+    }
+
+    /**
+     * channel holds the version of file found at path and reads it without locks. Any mutation publishes new version
+     * * of file, so channel fails as soon as file is changed, moved or replaced by anybody else
+     */
+    @Nonnull
+    @Override
+    public Either<FSError, ReadableByteChannel> openRead(@Nonnull String path) {
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(
+                () -> file(root, parsedPath).rMap(
+                        file -> ContentChannels.reading(
+                                (position, dst) -> checkedGet(
+                                        () -> held(root, parsedPath, file).rMap(held -> held.content(position, dst.remaining()).get(0, dst))))));
+    }
+
+    /**
+     * channel holds the version of file which it has appended the last chunk to, so it fails as soon as file is
+     * * changed, moved or replaced by anybody else
+     */
+    @Nonnull
+    @Override
+    public Either<FSError, WritableByteChannel> openAppend(@Nonnull String path) {
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(() -> file(root, parsedPath).rMap(file -> ContentChannels.appending(new Appender(parsedPath, file))));
+    }
+
+    @Nonnull
+    @Override
+    public synchronized Either<FSError, Unit> delete(@Nonnull String path) {
+        final Path parsedPath = Path.parse(requireNonNull(path));
+        return checkedGet(() -> publish(delete(root, parsedPath)));
+    }
+
+    /**
+     * builds single new version from operations of batch, so it's published once and readers see either none or all
+     * of successful operations. Free space is checked once if the whole batch fits into it
+     */
+    @Nonnull
+    @Override
+    public synchronized List<Either<FSError, Unit>> apply(@Nonnull Batch batch) {
+        final Path[] paths = BatchRun.parse(requireNonNull(batch));
+        return checkedGet(
+                () -> {
+                    final List<Batch.Operation> operations = batch.operations();
+                    final List<Either<FSError, Unit>> result = new ArrayList<>(operations.size());
+                    final boolean checked = batch.growth() > free();
+                    PersistentNode.Directory version = root;
+                    boolean failed = false;
+                    for (int i = 0; i < paths.length && !failed; i++) {
+                        final Either<FSError, PersistentNode.Directory> applied = apply(version, operations.get(i), paths[i], checked);
+                        version = applied.getRight(version);
+                        result.add(applied.rMap(__ -> Unit.unit()));
+                        failed = batch.isAtomic() && applied.isLeft();
+                    }
+                    if (failed) {
+                        final Either<FSError, Unit> aborted = Either.left(FSError.of(ABORTED));
+                        for (int i = 0; i < paths.length; i++) {
+                            if (i < result.size() - 1) {
+                                result.set(i, aborted);
+                            } else if (i >= result.size()) {
+                                result.add(aborted);
+                            }
+                        }
+                    } else {
+                        root = version;
+                    }
+                    return result;
+                });
+    }
+
+    @Nonnull
+    @Override
+    public synchronized Either<FSError, Unit> move(@Nonnull String sourcePath, @Nonnull String destinationPath) {
+        final Path sourceParsedPath = Path.parse(requireNonNull(sourcePath));
+        final Path destinationParsedPath = Path.parse(requireNonNull(destinationPath));
+        final String sourceName = sourceParsedPath.last();
+        return checkedGet(
+                () -> sourceParsedPath.isAncestorOf(destinationParsedPath)
+                        ? Either.left(new FSError(DESTINATION_IS_SOURCE_SUBTREE, () -> String.format("%s is subtree of %s", destinationPath, sourcePath)))
+                        : find(root, sourceParsedPath).rFlatMap(
+                        src -> publish(
+                                relink(root, src, sourceParsedPath, destinationParsedPath)
+                                        .rFlatMap(
+                                                // new version is published only if both unlinking and linking succeed
+                                                linked -> sourceParsedPath.equals(destinationParsedPath)
+                                                        ? Either.right(linked)
+                                                        : updateParent(linked, sourceParsedPath, parent -> Either.right(parent.without(sourceName)))))));
+    }
+
+    /**
+     * body mutates shadow file system which starts from published version, so readers don't see it's mutations
+     * * version of shadow is published at once if body succeeds and is just dropped otherwise. Readers are never
+     * * blocked while mutations are serialized for the whole transaction
+     */
+    @Nonnull
+    @Override
+    public synchronized <T> Either<FSError, T> transaction(@Nonnull Function<? super FS, Either<FSError, T>> body) {
+        requireNonNull(body);
+        final SnapshotFSImpl shadow = new SnapshotFSImpl(size, root);
+        return checkedGet(
+                () -> {
+                    final Either<FSError, T> result = body.apply(shadow);
+                    result.onRight(__ -> root = shadow.root);
+                    return result;
+                });
+    }
+
+    @Override
+    public long size() {
+        return checkedGet(() -> size);
+    }
+
+    @Override
+    public long used() {
+        return checkedGet(root::size);
+    }
+
+    /**
+     * version published before export is written without locks, so mutations aren't blocked at all
+     */
+    @Override
+    public void snapshot(@Nonnull WritableByteChannel out) throws IOException {
+        SnapshotImage.write(root, requireNonNull(out));
+    }
+
+    /**
+     * publishes new version of tree if it's built successfully
+     *
+     * @param newRoot either root of new version or an error
+     * @return either {@link Unit#unit()} or an error
+     */
+    @Nonnull
+    private Either<FSError, Unit> publish(@Nonnull Either<FSError, PersistentNode.Directory> newRoot) {
+        return newRoot.rMap(
+                published -> {
+                    root = published;
+                    return Unit.unit();
+                });
+    }
+
+    @Nonnull
+    private Either<FSError, Unit> updateFile(@Nonnull String action,
+                                             @Nonnull Path parsedPath,
+                                             @Nonnull Function<PersistentNode, Boolean> hasFreeSpace,
+                                             @Nonnull Function<PersistentNode.File, PersistentNode.File> updater) {
+        return publish(updateFile(root, action, parsedPath, hasFreeSpace, updater));
+    }
+
+    /**
+     * @return either root of new version where file located at split path is replaced by result of updater or an error
+     */
+    @Nonnull
+    private static Either<FSError, PersistentNode.Directory> updateFile(@Nonnull PersistentNode.Directory root,
+                                                                        @Nonnull String action,
+                                                                        @Nonnull Path parsedPath,
+                                                                        @Nonnull Function<PersistentNode, Boolean> hasFreeSpace,
+                                                                        @Nonnull Function<PersistentNode.File, PersistentNode.File> updater) {
+        final String name = parsedPath.last();
+        return find(root, parsedPath).rFlatMap(
+                node -> {
+                    final Either<FSError, PersistentNode.Directory> result;
+                    if (!hasFreeSpace.apply(node)) {
+                        result = Either.left(FSError.of(NO_FREE_SPACE));
+                    } else if (!(node instanceof PersistentNode.File)) {
+                        result = Either.left(new FSError(FILE_IS_DIRECTORY, () -> String.format("Shouldn't %s directory %s", action, parsedPath)));
+                    } else {
+                        final PersistentNode.File updated = updater.apply((PersistentNode.File) node);
+                        result = updateParent(root, parsedPath, parent -> Either.right(parent.with(name, updated)));
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * @return either root of new version with empty file created at split path or an error
+     */
+    @Nonnull
+    private static Either<FSError, PersistentNode.Directory> create(@Nonnull PersistentNode.Directory root,
+                                                                    @Nonnull Path parsedPath,
+                                                                    @Nonnull FileType fileType) {
+        final String name = parsedPath.last();
+        return updateParent(
+                root,
+                parsedPath,
+                parent -> parent.child(name).isPresent()
+                        ? Either.left(new FSError(FILE_ALREADY_EXISTS, () -> String.format("File %s already exists", parsedPath)))
+                        : Either.right(parent.with(name, PersistentNode.create(fileType))));
+    }
+
+    /**
+     * @return either root of new version without node located at split path or an error
+     */
+    @Nonnull
+    private static Either<FSError, PersistentNode.Directory> delete(@Nonnull PersistentNode.Directory root, @Nonnull Path parsedPath) {
+        final String name = parsedPath.last();
+        return updateParent(
+                root,
+                parsedPath,
+                parent -> parent.child(name).isPresent()
+                        ? Either.right(parent.without(name))
+                        : Either.left(new FSError(PATH_NOT_FOUND, () -> String.format("Child %s not found under %s", name, parentOf(parsedPath)))));
+    }
+
+    /**
+     * @param version of tree which operation is applied to
+     * @param checked true if free space should be checked for this operation
+     * @return either root of new version or an error
+     */
+    @Nonnull
+    private Either<FSError, PersistentNode.Directory> apply(@Nonnull PersistentNode.Directory version,
+                                                            @Nonnull Batch.Operation operation,
+                                                            @Nonnull Path parsedPath,
+                                                            boolean checked) {
+        final long free = size - version.size();
+        final Either<FSError, PersistentNode.Directory> result;
+        switch (operation.type) {
+            case CREATE:
+                result = create(version, parsedPath, requireNonNull(operation.fileType));
+                break;
+            case WRITE:
+                result = updateFile(
+                        version,
+                        "write to",
+                        parsedPath,
+                        file -> !checked || operation.length() <= free + file.size(),
+                        file -> PersistentNode.File.EMPTY.append(gather(operation.content())));
+                break;
+            case APPEND:
+                result = updateFile(
+                        version,
+                        "append to",
+                        parsedPath,
+                        file -> !checked || operation.length() <= free,
+                        file -> file.append(gather(operation.content())));
+                break;
+            case DELETE:
+                result = delete(version, parsedPath);
+                break;
+            default:
+                throw new UnsupportedOperationException(operation.type + " is not supported");
+        }
+        return result;
+    }
+
+    /**
+     * @return remaining bytes of buffers copied once into immutable array. Buffers stay intact
+     */
+    @Nonnull
+    private static ByteArray gather(@Nonnull ByteBuffer[] content) {
+        final ByteArray.Builder builder = new ByteArray.Builder((int) ContentChannels.remaining(content));
+        for (ByteBuffer buffer : content) {
+            builder.append(buffer.duplicate());
+        }
+        return builder.build();
+    }
+
+    /**
+     * links source node to destination path in given version of tree. Source isn't unlinked from it's path
+     *
+     * @return either root of new version or an error
+     */
+    @Nonnull
+    private static Either<FSError, PersistentNode.Directory> relink(@Nonnull PersistentNode.Directory root,
+                                                                    @Nonnull PersistentNode src,
+                                                                    @Nonnull Path sourceParsedPath,
+                                                                    @Nonnull Path destinationParsedPath) {
+        final String name = destinationParsedPath.last();
+        return find(root, destinationParsedPath).both(
+                __ -> updateParent(root, destinationParsedPath, parent -> Either.right(parent.with(name, src))),
+                dst -> sourceParsedPath.equals(destinationParsedPath)
+                        ? Either.right(root)
+                        : Either.left(new FSError(FILE_ALREADY_EXISTS, () -> String.format("File %s already exists", destinationParsedPath))));
+    }
+
+    /**
+     * @return either regular file located at split path in the version of tree or an error
+     */
+    @Nonnull
+    private static Either<FSError, PersistentNode.File> file(@Nonnull PersistentNode.Directory root, @Nonnull Path parsedPath) {
+        return find(root, parsedPath).rFlatMap(
+                node -> node instanceof PersistentNode.File
+                        ? Either.right((PersistentNode.File) node)
+                        : Either.left(new FSError(FILE_IS_DIRECTORY, () -> String.format("Shouldn't open directory %s", parsedPath))));
+    }
+
+    /**
+     * @return either version of file if it's still located at split path in the version of tree or
+     * * {@link FSError.Type#PATH_NOT_FOUND} error
+     */
+    @Nonnull
+    private static Either<FSError, PersistentNode.File> held(@Nonnull PersistentNode.Directory root,
+                                                            @Nonnull Path parsedPath,
+                                                            @Nonnull PersistentNode.File file) {
+        return find(root, parsedPath).rFlatMap(
+                node -> node == file
+                        ? Either.right(file)
+                        : Either.left(new FSError(PATH_NOT_FOUND, () -> String.format("File %s is changed or replaced", parsedPath))));
+    }
+
+    /**
+     * @return either node located at split path in the version of tree or an error
+     */
+    @Nonnull
+    private static Either<FSError, PersistentNode> find(@Nonnull PersistentNode.Directory root, @Nonnull Path parsedPath) {
+        return find(root, parsedPath, 0);
+    }
+
+    @Nonnull
+    private static Either<FSError, PersistentNode> find(@Nonnull PersistentNode node, @Nonnull Path parsedPath, int depth) {
+        final Either<FSError, PersistentNode> result;
+        if (depth == parsedPath.size()) {
+            result = Either.right(node);
+        } else if (node instanceof PersistentNode.Directory) {
+            final String name = parsedPath.name(depth);
+            result = ((PersistentNode.Directory) node)
+                    .child(name)
+                    .map(child -> find(child, parsedPath, depth + 1))
+                    .orElseGet(() -> Either.left(new FSError(PATH_NOT_FOUND, () -> String.format("Child %s not found under %s", name, parsedPath.prefix(depth)))));
+        } else {
+            result = Either.left(new FSError(FILE_IS_REGULAR, () -> String.format("Shouldn't find under regular file %s", parsedPath.prefix(depth))));
+        }
+        return result;
+    }
+
+    /**
+     * copies path from root to parent of node located at split path and replaces parent with result of updater
+     *
+     * @return either root of new version or an error
+     */
+    @Nonnull
+    private static Either<FSError, PersistentNode.Directory> updateParent(
+            @Nonnull PersistentNode.Directory root,
+            @Nonnull Path parsedPath,
+            @Nonnull Function<PersistentNode.Directory, Either<FSError, PersistentNode.Directory>> updater) {
+        return updateParent(root, parsedPath, 0, updater);
+    }
+
+    @Nonnull
+    private static Either<FSError, PersistentNode.Directory> updateParent(
+            @Nonnull PersistentNode.Directory directory,
+            @Nonnull Path parsedPath,
+            int depth,
+            @Nonnull Function<PersistentNode.Directory, Either<FSError, PersistentNode.Directory>> updater) {
+        final Either<FSError, PersistentNode.Directory> result;
+        if (depth == parsedPath.size() - 1) {
+            result = updater.apply(directory);
+        } else {
+            final String name = parsedPath.name(depth);
+            result = directory
+                    .child(name)
+                    .map(
+                            child -> child instanceof PersistentNode.Directory
+                                    ? updateParent((PersistentNode.Directory) child, parsedPath, depth + 1, updater)
+                                    .rMap(updated -> directory.with(name, updated))
+                                    : Either.<FSError, PersistentNode.Directory>left(new FSError(
+                                    FILE_IS_REGULAR, () -> String.format("Shouldn't update under regular file %s", parsedPath.prefix(depth + 1)))))
+                    .orElseGet(() -> Either.left(new FSError(PATH_NOT_FOUND, () -> String.format("Child %s not found under %s", name, parsedPath.prefix(depth)))));
+        }
+        return result;
+    }
+
+    @Nonnull
+    private static Path parentOf(@Nonnull Path parsedPath) {
+        return parsedPath.prefix(parsedPath.size() - 1);
+    }
+
+    /**
+     * appends chunks to version of file which is published by it's previous chunk
+     */
+    private final class Appender implements ContentChannels.Sink {
+        @Nonnull
+        private final Path parsedPath;
+        /**
+         * version of file published by the last appended chunk
+         */
+        @Nonnull
+        private PersistentNode.File file;
+
+        private Appender(@Nonnull Path parsedPath, @Nonnull PersistentNode.File file) {
+            this.parsedPath = parsedPath;
+            this.file = file;
+        }
+
+        @Nonnull
+        @Override
+        public Either<FSError, Unit> append(@Nonnull ByteBuffer chunk) {
+            synchronized (SnapshotFSImpl.this) {
+                return checkedGet(
+                        () -> held(root, parsedPath, file).rFlatMap(
+                                held -> {
+                                    final Either<FSError, Unit> result;
+                                    if (chunk.remaining() > free()) {
+                                        result = Either.left(FSError.of(NO_FREE_SPACE));
+                                    } else {
+                                        final PersistentNode.File updated = held.append(gather(new ByteBuffer[]{chunk}));
+                                        result = publish(updateParent(root, parsedPath, parent -> Either.right(parent.with(parsedPath.last(), updated))));
+                                        result.onRight(__ -> file = updated);
+                                    }
+                                    return result;
+                                }));
+            }
+        }
+    }
+}
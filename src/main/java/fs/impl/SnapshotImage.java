@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import data.ByteArray;
+import data.either.Either;
+import fs.FS;
+import fs.FSError;
+import fs.FileInfo;
+import fs.FileType;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * streaming binary snapshot of the whole file system with content of files
+ * <p>
+ * format:
+ * *    header is {@link #MAGIC} and {@link #VERSION}, then children of root follow
+ * *    each child is it's type ({@link #DIRECTORY} or {@link #REGULAR}) and name followed by it's children of
+ * *    directory or size of file and it's content. Children of directory are terminated by {@link #END}
+ * *    nothing is counted ahead, so tree is written and read in single pass
+ * <p>
+ * memory:
+ * *    snapshot is written and read through buffers of {@link #BUFFER_SIZE} bytes
+ * *    large parts of content are written from blocks of files to channel without copying and read into storage of
+ * *    files by chunks of buffer size, so extra memory doesn't depend on size of files
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+final class SnapshotImage {
+    private static final int MAGIC = 0x4653534E;
+    private static final int VERSION = 1;
+    private static final byte DIRECTORY = 0;
+    private static final byte REGULAR = 1;
+    private static final byte END = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private SnapshotImage() {
+    }
+
+    /**
+     * writes snapshot of live tree. Tree shouldn't be mutated until it's done
+     */
+    static void write(@Nonnull FSNode root, @Nonnull WritableByteChannel channel) throws IOException {
+        final Output out = new Output(requireNonNull(channel));
+        out.header();
+        writeChildren(requireNonNull(root), out);
+        out.flush();
+    }
+
+    /**
+     * writes snapshot of immutable tree, so it may be mutated meanwhile
+     */
+    static void write(@Nonnull PersistentNode.Directory root, @Nonnull WritableByteChannel channel) throws IOException {
+        final Output out = new Output(requireNonNull(channel));
+        out.header();
+        writeChildren(requireNonNull(root), out);
+        out.flush();
+    }
+
+    /**
+     * writes snapshot of file system through {@link FS#lsStream(String)} and {@link FS#read(String)}, so any
+     * * implementation can be exported. It isn't point in time: each file is written as it's read, while mutations
+     * * made meanwhile may be partially in snapshot. Files and directories removed before they are reached are skipped
+     */
+    static void write(@Nonnull FS fs, @Nonnull WritableByteChannel channel) throws IOException {
+        final Output out = new Output(requireNonNull(channel));
+        out.header();
+        writeChildren(requireNonNull(fs), "/", out);
+        out.flush();
+    }
+
+    /**
+     * @return immutable copy of tree which shares immutable content of files. Only mutable tails of files
+     * * (see {@link BlockStorage}) are copied, so it takes O(number of nodes + number of blocks)
+     * @throws IllegalArgumentException if content of files is held outside of heap, so it can't be shared
+     */
+    @Nonnull
+    static PersistentNode.Directory freeze(@Nonnull FSNode root) {
+        if (requireNonNull(root).allocator().isPresent()) {
+            throw new IllegalArgumentException("Content held outside of heap can't be frozen");
+        }
+        PersistentNode.Directory result = PersistentNode.Directory.EMPTY;
+        for (FSNode child : root.children()) {
+            result = result.with(
+                    child.name(),
+                    child.storage()
+                            .<PersistentNode>map(
+                                    storage -> storage.size() == 0 ? PersistentNode.File.EMPTY : PersistentNode.File.EMPTY.append(storage.content()))
+                            .orElseGet(() -> freeze(child)));
+        }
+        return result;
+    }
+
+    /**
+     * links nodes of snapshot under empty root
+     *
+     * @param size maximal total size of files
+     * @throws IOException if snapshot is corrupted or it's content doesn't fit into size
+     */
+    static void read(@Nonnull ReadableByteChannel channel, @Nonnull FSNode root, long size) throws IOException {
+        final Input in = new Input(requireNonNull(channel), size);
+        in.header();
+        readChildren(in, requireNonNull(root));
+    }
+
+    /**
+     * @param size maximal total size of files
+     * @return immutable tree of snapshot
+     * @throws IOException if snapshot is corrupted or it's content doesn't fit into size
+     */
+    @Nonnull
+    static PersistentNode.Directory read(@Nonnull ReadableByteChannel channel, long size) throws IOException {
+        final Input in = new Input(requireNonNull(channel), size);
+        in.header();
+        return readChildren(in);
+    }
+
+    private static void writeChildren(@Nonnull FSNode directory, @Nonnull Output out) throws IOException {
+        for (FSNode child : directory.children()) {
+            if (child.storage().isPresent()) {
+                out.data.writeByte(REGULAR);
+                out.data.writeUTF(child.name());
+                out.content(child.storage().get().content());
+            } else {
+                out.data.writeByte(DIRECTORY);
+                out.data.writeUTF(child.name());
+                writeChildren(child, out);
+            }
+        }
+        out.data.writeByte(END);
+    }
+
+    private static void writeChildren(@Nonnull PersistentNode.Directory directory, @Nonnull Output out) throws IOException {
+        try {
+            directory.forEach(
+                    (name, child) -> {
+                        try {
+                            if (child instanceof PersistentNode.File) {
+                                out.data.writeByte(REGULAR);
+                                out.data.writeUTF(name);
+                                out.content(((PersistentNode.File) child).content());
+                            } else {
+                                out.data.writeByte(DIRECTORY);
+                                out.data.writeUTF(name);
+                                writeChildren((PersistentNode.Directory) child, out);
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.data.writeByte(END);
+    }
+
+    private static void writeChildren(@Nonnull FS fs, @Nonnull String path, @Nonnull Output out) throws IOException {
+        final Iterator<FileInfo> children = fs.lsStream(path).elseGetRight(Stream::empty).iterator();
+        try {
+            while (children.hasNext()) {
+                final FileInfo child = children.next();
+                final String name = child.fullName.substring(child.fullName.lastIndexOf('/') + 1);
+                if (child.type == FileType.REGULAR) {
+                    final Either<FSError, ByteArray> content = fs.read(child.fullName);
+                    if (content.isRight()) {
+                        out.data.writeByte(REGULAR);
+                        out.data.writeUTF(name);
+                        out.content(content.getRight(null));
+                    }
+                } else {
+                    out.data.writeByte(DIRECTORY);
+                    out.data.writeUTF(name);
+                    writeChildren(fs, child.fullName, out);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            // listing fails with error of file system if directory is removed meanwhile, so the rest of it is skipped
+            if (!(e.getCause().getCause() instanceof FSError)) {
+                throw e;
+            }
+        }
+        out.data.writeByte(END);
+    }
+
+    /**
+     * children are built detached and linked to parent at once, so sizes are adjusted once per child
+     */
+    private static void readChildren(@Nonnull Input in, @Nonnull FSNode parent) throws IOException {
+        for (byte type = in.data.readByte(); type != END; type = in.data.readByte()) {
+            final String name = in.data.readUTF();
+            final FSNode child;
+            if (type == REGULAR) {
+                final ContentStorage storage = FSNode.createStorage(parent);
+                try {
+                    for (int remaining = in.contentSize(); remaining > 0; ) {
+                        final int chunk = in.chunk(remaining);
+                        storage.append(in.buffer, 0, chunk);
+                        remaining -= chunk;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    storage.clear();
+                    throw e;
+                }
+                child = FSNode.createDetachedFile(name, parent, storage);
+            } else if (type == DIRECTORY) {
+                child = FSNode.createDetachedDir(name, parent);
+                readChildren(in, child);
+            } else {
+                throw new IOException(String.format("Unknown type %d of node %s", type, name));
+            }
+            child.moveTo(name, parent);
+        }
+    }
+
+    @Nonnull
+    private static PersistentNode.Directory readChildren(@Nonnull Input in) throws IOException {
+        PersistentNode.Directory result = PersistentNode.Directory.EMPTY;
+        for (byte type = in.data.readByte(); type != END; type = in.data.readByte()) {
+            final String name = in.data.readUTF();
+            final PersistentNode child;
+            if (type == REGULAR) {
+                PersistentNode.File file = PersistentNode.File.EMPTY;
+                for (int remaining = in.contentSize(); remaining > 0; ) {
+                    final int chunk = in.chunk(remaining);
+                    final ByteArray.Builder builder = new ByteArray.Builder(chunk);
+                    builder.append(in.buffer, 0, chunk);
+                    file = file.append(builder.build());
+                    remaining -= chunk;
+                }
+                child = file;
+            } else if (type == DIRECTORY) {
+                child = readChildren(in);
+            } else {
+                throw new IOException(String.format("Unknown type %d of node %s", type, name));
+            }
+            result = result.with(name, child);
+        }
+        return result;
+    }
+
+    private static final class Output {
+        @Nonnull
+        private final WritableByteChannel channel;
+        @Nonnull
+        private final DataOutputStream data;
+        @Nonnull
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+
+        private Output(@Nonnull WritableByteChannel channel) {
+            this.channel = channel;
+            this.data = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+        }
+
+        private void header() throws IOException {
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+        }
+
+        /**
+         * small parts are coalesced in buffer while large ones are written to channel directly
+         */
+        private void content(@Nonnull ByteArray content) throws IOException {
+            data.writeInt(content.length());
+            for (ByteBuffer part : content.asReadOnlyBuffers()) {
+                if (part.remaining() >= BUFFER_SIZE) {
+                    data.flush();
+                    while (part.hasRemaining()) {
+                        channel.write(part);
+                    }
+                } else {
+                    final int length = part.remaining();
+                    part.get(buffer, 0, length);
+                    data.write(buffer, 0, length);
+                }
+            }
+        }
+
+        private void flush() throws IOException {
+            data.flush();
+        }
+    }
+
+    private static final class Input {
+        @Nonnull
+        private final DataInputStream data;
+        @Nonnull
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        /**
+         * bytes of content which still fit into file system
+         */
+        private long free;
+
+        private Input(@Nonnull ReadableByteChannel channel, long size) {
+            this.data = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+            this.free = size;
+        }
+
+        private void header() throws IOException {
+            if (data.readInt() != MAGIC) {
+                throw new IOException("Snapshot is corrupted");
+            }
+            final int version = data.readInt();
+            if (version != VERSION) {
+                throw new IOException(String.format("Version %d of snapshot isn't supported", version));
+            }
+        }
+
+        /**
+         * @return size of content of file which is reserved in file system
+         */
+        private int contentSize() throws IOException {
+            final int result = data.readInt();
+            if (result < 0) {
+                throw new IOException(String.format("Size %d of file is negative", result));
+            }
+            if (result > free) {
+                throw new IOException("Content of snapshot doesn't fit into file system");
+            }
+            free -= result;
+            return result;
+        }
+
+        /**
+         * reads the next chunk of content into buffer
+         *
+         * @return size of chunk
+         */
+        private int chunk(int remaining) throws IOException {
+            final int result = Math.min(remaining, BUFFER_SIZE);
+            data.readFully(buffer, 0, result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static fs.impl.SlabAllocator.PAGE_SIZE;
+import static java.util.Objects.requireNonNull;
+
+import javax.annotation.Nonnull;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * binary image of directory tree whose files are held in pages of {@link SlabAllocator}
+ * <p>
+ * format:
+ * *    header is {@link #MAGIC} and {@link #VERSION}, then children of root follow
+ * *    children of directory are their number followed by children in any order
+ * *    each child is it's type ({@link #DIRECTORY} or {@link #REGULAR}) and name followed by children of directory or
+ * *    size of file and ids of pages holding it's content
+ * *    content itself isn't stored in image, so image of tree is O(number of nodes + number of pages)
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+final class TreeImage {
+    private static final int MAGIC = 0x46535452;
+    private static final int VERSION = 1;
+    private static final byte DIRECTORY = 0;
+    private static final byte REGULAR = 1;
+
+    private TreeImage() {
+    }
+
+    static void write(@Nonnull FSNode root, @Nonnull DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeChildren(requireNonNull(root).children(), out);
+    }
+
+    /**
+     * links nodes of image under empty root and frees pages of allocator which aren't used by them
+     */
+    static void read(@Nonnull DataInput in, @Nonnull FSNode root, @Nonnull SlabAllocator allocator) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Image of tree is corrupted");
+        }
+        final int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException(String.format("Version %d of image isn't supported", version));
+        }
+        final BitSet used = new BitSet();
+        readChildren(in, requireNonNull(root), requireNonNull(allocator), used);
+        allocator.restore(used);
+    }
+
+    private static void writeChildren(@Nonnull Collection<FSNode> children, @Nonnull DataOutput out) throws IOException {
+        out.writeInt(children.size());
+        for (FSNode child : children) {
+            out.writeByte(child.storage().isPresent() ? REGULAR : DIRECTORY);
+            out.writeUTF(child.name());
+            if (child.storage().isPresent()) {
+                final ContentStorage storage = child.storage().get();
+                if (!(storage instanceof OffHeapStorage)) {
+                    throw new IllegalStateException(String.format("Content of %s isn't held in pages", child.path()));
+                }
+                out.writeInt(storage.size());
+                for (int page : ((OffHeapStorage) storage).pages()) {
+                    out.writeInt(page);
+                }
+            } else {
+                writeChildren(child.children(), out);
+            }
+        }
+    }
+
+    /**
+     * children are built detached and linked to parent at once, so sizes are adjusted once per child
+     */
+    private static void readChildren(
+            @Nonnull DataInput in,
+            @Nonnull FSNode parent,
+            @Nonnull SlabAllocator allocator,
+            @Nonnull BitSet used) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            final byte type = in.readByte();
+            final String name = in.readUTF();
+            final FSNode child;
+            if (type == REGULAR) {
+                final int size = in.readInt();
+                final int[] pages = new int[(int) ((size + (long) PAGE_SIZE - 1) / PAGE_SIZE)];
+                for (int j = 0; j < pages.length; j++) {
+                    pages[j] = in.readInt();
+                    if (used.get(pages[j])) {
+                        throw new IOException(String.format("Page %d is used twice", pages[j]));
+                    }
+                    used.set(pages[j]);
+                }
+                child = FSNode.createDetachedFile(name, parent, new OffHeapStorage(allocator, pages, size));
+            } else if (type == DIRECTORY) {
+                child = FSNode.createDetachedDir(name, parent);
+                readChildren(in, child, allocator, used);
+            } else {
+                throw new IOException(String.format("Unknown type %d of node %s", type, name));
+            }
+            child.moveTo(name, parent);
+        }
+    }
+}
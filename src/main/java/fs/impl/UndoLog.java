@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2016 Andrey Antipov. All Rights Reserved.
+ */
+package fs.impl;
+
+import static java.util.Objects.requireNonNull;
+
+import data.ByteArray;
+import data.either.Either;
+import fs.FSError;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * log of actions which undo mutations of {@link FSNode}s made by transaction or atomic batch
+ * <p>
+ * * actions are run in reverse order, so each one sees the same state as it's mutation left
+ * * deleted nodes aren't released until commit, so they can be linked back by rollback
+ * * log of nested transaction is merged into parent one on commit, so parent's rollback undoes it too
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+final class UndoLog {
+    @Nullable
+    private final UndoLog parent;
+    @Nonnull
+    private final Deque<Runnable> actions = new ArrayDeque<>();
+    @Nonnull
+    private final List<FSNode> detached = new ArrayList<>();
+
+    UndoLog() {
+        this(null);
+    }
+
+    /**
+     * @param parent log which this one is merged into on commit or null for top level log
+     */
+    UndoLog(@Nullable UndoLog parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * records action which undoes successful mutation
+     */
+    void record(@Nonnull Runnable action) {
+        actions.push(requireNonNull(action));
+    }
+
+    /**
+     * records node which is unlinked from it's parent by successful deletion
+     */
+    void detached(@Nonnull FSNode node) {
+        detached.add(requireNonNull(node));
+    }
+
+    /**
+     * undoes all recorded mutations in reverse order
+     */
+    void rollback() {
+        while (!actions.isEmpty()) {
+            actions.pop().run();
+        }
+        detached.clear();
+    }
+
+    /**
+     * makes recorded mutations permanent or passes them to parent log
+     */
+    void commit() {
+        if (parent != null) {
+            while (!actions.isEmpty()) {
+                parent.actions.push(actions.pollLast());
+            }
+            parent.detached.addAll(detached);
+        } else {
+            actions.clear();
+            detached.forEach(FSNode::release);
+        }
+        detached.clear();
+    }
+
+    /**
+     * runs body and commits it's mutations if it succeeds. Otherwise they are rolled back
+     *
+     * @return result of body
+     */
+    @Nonnull
+    <T> Either<FSError, T> run(@Nonnull Supplier<Either<FSError, T>> body) {
+        final Either<FSError, T> result;
+        try {
+            result = body.get();
+        } catch (RuntimeException | Error e) {
+            rollback();
+            throw e;
+        }
+        if (result.isRight()) {
+            commit();
+        } else {
+            rollback();
+        }
+        return result;
+    }
+
+    /**
+     * @return action which restores current content of regular file. Content is immutable snapshot, so it survives
+     * * rewriting
+     */
+    @Nonnull
+    static Runnable restoringContent(@Nonnull FSNode file) {
+        final ByteArray content = file.content().getRight(null);
+        return content == null ? () -> { } : () -> file.write(content.asReadOnlyBuffers().toArray(new ByteBuffer[0]));
+    }
+
+    /**
+     * @return action which restores current content of part of regular file and it's current size after part is
+     * * rewritten. Only the part is copied, so undoing small write doesn't copy the whole file
+     */
+    @Nonnull
+    static Runnable restoringRange(@Nonnull FSNode file, long offset, int length) {
+        final long size = file.size();
+        final byte[] content = file.content(offset, length).rMap(ByteArray::get).getRight(null);
+        return content == null
+                ? () -> { }
+                : () -> file.write(offset, content).rFlatMap(__ -> file.truncate(size));
+    }
+
+    /**
+     * @return action which cuts regular file to it's current size after appending. Appending doesn't change the old
+     * * part of content, so it's neither read nor rewritten
+     */
+    @Nonnull
+    static Runnable truncating(@Nonnull FSNode file) {
+        final long size = file.size();
+        return () -> file.truncate(size);
+    }
+}
@@ -1,9 +1,17 @@
 package data;
 
+import static java.util.Arrays.asList;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 import org.testng.annotations.Test;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * @author Andrey Antipov (gorttar@gmail.com) (2016-12-24)
  */
@@ -22,4 +30,73 @@ public class ByteArrayTest {
         assertEquals(testObject.get(), new byte[]{1}, "testObject is mutated by destination changes");
     }
 
+    @Test
+    public void testConcatAndSlice() throws Exception {
+        final ByteArray testObject = ByteArray.concat(
+                asList(new ByteArray(new byte[]{1, 2}), new ByteArray(new byte[0]), new ByteArray(new byte[]{3, 4, 5})));
+        assertEquals(testObject.get(), new byte[]{1, 2, 3, 4, 5}, "Failure on concatenation");
+        assertEquals(testObject, new ByteArray(new byte[]{1, 2, 3, 4, 5}), "Failure on comparing segmented array");
+        assertEquals(testObject.hashCode(), new ByteArray(new byte[]{1, 2, 3, 4, 5}).hashCode());
+        assertEquals(testObject.byteAt(3), 4);
+
+        final ByteArray slice = testObject.slice(1, 3);
+        assertEquals(slice.get(), new byte[]{2, 3, 4}, "Failure on slicing");
+        assertEquals(slice.slice(2, 1).get(), new byte[]{4}, "Failure on slicing of slice");
+        assertEquals(ByteArray.concat(asList(slice, slice)).get(), new byte[]{2, 3, 4, 2, 3, 4});
+        assertEquals(testObject.slice(5, 0).length(), 0);
+    }
+
+    @Test
+    public void testSliceOfManySegments() throws Exception {
+        final List<ByteArray> parts = new ArrayList<>();
+        final byte[] expected = new byte[100];
+        for (int i = 0; i < 100; i++) {
+            parts.add(new ByteArray(new byte[]{(byte) i}));
+            expected[i] = (byte) i;
+        }
+        final ByteArray testObject = ByteArray.concat(parts);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(testObject.byteAt(i), i);
+        }
+        assertEquals(testObject.slice(37, 26).get(), Arrays.copyOfRange(expected, 37, 63));
+        assertEquals(testObject.slice(37, 26).slice(5, 10).asReadOnlyBuffers().size(), 10);
+        assertEquals(ByteArray.zeros(3).get(), new byte[3]);
+    }
+
+    @Test
+    public void testBuilder() throws Exception {
+        final ByteArray.Builder testObject = new ByteArray.Builder(3);
+        assertEquals(testObject.append(new byte[]{0, 1, 2}, 1, 2), 2);
+        final ByteArray snapshot = testObject.snapshot();
+        assertEquals(testObject.append(new byte[]{3, 4}, 0, 2), 1, "Builder exceeds it's limit");
+        assertTrue(testObject.isFull());
+        assertEquals(snapshot.get(), new byte[]{1, 2}, "Snapshot is mutated by builder");
+        assertEquals(testObject.build().get(), new byte[]{1, 2, 3});
+        assertEquals(testObject.length(), 0, "Builder isn't emptied by build");
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testSliceOutOfBounds() throws Exception {
+        new ByteArray(new byte[]{1, 2}).slice(1, 2);
+    }
+
+    @Test
+    public void testViews() throws Exception {
+        final ByteArray testObject = ByteArray.concat(asList(new ByteArray(new byte[]{1, 2}), new ByteArray(new byte[]{3}))).slice(1, 2);
+
+        final InputStream stream = testObject.asInputStream();
+        assertEquals(stream.available(), 2);
+        final byte[] read = new byte[3];
+        assertEquals(stream.read(read, 0, 3), 1, "Stream reads across segments");
+        assertEquals(stream.read(read, 1, 2), 1);
+        assertEquals(stream.read(), -1);
+        assertEquals(read, new byte[]{2, 3, 0});
+
+        final List<ByteBuffer> buffers = testObject.asReadOnlyBuffers();
+        assertEquals(buffers.size(), 2);
+        assertTrue(buffers.get(0).isReadOnly(), "Buffer isn't read only");
+        assertEquals(buffers.get(0).remaining() + buffers.get(1).remaining(), 2);
+        assertEquals(testObject.asReadOnlyBuffer(), ByteBuffer.wrap(new byte[]{2, 3}));
+    }
+
 }
\ No newline at end of file
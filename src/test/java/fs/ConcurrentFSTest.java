@@ -0,0 +1,355 @@
+package fs;
+
+import static fs.FSError.Type.NO_FREE_SPACE;
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import data.ByteArray;
+import data.Unit;
+import data.either.Either;
+import fs.impl.FSConfig;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Factory;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * stress tests of concurrent file system checking it's invariants under load
+ *
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+public class ConcurrentFSTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 10_000;
+    private static final int DIRECTORIES = 4;
+    private static final int FILES = 8;
+
+    private final FSConfig.Mode mode;
+
+    @Factory(dataProvider = "modes")
+    public ConcurrentFSTest(FSConfig.Mode mode) {
+        this.mode = mode;
+    }
+
+    @DataProvider(name = "modes")
+    public static Object[][] modes() {
+        return new Object[][]{{FSConfig.Mode.CONCURRENT}, {FSConfig.Mode.LOCK_FREE_READS}};
+    }
+
+    private FS init(long size) {
+        return FS.init(size, mode).both(
+                e -> {
+                    throw new AssertionError("File system initialisation failed", e);
+                },
+                x -> x);
+    }
+
+    private static String dir(int i) {
+        return "/dir" + i;
+    }
+
+    private static String file(int dir, int file) {
+        return dir(dir) + "/file" + file;
+    }
+
+    /**
+     * runs worker on each of {@link #THREADS} threads and rethrows first failure
+     *
+     * @param worker to run with thread's number
+     */
+    private static void runConcurrently(IntConsumer worker) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                final int thread = i;
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    worker.accept(thread);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * checks that size of each directory is sum of it's children sizes
+     *
+     * @return size of subtree located at path
+     */
+    private static long checkSizes(FS fs, String path) {
+        final FileInfo info = fs.info(path).elseGetRight(
+                () -> {
+                    throw new AssertionError("Should get info of " + path);
+                });
+        if (info.type == DIRECTORY) {
+            final long childrenSize = fs.ls(path)
+                    .elseGetRight(
+                            () -> {
+                                throw new AssertionError("Should list " + path);
+                            })
+                    .stream()
+                    .mapToLong(child -> checkSizes(fs, child.fullName))
+                    .sum();
+            assertEquals(info.size, childrenSize, "Size of " + path + " should be sum of it's children sizes");
+        }
+        return info.size;
+    }
+
+    @Test(timeOut = 60_000)
+    public void testMixedLoad() throws Exception {
+        final FS fs = init(1 << 16);
+        for (int i = 0; i < DIRECTORIES; i++) {
+            fs.create(dir(i), DIRECTORY);
+        }
+        runConcurrently(
+                __ -> {
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPERATIONS; i++) {
+                        final String path = file(random.nextInt(DIRECTORIES), random.nextInt(FILES));
+                        final String other = file(random.nextInt(DIRECTORIES), random.nextInt(FILES));
+                        switch (random.nextInt(10)) {
+                            case 0:
+                                fs.create(path, REGULAR);
+                                break;
+                            case 1:
+                                fs.write(path, new byte[random.nextInt(256)]);
+                                break;
+                            case 2:
+                                fs.append(path, new byte[random.nextInt(64)]);
+                                break;
+                            case 3:
+                                fs.delete(path);
+                                break;
+                            case 4:
+                                fs.copy(path, other);
+                                break;
+                            case 5:
+                                fs.move(path, other);
+                                break;
+                            case 6:
+                                fs.copy(dir(random.nextInt(DIRECTORIES)), "/copy" + random.nextInt(2));
+                                fs.delete("/copy" + random.nextInt(2));
+                                break;
+                            case 7:
+                                fs.ls(dir(random.nextInt(DIRECTORIES)));
+                                break;
+                            case 8:
+                                fs.read(path).onRight(content -> assertTrue(content.length() >= 0));
+                                break;
+                            default:
+                                fs.info(path).onRight(info -> assertEquals(info.fullName, path));
+                        }
+                        assertTrue(fs.used() <= fs.size(), "Used space shouldn't exceed file system size");
+                    }
+                });
+        long total = 0;
+        for (int i = 0; i < DIRECTORIES; i++) {
+            total += checkSizes(fs, dir(i));
+        }
+        for (int i = 0; i < 2; i++) {
+            final String copy = "/copy" + i;
+            if (fs.info(copy).isRight()) {
+                total += checkSizes(fs, copy);
+            }
+        }
+        assertEquals(fs.used(), total, "Used space should be sum of file sizes");
+        assertEquals(fs.used() + fs.free(), fs.size());
+    }
+
+    @Test(timeOut = 60_000)
+    public void testMoveAtomicity() throws Exception {
+        final FS fs = init(1 << 16);
+        for (int i = 0; i < DIRECTORIES; i++) {
+            fs.create(dir(i), DIRECTORY);
+        }
+        final List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < FILES; i++) {
+            final String token = "token" + i;
+            tokens.add(token);
+            fs.create(dir(0) + '/' + token, REGULAR);
+            fs.write(dir(0) + '/' + token, token.getBytes(StandardCharsets.UTF_8));
+        }
+        runConcurrently(
+                thread -> {
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPERATIONS; i++) {
+                        final String token = tokens.get(random.nextInt(tokens.size()));
+                        final String path = dir(random.nextInt(DIRECTORIES)) + '/' + token;
+                        if (thread % 2 == 0) {
+                            fs.move(path, dir(random.nextInt(DIRECTORIES)) + '/' + token);
+                        } else {
+                            fs.read(path).onRight(
+                                    content -> assertEquals(content, new ByteArray(token.getBytes(StandardCharsets.UTF_8))));
+                        }
+                    }
+                });
+        for (String token : tokens) {
+            int found = 0;
+            for (int i = 0; i < DIRECTORIES; i++) {
+                if (fs.info(dir(i) + '/' + token).isRight()) {
+                    found++;
+                }
+            }
+            assertEquals(found, 1, "Token " + token + " should exist exactly once");
+        }
+        assertEquals(fs.used(), tokens.stream().mapToLong(String::length).sum());
+    }
+
+    @Test(timeOut = 60_000)
+    public void testSnapshotConsistency() throws Exception {
+        final FS fs = init(1 << 16);
+        for (int i = 0; i < DIRECTORIES; i++) {
+            fs.create(dir(i), DIRECTORY);
+        }
+        for (int i = 0; i < FILES; i++) {
+            fs.create(dir(0) + "/token" + i, REGULAR);
+            fs.write(dir(0) + "/token" + i, new byte[]{(byte) i});
+        }
+        runConcurrently(
+                thread -> {
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPERATIONS / 100; i++) {
+                        if (thread == 0) {
+                            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                            try {
+                                fs.snapshot(out);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                            final FS restored = FS.restore(new ByteArrayInputStream(out.toByteArray()), fs.size(), mode)
+                                    .elseGetRight(() -> null);
+                            // moves are atomic, so each snapshot holds every token exactly once
+                            for (int token = 0; token < FILES; token++) {
+                                int found = 0;
+                                for (int dir = 0; dir < DIRECTORIES; dir++) {
+                                    if (restored.info(dir(dir) + "/token" + token).isRight()) {
+                                        found++;
+                                    }
+                                }
+                                assertEquals(found, 1, "Token " + token + " should exist exactly once");
+                            }
+                            assertEquals(restored.used(), FILES);
+                        } else {
+                            for (int j = 0; j < 100; j++) {
+                                final String token = "/token" + random.nextInt(FILES);
+                                fs.move(dir(random.nextInt(DIRECTORIES)) + token, dir(random.nextInt(DIRECTORIES)) + token);
+                            }
+                        }
+                    }
+                });
+    }
+
+    @Test(timeOut = 60_000)
+    public void testTransactionIsolation() throws Exception {
+        final FS fs = init(1 << 16);
+        final long initial = 1_000;
+        for (int i = 0; i < DIRECTORIES; i++) {
+            fs.create(dir(i), DIRECTORY);
+            fs.create(file(i, 0), REGULAR);
+            fs.write(file(i, 0), ByteBuffer.allocate(Long.BYTES).putLong(0, initial).array());
+        }
+        runConcurrently(
+                thread -> {
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPERATIONS / 10; i++) {
+                        final int from = random.nextInt(DIRECTORIES);
+                        final int to = random.nextInt(DIRECTORIES);
+                        final boolean abort = i % 10 == 0;
+                        if (thread % 2 == 0) {
+                            // transfer between accounts locks them in random order, so transactions conflict
+                            fs.transaction(
+                                    tx -> {
+                                        tx.write(file(from, 0), ByteBuffer.allocate(Long.BYTES).putLong(0, balance(tx, file(from, 0)) - 1).array());
+                                        tx.write(file(to, 0), ByteBuffer.allocate(Long.BYTES).putLong(0, balance(tx, file(to, 0)) + 1).array());
+                                        return abort ? Either.left(FSError.of(FSError.Type.ABORTED)) : Either.right(Unit.unit());
+                                    });
+                        } else {
+                            final long total = fs.transaction(
+                                    tx -> {
+                                        long sum = 0;
+                                        for (int account = 0; account < DIRECTORIES; account++) {
+                                            sum += balance(tx, file(account, 0));
+                                        }
+                                        return Either.<FSError, Long>right(sum);
+                                    })
+                                    .elseGetRight(() -> null);
+                            assertEquals(total, DIRECTORIES * initial, "Transaction should see all or none of transfer");
+                        }
+                    }
+                });
+        long total = 0;
+        for (int i = 0; i < DIRECTORIES; i++) {
+            total += balance(fs, file(i, 0));
+        }
+        assertEquals(total, DIRECTORIES * initial);
+        assertEquals(fs.used(), DIRECTORIES * Long.BYTES);
+    }
+
+    private static long balance(FS fs, String path) {
+        return ByteBuffer.wrap(fs.read(path).elseGetRight(() -> null).get()).getLong();
+    }
+
+    @Test(timeOut = 60_000)
+    public void testFreeSpaceUnderContention() throws Exception {
+        final int size = 10_000;
+        final FS fs = init(size);
+        for (int i = 0; i < THREADS; i++) {
+            fs.create("/file" + i, REGULAR);
+        }
+        final AtomicLong appended = new AtomicLong();
+        runConcurrently(
+                thread -> {
+                    boolean full = false;
+                    while (!full) {
+                        full = fs.append("/file" + thread, new byte[]{1, 2, 3}).both(
+                                e -> {
+                                    assertEquals(e.type, NO_FREE_SPACE);
+                                    return true;
+                                },
+                                __ -> {
+                                    appended.addAndGet(3);
+                                    return false;
+                                });
+                    }
+                });
+        assertEquals(fs.used(), appended.get());
+        assertTrue(fs.size() - fs.used() < 3, "File system should be filled up");
+    }
+
+    @Test
+    public void testInvalidWriteKeepsFreeSpace() throws Exception {
+        final FS fs = init(100);
+        fs.create("/file", REGULAR);
+        try {
+            fs.write("/file", -50, new byte[60]);
+            fail("Write at negative offset should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(), "Range [-50, -50 + 60) is invalid");
+        }
+        assertEquals(fs.used(), 0);
+        fs.append("/file", new byte[100]).onLeft(e -> fail("Space of rejected write should stay free", e));
+    }
+}
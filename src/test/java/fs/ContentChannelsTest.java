@@ -0,0 +1,145 @@
+package fs;
+
+import static fs.ContentChannels.CHUNK_SIZE;
+import static fs.FileType.REGULAR;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.fail;
+
+import fs.impl.FSConfig;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Factory;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Random;
+
+/**
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+public class ContentChannelsTest {
+    private static final String PATH = "/file";
+
+    private final FSConfig.Mode mode;
+
+    @Factory(dataProvider = "modes")
+    public ContentChannelsTest(FSConfig.Mode mode) {
+        this.mode = mode;
+    }
+
+    @DataProvider(name = "modes")
+    public static Object[][] modes() {
+        return new Object[][]{{FSConfig.Mode.SINGLE_THREADED}, {FSConfig.Mode.CONCURRENT}, {FSConfig.Mode.LOCK_FREE_READS}};
+    }
+
+    private FS init(long size) {
+        final FS result = FS.init(size, mode).elseGetRight(() -> null);
+        result.create(PATH, REGULAR);
+        return result;
+    }
+
+    private static byte[] content(int size) {
+        final byte[] result = new byte[size];
+        new Random(size).nextBytes(result);
+        return result;
+    }
+
+    @Test
+    public void testLargeFileRoundTrip() throws Exception {
+        final byte[] content = content(5 * CHUNK_SIZE / 2 + 7);
+        final FS testObject = init(content.length);
+        try (OutputStream out = testObject.openOutputStream(PATH, false).elseGetRight(() -> null)) {
+            // odd sized writes cross chunk boundaries
+            for (int written = 0; written < content.length; written += 1000) {
+                out.write(content, written, Math.min(1000, content.length - written));
+            }
+        }
+        assertEquals(testObject.read(PATH).elseGetRight(() -> null).get(), content);
+        final byte[] read = new byte[content.length];
+        try (InputStream in = testObject.openInputStream(PATH).elseGetRight(() -> null)) {
+            int offset = 0;
+            for (int length = in.read(read, 0, 333); length > 0; length = in.read(read, offset, Math.min(333, read.length - offset))) {
+                offset += length;
+            }
+            assertEquals(offset, content.length);
+            assertEquals(in.read(), -1);
+        }
+        assertEquals(read, content);
+    }
+
+    @Test
+    public void testFreeSpaceIsCheckedByChunks() throws Exception {
+        final FS testObject = init(2 * CHUNK_SIZE + 10);
+        final ByteBuffer source = ByteBuffer.wrap(content(3 * CHUNK_SIZE));
+        try (WritableByteChannel channel = testObject.openAppend(PATH).elseGetRight(() -> null)) {
+            channel.write(source);
+            fail("Shouldn't write beyond free space");
+        } catch (IOException e) {
+            assertEquals(((FSError) e.getCause()).type, FSError.Type.NO_FREE_SPACE);
+        }
+        assertEquals(testObject.used(), 2 * CHUNK_SIZE, "Chunks written before failure should stay in file");
+        assertEquals(source.position(), 2 * CHUNK_SIZE, "Only written bytes should be consumed");
+    }
+
+    @Test
+    public void testReadOfDeletedFile() throws Exception {
+        final FS testObject = init(4 * CHUNK_SIZE);
+        testObject.write(PATH, content(2 * CHUNK_SIZE));
+        try (ReadableByteChannel channel = testObject.openRead(PATH).elseGetRight(() -> null)) {
+            assertEquals(channel.read(ByteBuffer.allocate(CHUNK_SIZE)), CHUNK_SIZE);
+            testObject.delete(PATH);
+            channel.read(ByteBuffer.allocate(CHUNK_SIZE));
+            fail("Shouldn't read deleted file");
+        } catch (IOException e) {
+            assertEquals(((FSError) e.getCause()).type, FSError.Type.PATH_NOT_FOUND);
+        }
+    }
+
+    @Test
+    public void testReadOfReplacedFile() throws Exception {
+        final FS testObject = init(4 * CHUNK_SIZE);
+        testObject.write(PATH, content(2 * CHUNK_SIZE));
+        try (ReadableByteChannel channel = testObject.openRead(PATH).elseGetRight(() -> null)) {
+            assertEquals(channel.read(ByteBuffer.allocate(CHUNK_SIZE)), CHUNK_SIZE);
+            // another file of the same size is located at path
+            testObject.delete(PATH);
+            testObject.create(PATH, REGULAR);
+            testObject.write(PATH, content(2 * CHUNK_SIZE));
+            channel.read(ByteBuffer.allocate(CHUNK_SIZE));
+            fail("Shouldn't read replaced file");
+        } catch (IOException e) {
+            assertEquals(((FSError) e.getCause()).type, FSError.Type.PATH_NOT_FOUND);
+        }
+    }
+
+    @Test
+    public void testAppendToReplacedFile() throws Exception {
+        final FS testObject = init(4 * CHUNK_SIZE);
+        final byte[] content = content(CHUNK_SIZE);
+        try (WritableByteChannel channel = testObject.openAppend(PATH).elseGetRight(() -> null)) {
+            channel.write(ByteBuffer.wrap(content));
+            testObject.move(PATH, "/moved");
+            testObject.create(PATH, REGULAR);
+            channel.write(ByteBuffer.wrap(content));
+            fail("Shouldn't append to replaced file");
+        } catch (IOException e) {
+            assertEquals(((FSError) e.getCause()).type, FSError.Type.PATH_NOT_FOUND);
+        }
+        assertEquals(testObject.read("/moved").elseGetRight(() -> null).get(), content);
+        assertEquals(testObject.info(PATH).elseGetRight(() -> null).size, 0, "Content shouldn't be split between files");
+    }
+
+    @Test(expectedExceptions = ClosedChannelException.class)
+    public void testClosedChannel() throws Exception {
+        final ReadableByteChannel channel = init(1).openRead(PATH).elseGetRight(() -> null);
+        channel.close();
+        assertFalse(channel.isOpen());
+        channel.read(ByteBuffer.allocate(1));
+    }
+}
@@ -0,0 +1,92 @@
+package fs;
+
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import fs.impl.FSConfig;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Factory;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+/**
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+public class DeduplicationTest {
+    private static final int BLOCK = 4096;
+
+    private final FSConfig.Mode mode;
+
+    @Factory(dataProvider = "modes")
+    public DeduplicationTest(FSConfig.Mode mode) {
+        this.mode = mode;
+    }
+
+    @DataProvider(name = "modes")
+    public static Object[][] modes() {
+        return new Object[][]{{FSConfig.Mode.SINGLE_THREADED}, {FSConfig.Mode.CONCURRENT}};
+    }
+
+    private FS init(long size) {
+        return FSConfig.init(size, mode, FSConfig.DEFAULT_LOOKUP_CACHE_CAPACITY, true);
+    }
+
+    private static byte[] content(int blocks) {
+        final byte[] result = new byte[blocks * BLOCK];
+        new Random(42).nextBytes(result);
+        return result;
+    }
+
+    @Test
+    public void testIdenticalFilesAreStoredOnce() throws Exception {
+        final FS testObject = init(1 << 20);
+        final byte[] content = content(4);
+        testObject.create("/a", REGULAR);
+        testObject.create("/dir", DIRECTORY);
+        testObject.create("/dir/b", REGULAR);
+        testObject.write("/a", content);
+        testObject.write("/dir/b", content);
+        assertEquals(testObject.used(), 2L * content.length, "Used space should be logical");
+        assertEquals(testObject.physicalUsed(), content.length, "Identical blocks aren't stored once");
+        testObject.write("/a", 4 * BLOCK + 1, new byte[]{1});
+        assertEquals(testObject.physicalUsed(), content.length + 2, "Only tail should be stored privately");
+        testObject.write("/a", BLOCK, new byte[]{1});
+        assertEquals(testObject.physicalUsed(), content.length + BLOCK + 2, "Only rewritten block should be stored again");
+        testObject.delete("/dir");
+        assertEquals(testObject.physicalUsed(), content.length + 2, "Blocks of deleted subtree aren't released");
+        testObject.delete("/a");
+        assertEquals(testObject.physicalUsed(), 0);
+    }
+
+    @Test
+    public void testCopyAndMoveDontStoreContent() throws Exception {
+        final FS testObject = init(1 << 20);
+        final byte[] content = content(2);
+        testObject.create("/a", REGULAR);
+        testObject.append("/a", content);
+        testObject.copy("/a", "/b");
+        testObject.move("/b", "/c");
+        assertEquals(testObject.physicalUsed(), content.length);
+        assertEquals(testObject.read("/c").elseGetRight(() -> null).get(), content);
+        testObject.delete("/a");
+        assertEquals(testObject.physicalUsed(), content.length, "Blocks referenced by copy are released");
+    }
+
+    @Test
+    public void testFreeSpaceIsLogical() throws Exception {
+        final FS testObject = init(3 * BLOCK);
+        final byte[] content = content(2);
+        testObject.create("/a", REGULAR);
+        testObject.create("/b", REGULAR);
+        testObject.write("/a", content);
+        assertTrue(testObject.write("/b", content).isLeft(), "Deduplication shouldn't affect free space");
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testLockFreeReadsModeIsNotSupported() throws Exception {
+        FSConfig.init(1, FSConfig.Mode.LOCK_FREE_READS, 0, true);
+    }
+}
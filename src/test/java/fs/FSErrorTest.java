@@ -0,0 +1,45 @@
+package fs;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+public class FSErrorTest {
+    @Test
+    public void testStackTraceIsNotCaptured() throws Exception {
+        assertEquals(new FSError(FSError.Type.PATH_NOT_FOUND, "message").getStackTrace().length, 0);
+        assertEquals(new FSError(FSError.Type.PATH_NOT_FOUND, () -> "message").getStackTrace().length, 0);
+    }
+
+    @Test
+    public void testLazyMessage() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final FSError testObject = new FSError(FSError.Type.PATH_NOT_FOUND, () -> "message" + calls.incrementAndGet());
+        assertEquals(calls.get(), 0, "Message is formatted eagerly");
+        assertEquals(testObject.getMessage(), "message1");
+        assertEquals(testObject.getMessage(), "message1");
+        assertEquals(calls.get(), 1, "Message is formatted more than once");
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedMessage() throws Exception {
+        assertEquals(new FSError(FSError.Type.PATH_NOT_FOUND, "message").message, "message");
+        assertEquals(new FSError(FSError.Type.PATH_NOT_FOUND, () -> "message").message, "Path not found");
+    }
+
+    @Test
+    public void testShared() throws Exception {
+        for (FSError.Type type : FSError.Type.values()) {
+            assertSame(FSError.of(type), FSError.of(type));
+            assertEquals(FSError.of(type).type, type);
+        }
+        assertEquals(FSError.of(FSError.Type.NO_FREE_SPACE).getMessage(), "There is no free space");
+    }
+}
@@ -1,7 +1,9 @@
 package fs;
 
+import static fs.FSError.Type.ABORTED;
 import static fs.FileType.DIRECTORY;
 import static fs.FileType.REGULAR;
+import static fs.ResultCheckers.ABORTED_CHECKER;
 import static fs.ResultCheckers.ALREADY_EXISTS_CHECKER;
 import static fs.ResultCheckers.DESTINATION_IS_SOURCE_SUBTREE_CHECKER;
 import static fs.ResultCheckers.FILE_IS_DIRECTORY_CHECKER;
@@ -33,17 +35,33 @@ import static helpers.TestHelper.nop;
 import static helpers.TestHelper.provideFail;
 import static java.util.Arrays.asList;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertEqualsNoOrder;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import data.ByteArray;
 import data.either.Either;
 import data.Unit;
+import fs.impl.FSConfig;
 import helpers.TestHelper;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.DataProvider;
+import org.testng.annotations.Factory;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.function.Consumer;
@@ -54,17 +72,70 @@ import java.util.stream.Stream;
  */
 public class FSTest {
     private static final int FS_SIZE = 128;
+    private static final int LOOKUP_CACHE_CAPACITY = 4096;
+
+    private final FSConfig.Mode mode;
+    private final FSConfig.Storage storage;
+    /**
+     * true if file system is persisted in image by {@link FS#open(Path, long, FSConfig.Mode)}
+     */
+    private final boolean mapped;
+
+    private Path image;
 
     private FS testFs;
 
     private final Checks checks = new Checks();
 
+    @Factory(dataProvider = "modes")
+    public FSTest(FSConfig.Mode mode, FSConfig.Storage storage, boolean mapped) {
+        this.mode = mode;
+        this.storage = storage;
+        this.mapped = mapped;
+    }
+
+    @DataProvider(name = "modes")
+    public static Object[][] modes() {
+        return Stream.of(
+                Stream.of(FSConfig.Mode.values()).map(mode -> new Object[]{mode, FSConfig.Storage.HEAP, false}),
+                Stream.of(FSConfig.Mode.SINGLE_THREADED, FSConfig.Mode.CONCURRENT).map(mode -> new Object[]{mode, FSConfig.Storage.OFF_HEAP, false}),
+                Stream.of(FSConfig.Mode.SINGLE_THREADED, FSConfig.Mode.CONCURRENT).map(mode -> new Object[]{mode, FSConfig.Storage.OFF_HEAP, true}))
+                .flatMap(x -> x)
+                .toArray(Object[][]::new);
+    }
+
     private void setUp() {
-        testFs = FS.init(FS_SIZE).both(
-                e -> {
-                    throw new AssertionError("File system initialisation failed", e);
-                },
-                x -> x);
+        closeImage();
+        if (mapped) {
+            try {
+                image = Files.createTempDirectory("fs");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            testFs = FS.open(image, FS_SIZE, mode).both(
+                    e -> {
+                        throw new AssertionError("File system opening failed", e);
+                    },
+                    x -> x);
+        } else {
+            testFs = FSConfig.init(FS_SIZE, mode, LOOKUP_CACHE_CAPACITY, false, storage);
+        }
+    }
+
+    /**
+     * closes image of previous run and deletes it
+     */
+    @AfterClass(alwaysRun = true)
+    public void closeImage() {
+        if (image != null) {
+            try {
+                ((MappedFS) testFs).close();
+                TestHelper.deleteRecursively(image);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            image = null;
+        }
     }
 
     @DataProvider(name = "testCreate")
@@ -181,17 +252,18 @@ public class FSTest {
                                 // list existing directory
                                 {TEST_DIR,
                                         provideFail("Should list existing directory"),
-                                        addReprToCons(
-                                                actual -> assertEquals(
-                                                        actual,
-                                                        asList(
+                                        TestHelper.<List<FileInfo>>addReprToCons(
+                                                // order of listing is implementation specific
+                                                actual -> assertEqualsNoOrder(
+                                                        actual.toArray(),
+                                                        new Object[]{
                                                                 new FileInfo(INNER_FILE_IN_TEST_DIR, REGULAR, 0),
-                                                                new FileInfo(INNER_DIR_IN_TEST_DIR, DIRECTORY, 0))),
-                                                "actual -> assertEquals(" +
-                                                        "actual," +
-                                                        "asList(" +
+                                                                new FileInfo(INNER_DIR_IN_TEST_DIR, DIRECTORY, 0)}),
+                                                "actual -> assertEqualsNoOrder(" +
+                                                        "actual.toArray()," +
+                                                        "new Object[]{" +
                                                         "new FileInfo(INNER_FILE_IN_TEST_DIR, REGULAR, 0)," +
-                                                        "new FileInfo(INNER_DIR_IN_TEST_DIR, DIRECTORY, 0)))")},
+                                                        "new FileInfo(INNER_DIR_IN_TEST_DIR, DIRECTORY, 0)})")},
                                 // list non existing directory
                                 {NOPE, PATH_NOT_FOUND_CHECKER, provideFail("Shouldn't list non existing directory")},
                                 // list regular file
@@ -414,6 +486,481 @@ public class FSTest {
         assertTrue(testFs.free() <= fileMinimalSize);
     }
 
+    @Test
+    public void testUsedAfterMutations() throws Exception {
+        setUp();
+        testFs.create(TEST_DIR, DIRECTORY);
+        testFs.create(INNER_FILE_IN_TEST_DIR, REGULAR);
+        testFs.write(INNER_FILE_IN_TEST_DIR, new byte[]{1, 2, 3});
+        assertEquals(testFs.used(), 3);
+        testFs.append(INNER_FILE_IN_TEST_DIR, new byte[]{4});
+        assertEquals(testFs.used(), 4);
+        testFs.write(INNER_FILE_IN_TEST_DIR, new byte[]{1});
+        assertEquals(testFs.used(), 1);
+        testFs.copy(TEST_DIR, TEST_DIR2);
+        assertEquals(testFs.used(), 2);
+        testFs.move(INNER_FILE_IN_TEST_DIR2, TEST_FILE);
+        assertEquals(testFs.used(), 2);
+        assertEquals(testFs.info(TEST_DIR2).elseGetRight(() -> null), new FileInfo(TEST_DIR2, DIRECTORY, 0));
+        testFs.delete(TEST_DIR);
+        assertEquals(testFs.used(), 1);
+        testFs.delete(TEST_FILE);
+        assertEquals(testFs.used(), 0);
+    }
+
+    @Test
+    public void testLsReportsSubtreeSizes() throws Exception {
+        setUp();
+        testFs.create(TEST_DIR, DIRECTORY);
+        testFs.create(INNER_DIR_IN_TEST_DIR, DIRECTORY);
+        testFs.create(INNER_DIR_IN_TEST_DIR + INNER_FILE, REGULAR);
+        testFs.write(INNER_DIR_IN_TEST_DIR + INNER_FILE, new byte[]{1, 2, 3});
+        testFs.create(INNER_FILE_IN_TEST_DIR, REGULAR);
+        testFs.write(INNER_FILE_IN_TEST_DIR, new byte[]{4});
+        testFs.create(TEST_FILE, REGULAR);
+        testFs.write(TEST_FILE, new byte[]{5, 6});
+        assertEqualsNoOrder(
+                testFs.ls("/").elseGetRight(() -> null).toArray(),
+                new FileInfo[]{new FileInfo(TEST_DIR, DIRECTORY, 4), new FileInfo(TEST_FILE, REGULAR, 2)});
+        testFs.append(INNER_DIR_IN_TEST_DIR + INNER_FILE, new byte[]{7});
+        testFs.delete(INNER_FILE_IN_TEST_DIR);
+        assertEqualsNoOrder(
+                testFs.ls("/").elseGetRight(() -> null).toArray(),
+                new FileInfo[]{new FileInfo(TEST_DIR, DIRECTORY, 4), new FileInfo(TEST_FILE, REGULAR, 2)});
+        assertEquals(
+                testFs.ls(TEST_DIR).elseGetRight(() -> null),
+                Collections.singletonList(new FileInfo(INNER_DIR_IN_TEST_DIR, DIRECTORY, 4)));
+        assertEquals(
+                testFs.ls("/", TEST_DIR, 1).elseGetRight(() -> null),
+                Collections.singletonList(new FileInfo(TEST_FILE, REGULAR, 2)));
+    }
+
+    @Test
+    public void testCopyIsIndependentOfSource() throws Exception {
+        setUp();
+        testFs.create(TEST_DIR, DIRECTORY);
+        testFs.create(INNER_FILE_IN_TEST_DIR, REGULAR);
+        testFs.write(INNER_FILE_IN_TEST_DIR, new byte[]{1, 2, 3});
+        testFs.append(INNER_FILE_IN_TEST_DIR, new byte[]{4});
+        testFs.copy(TEST_DIR, TEST_DIR2).onLeft(provideFail("Should copy directory"));
+        assertEquals(testFs.used(), 8);
+
+        testFs.append(INNER_FILE_IN_TEST_DIR, new byte[]{5});
+        testFs.write(INNER_FILE_IN_TEST_DIR2, 0, new byte[]{9});
+        assertEquals(testFs.read(INNER_FILE_IN_TEST_DIR).elseGetRight(() -> null).get(), new byte[]{1, 2, 3, 4, 5});
+        assertEquals(testFs.read(INNER_FILE_IN_TEST_DIR2).elseGetRight(() -> null).get(), new byte[]{9, 2, 3, 4});
+
+        testFs.copy(INNER_FILE_IN_TEST_DIR2, TEST_FILE).onLeft(provideFail("Should copy file"));
+        testFs.append(TEST_FILE, new byte[]{6});
+        assertEquals(testFs.read(INNER_FILE_IN_TEST_DIR2).elseGetRight(() -> null).get(), new byte[]{9, 2, 3, 4});
+        assertEquals(testFs.read(TEST_FILE).elseGetRight(() -> null).get(), new byte[]{9, 2, 3, 4, 6});
+        assertEquals(testFs.used(), 14);
+    }
+
+    @Test
+    public void testRangedRead() throws Exception {
+        setUp();
+        testFs.create(TEST_FILE, REGULAR);
+        testFs.create(TEST_DIR, DIRECTORY);
+        testFs.write(TEST_FILE, new byte[]{1, 2, 3});
+        testFs.append(TEST_FILE, new byte[]{4, 5});
+        assertEquals(testFs.read(TEST_FILE, 1, 3).elseGetRight(() -> null).get(), new byte[]{2, 3, 4}, "Read across chunks");
+        assertEquals(testFs.read(TEST_FILE, 3, 10).elseGetRight(() -> null).get(), new byte[]{4, 5}, "Read beyond end of file");
+        assertEquals(testFs.read(TEST_FILE, 5, 1).elseGetRight(() -> null).length(), 0, "Read at end of file");
+        assertEquals(testFs.read(TEST_FILE, 100, 1).elseGetRight(() -> null).length(), 0, "Read after end of file");
+        testFs.read(NOPE, 0, 1).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Shouldn't read non existing file"));
+        testFs.read(TEST_DIR, 0, 1).onBoth(FILE_IS_DIRECTORY_CHECKER, provideFail("Shouldn't read directory"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRangedReadWithNegativeOffset() throws Exception {
+        setUp();
+        testFs.create(TEST_FILE, REGULAR);
+        testFs.read(TEST_FILE, -1, 1);
+    }
+
+    @Test
+    public void testPositionalWrite() throws Exception {
+        setUp();
+        testFs.create(TEST_FILE, REGULAR);
+        testFs.create(TEST_DIR, DIRECTORY);
+        testFs.write(TEST_FILE, new byte[]{1, 2, 3});
+        testFs.append(TEST_FILE, new byte[]{4, 5});
+        testFs.write(TEST_FILE, 2, new byte[]{7, 8}).onLeft(provideFail("Should write inside file"));
+        assertEquals(testFs.read(TEST_FILE).elseGetRight(() -> null).get(), new byte[]{1, 2, 7, 8, 5});
+        testFs.write(TEST_FILE, 1, new byte[]{9}).onLeft(provideFail("Should write inside chunk"));
+        assertEquals(testFs.read(TEST_FILE).elseGetRight(() -> null).get(), new byte[]{1, 9, 7, 8, 5});
+        testFs.write(TEST_FILE, 4, new byte[]{6, 6}).onLeft(provideFail("Should write over end of file"));
+        assertEquals(testFs.read(TEST_FILE).elseGetRight(() -> null).get(), new byte[]{1, 9, 7, 8, 6, 6});
+        testFs.write(TEST_FILE, 8, new byte[]{3}).onLeft(provideFail("Should write after end of file"));
+        assertEquals(testFs.read(TEST_FILE).elseGetRight(() -> null).get(), new byte[]{1, 9, 7, 8, 6, 6, 0, 0, 3});
+        assertEquals(testFs.used(), 9);
+        testFs.write(NOPE, 0, new byte[]{1}).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Shouldn't write to non existing file"));
+        testFs.write(TEST_DIR, 0, new byte[]{1}).onBoth(FILE_IS_DIRECTORY_CHECKER, provideFail("Shouldn't write to directory"));
+    }
+
+    @Test
+    public void testPositionalWriteAccountsOnlyGrowth() throws Exception {
+        setUp();
+        testFs.create(TEST_FILE, REGULAR);
+        testFs.write(TEST_FILE, new byte[FS_SIZE - 1]);
+        testFs.write(TEST_FILE, 0, new byte[FS_SIZE - 1]).onLeft(provideFail("Should rewrite file without growth"));
+        testFs.write(TEST_FILE, FS_SIZE - 2, new byte[]{1, 2}).onLeft(provideFail("Should grow file into free space"));
+        assertEquals(testFs.free(), 0);
+        testFs.write(TEST_FILE, FS_SIZE - 1, new byte[]{1, 2}).onBoth(NO_FREE_SPACE_CHECKER, provideFail("Shouldn't grow file beyond free space"));
+        assertEquals(testFs.read(TEST_FILE, FS_SIZE - 3, 3).elseGetRight(() -> null).get(), new byte[]{0, 1, 2});
+        assertEquals(testFs.used(), FS_SIZE);
+    }
+
+    @Test
+    public void testVectoredWrite() throws Exception {
+        setUp();
+        testFs.create(TEST_FILE, REGULAR);
+        testFs.create(TEST_DIR, DIRECTORY);
+        final ByteBuffer header = ByteBuffer.wrap(new byte[]{0, 1, 2, 0}, 1, 2);
+        final ByteBuffer body = ByteBuffer.allocateDirect(3).put(new byte[]{3, 4, 5});
+        body.flip();
+        testFs.write(TEST_FILE, header, body).onLeft(provideFail("Should write buffers"));
+        assertEquals(testFs.read(TEST_FILE).elseGetRight(() -> null).get(), new byte[]{1, 2, 3, 4, 5});
+        assertEquals(header.position(), 1, "Buffers should stay intact");
+        assertEquals(body.remaining(), 3, "Buffers should stay intact");
+        testFs.append(TEST_FILE, body, header).onLeft(provideFail("Should append buffers"));
+        assertEquals(testFs.read(TEST_FILE).elseGetRight(() -> null).get(), new byte[]{1, 2, 3, 4, 5, 3, 4, 5, 1, 2});
+        assertEquals(testFs.used(), 10);
+        testFs.write(TEST_FILE, ByteBuffer.allocate(FS_SIZE), ByteBuffer.allocate(1))
+                .onBoth(NO_FREE_SPACE_CHECKER, provideFail("Shouldn't write beyond free space"));
+        testFs.append(TEST_FILE, ByteBuffer.allocate(FS_SIZE - 10), ByteBuffer.allocate(1))
+                .onBoth(NO_FREE_SPACE_CHECKER, provideFail("Shouldn't append beyond free space"));
+        assertEquals(testFs.used(), 10, "Failed mutations shouldn't change file");
+        testFs.write(TEST_FILE).onLeft(provideFail("Should empty file"));
+        assertEquals(testFs.used(), 0);
+        testFs.write(NOPE, header).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Shouldn't write to non existing file"));
+        testFs.append(TEST_DIR, header).onBoth(FILE_IS_DIRECTORY_CHECKER, provideFail("Shouldn't append to directory"));
+    }
+
+    @Test
+    public void testScatteringRead() throws Exception {
+        setUp();
+        testFs.create(TEST_FILE, REGULAR);
+        testFs.create(TEST_DIR, DIRECTORY);
+        testFs.write(TEST_FILE, new byte[]{1, 2, 3});
+        testFs.append(TEST_FILE, new byte[]{4, 5});
+        final ByteBuffer first = ByteBuffer.allocate(2);
+        final ByteBuffer second = ByteBuffer.allocateDirect(4);
+        assertEquals(testFs.read(TEST_FILE, 1, first, second).elseGetRight(() -> null), Integer.valueOf(4), "Read across chunks");
+        assertEquals(first.array(), new byte[]{2, 3});
+        assertEquals(second.position(), 2, "Position should be advanced by read bytes");
+        second.flip();
+        assertEquals(second.get(), 4);
+        assertEquals(second.get(), 5);
+        first.clear();
+        assertEquals(testFs.read(TEST_FILE, 5, first).elseGetRight(() -> null), Integer.valueOf(0), "Read at end of file");
+        assertEquals(testFs.read(TEST_FILE, 100, first).elseGetRight(() -> null), Integer.valueOf(0), "Read after end of file");
+        assertEquals(first.position(), 0);
+        testFs.read(NOPE, 0, first).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Shouldn't read non existing file"));
+        testFs.read(TEST_DIR, 0, first).onBoth(FILE_IS_DIRECTORY_CHECKER, provideFail("Shouldn't read directory"));
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        setUp();
+        final List<Either<FSError, Unit>> results = testFs.apply(
+                Batch.builder()
+                        .create(TEST_DIR, DIRECTORY)
+                        .create(INNER_FILE_IN_TEST_DIR, REGULAR)
+                        .write(INNER_FILE_IN_TEST_DIR, new byte[]{1, 2, 3})
+                        .append(INNER_FILE_IN_TEST_DIR, ByteBuffer.wrap(new byte[]{4}), ByteBuffer.wrap(new byte[]{5}))
+                        .create(TEST_FILE_IN_NOPE, REGULAR)
+                        .create(TEST_FILE, REGULAR)
+                        .delete(TEST_FILE)
+                        .delete(NOPE)
+                        .build());
+        assertEquals(results.size(), 8);
+        results.subList(0, 4).forEach(result -> result.onLeft(provideFail("Should apply operation")));
+        results.get(4).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Shouldn't create under non existing directory"));
+        results.subList(5, 7).forEach(result -> result.onLeft(provideFail("Should apply operation after failed one")));
+        results.get(7).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Shouldn't delete non existing file"));
+        assertEquals(testFs.read(INNER_FILE_IN_TEST_DIR).elseGetRight(() -> null).get(), new byte[]{1, 2, 3, 4, 5});
+        testFs.info(TEST_FILE).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Deleted file shouldn't exist"));
+        assertEquals(testFs.used(), 5);
+        assertTrue(testFs.apply(Batch.builder().build()).isEmpty());
+    }
+
+    @Test
+    public void testAtomicBatch() throws Exception {
+        setUp();
+        testFs.create(TEST_FILE, REGULAR);
+        testFs.write(TEST_FILE, new byte[]{1, 2});
+        testFs.create(TEST_DIR, DIRECTORY);
+        testFs.create(INNER_FILE_IN_TEST_DIR, REGULAR);
+        testFs.write(INNER_FILE_IN_TEST_DIR, new byte[]{3});
+        final List<Either<FSError, Unit>> results = testFs.apply(
+                Batch.builder()
+                        .create(TEST_FILE2, REGULAR)
+                        .write(TEST_FILE, new byte[]{9, 9, 9})
+                        .append(INNER_FILE_IN_TEST_DIR, new byte[]{4})
+                        .delete(TEST_DIR)
+                        .create(TEST_DIR, REGULAR)
+                        .write(NOPE, new byte[]{1})
+                        .create(TEST_DIR2, DIRECTORY)
+                        .atomic()
+                        .build());
+        assertEquals(results.size(), 7);
+        results.subList(0, 5).forEach(result -> result.onBoth(ABORTED_CHECKER, provideFail("Should undo operation")));
+        results.get(5).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Shouldn't write to non existing file"));
+        results.get(6).onBoth(ABORTED_CHECKER, provideFail("Shouldn't apply operation after failed one"));
+        assertEquals(testFs.read(TEST_FILE).elseGetRight(() -> null).get(), new byte[]{1, 2});
+        assertEquals(testFs.read(INNER_FILE_IN_TEST_DIR).elseGetRight(() -> null).get(), new byte[]{3});
+        testFs.info(TEST_FILE2).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Undone file shouldn't exist"));
+        testFs.info(TEST_DIR2).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Aborted file shouldn't exist"));
+        assertEquals(testFs.info(TEST_DIR).elseGetRight(() -> null), new FileInfo(TEST_DIR, DIRECTORY, 1), "Deleted directory should be restored");
+        assertEquals(testFs.used(), 3);
+        testFs.apply(
+                Batch.builder()
+                        .write(TEST_FILE, new byte[FS_SIZE - 1])
+                        .append(INNER_FILE_IN_TEST_DIR, new byte[1])
+                        .atomic()
+                        .build())
+                .get(1)
+                .onBoth(NO_FREE_SPACE_CHECKER, provideFail("Shouldn't grow beyond free space"));
+        assertEquals(testFs.used(), 3);
+        testFs.apply(Batch.builder().write(TEST_FILE, new byte[]{5}).delete(TEST_DIR).atomic().build())
+                .forEach(result -> result.onLeft(provideFail("Should apply atomic batch")));
+        assertEquals(testFs.used(), 1);
+    }
+
+    @Test
+    public void testBatchFreeSpace() throws Exception {
+        setUp();
+        testFs.create(TEST_FILE, REGULAR);
+        testFs.write(TEST_FILE, new byte[FS_SIZE]);
+        final List<Either<FSError, Unit>> results = testFs.apply(
+                Batch.builder()
+                        .create(TEST_FILE2, REGULAR)
+                        .write(TEST_FILE2, new byte[1])
+                        .delete(TEST_FILE)
+                        .write(TEST_FILE2, new byte[FS_SIZE])
+                        .append(TEST_FILE2, new byte[1])
+                        .build());
+        results.get(0).onLeft(provideFail("Should create file"));
+        results.get(1).onBoth(NO_FREE_SPACE_CHECKER, provideFail("Shouldn't write beyond free space"));
+        results.get(2).onLeft(provideFail("Should delete file"));
+        results.get(3).onLeft(provideFail("Should write into space freed by batch"));
+        results.get(4).onBoth(NO_FREE_SPACE_CHECKER, provideFail("Shouldn't append beyond free space"));
+        assertEquals(testFs.used(), FS_SIZE);
+        assertEquals(testFs.free(), 0);
+    }
+
+    @Test
+    public void testTransaction() throws Exception {
+        setUp();
+        testFs.create(TEST_DIR, DIRECTORY);
+        testFs.create(INNER_FILE_IN_TEST_DIR, REGULAR);
+        testFs.write(INNER_FILE_IN_TEST_DIR, new byte[]{1, 2});
+        final Either<FSError, Integer> result = testFs.transaction(
+                tx -> {
+                    tx.create(TEST_FILE, REGULAR);
+                    tx.write(TEST_FILE, new byte[]{3});
+                    tx.append(INNER_FILE_IN_TEST_DIR, new byte[]{4});
+                    tx.move(TEST_DIR, TEST_DIR2);
+                    // failed nested transaction is undone while enclosing one goes on
+                    tx.transaction(
+                            nested -> {
+                                nested.delete(TEST_FILE);
+                                return Either.left(FSError.of(ABORTED));
+                            })
+                            .onBoth(ABORTED_CHECKER, provideFail("Nested transaction should fail"));
+                    tx.transaction(nested -> nested.create(TEST_FILE2, REGULAR)).onLeft(provideFail("Nested transaction should succeed"));
+                    return tx.read(INNER_FILE_IN_TEST_DIR2).rMap(ByteArray::length);
+                });
+        assertEquals(result.elseGetRight(() -> null), Integer.valueOf(3), "Transaction should see it's own mutations");
+        assertEquals(testFs.read(TEST_FILE).elseGetRight(() -> null).get(), new byte[]{3});
+        assertEquals(testFs.read(INNER_FILE_IN_TEST_DIR2).elseGetRight(() -> null).get(), new byte[]{1, 2, 4});
+        testFs.info(TEST_DIR).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Moved directory shouldn't exist"));
+        testFs.info(TEST_FILE2).onLeft(provideFail("Nested transaction should be committed"));
+        assertEquals(testFs.used(), 4);
+    }
+
+    @Test
+    public void testTransactionRollback() throws Exception {
+        setUp();
+        testFs.create(TEST_FILE, REGULAR);
+        testFs.write(TEST_FILE, new byte[]{1, 2, 3});
+        testFs.create(TEST_DIR, DIRECTORY);
+        testFs.create(INNER_FILE_IN_TEST_DIR, REGULAR);
+        testFs.write(INNER_FILE_IN_TEST_DIR, new byte[]{4});
+        final Either<FSError, Unit> result = testFs.transaction(
+                tx -> {
+                    tx.write(TEST_FILE, 1, new byte[]{9, 9, 9});
+                    tx.append(TEST_FILE, new byte[]{5});
+                    tx.copy(TEST_DIR, TEST_DIR2);
+                    tx.write(INNER_FILE_IN_TEST_DIR2, new byte[]{6, 6});
+                    tx.delete(TEST_DIR);
+                    tx.move(TEST_FILE, TEST_FILE2);
+                    tx.apply(Batch.builder().create(TEST_DIR, REGULAR).write(TEST_DIR, new byte[]{7}).build());
+                    assertEquals(tx.read(TEST_FILE2).elseGetRight(() -> null).get(), new byte[]{1, 9, 9, 9, 5});
+                    assertEquals(tx.used(), 8);
+                    return tx.create(TEST_FILE_IN_NOPE, REGULAR);
+                });
+        result.onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Transaction should fail"));
+        assertEquals(testFs.read(TEST_FILE).elseGetRight(() -> null).get(), new byte[]{1, 2, 3});
+        assertEquals(testFs.read(INNER_FILE_IN_TEST_DIR).elseGetRight(() -> null).get(), new byte[]{4});
+        assertEquals(testFs.info(TEST_DIR).elseGetRight(() -> null), new FileInfo(TEST_DIR, DIRECTORY, 1));
+        testFs.info(TEST_DIR2).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Copy should be undone"));
+        testFs.info(TEST_FILE2).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Move should be undone"));
+        assertEquals(testFs.used(), 4);
+        try {
+            testFs.transaction(
+                    tx -> {
+                        tx.delete(TEST_FILE);
+                        throw new IllegalStateException("Transaction failure");
+                    });
+            fail("Failure of transaction should be rethrown");
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "Transaction failure");
+        }
+        assertEquals(testFs.read(TEST_FILE).elseGetRight(() -> null).get(), new byte[]{1, 2, 3});
+        testFs.write(TEST_FILE, new byte[FS_SIZE - 1]).onLeft(provideFail("Space of rolled back transaction should be free"));
+    }
+
+    @Test
+    public void testLookupsAfterStructuralChanges() throws Exception {
+        setUp();
+        final String movedInnerFile = MOVED_DIR + INNER_FILE;
+        testFs.create(TEST_DIR, DIRECTORY);
+        testFs.create(INNER_FILE_IN_TEST_DIR, REGULAR);
+        testFs.write(INNER_FILE_IN_TEST_DIR, new byte[]{1, 2});
+        testFs.info(INNER_FILE_IN_TEST_DIR);
+        testFs.info(INNER_FILE_IN_TEST_DIR);
+
+        testFs.move(TEST_DIR, MOVED_DIR);
+        assertEquals(testFs.info(INNER_FILE_IN_TEST_DIR).both(error -> error.type, __ -> null), FSError.Type.PATH_NOT_FOUND);
+        assertEquals(testFs.info(movedInnerFile).elseGetRight(() -> null), new FileInfo(movedInnerFile, REGULAR, 2));
+
+        testFs.create(TEST_DIR, DIRECTORY);
+        assertEquals(testFs.info(INNER_FILE_IN_TEST_DIR).both(error -> error.type, __ -> null), FSError.Type.PATH_NOT_FOUND);
+        testFs.create(INNER_FILE_IN_TEST_DIR, REGULAR);
+        assertEquals(testFs.read(INNER_FILE_IN_TEST_DIR).elseGetRight(() -> null), new ByteArray(new byte[0]));
+
+        testFs.delete(MOVED_DIR);
+        assertEquals(testFs.info(movedInnerFile).both(error -> error.type, __ -> null), FSError.Type.PATH_NOT_FOUND);
+
+        testFs.copy(TEST_DIR, TEST_DIR2);
+        testFs.write(INNER_FILE_IN_TEST_DIR2, new byte[]{3});
+        assertEquals(testFs.read(INNER_FILE_IN_TEST_DIR).elseGetRight(() -> null), new ByteArray(new byte[0]));
+        assertEquals(testFs.read(INNER_FILE_IN_TEST_DIR2).elseGetRight(() -> null), new ByteArray(new byte[]{3}));
+        testFs.lookupCacheStats().ifPresent(stats -> assertTrue(stats.capacity == 0 || stats.hits > 0, "Repeated lookups aren't cached"));
+    }
+
+    @Test
+    public void testLsPages() throws Exception {
+        setUp();
+        testFs.create(TEST_DIR, DIRECTORY);
+        for (String name : asList("e", "b", "d", "a", "c")) {
+            testFs.create(TEST_DIR + '/' + name, REGULAR);
+        }
+        final List<FileInfo> first = testFs.ls(TEST_DIR, null, 2).elseGetRight(() -> null);
+        assertEquals(first, asList(new FileInfo(TEST_DIR + "/a", REGULAR, 0), new FileInfo(TEST_DIR + "/b", REGULAR, 0)));
+        // entries created before cursor and deleted after it don't shift the rest of listing
+        testFs.create(TEST_DIR + "/0", REGULAR);
+        testFs.delete(TEST_DIR + "/d");
+        final List<FileInfo> second = testFs.ls(TEST_DIR, first.get(1).fullName, 2).elseGetRight(() -> null);
+        assertEquals(second, asList(new FileInfo(TEST_DIR + "/c", REGULAR, 0), new FileInfo(TEST_DIR + "/e", REGULAR, 0)));
+        assertTrue(testFs.ls(TEST_DIR, second.get(1).fullName, 2).elseGetRight(() -> null).isEmpty());
+        assertEquals(
+                testFs.ls(TEST_DIR).elseGetRight(() -> null),
+                testFs.ls(TEST_DIR, null, 10).elseGetRight(() -> null),
+                "Full listing should keep order of pages");
+        testFs.ls(NOPE, null, 1).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Shouldn't list non existing directory"));
+        testFs.create(TEST_FILE, REGULAR);
+        testFs.ls(TEST_FILE, null, 1).onBoth(FILE_IS_REGULAR_CHECKER, provideFail("Shouldn't list regular file"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testLsPageLimit() throws Exception {
+        setUp();
+        testFs.ls("/", null, 0);
+    }
+
+    @Test
+    public void testLsRange() throws Exception {
+        setUp();
+        testFs.create(TEST_DIR, DIRECTORY);
+        for (String name : asList("2026-09-30", "2026-10-01", "2026-10-15", "2026-10-31", "2026-11-01")) {
+            testFs.create(TEST_DIR + '/' + name, REGULAR);
+        }
+        assertEquals(
+                testFs.lsRange(TEST_DIR, "2026-10-01", "2026-10-31").elseGetRight(() -> null),
+                asList(new FileInfo(TEST_DIR + "/2026-10-01", REGULAR, 0), new FileInfo(TEST_DIR + "/2026-10-15", REGULAR, 0)));
+        assertEquals(
+                testFs.lsRange(TEST_DIR, "2026-10-16", null).elseGetRight(() -> null),
+                asList(new FileInfo(TEST_DIR + "/2026-10-31", REGULAR, 0), new FileInfo(TEST_DIR + "/2026-11-01", REGULAR, 0)));
+        assertEquals(
+                testFs.lsRange(TEST_DIR, null, "2026-10-01").elseGetRight(() -> null),
+                Collections.singletonList(new FileInfo(TEST_DIR + "/2026-09-30", REGULAR, 0)));
+        assertEquals(testFs.lsRange(TEST_DIR, null, null).elseGetRight(() -> null), testFs.ls(TEST_DIR, null, 10).elseGetRight(() -> null));
+        assertTrue(testFs.lsRange(TEST_DIR, "2026-10-15", "2026-10-15").elseGetRight(() -> null).isEmpty());
+        testFs.lsRange(NOPE, null, null).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Shouldn't list non existing directory"));
+        testFs.create(TEST_FILE, REGULAR);
+        testFs.lsRange(TEST_FILE, null, null).onBoth(FILE_IS_REGULAR_CHECKER, provideFail("Shouldn't list regular file"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testLsRangeBounds() throws Exception {
+        setUp();
+        testFs.lsRange("/", "b", "a");
+    }
+
+    @Test
+    public void testLsPrefix() throws Exception {
+        setUp();
+        testFs.create(TEST_DIR, DIRECTORY);
+        final String max = String.valueOf(Character.MAX_VALUE);
+        for (String name : asList("2026-09-30", "2026-10", "2026-10-01", "2026-10-15", "2026-11-01", "a" + max, "a" + max + "b", "b")) {
+            testFs.create(TEST_DIR + '/' + name, REGULAR);
+        }
+        assertEquals(
+                testFs.lsPrefix(TEST_DIR, "2026-10").elseGetRight(() -> null),
+                asList(
+                        new FileInfo(TEST_DIR + "/2026-10", REGULAR, 0),
+                        new FileInfo(TEST_DIR + "/2026-10-01", REGULAR, 0),
+                        new FileInfo(TEST_DIR + "/2026-10-15", REGULAR, 0)));
+        // prefix ending with the greatest character is bounded by increment of the previous one
+        assertEquals(
+                testFs.lsPrefix(TEST_DIR, "a" + max).elseGetRight(() -> null),
+                asList(new FileInfo(TEST_DIR + "/a" + max, REGULAR, 0), new FileInfo(TEST_DIR + "/a" + max + "b", REGULAR, 0)));
+        assertEquals(testFs.lsPrefix(TEST_DIR, "").elseGetRight(() -> null), testFs.ls(TEST_DIR, null, 10).elseGetRight(() -> null));
+        assertTrue(testFs.lsPrefix(TEST_DIR, "2027").elseGetRight(() -> null).isEmpty());
+        assertEquals(testFs.lsPrefix("/", "test").elseGetRight(() -> null), Collections.singletonList(new FileInfo(TEST_DIR, DIRECTORY, 0)));
+    }
+
+    @Test
+    public void testLsStream() throws Exception {
+        setUp();
+        testFs.create(TEST_DIR, DIRECTORY);
+        final int count = 2 * DirectoryListing.PAGE_SIZE + 1;
+        for (int i = 0; i < count; i++) {
+            testFs.create(String.format("%s/file%05d", TEST_DIR, i), REGULAR);
+        }
+        final Iterator<FileInfo> infos = testFs.lsStream(TEST_DIR).elseGetRight(() -> null).iterator();
+        for (int i = 0; i < count; i++) {
+            assertEquals(infos.next().fullName, String.format("%s/file%05d", TEST_DIR, i));
+        }
+        assertTrue(!infos.hasNext(), "Stream should end after the last entry");
+        testFs.lsStream(TEST_FILE).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Shouldn't list non existing directory"));
+        // directory deleted after the first page can't be listed further
+        final Iterator<FileInfo> deleted = testFs.lsStream(TEST_DIR).elseGetRight(() -> null).iterator();
+        testFs.delete(TEST_DIR);
+        try {
+            for (int i = 0; i <= DirectoryListing.PAGE_SIZE; i++) {
+                deleted.next();
+            }
+            fail("Listing of deleted directory should fail");
+        } catch (UncheckedIOException e) {
+            assertEquals(((FSError) e.getCause().getCause()).type, FSError.Type.PATH_NOT_FOUND);
+        }
+    }
+
     @DataProvider(name = "testMove")
     private Iterator<Object[]> data4testMove() {
         return Stream
@@ -433,6 +980,12 @@ public class FSTest {
                                                 MOVED_DIR,
                                                 new FileInfo(MOVED_DIR, DIRECTORY, 2),
                                                 new FileInfo(MOVED_DIR + INNER_FILE, REGULAR, 2))},
+                                // move between sibling directories adjusts sizes of both
+                                {INNER_FILE_IN_TEST_DIR, TEST_DIR2 + TEST_FILE,
+                                        provideFail("Should move file between sibling directories"),
+                                        checks.provideDirChecker(TEST_DIR, new FileInfo(TEST_DIR, DIRECTORY, 0))
+                                                .andThen(checks.provideFileChecker(TEST_DIR2 + TEST_FILE, new FileInfo(TEST_DIR2 + TEST_FILE, REGULAR, 2), new byte[]{1, 2}))
+                                                .andThen(__ -> assertEquals(testFs.info(TEST_DIR2).elseGetRight(() -> null), new FileInfo(TEST_DIR2, DIRECTORY, 4)))},
                                 // move non existing file
                                 {NOPE, MOVED_NOPE, PATH_NOT_FOUND_CHECKER, provideFail("Shouldn't move non existing file")},
                                 // move over existing file
@@ -467,6 +1020,113 @@ public class FSTest {
         result.onBoth(leftChecker, rightChecker);
     }
 
+    @Test
+    public void testSnapshot() throws Exception {
+        setUp();
+        testFs.create(TEST_DIR, DIRECTORY);
+        testFs.create(INNER_DIR_IN_TEST_DIR, DIRECTORY);
+        testFs.create(INNER_FILE_IN_TEST_DIR, REGULAR);
+        testFs.create(TEST_FILE, REGULAR);
+        testFs.write(INNER_FILE_IN_TEST_DIR, new byte[]{1, 2, 3});
+        testFs.append(INNER_FILE_IN_TEST_DIR, new byte[]{4});
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        testFs.snapshot(out);
+        // file system stays usable and mutations after export don't change snapshot
+        testFs.append(INNER_FILE_IN_TEST_DIR, new byte[]{5});
+        for (FSConfig.Mode restoredMode : FSConfig.Mode.values()) {
+            final FS restored = FS.restore(new ByteArrayInputStream(out.toByteArray()), FS_SIZE, restoredMode).both(
+                    e -> {
+                        throw new AssertionError("File system restoring failed", e);
+                    },
+                    x -> x);
+            assertEquals(restored.used(), 4);
+            assertEquals(restored.read(INNER_FILE_IN_TEST_DIR).elseGetRight(() -> null).get(), new byte[]{1, 2, 3, 4});
+            assertEquals(restored.read(TEST_FILE).elseGetRight(() -> null).length(), 0);
+            assertEqualsNoOrder(
+                    restored.ls(TEST_DIR).elseGetRight(() -> null).toArray(),
+                    testFs.ls(TEST_DIR).elseGetRight(() -> null).stream().map(info -> new FileInfo(info.fullName, info.type, info.type == DIRECTORY ? 0 : 4)).toArray());
+            restored.append(TEST_FILE, new byte[]{1}).onLeft(provideFail("Restored file system should be mutable"));
+        }
+    }
+
+    @Test
+    public void testSnapshotByTraversal() throws Exception {
+        setUp();
+        testFs.create(TEST_DIR, DIRECTORY);
+        testFs.create(INNER_DIR_IN_TEST_DIR, DIRECTORY);
+        testFs.create(INNER_FILE_IN_TEST_DIR, REGULAR);
+        testFs.create(TEST_FILE, REGULAR);
+        testFs.write(INNER_FILE_IN_TEST_DIR, new byte[]{1, 2, 3});
+        testFs.write(TEST_FILE, new byte[]{4});
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        testFs.snapshot(expected);
+        final ByteArrayOutputStream traversed = new ByteArrayOutputStream();
+        // default implementation writes the same format, so file systems not overriding it can be exported
+        FSConfig.snapshot(testFs, Channels.newChannel(traversed));
+        assertEquals(traversed.toByteArray(), expected.toByteArray());
+    }
+
+    @Test
+    public void testErrorMessageDescribesMomentOfError() throws Exception {
+        setUp();
+        testFs.create(TEST_DIR, DIRECTORY);
+        final FSError error = testFs.write(TEST_DIR, new byte[]{1}).getLeft(null);
+        // message is formatted after directory is moved
+        testFs.move(TEST_DIR, MOVED_DIR);
+        assertTrue(error.getMessage().endsWith(TEST_DIR), error.getMessage());
+    }
+
+    @Test
+    public void testRestoreFailures() throws Exception {
+        setUp();
+        testFs.create(TEST_FILE, REGULAR);
+        testFs.write(TEST_FILE, new byte[10]);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        testFs.snapshot(out);
+        final byte[] snapshot = out.toByteArray();
+        assertEquals(FS.restore(new ByteArrayInputStream(snapshot), 9, mode).getLeft().type, FSError.Type.FS_CREATION_FAILED);
+        assertEquals(FS.restore(new ByteArrayInputStream(snapshot), -1, mode).getLeft().type, FSError.Type.FS_CREATION_FAILED);
+        assertEquals(
+                FS.restore(new ByteArrayInputStream(Arrays.copyOf(snapshot, snapshot.length - 1)), FS_SIZE, mode).getLeft().type,
+                FSError.Type.FS_CREATION_FAILED);
+        assertEquals(FS.restore(new ByteArrayInputStream(new byte[8]), FS_SIZE, mode).getLeft().type, FSError.Type.FS_CREATION_FAILED);
+    }
+
+    @Test
+    public void testStreams() throws Exception {
+        setUp();
+        testFs.create(TEST_FILE, REGULAR);
+        testFs.create(TEST_DIR, DIRECTORY);
+        try (OutputStream out = testFs.openOutputStream(TEST_FILE, false).elseGetRight(() -> null)) {
+            out.write(1);
+            out.write(new byte[]{2, 3});
+        }
+        try (OutputStream out = testFs.openOutputStream(TEST_FILE, true).elseGetRight(() -> null)) {
+            out.write(new byte[]{4, 5});
+        }
+        assertEquals(testFs.read(TEST_FILE).elseGetRight(() -> null).get(), new byte[]{1, 2, 3, 4, 5});
+        try (InputStream in = testFs.openInputStream(TEST_FILE).elseGetRight(() -> null)) {
+            assertEquals(in.read(), 1);
+            final byte[] rest = new byte[10];
+            assertEquals(in.read(rest), 4);
+            assertEquals(Arrays.copyOf(rest, 4), new byte[]{2, 3, 4, 5});
+            assertEquals(in.read(), -1);
+        }
+        try (WritableByteChannel channel = testFs.openWrite(TEST_FILE).elseGetRight(() -> null)) {
+            assertEquals(testFs.used(), 0, "File should be emptied");
+            try {
+                channel.write(ByteBuffer.allocate(FS_SIZE + 1));
+                fail("Shouldn't write beyond free space");
+            } catch (IOException e) {
+                assertEquals(((FSError) e.getCause()).type, FSError.Type.NO_FREE_SPACE);
+            }
+        }
+        testFs.openRead(NOPE).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Shouldn't open non existing file"));
+        testFs.openRead(TEST_DIR).onBoth(FILE_IS_DIRECTORY_CHECKER, provideFail("Shouldn't open directory"));
+        testFs.openAppend(TEST_DIR).onBoth(FILE_IS_DIRECTORY_CHECKER, provideFail("Shouldn't open directory"));
+        testFs.openWrite(NOPE).onBoth(PATH_NOT_FOUND_CHECKER, provideFail("Shouldn't open non existing file"));
+    }
+
     @DataProvider(name = "testInit")
     private Object[][] data4testInit() {
         return new Object[][]{
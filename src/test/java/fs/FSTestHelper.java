@@ -3,6 +3,7 @@
  */
 package fs;
 
+import static fs.FSError.Type.ABORTED;
 import static fs.FSError.Type.DESTINATION_IS_SOURCE_SUBTREE;
 import static fs.FSError.Type.FILE_ALREADY_EXISTS;
 import static fs.FSError.Type.FILE_IS_DIRECTORY;
@@ -26,6 +27,7 @@ final class ResultCheckers {
     static final Consumer<FSError> PATH_NOT_FOUND_CHECKER = provideErrorTypeChecker(PATH_NOT_FOUND);
     static final Consumer<FSError> NO_FREE_SPACE_CHECKER = provideErrorTypeChecker(NO_FREE_SPACE);
     static final Consumer<FSError> DESTINATION_IS_SOURCE_SUBTREE_CHECKER = provideErrorTypeChecker(DESTINATION_IS_SOURCE_SUBTREE);
+    static final Consumer<FSError> ABORTED_CHECKER = provideErrorTypeChecker(ABORTED);
 
     private ResultCheckers() {
     }
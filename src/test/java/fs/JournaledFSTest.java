@@ -0,0 +1,300 @@
+package fs;
+
+import static fs.FSError.Type.FS_CREATION_FAILED;
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import data.ByteArray;
+import fs.impl.FSConfig;
+import helpers.TestHelper;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Factory;
+import org.testng.annotations.Test;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+public class JournaledFSTest {
+    private static final long SIZE = 1024 * 1024;
+
+    private final FSConfig.Mode mode;
+    private final FSConfig.Sync sync;
+
+    private Path directory;
+    private Path journal;
+
+    @Factory(dataProvider = "configs")
+    public JournaledFSTest(FSConfig.Mode mode, FSConfig.Sync sync) {
+        this.mode = mode;
+        this.sync = sync;
+    }
+
+    @DataProvider(name = "configs")
+    public static Object[][] configs() {
+        final List<Object[]> result = new ArrayList<>();
+        for (FSConfig.Mode mode : FSConfig.Mode.values()) {
+            for (FSConfig.Sync sync : FSConfig.Sync.values()) {
+                result.add(new Object[]{mode, sync});
+            }
+        }
+        return result.toArray(new Object[result.size()][]);
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("fs");
+        journal = directory.resolve("journal");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws Exception {
+        TestHelper.deleteRecursively(directory);
+    }
+
+    private JournaledFS init(long size) {
+        return FS.init(size, mode, journal, sync).both(
+                e -> {
+                    throw new AssertionError("File system initialization failed", e);
+                },
+                x -> x);
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        try (JournaledFS testObject = init(SIZE)) {
+            testObject.create("/dir", DIRECTORY);
+            testObject.create("/dir/file", REGULAR);
+            testObject.write("/dir/file", ByteBuffer.wrap(new byte[]{1}), ByteBuffer.wrap(new byte[]{0, 2, 3}, 1, 2));
+            testObject.write("/dir/file", 5, new byte[]{6});
+            testObject.append("/dir/file", ByteBuffer.allocateDirect(1).put(0, (byte) 7));
+            testObject.copy("/dir", "/copy");
+            testObject.move("/copy/file", "/moved");
+            testObject.create("/deleted", REGULAR);
+            testObject.delete("/deleted");
+            // only successful operations of batch are recorded
+            testObject.apply(
+                    Batch.builder()
+                            .create("/batched", DIRECTORY)
+                            .create("/batched/file", REGULAR)
+                            .create("/nope/file", REGULAR)
+                            .append("/batched/file", new byte[]{8})
+                            .build());
+            testObject.apply(Batch.builder().create("/aborted", REGULAR).delete("/nope").atomic().build());
+            // failed mutations aren't recorded, so they don't break replay
+            assertTrue(testObject.create("/dir", REGULAR).isLeft(), "Existing file is created");
+        }
+        try (JournaledFS testObject = init(SIZE)) {
+            final ByteArray expected = new ByteArray(new byte[]{1, 2, 3, 0, 0, 6, 7});
+            assertEquals(testObject.read("/dir/file").elseGetRight(() -> null), expected);
+            assertEquals(testObject.read("/moved").elseGetRight(() -> null), expected);
+            assertEquals(testObject.ls("/copy").elseGetRight(() -> null).size(), 0);
+            assertTrue(testObject.info("/deleted").isLeft(), "Deleted file is restored");
+            assertEquals(testObject.read("/batched/file").elseGetRight(() -> null), new ByteArray(new byte[]{8}));
+            assertTrue(testObject.info("/aborted").isLeft(), "Aborted batch is restored");
+            assertEquals(testObject.used(), 2 * expected.length() + 1);
+            testObject.delete("/dir");
+        }
+        try (JournaledFS testObject = init(SIZE)) {
+            assertTrue(testObject.info("/dir").isLeft(), "Deleted directory is restored");
+            assertEquals(testObject.used(), 8);
+        }
+    }
+
+    @Test
+    public void testSync() throws Exception {
+        try (JournaledFS testObject = init(SIZE)) {
+            testObject.create("/file", REGULAR);
+            testObject.append("/file", new byte[]{1});
+            testObject.sync();
+            // journal is replayed into another file system while the first one is still open
+            try (JournaledFS copy = init(SIZE)) {
+                assertEquals(copy.read("/file").elseGetRight(() -> null), new ByteArray(new byte[]{1}));
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentMutations() throws Exception {
+        final int threads = 4;
+        final int appends = 100;
+        try (JournaledFS testObject = init(SIZE)) {
+            if (mode != FSConfig.Mode.SINGLE_THREADED) {
+                final ExecutorService executor = Executors.newFixedThreadPool(threads);
+                try {
+                    final List<Future<?>> futures = new ArrayList<>();
+                    for (int i = 0; i < threads; i++) {
+                        final String path = "/file" + i;
+                        futures.add(
+                                executor.submit(
+                                        () -> {
+                                            testObject.create(path, REGULAR);
+                                            for (int j = 0; j < appends; j++) {
+                                                testObject.append(path, new byte[]{(byte) j});
+                                            }
+                                        }));
+                    }
+                    for (Future<?> future : futures) {
+                        future.get();
+                    }
+                } finally {
+                    executor.shutdown();
+                }
+            }
+        }
+        try (JournaledFS testObject = init(SIZE)) {
+            assertEquals(testObject.used(), mode != FSConfig.Mode.SINGLE_THREADED ? threads * appends : 0);
+        }
+    }
+
+    @Test
+    public void testTornTail() throws Exception {
+        try (JournaledFS testObject = init(SIZE)) {
+            testObject.create("/file", REGULAR);
+            testObject.append("/file", new byte[]{1});
+            testObject.append("/file", new byte[]{2});
+        }
+        final long size = Files.size(journal);
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            // crash in the middle of the last record
+            channel.truncate(size - 1);
+        }
+        try (JournaledFS testObject = init(SIZE)) {
+            assertEquals(testObject.read("/file").elseGetRight(() -> null), new ByteArray(new byte[]{1}));
+            testObject.append("/file", new byte[]{3});
+        }
+        try (JournaledFS testObject = init(SIZE)) {
+            assertEquals(testObject.read("/file").elseGetRight(() -> null), new ByteArray(new byte[]{1, 3}));
+        }
+    }
+
+    @Test
+    public void testTransactionReplay() throws Exception {
+        try (JournaledFS testObject = init(SIZE)) {
+            testObject.transaction(
+                    tx -> {
+                        tx.create("/dir", DIRECTORY);
+                        tx.create("/dir/file", REGULAR);
+                        tx.write("/dir/file", new byte[]{1, 2});
+                        return tx.move("/dir", "/moved");
+                    });
+            // rolled back transaction isn't recorded
+            testObject.transaction(
+                    tx -> {
+                        tx.delete("/moved");
+                        return tx.delete("/nope");
+                    });
+            testObject.transaction(
+                    tx -> {
+                        tx.append("/moved/file", new byte[]{3});
+                        return tx.create("/torn", REGULAR);
+                    });
+        }
+        final long size = Files.size(journal);
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            // crash in the middle of commit record drops the whole transaction
+            channel.truncate(size - 1);
+        }
+        try (JournaledFS testObject = init(SIZE)) {
+            assertEquals(testObject.read("/moved/file").elseGetRight(() -> null), new ByteArray(new byte[]{1, 2}));
+            assertTrue(testObject.info("/dir").isLeft(), "Moved directory is restored");
+            assertTrue(testObject.info("/torn").isLeft(), "Torn transaction is replayed");
+            testObject.append("/moved/file", new byte[]{4});
+        }
+        try (JournaledFS testObject = init(SIZE)) {
+            assertEquals(testObject.read("/moved/file").elseGetRight(() -> null), new ByteArray(new byte[]{1, 2, 4}));
+        }
+    }
+
+    @Test
+    public void testTransactionReusingBuffer() throws Exception {
+        final byte[] content = {1, 1, 1};
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(2);
+        try (JournaledFS testObject = init(SIZE)) {
+            testObject.transaction(
+                    tx -> {
+                        tx.create("/a", REGULAR);
+                        tx.create("/b", REGULAR);
+                        tx.write("/a", content);
+                        // records of transaction are appended after commit, so they shouldn't see content changed later
+                        content[0] = 9;
+                        tx.append("/a", content);
+                        content[0] = 7;
+                        buffer.put(0, (byte) 5).put(1, (byte) 6);
+                        tx.write("/b", buffer);
+                        buffer.put(0, (byte) 8);
+                        return tx.write("/a", 1, content);
+                    });
+            content[1] = 0;
+            assertEquals(testObject.read("/a").elseGetRight(() -> null), new ByteArray(new byte[]{1, 7, 1, 1, 1, 1}));
+        }
+        try (JournaledFS testObject = init(SIZE)) {
+            assertEquals(testObject.read("/a").elseGetRight(() -> null), new ByteArray(new byte[]{1, 7, 1, 1, 1, 1}));
+            assertEquals(testObject.read("/b").elseGetRight(() -> null), new ByteArray(new byte[]{5, 6}));
+        }
+    }
+
+    @Test
+    public void testChannelReplay() throws Exception {
+        final byte[] content = new byte[3 * 64 * 1024 + 1];
+        new Random(content.length).nextBytes(content);
+        try (JournaledFS testObject = init(SIZE)) {
+            testObject.create("/file", REGULAR);
+            testObject.append("/file", new byte[]{1});
+            try (OutputStream out = testObject.openOutputStream("/file", false).elseGetRight(() -> null)) {
+                out.write(content);
+            }
+        }
+        try (JournaledFS testObject = init(SIZE)) {
+            assertEquals(testObject.read("/file").elseGetRight(() -> null), new ByteArray(content));
+        }
+    }
+
+    @Test
+    public void testCorruptedRecord() throws Exception {
+        try (JournaledFS testObject = init(SIZE)) {
+            testObject.create("/file", REGULAR);
+            testObject.append("/file", new byte[]{1});
+            testObject.append("/file", new byte[]{2});
+        }
+        final byte[] bytes = Files.readAllBytes(journal);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(journal, bytes);
+        try (JournaledFS testObject = init(SIZE)) {
+            assertEquals(testObject.read("/file").elseGetRight(() -> null), new ByteArray(new byte[]{1}));
+        }
+    }
+
+    @Test
+    public void testContentShouldFitIntoSize() throws Exception {
+        try (JournaledFS testObject = init(SIZE)) {
+            testObject.create("/file", REGULAR);
+            testObject.write("/file", new byte[10]);
+        }
+        assertEquals(FS.init(9, mode, journal, sync).getLeft().type, FS_CREATION_FAILED);
+        try (JournaledFS testObject = init(10)) {
+            assertEquals(testObject.free(), 0);
+        }
+    }
+
+    @Test
+    public void testNegativeSize() throws Exception {
+        assertEquals(FS.init(-1, mode, journal, sync).getLeft().type, FS_CREATION_FAILED);
+    }
+}
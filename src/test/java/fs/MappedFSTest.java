@@ -0,0 +1,170 @@
+package fs;
+
+import static fs.FSError.Type.FS_CREATION_FAILED;
+import static fs.FileType.DIRECTORY;
+import static fs.FileType.REGULAR;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import data.ByteArray;
+import fs.impl.FSConfig;
+import helpers.TestHelper;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Factory;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+public class MappedFSTest {
+    private static final long SIZE = 64 * 1024 * 1024;
+
+    private final FSConfig.Mode mode;
+
+    private Path image;
+
+    @Factory(dataProvider = "modes")
+    public MappedFSTest(FSConfig.Mode mode) {
+        this.mode = mode;
+    }
+
+    @DataProvider(name = "modes")
+    public static Object[][] modes() {
+        return new Object[][]{{FSConfig.Mode.SINGLE_THREADED}, {FSConfig.Mode.CONCURRENT}};
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        image = Files.createTempDirectory("fs");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws Exception {
+        TestHelper.deleteRecursively(image);
+    }
+
+    private MappedFS open(long size) {
+        return FS.open(image, size, mode).both(
+                e -> {
+                    throw new AssertionError("File system opening failed", e);
+                },
+                x -> x);
+    }
+
+    private static byte[] content(int size) {
+        final byte[] result = new byte[size];
+        new Random(size).nextBytes(result);
+        return result;
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        final byte[] large = content(5 * 1024 * 1024);
+        try (MappedFS testObject = open(SIZE)) {
+            testObject.create("/dir", DIRECTORY);
+            testObject.create("/dir/inner", DIRECTORY);
+            testObject.create("/dir/inner/large", REGULAR);
+            testObject.create("/small", REGULAR);
+            testObject.create("/empty", REGULAR);
+            testObject.write("/dir/inner/large", large);
+            testObject.append("/small", new byte[]{1, 2, 3});
+        }
+        try (MappedFS testObject = open(SIZE)) {
+            assertEquals(testObject.used(), large.length + 3);
+            assertEquals(testObject.read("/dir/inner/large").elseGetRight(() -> null).get(), large);
+            assertEquals(testObject.read("/small").elseGetRight(() -> null), new ByteArray(new byte[]{1, 2, 3}));
+            assertEquals(testObject.info("/empty").elseGetRight(() -> null).size, 0);
+            testObject.append("/small", new byte[]{4});
+            testObject.delete("/dir");
+        }
+        try (MappedFS testObject = open(SIZE)) {
+            assertEquals(testObject.used(), 4);
+            assertEquals(testObject.read("/small").elseGetRight(() -> null), new ByteArray(new byte[]{1, 2, 3, 4}));
+            assertTrue(testObject.info("/dir").isLeft(), "Deleted directory is restored");
+        }
+    }
+
+    @Test
+    public void testPagesOfDeletedContentAreReused() throws Exception {
+        final byte[] content = content(20 * 1024 * 1024);
+        try (MappedFS testObject = open(SIZE)) {
+            testObject.create("/file", REGULAR);
+            testObject.write("/file", content);
+            testObject.delete("/file");
+            // freed pages are reused only after saved tree doesn't refer them
+            testObject.flush();
+            testObject.create("/file", REGULAR);
+            testObject.write("/file", content);
+        }
+        final long imageSize = Files.size(image.resolve("content"));
+        try (MappedFS testObject = open(SIZE)) {
+            testObject.write("/file", Arrays.copyOf(content, 1));
+            testObject.flush();
+            testObject.append("/file", content);
+        }
+        assertEquals(Files.size(image.resolve("content")), imageSize, "Freed pages aren't reused");
+    }
+
+    @Test
+    public void testFlush() throws Exception {
+        try (MappedFS testObject = open(SIZE)) {
+            testObject.create("/file", REGULAR);
+            testObject.write("/file", new byte[]{1});
+            testObject.flush();
+            try (MappedFS copy = FS.open(image, SIZE, mode).elseGetRight(() -> null)) {
+                // image is opened again to check what is written by flush
+                assertEquals(copy.read("/file").elseGetRight(() -> null), new ByteArray(new byte[]{1}));
+            }
+        }
+    }
+
+    @Test
+    public void testReopenWithoutFlush() throws Exception {
+        final byte[] first = content(3 * 4096);
+        final byte[] second = content(5 * 4096);
+        try (MappedFS testObject = open(SIZE)) {
+            testObject.create("/first", REGULAR);
+            testObject.create("/rewritten", REGULAR);
+            testObject.write("/first", first);
+            testObject.write("/rewritten", first);
+            testObject.flush();
+            testObject.delete("/first");
+            testObject.write("/rewritten", second);
+            testObject.create("/second", REGULAR);
+            testObject.write("/second", second);
+            // image is opened again without flush as it would be after crash
+            try (MappedFS copy = FS.open(image, SIZE, mode).elseGetRight(() -> null)) {
+                assertEquals(copy.read("/first").elseGetRight(() -> null).get(), first);
+                assertEquals(copy.read("/rewritten").elseGetRight(() -> null).get(), first);
+                assertTrue(copy.info("/second").isLeft(), "File created after flush is restored");
+            }
+        }
+    }
+
+    @Test
+    public void testContentShouldFitIntoSize() throws Exception {
+        try (MappedFS testObject = open(SIZE)) {
+            testObject.create("/file", REGULAR);
+            testObject.write("/file", new byte[10]);
+        }
+        assertEquals(FS.open(image, 9, mode).getLeft().type, FS_CREATION_FAILED);
+        try (MappedFS testObject = open(10)) {
+            assertEquals(testObject.free(), 0);
+            assertTrue(testObject.append("/file", new byte[1]).isLeft(), "Capacity limit isn't restored");
+        }
+    }
+
+    @Test
+    public void testCorruptedImage() throws Exception {
+        open(SIZE).close();
+        Files.write(image.resolve("tree"), new byte[]{1, 2, 3});
+        assertEquals(FS.open(image, SIZE, mode).getLeft().type, FS_CREATION_FAILED);
+    }
+}
@@ -0,0 +1,198 @@
+package fs.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import data.ByteArray;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+public class BlockStorageTest {
+    @Test
+    public void testSmallAppendsAreCoalesced() throws Exception {
+        final BlockStorage testObject = new BlockStorage(4);
+        for (byte i = 0; i < 10; i++) {
+            testObject.append(new byte[]{i}, 0, 1);
+        }
+        assertEquals(testObject.size(), 10);
+        assertEquals(testObject.blockCount(), 3, "Small appends aren't coalesced into blocks");
+        assertEquals(testObject.content().get(), new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9});
+        assertEquals(testObject.content(3, 4).get(), new byte[]{3, 4, 5, 6}, "Read across blocks");
+        assertEquals(testObject.content(8, 4).get(), new byte[]{8, 9}, "Read from tail");
+        assertEquals(testObject.content(10, 4).length(), 0, "Read after end");
+    }
+
+    @Test
+    public void testLargeAppendIsSplitIntoBlocks() throws Exception {
+        final BlockStorage testObject = new BlockStorage(4);
+        testObject.append(new byte[]{1, 2}, 0, 2);
+        testObject.append(new byte[]{3, 4, 5, 6, 7, 8, 9}, 0, 7);
+        assertEquals(testObject.blockCount(), 3, "Tail isn't filled before blocks of large append");
+        assertEquals(testObject.content().get(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+    }
+
+    @Test
+    public void testWriteIntoLargeAppendRebuildsOverlappedBlocks() throws Exception {
+        final BlockStorage testObject = new BlockStorage(4);
+        testObject.append(new byte[400], 0, 400);
+        testObject.append(ByteBuffer.allocateDirect(400));
+        testObject.append(ByteArray.zeros(400));
+        final ByteArray[] before = new ByteArray[testObject.blockCount()];
+        for (int i = 0; i < before.length; i++) {
+            before[i] = testObject.block(i);
+        }
+        testObject.write(401, new byte[]{1, 1, 1, 1});
+        assertEquals(testObject.blockCount(), 300);
+        for (int i = 0; i < before.length; i++) {
+            if (i == 100 || i == 101) {
+                assertNotSame(testObject.block(i), before[i], "Overlapped block " + i + " isn't rebuilt");
+            } else {
+                assertSame(testObject.block(i), before[i], "Block " + i + " isn't overlapped but it's rebuilt");
+            }
+        }
+        assertEquals(testObject.content(400, 6).get(), new byte[]{0, 1, 1, 1, 1, 0});
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        final BlockStorage testObject = new BlockStorage(4);
+        testObject.append(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, 0, 10);
+        testObject.write(3, new byte[]{0, 0});
+        assertEquals(testObject.content().get(), new byte[]{1, 2, 3, 0, 0, 6, 7, 8, 9, 10});
+        testObject.write(12, new byte[]{1});
+        assertEquals(testObject.content().get(), new byte[]{1, 2, 3, 0, 0, 6, 7, 8, 9, 10, 0, 0, 1}, "Gap isn't filled with zeros");
+        testObject.write(8, new byte[]{5, 5, 5, 5, 5, 5});
+        assertEquals(testObject.content().get(), new byte[]{1, 2, 3, 0, 0, 6, 7, 8, 5, 5, 5, 5, 5, 5});
+    }
+
+    @Test
+    public void testWritesKeepBlocksBounded() throws Exception {
+        final BlockStorage testObject = new BlockStorage(4);
+        final byte[] expected = new byte[400];
+        testObject.append(expected, 0, expected.length);
+        final Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            final byte[] content = new byte[1 + random.nextInt(6)];
+            random.nextBytes(content);
+            final int offset = random.nextInt(expected.length - content.length);
+            testObject.write(offset, content);
+            System.arraycopy(content, 0, expected, offset, content.length);
+        }
+        assertEquals(testObject.content().get(), expected);
+        assertEquals(testObject.blockCount(), expected.length / 4, "Rewritten blocks are fragmented or merged");
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        final BlockStorage testObject = new BlockStorage(4);
+        testObject.append(new byte[]{1, 2, 3, 4, 5, 6}, 0, 6);
+        final BlockStorage copy = testObject.copy();
+        final BlockStorage copyOfCopy = copy.copy();
+        testObject.append(new byte[]{7}, 0, 1);
+        copy.write(0, new byte[]{0});
+        copyOfCopy.append(new byte[]{8, 9, 10}, 0, 3);
+        assertEquals(testObject.content().get(), new byte[]{1, 2, 3, 4, 5, 6, 7});
+        assertEquals(copy.content().get(), new byte[]{0, 2, 3, 4, 5, 6});
+        assertEquals(copyOfCopy.content().get(), new byte[]{1, 2, 3, 4, 5, 6, 8, 9, 10});
+    }
+
+    @Test
+    public void testDeduplication() throws Exception {
+        final Deduplicator deduplicator = new Deduplicator();
+        final BlockStorage first = new BlockStorage(4, deduplicator);
+        final BlockStorage second = new BlockStorage(4, deduplicator);
+        first.append(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, 0, 10);
+        second.append(new ByteArray(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}));
+        assertEquals(deduplicator.physicalSize(), 8 + 2 + 2, "Identical blocks aren't stored once");
+        second.write(1, new byte[]{0});
+        assertEquals(second.content().get(), new byte[]{1, 0, 3, 4, 5, 6, 7, 8, 9, 10});
+        assertEquals(first.content().get(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+        assertEquals(deduplicator.physicalSize(), 8 + 4 + 2 + 2, "Rewritten block isn't stored separately");
+        final BlockStorage copy = first.copy();
+        assertEquals(deduplicator.physicalSize(), 8 + 4 + 2 + 2 + 2, "Only tail should be copied");
+        first.clear();
+        second.clear();
+        assertEquals(deduplicator.physicalSize(), 8 + 2, "Blocks referenced by copy are released");
+        copy.clear();
+        assertEquals(deduplicator.physicalSize(), 0);
+    }
+
+    @Test
+    public void testRandomOperations() throws Exception {
+        checkRandomOperations(new BlockStorage(16));
+    }
+
+    @Test
+    public void testRandomOperationsWithDeduplication() throws Exception {
+        final Deduplicator deduplicator = new Deduplicator();
+        final BlockStorage testObject = new BlockStorage(16, deduplicator);
+        checkRandomOperations(testObject);
+        assertTrue(deduplicator.physicalSize() <= testObject.size());
+        testObject.clear();
+        assertEquals(deduplicator.physicalSize(), 0, "Blocks aren't released");
+    }
+
+    /**
+     * checks storage against array of bytes under random appends, writes, truncations and reads
+     */
+    static void checkRandomOperations(ContentStorage testObject) {
+        final Random random = new Random(42);
+        byte[] expected = new byte[0];
+        for (int i = 0; i < 2000; i++) {
+            final byte[] content = new byte[random.nextInt(40)];
+            random.nextBytes(content);
+            final int operation = random.nextInt(4);
+            if (operation == 0) {
+                testObject.append(content, 0, content.length);
+                expected = concat(expected, content);
+            } else if (operation == 1) {
+                final ByteBuffer buffer = random.nextBoolean() ? ByteBuffer.allocate(content.length + 2) : ByteBuffer.allocateDirect(content.length + 2);
+                buffer.put((byte) 7).put(content).put((byte) 7).flip().position(1).limit(content.length + 1);
+                testObject.append(buffer);
+                assertEquals(buffer.position(), buffer.limit(), "Buffer isn't consumed");
+                expected = concat(expected, content);
+            } else if (operation == 2) {
+                final int size = expected.length - random.nextInt(Math.min(expected.length, 64) + 1);
+                testObject.truncate(size);
+                expected = Arrays.copyOf(expected, size);
+            } else {
+                final int offset = random.nextInt(expected.length + 8);
+                testObject.write(offset, content);
+                final byte[] updated = Arrays.copyOf(expected, Math.max(expected.length, offset + content.length));
+                System.arraycopy(content, 0, updated, offset, content.length);
+                expected = updated;
+            }
+            assertEquals(testObject.size(), expected.length);
+            final int offset = random.nextInt(expected.length + 1);
+            final int length = random.nextInt(64);
+            assertEquals(
+                    testObject.content(offset, length).get(),
+                    Arrays.copyOfRange(expected, offset, Math.min(expected.length, offset + length)),
+                    "Failure on step " + i);
+            final ByteBuffer target = ByteBuffer.allocate(length + 1);
+            target.position(1);
+            final int read = testObject.read(offset, target);
+            assertEquals(read, Math.min(length, expected.length - offset));
+            assertEquals(target.position(), 1 + read);
+            assertEquals(
+                    Arrays.copyOfRange(target.array(), 1, 1 + read),
+                    Arrays.copyOfRange(expected, offset, offset + read),
+                    "Failure of read on step " + i);
+        }
+        assertEquals(testObject.content().get(), expected);
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        final byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
@@ -0,0 +1,52 @@
+package fs.impl;
+
+import static fs.FileType.REGULAR;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-17)
+ */
+public class JournalTest {
+    @Test
+    public void testFailedFlushStopsJournal() throws Exception {
+        final java.nio.file.Path file = Files.createTempFile("journal", null);
+        try {
+            final FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            final Journal testObject = new Journal(channel, FSConfig.Sync.EVERY_OPERATION, 0);
+            final long position = testObject.append(Journal.create("/a", REGULAR));
+            // closed channel fails flushing like broken disk
+            channel.close();
+            try {
+                testObject.commit(position);
+                fail("Failure of flushing should be thrown");
+            } catch (UncheckedIOException e) {
+                assertEquals(e.getCause().getClass(), ClosedChannelException.class);
+            }
+            // mutation of failed record is applied, so records after it would be replayed without it
+            try {
+                testObject.append(Journal.create("/b", REGULAR));
+                fail("Journal accepts records after failure of flushing");
+            } catch (UncheckedIOException e) {
+                assertEquals(e.getMessage(), "Journal isn't writable");
+            }
+            try {
+                testObject.sync();
+                fail("Journal is flushed after failure of flushing");
+            } catch (IOException e) {
+                assertEquals(e.getMessage(), "Journal isn't writable");
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package fs.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import fs.LookupCacheStats;
+import org.testng.annotations.Test;
+
+/**
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+public class LookupCacheTest {
+    private final FSNode node = FSNode.createRoot();
+
+    @Test
+    public void testInvalidateSubtree() throws Exception {
+        final LookupCache testObject = new LookupCache(16);
+        testObject.put(Path.parse("/a"), node);
+        testObject.put(Path.parse("/a/b"), node);
+        testObject.put(Path.parse("/a/b/c"), node);
+        testObject.put(Path.parse("/ab"), node);
+        testObject.put(Path.parse("/a0"), node);
+
+        testObject.invalidate(Path.parse("/a/"));
+
+        assertNull(testObject.get(Path.parse("/a")), "Invalidated path is cached");
+        assertNull(testObject.get(Path.parse("/a/b")), "Path under invalidated one is cached");
+        assertNull(testObject.get(Path.parse("/a/b/c")), "Path under invalidated one is cached");
+        assertSame(testObject.get(Path.parse("/ab")), node, "Sibling of invalidated path isn't cached");
+        assertSame(testObject.get(Path.parse("//a0")), node, "Sibling of invalidated path isn't cached");
+        assertEquals(testObject.stats(), new LookupCacheStats(2, 3, 2, 16));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        final LookupCache testObject = new LookupCache(2);
+        testObject.put(Path.parse("/a"), node);
+        testObject.put(Path.parse("/b"), node);
+        testObject.get(Path.parse("/a"));
+        testObject.put(Path.parse("/c"), node);
+
+        assertNull(testObject.get(Path.parse("/b")), "Least recently used path isn't evicted");
+        assertSame(testObject.get(Path.parse("/a")), node, "Recently used path is evicted");
+        assertSame(testObject.get(Path.parse("/c")), node, "Recently added path is evicted");
+        testObject.invalidate(Path.parse("/b"));
+        assertEquals(testObject.stats(), new LookupCacheStats(3, 1, 2, 2));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        final LookupCache testObject = new LookupCache(0);
+        testObject.put(Path.parse("/a"), node);
+        assertNull(testObject.get(Path.parse("/a")));
+        assertEquals(testObject.stats(), new LookupCacheStats(0, 0, 0, 0));
+    }
+}
@@ -0,0 +1,65 @@
+package fs.impl;
+
+import static fs.impl.SlabAllocator.PAGE_SIZE;
+import static org.testng.Assert.assertEquals;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+/**
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+public class OffHeapStorageTest {
+    @Test
+    public void testWrite() throws Exception {
+        final OffHeapStorage testObject = new OffHeapStorage(new SlabAllocator());
+        testObject.append(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, 0, 10);
+        testObject.write(3, new byte[]{0, 0});
+        assertEquals(testObject.content().get(), new byte[]{1, 2, 3, 0, 0, 6, 7, 8, 9, 10});
+        testObject.write(PAGE_SIZE + 1, new byte[]{1});
+        final byte[] expected = new byte[PAGE_SIZE + 2];
+        System.arraycopy(new byte[]{1, 2, 3, 0, 0, 6, 7, 8, 9, 10}, 0, expected, 0, 10);
+        expected[PAGE_SIZE + 1] = 1;
+        assertEquals(testObject.content().get(), expected, "Gap isn't filled with zeros");
+        assertEquals(testObject.content(PAGE_SIZE - 1, 3).get(), new byte[]{0, 0, 1}, "Read across pages");
+    }
+
+    @Test
+    public void testPagesAreReleased() throws Exception {
+        final SlabAllocator allocator = new SlabAllocator();
+        final OffHeapStorage testObject = new OffHeapStorage(allocator);
+        final byte[] content = new byte[3 * PAGE_SIZE];
+        Arrays.fill(content, (byte) 1);
+        testObject.append(content, 0, content.length);
+        final OffHeapStorage copy = testObject.copy();
+        assertEquals(allocator.allocatedBytes(), 2 * content.length);
+        testObject.clear();
+        assertEquals(allocator.allocatedBytes(), content.length, "Pages aren't released");
+        // released pages are reused with their old content, so it shouldn't be exposed
+        final OffHeapStorage reused = new OffHeapStorage(allocator);
+        reused.write(PAGE_SIZE, new byte[]{2});
+        assertEquals(allocator.allocatedBytes(), content.length + 2 * PAGE_SIZE, "Only pages up to the end of content should be allocated");
+        assertEquals(reused.content(0, PAGE_SIZE).get(), new byte[PAGE_SIZE]);
+        assertEquals(copy.content().get(), content);
+    }
+
+    @Test
+    public void testTruncate() throws Exception {
+        final SlabAllocator allocator = new SlabAllocator();
+        final OffHeapStorage testObject = new OffHeapStorage(allocator);
+        final byte[] content = new byte[3 * PAGE_SIZE];
+        Arrays.fill(content, (byte) 1);
+        testObject.append(content, 0, content.length);
+        testObject.truncate(PAGE_SIZE + 1);
+        assertEquals(allocator.allocatedBytes(), 2 * PAGE_SIZE, "Pages after the end of content aren't released");
+        // bytes after the end of content are left in the last page, so they shouldn't be exposed
+        testObject.write(PAGE_SIZE + 2, new byte[]{2});
+        assertEquals(testObject.content(PAGE_SIZE, 3).get(), new byte[]{1, 0, 2});
+    }
+
+    @Test
+    public void testRandomOperations() throws Exception {
+        BlockStorageTest.checkRandomOperations(new OffHeapStorage(new SlabAllocator()));
+    }
+}
@@ -0,0 +1,84 @@
+package fs.impl;
+
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+public class PathTest {
+    @DataProvider
+    public static Object[][] paths() {
+        return new Object[][]{
+                {"/", asList("")},
+                {"///", asList("")},
+                {"/a", asList("a")},
+                {"/a/", asList("a")},
+                {"//a//bc///d//", asList("a", "bc", "d")},
+                {"/a/b/c/d/e", asList("a", "b", "c", "d", "e")}};
+    }
+
+    @Test(dataProvider = "paths")
+    public void testParse(String path, List<String> expected) throws Exception {
+        final Path testObject = Path.parse(path);
+        final List<String> actual = new ArrayList<>();
+        for (int i = 0; i < testObject.size(); i++) {
+            actual.add(testObject.name(i));
+        }
+        assertEquals(actual, expected, "Failure on parsing " + path);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testParseMalformed() throws Exception {
+        Path.parse("a/b");
+    }
+
+    @Test
+    public void testKey() throws Exception {
+        final Map<Path.Name, Integer> map = new HashMap<>();
+        map.put(Path.Name.of("bc"), 1);
+        final Path testObject = Path.parse("/a/bc/b");
+        assertEquals(map.get(testObject.key(1)), Integer.valueOf(1), "Failure on looking up by key");
+        assertEquals(map.get(testObject.key(2)), null, "Key of different name is found");
+        // equality is symmetric and names aren't equal to strings
+        assertEquals(Path.Name.of("bc"), testObject.key(1));
+        assertEquals(testObject.key(1).hashCode(), Path.Name.of("bc").hashCode());
+        assertFalse(testObject.key(1).equals("bc"));
+        assertFalse(Path.Name.of("bc").equals("bc"));
+    }
+
+    @Test
+    public void testEqualsAndOrder() throws Exception {
+        final Path ab = Path.parse("/a/b");
+        assertEquals(Path.parse("//a///b/"), ab);
+        assertEquals(Path.parse("//a///b/").hashCode(), ab.hashCode());
+        assertEquals(ab.prefix(1), Path.parse("/a"));
+        assertEquals(ab.toString(), "/a/b");
+        assertEquals(ab.prefix(0).toString(), "");
+        assertTrue(ab.prefix(1).compareTo(ab) < 0, "Ancestor doesn't precede descendant");
+        assertTrue(Path.parse("/a/c").compareTo(ab) > 0, "Failure on comparing siblings");
+        assertTrue(ab.prefix(1).isAncestorOf(ab));
+        assertFalse(ab.isAncestorOf(ab));
+        assertFalse(Path.parse("/ab").isAncestorOf(Path.parse("/a/b")));
+    }
+
+    @Test
+    public void testCommonPrefix() throws Exception {
+        final Path abc = Path.parse("/a/b/c");
+        assertEquals(abc.commonPrefix(Path.parse("/a/b/d")), Path.parse("/a/b"));
+        assertEquals(abc.commonPrefix(Path.parse("/a/bc")), Path.parse("/a"));
+        assertEquals(abc.commonPrefix(abc.prefix(1)), Path.parse("/a"));
+        assertEquals(abc.commonPrefix(abc), abc);
+        assertEquals(abc.commonPrefix(Path.parse("/d")).size(), 0);
+    }
+}
@@ -0,0 +1,61 @@
+package fs.impl;
+
+import static org.testng.Assert.assertEquals;
+
+import data.ByteArray;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author Andrey Antipov (gorttar@gmail.com) (2026-10-16)
+ */
+public class PersistentNodeTest {
+    @Test
+    public void testWrite() throws Exception {
+        final PersistentNode.File original = PersistentNode.File.EMPTY.append(new byte[]{1, 2, 3}).append(new byte[]{4, 5, 6});
+        final PersistentNode.File written = original.write(2, new byte[]{0, 0});
+        assertEquals(written.content().get(), new byte[]{1, 2, 0, 0, 5, 6});
+        assertEquals(written.content(1, 4).get(), new byte[]{2, 0, 0, 5});
+        assertEquals(written.write(8, new byte[]{7}).content().get(), new byte[]{1, 2, 0, 0, 5, 6, 0, 0, 7}, "Gap isn't filled with zeros");
+        assertEquals(written.write(5, new byte[]{9, 9}).content().get(), new byte[]{1, 2, 0, 0, 5, 9, 9});
+        assertEquals(original.content().get(), new byte[]{1, 2, 3, 4, 5, 6}, "Previous version is changed");
+    }
+
+    @Test
+    public void testRandomOperations() throws Exception {
+        final Random random = new Random(42);
+        PersistentNode.File testObject = PersistentNode.File.EMPTY;
+        byte[] expected = new byte[0];
+        PersistentNode.File previous = testObject;
+        byte[] previousExpected = expected;
+        for (int i = 0; i < 2000; i++) {
+            final byte[] content = new byte[random.nextInt(40)];
+            random.nextBytes(content);
+            if (random.nextBoolean()) {
+                testObject = testObject.append(new ByteArray(content));
+                expected = Arrays.copyOf(expected, expected.length + content.length);
+                System.arraycopy(content, 0, expected, expected.length - content.length, content.length);
+            } else {
+                final int offset = random.nextInt(expected.length + 8);
+                testObject = testObject.write(offset, content);
+                expected = Arrays.copyOf(expected, Math.max(expected.length, offset + content.length));
+                System.arraycopy(content, 0, expected, offset, content.length);
+            }
+            assertEquals(testObject.size(), expected.length);
+            final int offset = random.nextInt(expected.length + 1);
+            final int length = random.nextInt(64);
+            assertEquals(
+                    testObject.content(offset, length).get(),
+                    Arrays.copyOfRange(expected, offset, Math.min(expected.length, offset + length)),
+                    "Failure on step " + i);
+            if (i % 100 == 0) {
+                assertEquals(previous.content().get(), previousExpected, "Previous version is changed on step " + i);
+                previous = testObject;
+                previousExpected = expected;
+            }
+        }
+        assertEquals(testObject.content().get(), expected);
+    }
+}
@@ -7,8 +7,13 @@ import static java.util.Objects.requireNonNull;
 import static org.testng.Assert.fail;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * @author Andrey Antipov (gorttar@gmail.com) (2016-12-25)
@@ -94,4 +99,18 @@ public final class TestHelper {
     public static <T> Consumer<T> provideFail(String message) {
         return addReprToCons(arg -> fail(message + "\t arg:" + arg), "arg -> fail(" + message + " + \"\\t arg:\" + arg)");
     }
-}
\ No newline at end of file
+
+    /**
+     * deletes directory with all it's content
+     *
+     * @param directory to be deleted
+     */
+    public static void deleteRecursively(@Nonnull Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(requireNonNull(directory))) {
+            // children are deleted before their parents
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}